@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An Absurdle-style game in which the host never commits to a key.
+ *
+ * After every guess the remaining candidate keys are partitioned by the
+ * feedback they would produce, using the same MATCH semantics as
+ * {@link NGramMatcher}, and the largest bucket survives. Ties go to the bucket
+ * with the lowest feedback code, so the game is deterministic. Partitioning is
+ * a single pass over the candidates' encoded letters and builds no Filters, so
+ * a round costs O(remaining candidates) however large the dictionary is.
+ */
+public final class AdversarialGame {
+
+    private static final int MAX_DENSE_PATTERNS = 1 << 20;
+
+    private final Corpus corpus;
+    private final EncodedWords encoded;
+    private final int[] scratch;
+    private final int[] counts;   // Bucket sizes by code, when codes are dense enough
+    private int[] candidates;     // Ids of the keys that are still possible
+    private int[] codes;          // Feedback of the last guess, per candidate
+    private int remaining;
+    private boolean solved;
+
+    /**
+     * Starts a game in which every NGram of the corpus is still a possible key.
+     *
+     * @throws NullPointerException if the corpus is null.
+     * @throws IllegalArgumentException if the corpus is empty or its words are too long.
+     */
+    public AdversarialGame(Corpus corpus) {
+        this.corpus = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        if (corpus.size() == 0) {
+            throw new IllegalArgumentException("Corpus must not be empty.");
+        }
+        int patterns = Feedback.patterns(corpus.wordSize());
+        this.encoded = corpus.encoded();
+        this.scratch = encoded.scratch();
+        this.counts = patterns <= MAX_DENSE_PATTERNS ? new int[patterns] : null;
+        this.remaining = corpus.size();
+        this.candidates = new int[remaining];
+        this.codes = new int[remaining];
+        for (int id = 0; id < remaining; id++) {
+            candidates[id] = id;
+        }
+    }
+
+    /**
+     * Plays a guess: keeps the largest feedback bucket of the remaining
+     * candidates and returns a key from it, which produces the same feedback
+     * for the guess as every other surviving candidate.
+     *
+     * @throws NullPointerException if the guess is null.
+     * @throws IllegalArgumentException if the guess has the wrong length.
+     * @throws IllegalStateException if the game is already solved.
+     */
+    public NGram guess(NGram guess) {
+        Objects.requireNonNull(guess, "Guess cannot be null.");
+        if (guess.size() != corpus.wordSize()) {
+            throw new IllegalArgumentException("Guess must have length " + corpus.wordSize() + ".");
+        }
+        if (solved) {
+            throw new IllegalStateException("The game is already solved.");
+        }
+        int[] letters = encoded.encode(guess);
+        int best = counts != null ? partitionDense(letters) : partitionSparse(letters);
+
+        int kept = 0;
+        for (int i = 0; i < remaining; i++) {
+            if (codes[i] == best) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        remaining = kept;
+        solved = best == Feedback.solved(corpus.wordSize());
+        return corpus.get(candidates[0]);
+    }
+
+    /**
+     * Computes every candidate's code and counts buckets in an array indexed by code.
+     */
+    private int partitionDense(int[] letters) {
+        int best = -1;
+        for (int i = 0; i < remaining; i++) {
+            int code = encoded.code(candidates[i], letters, scratch);
+            codes[i] = code;
+            int size = ++counts[code];
+            if (best < 0 || size > counts[best] || (size == counts[best] && code < best)) {
+                best = code;
+            }
+        }
+        for (int i = 0; i < remaining; i++) {
+            counts[codes[i]] = 0;
+        }
+        return best;
+    }
+
+    /**
+     * Same as partitionDense for words too long for a dense count array.
+     */
+    private int partitionSparse(int[] letters) {
+        Map<Integer, Integer> sizes = new HashMap<>();
+        int best = -1;
+        int bestSize = 0;
+        for (int i = 0; i < remaining; i++) {
+            int code = encoded.code(candidates[i], letters, scratch);
+            codes[i] = code;
+            int size = sizes.merge(code, 1, Integer::sum);
+            if (size > bestSize || (size == bestSize && code < best)) {
+                best = code;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of keys that are still possible.
+     */
+    public int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Returns whether the last guess was forced to be the key.
+     */
+    public boolean isSolved() {
+        return solved;
+    }
+
+    /**
+     * Returns the keys that are still possible, in id order.
+     */
+    public List<NGram> candidates() {
+        List<NGram> result = new ArrayList<>(remaining);
+        for (int i = 0; i < remaining; i++) {
+            result.add(corpus.get(candidates[i]));
+        }
+        return result;
+    }
+}
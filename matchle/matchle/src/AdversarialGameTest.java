@@ -0,0 +1,78 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AdversarialGameTest {
+
+    private Corpus createTestCorpus() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+            NGram.from("cat"),
+            NGram.from("cot"),
+            NGram.from("cut"),
+            NGram.from("dog"),
+            NGram.from("dig"),
+            NGram.from("tag"),
+            NGram.from("act")
+        )).build();
+    }
+
+    @Test
+    public void testKeepsLargestBucket() {
+        Corpus corpus = createTestCorpus();
+        NGram guess = NGram.from("cot");
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for (NGram key : corpus) {
+            sizes.merge(Feedback.code(key, guess), 1, Integer::sum);
+        }
+        int largest = sizes.values().stream().max(Integer::compare).get();
+
+        AdversarialGame game = new AdversarialGame(corpus);
+        NGram key = game.guess(guess);
+        assertEquals(largest, game.remaining());
+        int code = Feedback.code(key, guess);
+        for (NGram candidate : game.candidates()) {
+            assertEquals(code, Feedback.code(candidate, guess));
+        }
+        assertFalse(game.isSolved());
+    }
+
+    @Test
+    public void testSolvedOnlyWhenForced() {
+        AdversarialGame game = new AdversarialGame(createTestCorpus());
+        int rounds = 0;
+        while (!game.isSolved()) {
+            int before = game.remaining();
+            List<NGram> candidates = game.candidates();
+            game.guess(candidates.get(0));
+            rounds++;
+            assertTrue("Guessing a candidate never grows the set", game.remaining() <= before);
+            assertTrue(rounds <= 7);
+        }
+        assertEquals(1, game.remaining());
+    }
+
+    @Test
+    public void testGuessOutsideCorpus() {
+        AdversarialGame game = new AdversarialGame(createTestCorpus());
+        game.guess(NGram.from("zzz"));
+        // No letter of "zzz" occurs, so every key gives the same feedback.
+        assertEquals(7, game.remaining());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoGuessAfterSolved() {
+        Corpus single = Corpus.Builder.create().add(NGram.from("cat")).build();
+        AdversarialGame game = new AdversarialGame(single);
+        game.guess(NGram.from("cat"));
+        assertTrue(game.isSolved());
+        game.guess(NGram.from("cat"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLength() {
+        new AdversarialGame(createTestCorpus()).guess(NGram.from("cats"));
+    }
+}
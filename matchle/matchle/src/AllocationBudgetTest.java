@@ -0,0 +1,144 @@
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Fails the build when a hot path starts allocating noticeably more.
+ *
+ * Bytes are read from com.sun.management.ThreadMXBean, summed over every live
+ * thread so that work done in the common fork-join pool counts too. A round
+ * reads the same thread ids before and after; if a thread started or died in
+ * between, some of its bytes would be missed, so the round is measured again.
+ * Each operation is warmed up first so the JIT has compiled it, and the lowest
+ * of several measured rounds is compared with the budget. Budgets are about
+ * twice what the operations allocate today: loose enough to ignore JIT and
+ * JDK noise, tight enough to catch a doubling.
+ */
+public class AllocationBudgetTest {
+
+    private static final int ROUNDS = 3;
+    private static final int MAX_ATTEMPTS = 10 * ROUNDS;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static volatile Object sink;  // Keeps results alive so no work is optimised away
+
+    private static final NGram KEY = NGram.from("crane");
+    private static final NGram GUESS = NGram.from("slate");
+
+    @BeforeClass
+    public static void checkSupport() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Returns the bytes the given threads allocated in total, or -1 if any of
+     * them has died.
+     */
+    private static long allocatedBytes(long[] ids) {
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(ids)) {
+            if (bytes < 0) {
+                return -1;
+            }
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * Runs the operation the given number of times and returns the bytes
+     * allocated per call, or -1 if the set of live threads changed meanwhile.
+     */
+    private static double measure(int iterations, Supplier<Object> op) {
+        long[] ids = threads.getAllThreadIds();
+        long before = allocatedBytes(ids);
+        for (int i = 0; i < iterations; i++) {
+            sink = op.get();
+        }
+        long after = allocatedBytes(ids);
+        long[] now = threads.getAllThreadIds();
+        Arrays.sort(ids);
+        Arrays.sort(now);
+        if (before < 0 || after < 0 || !Arrays.equals(ids, now)) {
+            return -1;
+        }
+        return (after - before) / (double) iterations;
+    }
+
+    private static void assertBudget(String operation, long budget, int iterations, Supplier<Object> op) {
+        for (int i = 0; i < iterations * 5; i++) {
+            sink = op.get();
+        }
+        double best = Double.MAX_VALUE;
+        int rounds = 0;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && rounds < ROUNDS; attempt++) {
+            double perCall = measure(iterations, op);
+            if (perCall >= 0) {
+                best = Math.min(best, perCall);
+                rounds++;
+            }
+        }
+        assertEquals(operation + ": threads kept starting or dying while measuring", ROUNDS, rounds);
+        assertTrue(operation + " allocated " + Math.round(best) + " bytes per call, budget " + budget,
+                   best <= budget);
+    }
+
+    private static Corpus createCorpus() {
+        List<NGram> words = new ArrayList<>();
+        for (char a = 'a'; a <= 'z'; a += 2) {
+            for (char b = 'a'; b <= 'z'; b += 3) {
+                for (char c = 'b'; c <= 'z'; c += 5) {
+                    words.add(NGram.from(new String(new char[] {a, b, c, 'e', a})));
+                }
+            }
+        }
+        return Corpus.Builder.create().addAll(words).build();
+    }
+
+    @Test
+    public void testNGramFrom() {
+        assertBudget("NGram.from", 768, 20_000, () -> NGram.from("crane"));
+    }
+
+    @Test
+    public void testMatch() {
+        assertBudget("NGramMatcher.match", 4_096, 20_000, () -> NGramMatcher.of(KEY, GUESS).match());
+    }
+
+    @Test
+    public void testFilterTest() {
+        Filter filter = NGramMatcher.of(KEY, GUESS).match();
+        NGram word = NGram.from("plate");
+        assertBudget("Filter.test", 64, 200_000, () -> filter.test(word));
+    }
+
+    @Test
+    public void testCorpusSize() {
+        Corpus corpus = createCorpus();
+        Filter filter = NGramMatcher.of(KEY, GUESS).match();
+        assertBudget("Corpus.size", 2_048, 200, () -> corpus.size(filter));
+    }
+
+    @Test
+    public void testScore() {
+        Corpus corpus = createCorpus();
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        assertBudget("MatchleScorer.score", 48_000, 200, () -> scorer.score(KEY, GUESS));
+    }
+
+    @Test
+    public void testScoreEntropy() {
+        Corpus corpus = createCorpus();
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        assertBudget("MatchleScorer.scoreEntropy", 3_072, 2_000, () -> scorer.scoreEntropy(GUESS));
+    }
+}
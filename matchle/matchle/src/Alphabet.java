@@ -0,0 +1,159 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The distinct letters of a corpus, numbered densely from 0 in sorted order.
+ *
+ * A letter is one char of an NGram, and every letter must be a whole code
+ * point of the Basic Multilingual Plane. A supplementary character would be
+ * two surrogate chars, which the fast paths would number and match as two
+ * unrelated letters, so alphabets reject surrogates instead. The numbering
+ * only covers letters that actually occur, so arrays and bitmasks indexed by
+ * it stay as small as the real alphabet. Letters are looked up in a table
+ * spanning the lowest to the highest letter when that span is small, and by
+ * binary search otherwise, so one outlying letter cannot inflate the table.
+ */
+public final class Alphabet {
+
+    /**
+     * Largest lookup table, in entries per letter, before lookups fall back to binary search.
+     */
+    static final int MAX_SPAN_PER_LETTER = 8;
+
+    /**
+     * Span that always gets a table, however few the letters.
+     */
+    static final int MIN_TABLE_SPAN = 256;
+
+    private final char[] letters;  // Sorted, distinct
+    private final int[] index;     // index[c - first] is the number of c, or -1; null for binary search
+    private final char first;
+
+    private Alphabet(char[] letters) {
+        this.letters = letters;
+        this.first = letters.length == 0 ? 0 : letters[0];
+        int span = letters.length == 0 ? 0 : letters[letters.length - 1] - first + 1;
+        if (span <= Math.max(MIN_TABLE_SPAN, MAX_SPAN_PER_LETTER * letters.length)) {
+            this.index = new int[span];
+            Arrays.fill(index, -1);
+            for (int i = 0; i < letters.length; i++) {
+                index[letters[i] - first] = i;
+            }
+        } else {
+            this.index = null;
+        }
+    }
+
+    /**
+     * Checks that a letter is a whole code point, not half of a supplementary character.
+     */
+    private static void checkLetter(char c) {
+        if (Character.isSurrogate(c)) {
+            throw new IllegalArgumentException(String.format(
+                    "Letter U+%04X is a surrogate; supplementary characters are not supported.", (int) c));
+        }
+    }
+
+    /**
+     * Collects the letters of the given NGrams.
+     *
+     * @throws NullPointerException if words is null.
+     * @throws IllegalArgumentException if a letter is a surrogate.
+     */
+    public static Alphabet of(Iterable<NGram> words) {
+        Objects.requireNonNull(words, "Words cannot be null.");
+        boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+        int count = 0;
+        for (NGram ngram : words) {
+            for (int i = 0; i < ngram.size(); i++) {
+                char c = ngram.get(i);
+                if (!seen[c]) {
+                    checkLetter(c);
+                    seen[c] = true;
+                    count++;
+                }
+            }
+        }
+        char[] letters = new char[count];
+        int next = 0;
+        for (int c = 0; next < count; c++) {
+            if (seen[c]) {
+                letters[next++] = (char) c;
+            }
+        }
+        return new Alphabet(letters);
+    }
+
+    /**
+     * Wraps letters that are already sorted and distinct, such as a snapshot's table.
+     *
+     * @throws IllegalArgumentException if the letters are not strictly increasing,
+     *                                  or one is a surrogate.
+     */
+    static Alphabet ofSorted(char[] letters) {
+        for (char c : letters) {
+            checkLetter(c);
+        }
+        for (int i = 1; i < letters.length; i++) {
+            if (letters[i - 1] >= letters[i]) {
+                throw new IllegalArgumentException("Alphabet letters must be sorted and distinct.");
+            }
+        }
+        return new Alphabet(letters.clone());
+    }
+
+    /**
+     * Returns the number of distinct letters.
+     */
+    public int size() {
+        return letters.length;
+    }
+
+    /**
+     * Returns the letter with the given number.
+     *
+     * @throws IndexOutOfBoundsException if the number is out of range.
+     */
+    public char letter(int number) {
+        return letters[Objects.checkIndex(number, letters.length)];
+    }
+
+    /**
+     * Returns the number of the given letter, or -1 if it is not in the alphabet.
+     */
+    public int indexOf(char c) {
+        if (index == null) {
+            return Math.max(-1, Arrays.binarySearch(letters, c));
+        }
+        int offset = c - first;
+        return offset >= 0 && offset < index.length ? index[offset] : -1;
+    }
+
+    /**
+     * Checks whether the given letter is in the alphabet.
+     */
+    public boolean contains(char c) {
+        return indexOf(c) >= 0;
+    }
+
+    /**
+     * Returns the letter numbers of an NGram, using -1 for letters outside the alphabet.
+     *
+     * @throws NullPointerException if the NGram is null.
+     */
+    public int[] encode(NGram ngram) {
+        Objects.requireNonNull(ngram, "NGram cannot be null.");
+        int[] encoded = new int[ngram.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = indexOf(ngram.get(i));
+        }
+        return encoded;
+    }
+
+    /**
+     * Returns a copy of the letters in number order.
+     */
+    char[] letters() {
+        return letters.clone();
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+
+public class AlphabetTest {
+
+    @Test
+    public void testDenseSortedNumbering() {
+        Alphabet a = Alphabet.of(Arrays.asList(NGram.from("cab"), NGram.from("bad")));
+        assertEquals(4, a.size());
+        assertEquals(0, a.indexOf('a'));
+        assertEquals(3, a.indexOf('d'));
+        assertEquals('c', a.letter(2));
+        assertEquals(-1, a.indexOf('z'));
+        assertFalse(a.contains('e'));
+    }
+
+    @Test
+    public void testNonLatinLetters() {
+        // Greek and Cyrillic letters are numbered from 0 like any other alphabet.
+        Alphabet a = Alphabet.of(Arrays.asList(NGram.from("\u03b1\u03b2\u03b3"), NGram.from("\u0434\u0430")));
+        assertEquals(5, a.size());
+        assertEquals(0, a.indexOf('\u03b1'));
+        assertEquals(4, a.indexOf('\u0434'));
+        assertArrayEquals(new int[] {4, 3, -1}, a.encode(NGram.from("\u0434\u0430x")));
+    }
+
+    /**
+     * A supplementary character is two chars in an NGram; numbering them as two
+     * letters would split it, so such corpora are rejected.
+     */
+    @Test
+    public void testSupplementaryCharactersRejected() {
+        String emoji = new String(Character.toChars(0x1F600));
+        assertThrows(IllegalArgumentException.class, () -> Alphabet.of(Arrays.asList(NGram.from("a" + emoji))));
+        assertThrows(IllegalArgumentException.class, () -> Alphabet.ofSorted(new char[] {'a', emoji.charAt(0)}));
+        Corpus corpus = Corpus.Builder.create().add(NGram.from("ab" + emoji)).build();
+        assertThrows(IllegalArgumentException.class, corpus::encoded);
+    }
+
+    /**
+     * One outlying letter switches lookups to binary search instead of a table up to it.
+     */
+    @Test
+    public void testSparseLetters() {
+        Alphabet a = Alphabet.of(Arrays.asList(NGram.from("ab\uffef"), NGram.from("\u4e00ba")));
+        assertEquals(4, a.size());
+        assertEquals(0, a.indexOf('a'));
+        assertEquals(2, a.indexOf('\u4e00'));
+        assertEquals(3, a.indexOf('\uffef'));
+        assertEquals(-1, a.indexOf('c'));
+        assertEquals(-1, a.indexOf('\uffff'));
+        assertEquals(-1, a.indexOf('\u0000'));
+        assertArrayEquals(new int[] {3, -1, 1}, a.encode(NGram.from("\uffefzb")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfSortedRejectsUnsorted() {
+        Alphabet.ofSorted(new char[] {'b', 'a'});
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testLetterOutOfRange() {
+        Alphabet.of(Arrays.asList(NGram.from("ab"))).letter(2);
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams (key, guess sequence) records through the feedback and suggestion
+ * logic without an interactive game.
+ *
+ * Each input line is a key followed by its guesses, separated by blanks:
+ * {@code crane slate trace}. Each output line repeats the key and gives the
+ * feedback for every guess as one digit per position (0 absent, 1 misplaced,
+ * 2 exact, position 0 first), then, when suggestions are on, the next guess:
+ * {@code crane 00202 02212 crane}. The suggestion is {@code +} once the last
+ * guess is the key and {@code -} when no word of the corpus is consistent. A
+ * record that cannot be evaluated becomes {@code key ! reason}. Blank lines
+ * and lines starting with {@code #} produce no output.
+ *
+ * Input is read in large blocks that are cut at line ends and evaluated in
+ * parallel straight from the char buffer, so no String is built per line;
+ * results are written in input order through the caller's Writer. Suggestions
+ * for a given history are computed once per runner.
+ */
+public final class BatchRunner {
+
+    /**
+     * Chars read per block; a block is cut at its last line end before it is processed.
+     */
+    static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Most histories whose suggestion is remembered.
+     */
+    static final int MAX_CACHED_SUGGESTIONS = 1 << 16;
+
+    private final Suggester suggester;  // Null when only feedback is wanted
+    private final GameSimulator.Strategy strategy;
+    private final int threads;
+    private final Map<String, String> suggestions = new ConcurrentHashMap<>();
+
+    private static record Chunk(StringBuilder text, long records) {}
+
+    /**
+     * Creates a runner that only reports feedback.
+     *
+     * @throws IllegalArgumentException if threads is not positive.
+     */
+    public BatchRunner(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.suggester = null;
+        this.strategy = null;
+        this.threads = threads;
+    }
+
+    /**
+     * Creates a runner that also suggests the next guess with the given strategy.
+     *
+     * @throws NullPointerException if suggester or strategy is null.
+     * @throws IllegalArgumentException if threads is not positive.
+     */
+    public BatchRunner(Suggester suggester, GameSimulator.Strategy strategy, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.suggester = Objects.requireNonNull(suggester, "Suggester cannot be null.");
+        this.strategy = Objects.requireNonNull(strategy, "Strategy cannot be null.");
+        this.threads = threads;
+    }
+
+    /**
+     * Reads every record from in and writes its result to out, in input order,
+     * then flushes out. Neither stream is closed.
+     *
+     * @return the number of records processed.
+     * @throws IOException if reading or writing fails.
+     */
+    public long run(Reader in, Writer out) throws IOException {
+        Objects.requireNonNull(in, "Reader cannot be null.");
+        Objects.requireNonNull(out, "Writer cannot be null.");
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "batch-runner");
+            t.setDaemon(true);
+            return t;
+        });
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        long records = 0;
+        try {
+            char[] buf = new char[BLOCK_SIZE];
+            int length = 0;
+            boolean eof = false;
+            while (!eof) {
+                do {
+                    int read = in.read(buf, length, buf.length - length);
+                    eof = read < 0;
+                    length += Math.max(read, 0);
+                } while (!eof && length < buf.length && in.ready());
+                int end = eof ? length : lastLineEnd(buf, length);
+                if (end == 0) {
+                    if (length == buf.length) {
+                        buf = Arrays.copyOf(buf, buf.length * 2);  // One line longer than a block
+                    }
+                    continue;
+                }
+                char[] block = buf;
+                int blockEnd = end;
+                pending.add(pool.submit(() -> process(block, blockEnd)));
+                buf = new char[Math.max(BLOCK_SIZE, length - end)];
+                System.arraycopy(block, end, buf, 0, length - end);
+                length -= end;
+                while (!pending.isEmpty() && (pending.size() > threads * 2 || pending.peek().isDone())) {
+                    records += write(pending.poll(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                records += write(pending.poll(), out);
+            }
+            out.flush();
+            return records;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long write(Future<Chunk> future, Writer out) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a batch chunk.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        out.append(chunk.text());
+        return chunk.records();
+    }
+
+    private static int lastLineEnd(char[] buf, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buf[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Evaluates the lines of buf[0, end) into one block of output.
+     */
+    Chunk process(char[] buf, int end) {
+        StringBuilder out = new StringBuilder(end + end / 2);
+        StringBuilder history = new StringBuilder();
+        boolean[] scratch = new boolean[Feedback.MAX_LENGTH];
+        long records = 0;
+        int pos = 0;
+        while (pos < end) {
+            int lineEnd = pos;
+            while (lineEnd < end && buf[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int stop = lineEnd > pos && buf[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            int start = skipBlanks(buf, pos, stop);
+            if (start < stop && buf[start] != '#') {
+                record(buf, start, stop, out, history, scratch);
+                records++;
+            }
+            pos = lineEnd + 1;
+        }
+        return new Chunk(out, records);
+    }
+
+    private void record(char[] buf, int start, int stop, StringBuilder out,
+                        StringBuilder history, boolean[] scratch) {
+        int mark = out.length();
+        int keyEnd = tokenEnd(buf, start, stop);
+        int n = keyEnd - start;
+        out.append(buf, start, n);
+        if (n > Feedback.MAX_LENGTH) {
+            fail(out, mark, buf, start, n, "key is longer than " + Feedback.MAX_LENGTH);
+            return;
+        }
+        history.setLength(0);
+        boolean solved = false;
+        for (int pos = skipBlanks(buf, keyEnd, stop); pos < stop; ) {
+            int guessEnd = tokenEnd(buf, pos, stop);
+            if (guessEnd - pos != n) {
+                fail(out, mark, buf, start, n, "guess length differs from key");
+                return;
+            }
+            int code = Feedback.code(buf, start, buf, pos, n, scratch);
+            out.append(' ');
+            int digits = out.length();
+            for (int i = 0, rest = code; i < n; i++, rest /= 3) {
+                out.append((char) ('0' + rest % 3));
+            }
+            if (suggester != null) {
+                history.append(history.length() == 0 ? "" : ",").append(buf, pos, n).append('.')
+                       .append(out, digits, out.length());
+            }
+            solved = code == Feedback.solved(n);
+            pos = skipBlanks(buf, guessEnd, stop);
+        }
+        if (suggester == null) {
+            out.append('\n');
+        } else if (solved) {
+            out.append(" +\n");
+        } else if (n != suggester.corpus().wordSize()) {
+            fail(out, mark, buf, start, n, "key length differs from the corpus");
+        } else {
+            try {
+                out.append(' ').append(suggest(history.toString())).append('\n');
+            } catch (IllegalArgumentException e) {
+                fail(out, mark, buf, start, n, e.getMessage());  // A guess the history format cannot carry
+            }
+        }
+    }
+
+    private String suggest(String history) {
+        String cached = suggestions.get(history);
+        if (cached != null) {
+            return cached;
+        }
+        NGram guess = suggester.suggest(strategy, Suggester.parseHistory(history));
+        String word = guess == null ? "-" : MatchleExtensionApp.ngramToString(guess);
+        if (suggestions.size() < MAX_CACHED_SUGGESTIONS) {
+            suggestions.putIfAbsent(history, word);
+        }
+        return word;
+    }
+
+    private static void fail(StringBuilder out, int mark, char[] buf, int start, int n, String reason) {
+        out.setLength(mark);
+        out.append(buf, start, n).append(" ! ").append(reason).append('\n');
+    }
+
+    private static int skipBlanks(char[] buf, int pos, int stop) {
+        while (pos < stop && (buf[pos] == ' ' || buf[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int tokenEnd(char[] buf, int pos, int stop) {
+        while (pos < stop && buf[pos] != ' ' && buf[pos] != '\t') {
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,108 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class BatchRunnerTest {
+
+    private static Corpus createCorpus() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+                NGram.from("cat"), NGram.from("cot"), NGram.from("dog"), NGram.from("dig"),
+                NGram.from("cut"), NGram.from("bat"), NGram.from("bog"))).build();
+    }
+
+    private static String run(BatchRunner runner, String input) throws IOException {
+        StringWriter out = new StringWriter();
+        runner.run(new StringReader(input), out);
+        return out.toString();
+    }
+
+    private static String digits(String key, String guess) {
+        StringBuilder sb = new StringBuilder();
+        for (int state : Feedback.states(Feedback.code(NGram.from(key), NGram.from(guess)), key.length())) {
+            sb.append(state);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testFeedbackOnly() throws IOException {
+        String output = run(new BatchRunner(2), "rebus eerie rebus\n\n# comment\r\n  cat cot\tcab\r\ngeese\n");
+        assertEquals("rebus 02100 22222\ncat 202 220\ngeese\n", output);
+    }
+
+    @Test
+    public void testSuggestions() throws IOException {
+        Corpus corpus = createCorpus();
+        Suggester suggester = new Suggester(corpus);
+        BatchRunner runner = new BatchRunner(suggester, GameSimulator.Strategy.ENTROPY, 2);
+        NGram opening = suggester.suggest(GameSimulator.Strategy.ENTROPY, List.of());
+        String next = MatchleExtensionApp.ngramToString(suggester.suggest(GameSimulator.Strategy.ENTROPY,
+                List.of(new Suggester.Turn(NGram.from("cat"), Feedback.code(NGram.from("dog"), NGram.from("cat"))))));
+        String output = run(runner, "dog\ndog cat\ndog cat dog\ndog xyz\nbat cut\n");
+        assertEquals("dog " + MatchleExtensionApp.ngramToString(opening) + "\n"
+                     + "dog 000 " + next + "\n"
+                     + "dog 000 222 +\n"
+                     + "dog 000 " + next + "\n"
+                     + "bat " + digits("bat", "cut") + " " + MatchleExtensionApp.ngramToString(
+                             suggester.suggest(GameSimulator.Strategy.ENTROPY, List.of(new Suggester.Turn(
+                                     NGram.from("cut"), Feedback.code(NGram.from("bat"), NGram.from("cut"))))))
+                     + "\n", output);
+    }
+
+    @Test
+    public void testInconsistentAndMalformedRecords() throws IOException {
+        BatchRunner runner = new BatchRunner(new Suggester(createCorpus()), GameSimulator.Strategy.WORST_CASE, 1);
+        assertEquals("cax 220 -\n", run(runner, "cax cat\n"));
+        assertEquals("cat ! guess length differs from key\n", run(runner, "cat cats\n"));
+        assertEquals("cats ! key length differs from the corpus\n", run(runner, "cats cots\n"));
+        assertEquals("a.b ! Malformed turn: a\n", run(runner, "a.b a,b\n"));
+    }
+
+    @Test
+    public void testOrderKeptAcrossBlocks() throws IOException {
+        Random random = new Random(9);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        int records = 0;
+        while (input.length() < 4 * BatchRunner.BLOCK_SIZE) {
+            List<String> words = new ArrayList<>();
+            for (int w = 0; w < 1 + random.nextInt(6); w++) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 5; i++) {
+                    sb.append((char) ('a' + random.nextInt(8)));
+                }
+                words.add(sb.toString());
+            }
+            input.append(String.join(" ", words)).append('\n');
+            expected.append(words.get(0));
+            for (String guess : words.subList(1, words.size())) {
+                expected.append(' ').append(digits(words.get(0), guess));
+            }
+            expected.append('\n');
+            records++;
+        }
+        StringWriter out = new StringWriter();
+        assertEquals(records, new BatchRunner(3).run(new StringReader(input.toString()), out));
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    public void testLongLineAndMissingFinalNewline() throws IOException {
+        String key = "abcdefghijklmnopqrs";
+        StringBuilder input = new StringBuilder(key);
+        int guesses = BatchRunner.BLOCK_SIZE / key.length() + 10;
+        for (int i = 0; i < guesses; i++) {
+            input.append(' ').append(key);
+        }
+        String output = run(new BatchRunner(2), input.toString());
+        assertEquals(key.length() + guesses * (key.length() + 1) + 1, output.length());
+        assertTrue(output.endsWith(" 2222222222222222222\n"));
+        assertEquals("abcdefghijklmnopqrst ! key is longer than 19\n", run(new BatchRunner(1), "abcdefghijklmnopqrst\n"));
+    }
+}
@@ -0,0 +1,827 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable set of word ids of a full corpus, stored the way Roaring
+ * bitmaps store integers: ids are split into chunks of 65536 by their high
+ * bits, and each chunk keeps its low bits in whichever container is smallest
+ * for its contents:
+ * <ul>
+ * <li>a sorted array of 16-bit values, for a handful of ids;</li>
+ * <li>a 65536-bit bitset, for a dense scatter of ids;</li>
+ * <li>a sorted list of runs (start, length), for long stretches of consecutive
+ *     ids, such as a whole corpus.</li>
+ * </ul>
+ * A fresh game's candidates are one run, and a late round's few candidates a
+ * short array, so memory and the cost of {@link #size()}, {@link #contains(int)},
+ * {@link #and(CandidateSet)} and iteration follow the number of ids rather
+ * than the size of the corpus.
+ *
+ * Sets are built in ascending id order with a {@link Builder}, or with
+ * {@link #of(int, int...)} and {@link #all(int)}. Every id lies in [0, universe()).
+ */
+public final class CandidateSet {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int BITMAP_WORDS = CHUNK_SIZE / Long.SIZE;
+    private static final int BITMAP_BYTES = BITMAP_WORDS * Long.BYTES;
+
+    /**
+     * The kind of container a chunk is stored in.
+     */
+    enum Kind { ARRAY, BITMAP, RUNS }
+
+    private final int universe;
+    private final int[] keys;               // High bits of each non-empty chunk, ascending
+    private final Container[] containers;
+    private final int[] before;             // before[c]: ids in chunks before chunk c
+    private final int size;
+
+    private CandidateSet(int universe, int[] keys, Container[] containers) {
+        this.universe = universe;
+        this.keys = keys;
+        this.containers = containers;
+        this.before = new int[containers.length];
+        int total = 0;
+        for (int c = 0; c < containers.length; c++) {
+            before[c] = total;
+            total += containers[c].cardinality();
+        }
+        this.size = total;
+    }
+
+    /**
+     * Returns the set of every id in [0, universe).
+     *
+     * @throws IllegalArgumentException if universe is negative.
+     */
+    public static CandidateSet all(int universe) {
+        Builder builder = new Builder(universe);
+        builder.addRange(0, universe);
+        return builder.build();
+    }
+
+    /**
+     * Returns the set of the given ids, in any order and with repeats.
+     *
+     * @throws NullPointerException if ids is null.
+     * @throws IllegalArgumentException if universe is negative or an id is out of range.
+     */
+    public static CandidateSet of(int universe, int... ids) {
+        int[] sorted = Objects.requireNonNull(ids, "Ids cannot be null.").clone();
+        Arrays.sort(sorted);
+        Builder builder = new Builder(universe);
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                builder.add(sorted[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the bound every id is below: the size of the full corpus.
+     */
+    public int universe() {
+        return universe;
+    }
+
+    /**
+     * Returns the number of ids in the set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the id is in the set; ids out of range are not.
+     */
+    public boolean contains(int id) {
+        int c = chunkOf(id);
+        return c >= 0 && containers[c].contains(id & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Returns the position of the id among the ids of the set in ascending
+     * order, or -1 if it is not in the set.
+     */
+    public int rank(int id) {
+        int c = chunkOf(id);
+        if (c < 0) {
+            return -1;
+        }
+        int r = containers[c].rank(id & (CHUNK_SIZE - 1));
+        return r < 0 ? -1 : before[c] + r;
+    }
+
+    /**
+     * Returns the id at the given position in ascending order.
+     *
+     * @throws IndexOutOfBoundsException if the position is out of range.
+     */
+    public int select(int position) {
+        Objects.checkIndex(position, size);
+        int c = Arrays.binarySearch(before, position);
+        if (c < 0) {
+            c = -c - 2;  // Chunks are never empty, so the ranks are strictly ascending
+        }
+        return keys[c] << CHUNK_BITS | containers[c].select(position - before[c]);
+    }
+
+    private int chunkOf(int id) {
+        if (id < 0 || id >= universe) {
+            return -1;
+        }
+        int c = Arrays.binarySearch(keys, id >>> CHUNK_BITS);
+        return c >= 0 ? c : -1;
+    }
+
+    /**
+     * Returns the ids in both sets. Chunks are matched by their high bits;
+     * array containers are probed against the other side, and everything
+     * else is intersected word by word.
+     *
+     * @throws NullPointerException if other is null.
+     * @throws IllegalArgumentException if the sets have different universes.
+     */
+    public CandidateSet and(CandidateSet other) {
+        Objects.requireNonNull(other, "Other set cannot be null.");
+        if (other.universe != universe) {
+            throw new IllegalArgumentException("Sets over different corpora cannot be intersected.");
+        }
+        int[] resultKeys = new int[Math.min(keys.length, other.keys.length)];
+        Container[] result = new Container[resultKeys.length];
+        int n = 0;
+        long[] scratch = null;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container a = containers[i];
+                Container b = other.containers[j];
+                Container both;
+                if (a instanceof ArrayContainer || b instanceof ArrayContainer) {
+                    ArrayContainer array = (ArrayContainer) (a instanceof ArrayContainer ? a : b);
+                    both = array.probe(array == a ? b : a);
+                } else {
+                    if (scratch == null) {
+                        scratch = new long[BITMAP_WORDS];
+                    }
+                    long[] words = scratch;
+                    Arrays.fill(words, 0L);
+                    a.orInto(words);
+                    long[] mask = b instanceof BitmapContainer ? ((BitmapContainer) b).words : b.orInto(new long[BITMAP_WORDS]);
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        words[w] &= mask[w];
+                    }
+                    both = optimize(words);
+                }
+                if (both != null) {
+                    resultKeys[n] = keys[i];
+                    result[n++] = both;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new CandidateSet(universe, Arrays.copyOf(resultKeys, n), Arrays.copyOf(result, n));
+    }
+
+    /**
+     * Calls the action with every id, in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action, "Action cannot be null.");
+        for (int c = 0; c < containers.length; c++) {
+            containers[c].forEach(keys[c] << CHUNK_BITS, action);
+        }
+    }
+
+    /**
+     * Returns an iterator over the ids, in ascending order.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int chunk = -1;
+            private PrimitiveIterator.OfInt lows = Container.NONE;
+
+            @Override
+            public boolean hasNext() {
+                while (!lows.hasNext() && chunk + 1 < containers.length) {
+                    lows = containers[++chunk].iterator();
+                }
+                return lows.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return keys[chunk] << CHUNK_BITS | lows.nextInt();
+            }
+        };
+    }
+
+    /**
+     * Returns the ids in ascending order.
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int[] n = {0};
+        forEach(id -> result[n[0]++] = id);
+        return result;
+    }
+
+    /**
+     * Returns the approximate number of bytes the containers occupy.
+     */
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * 3 * Integer.BYTES;
+        for (Container container : containers) {
+            bytes += container.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the container kind of each chunk, in chunk order.
+     */
+    List<Kind> kinds() {
+        List<Kind> result = new ArrayList<>(containers.length);
+        for (Container container : containers) {
+            result.add(container.kind());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CandidateSet)) {
+            return false;
+        }
+        CandidateSet other = (CandidateSet) o;
+        if (universe != other.universe || size != other.size || !Arrays.equals(keys, other.keys)) {
+            return false;
+        }
+        PrimitiveIterator.OfInt mine = iterator();
+        PrimitiveIterator.OfInt theirs = other.iterator();
+        while (mine.hasNext()) {
+            if (mine.nextInt() != theirs.nextInt()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {31 * universe + size};
+        forEach(id -> hash[0] = 31 * hash[0] + id);
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach(id -> sb.append(sb.length() == 1 ? "" : ", ").append(id));
+        return sb.append(']').toString();
+    }
+
+    // =========================================================
+    // Building
+    // =========================================================
+
+    /**
+     * Collects ids in ascending order. Each chunk is gathered in a bitset and
+     * stored in its smallest container once the ids move past it.
+     */
+    public static final class Builder {
+
+        private final int universe;
+        private final List<Integer> keys = new ArrayList<>();
+        private final List<Container> containers = new ArrayList<>();
+        private long[] words;           // Bitset of the current chunk; null until needed
+        private int key = -1;           // High bits of the current chunk, or -1
+        private int last = -1;          // Last id added
+
+        /**
+         * Creates a builder for ids in [0, universe).
+         *
+         * @throws IllegalArgumentException if universe is negative.
+         */
+        public Builder(int universe) {
+            if (universe < 0) {
+                throw new IllegalArgumentException("Universe cannot be negative.");
+            }
+            this.universe = universe;
+        }
+
+        /**
+         * Adds an id greater than every id added so far.
+         *
+         * @throws IllegalArgumentException if the id is out of range or not ascending.
+         */
+        public Builder add(int id) {
+            if (id <= last || id >= universe) {
+                throw new IllegalArgumentException("Ids must be ascending and below " + universe + ": " + id);
+            }
+            moveTo(id >>> CHUNK_BITS);
+            words[(id & (CHUNK_SIZE - 1)) >>> 6] |= 1L << id;
+            last = id;
+            return this;
+        }
+
+        /**
+         * Adds every id in [from, to), all greater than the ids added so far.
+         *
+         * @throws IllegalArgumentException if the range is out of bounds or not ascending.
+         */
+        public Builder addRange(int from, int to) {
+            if (from > to || from <= last || to > universe) {
+                throw new IllegalArgumentException("Range [" + from + ", " + to + ") is not ascending within "
+                                                   + universe + ".");
+            }
+            for (int id = from; id < to; ) {
+                moveTo(id >>> CHUNK_BITS);
+                int end = Math.min(to, (id | (CHUNK_SIZE - 1)) + 1);
+                setBits(words, id & (CHUNK_SIZE - 1), end - (id & ~(CHUNK_SIZE - 1)));
+                id = end;
+            }
+            last = Math.max(last, to - 1);
+            return this;
+        }
+
+        private void moveTo(int chunk) {
+            if (chunk != key) {
+                flush();
+                key = chunk;
+                if (words == null) {
+                    words = new long[BITMAP_WORDS];
+                } else {
+                    Arrays.fill(words, 0L);
+                }
+            }
+        }
+
+        private void flush() {
+            if (key >= 0) {
+                Container container = optimize(words);
+                if (container != null) {
+                    keys.add(key);
+                    containers.add(container);
+                }
+                key = -1;
+            }
+        }
+
+        /**
+         * Returns the set of the ids added. The builder must not be used afterwards.
+         */
+        public CandidateSet build() {
+            flush();
+            return new CandidateSet(universe, keys.stream().mapToInt(Integer::intValue).toArray(),
+                                    containers.toArray(new Container[0]));
+        }
+    }
+
+    /**
+     * Sets bits [from, to) of a chunk bitset.
+     */
+    private static void setBits(long[] words, int from, int to) {
+        for (int bit = from; bit < to; ) {
+            int w = bit >>> 6;
+            int end = Math.min(to, (w + 1) << 6);
+            long mask = end - bit == 64 ? -1L : ((1L << (end - bit)) - 1) << bit;
+            words[w] |= mask;
+            bit = end;
+        }
+    }
+
+    /**
+     * Stores a chunk bitset in its smallest container, or returns null if it is empty.
+     */
+    private static Container optimize(long[] words) {
+        int cardinality = 0;
+        int runs = 0;
+        long carry = 0;  // Top bit of the previous word, shifted to bit 0
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+            runs += Long.bitCount(word & ~(word << 1 | carry));
+            carry = word >>> 63;
+        }
+        if (cardinality == 0) {
+            return null;
+        }
+        long arrayBytes = (long) cardinality * Character.BYTES;
+        long runBytes = (long) runs * (2 * Character.BYTES + Integer.BYTES);
+        if (arrayBytes <= runBytes && arrayBytes <= BITMAP_BYTES) {
+            return ArrayContainer.from(words, cardinality);
+        }
+        if (runBytes <= BITMAP_BYTES) {
+            return RunContainer.from(words, runs);
+        }
+        return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    // =========================================================
+    // Containers
+    // =========================================================
+
+    /**
+     * The low 16 bits of the ids in one chunk.
+     */
+    private abstract static class Container {
+
+        static final PrimitiveIterator.OfInt NONE = new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @Override
+            public int nextInt() {
+                throw new NoSuchElementException();
+            }
+        };
+
+        abstract Kind kind();
+
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        /**
+         * Returns the number of values below low if low is present, else -1.
+         */
+        abstract int rank(int low);
+
+        abstract int select(int position);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract PrimitiveIterator.OfInt iterator();
+
+        /**
+         * Sets the container's values in a chunk bitset and returns it.
+         */
+        abstract long[] orInto(long[] words);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private final char[] values;  // Ascending
+
+        private ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        static ArrayContainer from(long[] words, int cardinality) {
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    values[n++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+                }
+            }
+            return new ArrayContainer(values);
+        }
+
+        /**
+         * Keeps the values the other container also holds.
+         */
+        Container probe(Container other) {
+            char[] kept = new char[values.length];
+            int n = 0;
+            for (char value : values) {
+                if (other.contains(value)) {
+                    kept[n++] = value;
+                }
+            }
+            return n == 0 ? null : new ArrayContainer(n == kept.length ? kept : Arrays.copyOf(kept, n));
+        }
+
+        @Override
+        Kind kind() {
+            return Kind.ARRAY;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(values, (char) low) >= 0;
+        }
+
+        @Override
+        int rank(int low) {
+            int i = Arrays.binarySearch(values, (char) low);
+            return i >= 0 ? i : -1;
+        }
+
+        @Override
+        int select(int position) {
+            return values[position];
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (char value : values) {
+                action.accept(base | value);
+            }
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                private int i;
+
+                @Override
+                public boolean hasNext() {
+                    return i < values.length;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (i >= values.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return values[i++];
+                }
+            };
+        }
+
+        @Override
+        long[] orInto(long[] words) {
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+            return words;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) values.length * Character.BYTES;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private static final int BLOCK_WORDS = 16;
+
+        private final long[] words;
+        private final int cardinality;
+        private final int[] blockRanks;  // blockRanks[b]: values in words before block b
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+            this.blockRanks = new int[BITMAP_WORDS / BLOCK_WORDS];
+            int total = 0;
+            for (int b = 0; b < blockRanks.length; b++) {
+                blockRanks[b] = total;
+                for (int w = b * BLOCK_WORDS; w < (b + 1) * BLOCK_WORDS; w++) {
+                    total += Long.bitCount(words[w]);
+                }
+            }
+        }
+
+        @Override
+        Kind kind() {
+            return Kind.BITMAP;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int rank(int low) {
+            if (!contains(low)) {
+                return -1;
+            }
+            int w = low >>> 6;
+            int rank = blockRanks[w / BLOCK_WORDS];
+            for (int i = w / BLOCK_WORDS * BLOCK_WORDS; i < w; i++) {
+                rank += Long.bitCount(words[i]);
+            }
+            return rank + Long.bitCount(words[w] & ((1L << low) - 1));
+        }
+
+        @Override
+        int select(int position) {
+            int b = Arrays.binarySearch(blockRanks, position);
+            b = b >= 0 ? b : -b - 2;
+            while (b + 1 < blockRanks.length && blockRanks[b + 1] <= position) {
+                b++;  // Skip empty blocks that share the rank
+            }
+            int rest = position - blockRanks[b];
+            for (int w = b * BLOCK_WORDS; ; w++) {
+                int count = Long.bitCount(words[w]);
+                if (rest < count) {
+                    long word = words[w];
+                    for (int i = 0; i < rest; i++) {
+                        word &= word - 1;
+                    }
+                    return w << 6 | Long.numberOfTrailingZeros(word);
+                }
+                rest -= count;
+            }
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    action.accept(base | w << 6 | Long.numberOfTrailingZeros(word));
+                }
+            }
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                private int w = -1;
+                private long word;
+
+                @Override
+                public boolean hasNext() {
+                    while (word == 0 && w + 1 < words.length) {
+                        word = words[++w];
+                    }
+                    return word != 0;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int low = w << 6 | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    return low;
+                }
+            };
+        }
+
+        @Override
+        long[] orInto(long[] target) {
+            for (int w = 0; w < words.length; w++) {
+                target[w] |= words[w];
+            }
+            return target;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) BITMAP_BYTES + (long) blockRanks.length * Integer.BYTES;
+        }
+    }
+
+    private static final class RunContainer extends Container {
+
+        private final char[] starts;    // Ascending, non-adjacent runs
+        private final char[] lengths;   // Run length minus one
+        private final int[] before;     // before[r]: values in runs before run r
+        private final int cardinality;
+
+        private RunContainer(char[] starts, char[] lengths) {
+            this.starts = starts;
+            this.lengths = lengths;
+            this.before = new int[starts.length];
+            int total = 0;
+            for (int r = 0; r < starts.length; r++) {
+                before[r] = total;
+                total += lengths[r] + 1;
+            }
+            this.cardinality = total;
+        }
+
+        static RunContainer from(long[] words, int runs) {
+            char[] starts = new char[runs];
+            char[] lengths = new char[runs];
+            int r = -1;
+            int previous = -2;
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    int low = w << 6 | Long.numberOfTrailingZeros(word);
+                    if (low == previous + 1) {
+                        lengths[r]++;
+                    } else {
+                        starts[++r] = (char) low;
+                    }
+                    previous = low;
+                }
+            }
+            return new RunContainer(starts, lengths);
+        }
+
+        /**
+         * Returns the index of the run that would hold low, or -1.
+         */
+        private int runOf(int low) {
+            int r = Arrays.binarySearch(starts, (char) low);
+            if (r < 0) {
+                r = -r - 2;
+            }
+            return r >= 0 && low <= starts[r] + lengths[r] ? r : -1;
+        }
+
+        @Override
+        Kind kind() {
+            return Kind.RUNS;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return runOf(low) >= 0;
+        }
+
+        @Override
+        int rank(int low) {
+            int r = runOf(low);
+            return r < 0 ? -1 : before[r] + low - starts[r];
+        }
+
+        @Override
+        int select(int position) {
+            int r = Arrays.binarySearch(before, position);
+            r = r >= 0 ? r : -r - 2;
+            return starts[r] + position - before[r];
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int r = 0; r < starts.length; r++) {
+                for (int low = starts[r], end = starts[r] + lengths[r]; low <= end; low++) {
+                    action.accept(base | low);
+                }
+            }
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                private int r;
+                private int next = starts.length == 0 ? 0 : starts[0];
+
+                @Override
+                public boolean hasNext() {
+                    return r < starts.length;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (r >= starts.length) {
+                        throw new NoSuchElementException();
+                    }
+                    int low = next++;
+                    if (low == starts[r] + lengths[r] && ++r < starts.length) {
+                        next = starts[r];
+                    }
+                    return low;
+                }
+            };
+        }
+
+        @Override
+        long[] orInto(long[] words) {
+            for (int r = 0; r < starts.length; r++) {
+                setBits(words, starts[r], starts[r] + lengths[r] + 1);
+            }
+            return words;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) starts.length * (2 * Character.BYTES + Integer.BYTES);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+public class CandidateSetTest {
+
+    private static BitSet randomBits(Random random, int universe, double density) {
+        BitSet bits = new BitSet(universe);
+        for (int id = 0; id < universe; id++) {
+            if (random.nextDouble() < density) {
+                bits.set(id);
+            }
+        }
+        return bits;
+    }
+
+    private static CandidateSet fromBits(BitSet bits, int universe) {
+        CandidateSet.Builder builder = new CandidateSet.Builder(universe);
+        bits.stream().forEach(builder::add);
+        return builder.build();
+    }
+
+    private static void assertSameIds(BitSet expected, CandidateSet set) {
+        assertEquals(expected.cardinality(), set.size());
+        assertArrayEquals(expected.stream().toArray(), set.toArray());
+        PrimitiveIterator.OfInt ids = set.iterator();
+        int position = 0;
+        for (int id = expected.nextSetBit(0); id >= 0; id = expected.nextSetBit(id + 1), position++) {
+            assertEquals(id, ids.nextInt());
+            assertEquals(id, set.select(position));
+            assertEquals(position, set.rank(id));
+        }
+        assertFalse(ids.hasNext());
+        for (int id = 0; id < set.universe(); id++) {
+            assertEquals(expected.get(id), set.contains(id));
+            if (!expected.get(id)) {
+                assertEquals(-1, set.rank(id));
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesBitSetAcrossDensitiesAndChunks() {
+        Random random = new Random(7);
+        for (int universe : new int[] {0, 1, 100, 70_000, 200_000}) {
+            for (double density : new double[] {0, 0.001, 0.05, 0.5, 0.999, 1}) {
+                BitSet bits = randomBits(random, universe, density);
+                assertSameIds(bits, fromBits(bits, universe));
+            }
+        }
+    }
+
+    @Test
+    public void testContainerChoice() {
+        assertEquals(List.of(CandidateSet.Kind.RUNS), CandidateSet.all(5000).kinds());
+        assertEquals(List.of(CandidateSet.Kind.ARRAY), CandidateSet.of(5000, 3, 1000, 4999).kinds());
+        BitSet scattered = randomBits(new Random(1), 60_000, 0.5);
+        assertEquals(List.of(CandidateSet.Kind.BITMAP), fromBits(scattered, 60_000).kinds());
+        assertEquals(List.of(CandidateSet.Kind.RUNS, CandidateSet.Kind.RUNS, CandidateSet.Kind.RUNS),
+                     CandidateSet.all(150_000).kinds());
+        assertTrue(CandidateSet.all(150_000).sizeInBytes() < 100);
+        assertTrue(CandidateSet.of(150_000, 5, 80_000).sizeInBytes() < 100);
+        assertEquals(List.of(), CandidateSet.of(10).kinds());
+    }
+
+    @Test
+    public void testIntersectionMatchesBitSet() {
+        Random random = new Random(11);
+        double[] densities = {0.001, 0.03, 0.5, 0.98, 1};
+        int universe = 140_000;
+        for (double a : densities) {
+            for (double b : densities) {
+                BitSet left = randomBits(random, universe, a);
+                BitSet right = randomBits(random, universe, b);
+                CandidateSet both = fromBits(left, universe).and(fromBits(right, universe));
+                left.and(right);
+                assertSameIds(left, both);
+            }
+        }
+    }
+
+    @Test
+    public void testOfSortsAndDeduplicates() {
+        CandidateSet set = CandidateSet.of(10, 7, 2, 7, 0);
+        assertArrayEquals(new int[] {0, 2, 7}, set.toArray());
+        assertEquals(set, CandidateSet.of(10, 0, 2, 7));
+        assertEquals(set.hashCode(), CandidateSet.of(10, 0, 2, 7).hashCode());
+        assertNotEquals(set, CandidateSet.of(11, 0, 2, 7));
+        assertEquals("[0, 2, 7]", set.toString());
+        int[] sum = {0};
+        set.forEach(id -> sum[0] += id);
+        assertEquals(9, sum[0]);
+    }
+
+    @Test
+    public void testInvalidUse() {
+        assertThrows(IllegalArgumentException.class, () -> new CandidateSet.Builder(-1));
+        assertThrows(IllegalArgumentException.class, () -> new CandidateSet.Builder(10).add(3).add(3));
+        assertThrows(IllegalArgumentException.class, () -> new CandidateSet.Builder(10).add(10));
+        assertThrows(IllegalArgumentException.class, () -> new CandidateSet.Builder(10).addRange(0, 11));
+        assertThrows(IllegalArgumentException.class, () -> CandidateSet.of(5, -1));
+        assertThrows(IllegalArgumentException.class, () -> CandidateSet.all(5).and(CandidateSet.all(6)));
+        assertThrows(IndexOutOfBoundsException.class, () -> CandidateSet.of(5, 1).select(1));
+        assertThrows(NullPointerException.class, () -> CandidateSet.of(5, (int[]) null));
+        assertFalse(CandidateSet.all(5).contains(5));
+        assertFalse(CandidateSet.all(5).contains(-1));
+    }
+}
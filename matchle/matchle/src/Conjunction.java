@@ -0,0 +1,274 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Package-private predicate behind a Filter built with {@link Filter#and(Filter)}:
+ * a flat array of component filters tested in order, stopping at the first
+ * rejection.
+ *
+ * With sampling on, one call in every samplePeriod evaluates every component,
+ * timing each and counting its rejections in the conjunction's {@link Profile}.
+ * After WINDOW such samples the components are reordered by expected cost per
+ * rejection (average cost divided by rejection rate), so cheap and selective
+ * checks run first, and the statistics are halved so the order keeps tracking
+ * the workload. Unsampled calls only pay one counter decrement. Sampling is on
+ * by default, one call in DEFAULT_SAMPLE_PERIOD; with sampling off (period 0)
+ * the order is always the order the filters were combined in.
+ *
+ * Feedback filters are rebuilt for every key and guess, so one filter rarely
+ * lives long enough to learn anything. A conjunction of single feedback checks
+ * therefore shares its profile with every other conjunction of the same checks,
+ * as every key with the same feedback for a guess builds, and
+ * {@link FilterCompiler} compiles them in the shared order and keeps sampling
+ * into it. Profiles are keyed by letters as well as by shape because the
+ * letters decide how selective a check is: absent e rejects far more words
+ * than absent q in the same cell. The least recently resolved profiles are
+ * dropped once MAX_SHARED_PROFILES are kept.
+ */
+final class Conjunction implements Predicate<NGram> {
+
+    /**
+     * Default sample period, from the matchle.filter.samplePeriod system property
+     * (1024 if unset); 0 turns sampling off.
+     */
+    static final int DEFAULT_SAMPLE_PERIOD = Math.max(0, Integer.getInteger("matchle.filter.samplePeriod", 1024));
+
+    /**
+     * Samples between reorderings.
+     */
+    static final int WINDOW = 256;
+
+    /**
+     * Most shared profiles kept at once.
+     */
+    static final int MAX_SHARED_PROFILES = 4096;
+
+    // Least recently resolved first
+    private static final Map<List<Filter.Constraint>, Profile> SHARED = Collections.synchronizedMap(
+            new LinkedHashMap<List<Filter.Constraint>, Profile>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Filter.Constraint>, Profile> eldest) {
+                    return size() > MAX_SHARED_PROFILES;
+                }
+            });
+
+    /**
+     * Sampled costs and rejections of the components of one conjunction, or
+     * of every conjunction of the same checks, and the evaluation order they give.
+     */
+    static final class Profile {
+
+        private volatile int[] order;    // Indexes into components, in evaluation order
+        private volatile int version;    // Bumped whenever the order changes
+
+        // Guarded by this
+        private final long[] nanos;
+        private final long[] rejections;
+        private long samples;
+
+        Profile(int components) {
+            this.order = new int[components];
+            for (int i = 0; i < components; i++) {
+                order[i] = i;
+            }
+            this.nanos = new long[components];
+            this.rejections = new long[components];
+        }
+
+        int[] order() {
+            return order;
+        }
+
+        int version() {
+            return version;
+        }
+
+        synchronized void record(long[] cost, boolean[] rejected) {
+            for (int i = 0; i < cost.length; i++) {
+                nanos[i] += cost[i];
+                if (rejected[i]) {
+                    rejections[i]++;
+                }
+            }
+            if (++samples >= WINDOW) {
+                reorder();
+            }
+        }
+
+        /**
+         * Sorts by cost per rejection; never-rejecting components go last, ties keep combination order.
+         */
+        private void reorder() {
+            double[] rank = new double[nanos.length];
+            for (int i = 0; i < nanos.length; i++) {
+                rank[i] = rejections[i] == 0 ? Double.POSITIVE_INFINITY : (double) nanos[i] / rejections[i];
+                nanos[i] /= 2;
+                rejections[i] /= 2;
+            }
+            samples /= 2;
+            Integer[] sorted = new Integer[nanos.length];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.<Integer>comparingDouble(i -> rank[i]).thenComparingInt(i -> i));
+            int[] next = new int[sorted.length];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = sorted[i];
+            }
+            if (!Arrays.equals(next, order)) {
+                order = next;
+                version++;
+            }
+        }
+    }
+
+    private final Filter[] components;     // In the order they were combined
+    private final int samplePeriod;
+    private volatile Profile profile;      // Resolved on first use, and only with sampling on
+    private int countdown;                 // Calls left until the next sample; racy on purpose
+
+    Conjunction(List<Filter> components, int samplePeriod) {
+        if (samplePeriod < 0) {
+            throw new IllegalArgumentException("Sample period must not be negative.");
+        }
+        this.components = components.toArray(new Filter[0]);
+        this.samplePeriod = samplePeriod;
+        this.countdown = samplePeriod;
+    }
+
+    @Override
+    public boolean test(NGram ngram) {
+        if (samplePeriod == 0) {
+            for (Filter component : components) {
+                if (!component.test(ngram)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (--countdown <= 0) {
+            countdown = samplePeriod;
+            return sample(ngram);
+        }
+        for (int i : profile().order()) {
+            if (!components[i].test(ngram)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates every component, recording its cost and whether it rejected
+     * in the profile, and returns whether all accepted.
+     */
+    boolean sample(NGram ngram) {
+        long[] cost = new long[components.length];
+        boolean[] rejected = new boolean[components.length];
+        boolean result = true;
+        for (int i = 0; i < components.length; i++) {
+            long start = System.nanoTime();
+            rejected[i] = !components[i].test(ngram);
+            cost[i] = System.nanoTime() - start;
+            result &= !rejected[i];
+        }
+        profile().record(cost, rejected);
+        return result;
+    }
+
+    /**
+     * Returns how many calls there are per sample, 0 if sampling is off.
+     */
+    int samplePeriod() {
+        return samplePeriod;
+    }
+
+    /**
+     * Returns the version of the evaluation order, which changes whenever the
+     * components are reordered; always 0 with sampling off.
+     */
+    int version() {
+        return samplePeriod == 0 ? 0 : profile().version();
+    }
+
+    /**
+     * Returns the profile, shared with every conjunction of the same checks
+     * when each component is a single feedback check.
+     */
+    private Profile profile() {
+        Profile p = profile;
+        if (p == null) {
+            synchronized (this) {
+                p = profile;
+                if (p == null) {
+                    List<Filter.Constraint> key = key();
+                    p = key == null
+                        ? new Profile(components.length)
+                        : SHARED.computeIfAbsent(key, k -> new Profile(components.length));
+                    profile = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Returns the checks of the components in combination order, or null
+     * unless each is a single feedback check.
+     */
+    private List<Filter.Constraint> key() {
+        List<Filter.Constraint> constraints = new ArrayList<>(components.length);
+        for (Filter component : components) {
+            List<Filter.Constraint> part = component.constraints();
+            if (part == null || part.size() != 1) {
+                return null;
+            }
+            constraints.add(part.get(0));
+        }
+        return constraints;
+    }
+
+    private int[] order() {
+        if (samplePeriod == 0) {
+            int[] order = new int[components.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            return order;
+        }
+        return profile().order();
+    }
+
+    /**
+     * Returns the components in their current evaluation order.
+     */
+    List<Filter> components() {
+        List<Filter> result = new ArrayList<>(components.length);
+        for (int i : order()) {
+            result.add(components[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the constraints of the components in evaluation order, or null
+     * if any component is not a feedback check.
+     */
+    List<Filter.Constraint> constraints() {
+        List<Filter.Constraint> result = new ArrayList<>();
+        for (int i : order()) {
+            List<Filter.Constraint> part = components[i].constraints();
+            if (part == null) {
+                return null;
+            }
+            result.addAll(part);
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,148 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.List;
+
+public class ConjunctionTest {
+
+    private static Filter slowAccepting() {
+        return Filter.from(ng -> {
+            long end = System.nanoTime() + 20_000;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return true;
+        });
+    }
+
+    @Test
+    public void testAndFlattens() {
+        Filter a = Filter.from(ng -> true);
+        Filter b = Filter.from(ng -> ng.size() > 1);
+        Filter c = Filter.from(ng -> ng.contains('x'));
+        Filter combined = a.and(b).and(a.and(c));
+        Conjunction conjunction = conjunctionOf(combined);
+        assertEquals(List.of(a, b, a, c), conjunction.components());
+        assertTrue(combined.test(NGram.from("xy")));
+        assertFalse(combined.test(NGram.from("x")));
+        assertFalse(combined.test(NGram.from("yy")));
+    }
+
+    @Test
+    public void testAllOfFlattens() {
+        Filter a = Filter.from(ng -> true);
+        Filter b = Filter.from(ng -> ng.size() > 1);
+        Filter c = Filter.from(ng -> ng.contains('x'));
+        assertEquals(List.of(a, b, c), conjunctionOf(Filter.allOf(List.of(a.and(b), Filter.ANY, c))).components());
+        assertSame(Filter.ANY, Filter.allOf(List.of()));
+    }
+
+    @Test
+    public void testSamplingOnByDefault() {
+        Filter filter = NGramMatcher.of(NGram.from("crane"), NGram.from("slate")).match();
+        assertEquals(Conjunction.DEFAULT_SAMPLE_PERIOD, conjunctionOf(filter).samplePeriod());
+        assertEquals(Integer.getInteger("matchle.filter.samplePeriod", 1024).intValue(), Conjunction.DEFAULT_SAMPLE_PERIOD);
+    }
+
+    @Test
+    public void testOrderFixedWithoutSampling() {
+        Filter slow = slowAccepting();
+        Filter rejecting = Filter.from(ng -> false);
+        Filter combined = slow.and(rejecting).sampled(0);
+        for (int i = 0; i < 2 * Conjunction.WINDOW; i++) {
+            assertFalse(combined.test(NGram.from("abc")));
+        }
+        assertEquals(List.of(slow, rejecting), conjunctionOf(combined).components());
+    }
+
+    @Test
+    public void testSamplingMovesSelectiveChecksFirst() {
+        Filter slow = slowAccepting();
+        Filter rejecting = Filter.from(ng -> ng.size() > 5);
+        Filter combined = slow.and(rejecting).sampled(1);
+        for (int i = 0; i < Conjunction.WINDOW; i++) {
+            assertFalse(combined.test(NGram.from("abc")));
+        }
+        assertEquals(List.of(rejecting, slow), conjunctionOf(combined).components());
+        assertTrue(combined.test(NGram.from("abcdef")));
+    }
+
+    /**
+     * Key crane, guess slate: exact a and e, then absent s, l and t. Sampled on
+     * words that only the absent s check rejects, those checks learn to run it
+     * first, and compiled filters follow, including ones compiled before.
+     */
+    @Test
+    public void testReorderedConstraintsCompileInNewOrder() {
+        Filter feedback = NGramMatcher.of(NGram.from("crane"), NGram.from("slate")).match();
+        List<Filter.Constraint> combined = feedback.constraints();
+        Filter.Constraint absentS = new Filter.Constraint(Feedback.ABSENT, 0, 's');
+        assertEquals(2, combined.indexOf(absentS));
+
+        Filter off = feedback.sampled(0);
+        Filter sampled = feedback.sampled(1);
+        Filter before = FilterCompiler.compile(sampled);
+        assertEquals(combined, before.constraints());
+        for (int i = 0; i < Conjunction.WINDOW; i++) {
+            assertFalse(sampled.test(NGram.from("sxaxe")));
+        }
+        List<Filter.Constraint> learned = sampled.constraints();
+        assertEquals(absentS, learned.get(0));
+        assertEquals(combined.size(), learned.size());
+        assertTrue(learned.containsAll(combined));
+
+        Filter compiled = FilterCompiler.compile(sampled);
+        assertNotSame(before, compiled);
+        assertEquals(learned, compiled.constraints());
+        assertSame(compiled, FilterCompiler.compile(sampled));
+
+        // A fresh filter of the same checks, as the hot paths build, starts in the learned order.
+        Filter fresh = NGramMatcher.of(NGram.from("crane"), NGram.from("slate")).match().sampled(1);
+        assertEquals(learned, FilterCompiler.compile(fresh).constraints());
+
+        // One of the same shape but other letters learns on its own: its absent p says nothing about absent s.
+        Filter plane = NGramMatcher.of(NGram.from("brace"), NGram.from("plane")).match();
+        assertEquals(FilterCompiler.Shape.of(combined), FilterCompiler.Shape.of(plane.constraints()));
+        assertEquals(plane.constraints(), FilterCompiler.compile(plane.sampled(1)).constraints());
+        assertEquals(new Filter.Constraint(Feedback.EXACT, 2, 'a'), plane.constraints().get(0));
+
+        // Sampling off keeps the order the filter had when sampling was turned off.
+        assertEquals(combined, FilterCompiler.compile(off).constraints());
+        for (String word : new String[] {"crane", "brane", "slate", "zzzzz", "acane", "sxaxe"}) {
+            NGram ngram = NGram.from(word);
+            assertEquals(word, feedback.test(ngram), compiled.test(ngram));
+            assertEquals(word, feedback.test(ngram), before.test(ngram));
+        }
+    }
+
+    /**
+     * Compiled filters keep sampling into the shared profile of their checks.
+     */
+    @Test
+    public void testCompiledFiltersKeepLearning() {
+        Filter.Constraint absentQ = new Filter.Constraint(Feedback.ABSENT, 0, 'q');
+        for (int i = 0; i < Conjunction.WINDOW; i++) {
+            Filter fresh = NGramMatcher.of(NGram.from("juicy"), NGram.from("quiet")).match().sampled(1);
+            assertFalse(FilterCompiler.compile(fresh).test(NGram.from("quixz")));
+        }
+        Filter next = NGramMatcher.of(NGram.from("juicy"), NGram.from("quiet")).match().sampled(1);
+        assertEquals(absentQ, next.constraints().get(0));
+    }
+
+    @Test
+    public void testAnyIsDropped() {
+        Filter c = Filter.from(ng -> ng.contains('x'));
+        assertSame(Filter.ANY, Filter.ANY.and(Filter.ANY));
+        assertEquals(List.of(c), conjunctionOf(Filter.ANY.and(c)).components());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSamplePeriod() {
+        Filter.from(ng -> true).and(Filter.from(ng -> true)).sampled(-1);
+    }
+
+    private static Conjunction conjunctionOf(Filter filter) {
+        Conjunction conjunction = filter.conjunction();
+        assertNotNull(conjunction);
+        return conjunction;
+    }
+}
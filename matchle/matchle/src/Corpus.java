@@ -1,31 +1,101 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Queue;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.ToDoubleFunction;
 import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 /**
  * A dictionary of NGrams, all of the same length.
+ *
+ * A corpus is either built in full or is a view returned by {@link #filter(Filter)},
+ * {@link #subset(Iterable)} or {@link #retain(CandidateSet)}: a {@link CandidateSet}
+ * of the word ids of the full corpus it came from, so a view's memory follows
+ * its own size. Views copy no NGrams and share the full corpus' alphabet and
+ * encoded words, and a view of a view is again a view of the full corpus.
+ *
+ * Words may carry weights, such as how often each is used or how likely it is
+ * to be the key (see {@link #withWeights(ToDoubleFunction)}); views share the
+ * weights of their full corpus. An unweighted corpus weighs every word 1.
  */
 public final class Corpus implements Iterable<NGram> {
 
     // =========================================================
     // Private Fields
     // =========================================================
-    private final Set<NGram> corpus;  // Unmodifiable set of NGrams
+    private static final int SNAPSHOT_MAGIC = 0x4D4C4353;  // "MLCS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SECTION_CONTENT_HASH = 1;
+    private static final int SECTION_WEIGHTS = 2;
+
+    private final List<NGram> words;  // Unmodifiable, sorted NGrams; the index is the word id
+    private final Set<NGram> corpus;  // Unmodifiable set view of words
     private final int wordSize;       // Common size of all NGrams in corpus
+    private volatile byte[] contentHash;  // Computed on first use
+    private volatile Alphabet alphabet;   // Computed on first use
+    private volatile EncodedWords encoded;  // Computed on first use
+    private volatile double[] weights;  // Weights by id, or null if every word weighs 1; computed on first use in a view
+    private volatile FeedbackMatrix matrix;  // Computed on first use, or carried over by edit
+    private volatile DawgCorpus dawg;  // Computed on first feedback count; null in views
+    private volatile boolean scanOnly;  // Set when the words have no alphabet, so no DAWG
+    private final Corpus root;        // The full corpus; this unless a view
+    private final CandidateSet members;  // Root ids of a view's words; null unless a view
 
     // =========================================================
-    // Private Constructor
+    // Private Constructors
     // =========================================================
-    private Corpus(Set<NGram> corpus, int wordSize) {
-        // Defensive null check and immutability:
-        this.corpus = Collections.unmodifiableSet(new HashSet<>(Objects.requireNonNull(corpus, "Corpus set cannot be null.")));
-        // Optionally, you can force wordSize > 0 if desired when corpus is non-empty.
+    /**
+     * Wraps NGrams that are already sorted and unique, without copying or hashing them.
+     */
+    private Corpus(NGram[] sorted, int wordSize, byte[] contentHash, Alphabet alphabet) {
+        this(sorted, wordSize, contentHash, alphabet, null, null);
+    }
+
+    private Corpus(NGram[] sorted, int wordSize, byte[] contentHash, Alphabet alphabet, EncodedWords encoded,
+                   double[] weights) {
+        this.words = Collections.unmodifiableList(Arrays.asList(sorted));
+        this.corpus = new SortedView();
         this.wordSize = wordSize;
+        this.contentHash = contentHash;
+        this.alphabet = alphabet;
+        this.encoded = encoded;
+        this.weights = weights;
+        this.root = this;
+        this.members = null;
+    }
+
+    /**
+     * Creates a view of the given full corpus holding the given root ids.
+     */
+    private Corpus(Corpus root, CandidateSet members) {
+        this.root = root;
+        this.members = members;
+        this.words = new MemberList();
+        this.corpus = new SortedView();
+        this.wordSize = root.wordSize;
     }
 
     // =========================================================
@@ -57,83 +127,790 @@ public final class Corpus implements Iterable<NGram> {
      * Checks if the given NGram is contained in this corpus.
      */
     public boolean contains(NGram ngram) {
-        return corpus.contains(Objects.requireNonNull(ngram, "NGram cannot be null."));
+        return indexOf(Objects.requireNonNull(ngram, "NGram cannot be null.")) >= 0;
+    }
+
+    /**
+     * Returns the NGram with the given id. Ids run from 0 to size() - 1 in
+     * sorted NGram order, so equal corpora always assign equal ids.
+     *
+     * @throws IndexOutOfBoundsException if the id is out of range.
+     */
+    public NGram get(int id) {
+        return words.get(id);
+    }
+
+    /**
+     * Returns the id of the given NGram, or -1 if it is not in the corpus.
+     */
+    public int indexOf(NGram ngram) {
+        Objects.requireNonNull(ngram, "NGram cannot be null.");
+        if (members != null) {
+            int rootId = root.indexOf(ngram);
+            return rootId < 0 ? -1 : members.rank(rootId);
+        }
+        int id = Collections.binarySearch(words, ngram);
+        return id >= 0 ? id : -1;
+    }
+
+    /**
+     * Returns an immutable view of the NGrams of this corpus that pass the filter.
+     * The view's ids follow the same sorted order, renumbered from 0.
+     *
+     * @throws NullPointerException if the filter is null.
+     */
+    public Corpus filter(Filter filter) {
+        Objects.requireNonNull(filter, "Filter cannot be null.");
+        Filter compiled = FilterCompiler.compile(filter);
+        return select(id -> compiled.test(words.get(id)));
+    }
+
+    /**
+     * Returns an immutable view of the given NGrams that are in this corpus;
+     * the others are ignored.
+     *
+     * @throws NullPointerException if ngrams or any of its elements is null.
+     */
+    public Corpus subset(Iterable<NGram> ngrams) {
+        Objects.requireNonNull(ngrams, "NGrams cannot be null.");
+        long[] chosen = new long[(size() + 63) >>> 6];
+        for (NGram ngram : ngrams) {
+            int id = indexOf(ngram);
+            if (id >= 0) {
+                chosen[id >>> 6] |= 1L << id;
+            }
+        }
+        return select(id -> (chosen[id >>> 6] & (1L << id)) != 0);
+    }
+
+    /**
+     * Returns an immutable view of the words of this corpus whose ids pass the predicate.
+     */
+    Corpus select(IntPredicate ids) {
+        CandidateSet.Builder chosen = new CandidateSet.Builder(root.size());
+        PrimitiveIterator.OfInt rootIds = candidates().iterator();
+        for (int id = 0; rootIds.hasNext(); id++) {
+            int rootId = rootIds.nextInt();
+            if (ids.test(id)) {
+                chosen.add(rootId);
+            }
+        }
+        return new Corpus(root, chosen.build());
+    }
+
+    /**
+     * Returns the ids in the full corpus of the words of this corpus.
+     */
+    public CandidateSet candidates() {
+        return members == null ? CandidateSet.all(words.size()) : members;
+    }
+
+    /**
+     * Returns an immutable view of the words of this corpus whose ids in the
+     * full corpus are in the given set, found by intersecting the sets.
+     *
+     * @throws NullPointerException if ids is null.
+     * @throws IllegalArgumentException if the set is not over the full corpus' ids.
+     */
+    public Corpus retain(CandidateSet ids) {
+        Objects.requireNonNull(ids, "Candidate set cannot be null.");
+        if (ids.universe() != root.size()) {
+            throw new IllegalArgumentException("Candidate set is over " + ids.universe()
+                                               + " ids, not the " + root.size() + " of the full corpus.");
+        }
+        return new Corpus(root, members == null ? ids : members.and(ids));
+    }
+
+    /**
+     * Returns an immutable view of the words in both corpora. Views of the
+     * same full corpus are intersected as candidate sets, without comparing NGrams.
+     *
+     * @throws NullPointerException if other is null.
+     */
+    public Corpus intersect(Corpus other) {
+        Objects.requireNonNull(other, "Other corpus cannot be null.");
+        return other.root == root ? retain(other.candidates()) : subset(other);
+    }
+
+    /**
+     * Returns the id in the full corpus of the word with the given id here.
+     */
+    int rootId(int id) {
+        return members == null ? id : members.select(id);
+    }
+
+    /**
+     * Returns the full corpus this corpus is a view of, or this corpus itself.
+     */
+    Corpus root() {
+        return root;
+    }
+
+    /**
+     * Checks whether this corpus is a view of another one.
+     */
+    boolean isView() {
+        return members != null;
+    }
+
+    /**
+     * Returns a full corpus with the given NGrams added and then the given
+     * NGrams removed, or this corpus if nothing changes. The words are merged
+     * in one pass over the sorted ids, without hashing or re-sorting. When the
+     * alphabet does not change, it and the encoded words (if already computed)
+     * are carried over, re-encoding only the added words. A feedback matrix
+     * already computed is carried over too, copying the codes between kept
+     * words and computing only those of added words. Kept words keep their
+     * weights and added words weigh 1.
+     *
+     * @throws NullPointerException if either collection or any NGram is null.
+     * @throws IllegalArgumentException if an added NGram has the wrong length.
+     */
+    Corpus edit(Collection<NGram> added, Collection<NGram> removed) {
+        Objects.requireNonNull(added, "Added NGrams cannot be null.");
+        Objects.requireNonNull(removed, "Removed NGrams cannot be null.");
+        int size = words.isEmpty() && !added.isEmpty() ? added.iterator().next().size() : wordSize;
+        Set<NGram> removing = new HashSet<>();
+        Set<NGram> gone = new HashSet<>();
+        for (NGram ngram : removed) {
+            removing.add(Objects.requireNonNull(ngram, "NGram cannot be null."));
+            if (indexOf(ngram) >= 0) {
+                gone.add(ngram);
+            }
+        }
+        NGram[] fresh = added.stream()
+                             .map(ngram -> Objects.requireNonNull(ngram, "NGram cannot be null."))
+                             .filter(ngram -> !removing.contains(ngram) && !contains(ngram))
+                             .distinct()
+                             .sorted()
+                             .toArray(NGram[]::new);
+        for (NGram ngram : fresh) {
+            if (ngram.size() != size) {
+                throw new IllegalArgumentException("NGram " + ngram + " does not have length " + size + ".");
+            }
+        }
+        if (fresh.length == 0 && gone.isEmpty()) {
+            return this;
+        }
+
+        // Merge; source[i] is the old id of new word i, or -1 if it was added
+        NGram[] next = new NGram[words.size() - gone.size() + fresh.length];
+        int[] source = new int[next.length];
+        int n = 0;
+        int f = 0;
+        for (int id = 0; id < words.size(); id++) {
+            NGram ngram = words.get(id);
+            while (f < fresh.length && fresh[f].compareTo(ngram) < 0) {
+                source[n] = -1;
+                next[n++] = fresh[f++];
+            }
+            if (!gone.contains(ngram)) {
+                source[n] = id;
+                next[n++] = ngram;
+            }
+        }
+        while (f < fresh.length) {
+            source[n] = -1;
+            next[n++] = fresh[f++];
+        }
+
+        Alphabet kept = members == null ? alphabet : null;
+        if (kept != null && !keepsAlphabet(kept, fresh, gone)) {
+            kept = null;
+        }
+        EncodedWords reused = kept != null && encoded != null && size == wordSize ? encoded.remap(source, next) : null;
+        double[] old = weights();
+        double[] remapped = null;
+        if (old != null) {
+            remapped = new double[next.length];
+            for (int id = 0; id < next.length; id++) {
+                remapped[id] = source[id] < 0 ? 1 : old[source[id]];
+            }
+        }
+        Corpus result = new Corpus(next, next.length == 0 ? 0 : size, null, kept, reused, remapped);
+        FeedbackMatrix table = matrix;
+        if (table != null && size == wordSize && next.length > 0) {
+            result.matrix = table.remap(source, result);
+        }
+        return result;
+    }
+
+    /**
+     * Checks that the added words bring no new letter and every letter of a
+     * removed word still occurs in some kept or added word.
+     */
+    private boolean keepsAlphabet(Alphabet current, NGram[] fresh, Set<NGram> gone) {
+        for (NGram ngram : fresh) {
+            for (int i = 0; i < ngram.size(); i++) {
+                if (!current.contains(ngram.charAt(i))) {
+                    return false;
+                }
+            }
+        }
+        if (gone.isEmpty()) {
+            return true;
+        }
+        Set<Character> lost = new HashSet<>();
+        gone.forEach(ngram -> ngram.forEach(ic -> lost.add(ic.character())));
+        for (NGram ngram : fresh) {
+            ngram.forEach(ic -> lost.remove(ic.character()));
+        }
+        if (lost.isEmpty()) {
+            return true;
+        }
+        for (NGram ngram : words) {
+            if (!gone.contains(ngram)) {
+                ngram.forEach(ic -> lost.remove(ic.character()));
+                if (lost.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // =========================================================
+    // Word Weights
+    // =========================================================
+
+    /**
+     * Returns a corpus with the same words, weighted by the given function.
+     * The function is called once for every word of the full corpus, and a
+     * view stays a view holding the same words of the reweighted full corpus.
+     *
+     * @throws NullPointerException if the function is null.
+     * @throws IllegalArgumentException if a weight is negative, infinite or NaN.
+     */
+    public Corpus withWeights(ToDoubleFunction<NGram> weight) {
+        Objects.requireNonNull(weight, "Weight function cannot be null.");
+        if (members != null) {
+            return new Corpus(root.withWeights(weight), members);
+        }
+        double[] result = new double[words.size()];
+        for (int id = 0; id < result.length; id++) {
+            NGram ngram = words.get(id);
+            double w = weight.applyAsDouble(ngram);
+            if (!(w >= 0) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("NGram " + ngram + " has invalid weight " + w + ".");
+            }
+            result[id] = w;
+        }
+        return new Corpus(words.toArray(new NGram[0]), wordSize, contentHash, alphabet, encoded, result);
+    }
+
+    /**
+     * Checks whether the words carry weights other than the default 1.
+     */
+    public boolean isWeighted() {
+        return root.weights != null;
+    }
+
+    /**
+     * Returns the weight of the word with the given id.
+     *
+     * @throws IndexOutOfBoundsException if the id is out of range.
+     */
+    public double weight(int id) {
+        Objects.checkIndex(id, words.size());
+        double[] all = weights();
+        return all == null ? 1 : all[id];
+    }
+
+    /**
+     * Returns the sum of the weights of the words.
+     */
+    public double totalWeight() {
+        double[] all = weights();
+        return all == null ? words.size() : Arrays.stream(all).sum();
+    }
+
+    /**
+     * Returns the weights by id, or null if every word weighs 1. Not to be modified.
+     */
+    double[] weights() {
+        double[] result = weights;
+        if (result == null && members != null && root.weights != null) {
+            double[] all = root.weights;
+            double[] mine = new double[members.size()];
+            PrimitiveIterator.OfInt rootIds = members.iterator();
+            for (int id = 0; rootIds.hasNext(); id++) {
+                mine[id] = all[rootIds.nextInt()];
+            }
+            result = mine;
+            weights = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a SHA-256 digest of the word size and every NGram in id order.
+     * Two corpora have the same hash exactly when they hold the same NGrams;
+     * weights are not part of it.
+     */
+    public byte[] contentHash() {
+        byte[] hash = contentHash;
+        if (hash == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                ByteBuffer header = ByteBuffer.allocate(8).putInt(wordSize).putInt(words.size());
+                digest.update(header.array());
+                for (NGram ngram : words) {
+                    for (NGram.IndexedCharacter ic : ngram) {
+                        char c = ic.character();
+                        digest.update((byte) (c >>> 8));
+                        digest.update((byte) c);
+                    }
+                }
+                hash = digest.digest();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available.", e);
+            }
+            contentHash = hash;
+        }
+        return hash.clone();
+    }
+
+    /**
+     * Returns the letters that occur in this corpus, numbered densely.
+     *
+     * @throws IllegalArgumentException if a word holds a supplementary character (see {@link Alphabet}).
+     */
+    public Alphabet alphabet() {
+        if (members != null) {
+            return root.alphabet();
+        }
+        Alphabet result = alphabet;
+        if (result == null) {
+            result = Alphabet.of(words);
+            alphabet = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the words encoded over the alphabet, for the scoring fast paths.
+     *
+     * @throws IllegalArgumentException if a word holds a supplementary character (see {@link Alphabet}).
+     */
+    EncodedWords encoded() {
+        EncodedWords result = encoded;
+        if (result == null) {
+            result = members == null ? new EncodedWords(alphabet(), words, wordSize)
+                                     : root.encoded().subset(members.toArray());
+            encoded = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the feedback code of every guess/key pair of this corpus,
+     * computing the table on first use.
+     */
+    FeedbackMatrix feedbackMatrix() {
+        FeedbackMatrix result = matrix;
+        if (result == null) {
+            synchronized (this) {
+                result = matrix;
+                if (result == null) {
+                    result = FeedbackMatrix.compute(this);
+                    matrix = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the feedback matrix has been computed, or carried over
+     * from the corpus this one was edited from.
+     */
+    boolean hasFeedbackMatrix() {
+        return matrix != null;
     }
 
     /**
-     * Returns an iterator over the NGrams.
+     * Returns an iterator over the NGrams, in id order.
      */
     @Override
     public Iterator<NGram> iterator() {
-        return corpus.iterator();
+        return words.iterator();
     }
 
     /**
-     * Returns a stream of NGrams.
+     * Returns a stream of NGrams, in id order.
      */
     public Stream<NGram> stream() {
-        return corpus.stream();
+        return words.stream();
     }
 
     /**
      * Returns the count of NGrams that satisfy the given filter.
+     *
+     * A full corpus counts filters made only of feedback checks, such as
+     * NGramMatcher builds, on its DAWG (see {@link DawgCorpus}), built on the
+     * first such count: whole subtrees of words are skipped or counted at
+     * once. Other filters, and views, test every word.
      */
     public long size(Filter filter) {
         Objects.requireNonNull(filter, "Filter cannot be null.");
-        return corpus.stream()
-                     .filter(filter::test)
-                     .count();
+        DawgCorpus dawg = filter.constraints() == null ? null : dawg();
+        if (dawg != null) {
+            return dawg.count(filter);
+        }
+        Filter compiled = FilterCompiler.compile(filter);
+        return words.stream()
+                    .filter(compiled::test)
+                    .count();
+    }
+
+    /**
+     * Returns the DAWG of a full corpus, or null for a view or for words
+     * that have no alphabet (see {@link #alphabet()}).
+     */
+    private DawgCorpus dawg() {
+        DawgCorpus result = dawg;
+        if (result == null && members == null && !scanOnly) {
+            try {
+                result = DawgCorpus.of(this);
+                dawg = result;
+            } catch (IllegalArgumentException e) {
+                scanOnly = true;  // A supplementary character; scanning still works
+            }
+        }
+        return result;
+    }
+
+    // =========================================================
+    // Binary Snapshots
+    // =========================================================
+
+    /**
+     * Writes a compact binary snapshot of this corpus, replacing the file atomically.
+     *
+     * Layout (big-endian): magic, format version, word size, number of words,
+     * alphabet size, the alphabet in letter-number order, bytes per letter, every
+     * word in id order as alphabet indexes, a table of optional sections (tag,
+     * length, bytes) and a CRC32 of everything before it. One section holds the
+     * content hash, so it need not be recomputed after loading; a weighted
+     * corpus adds a second with every weight in id order.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        Objects.requireNonNull(file, "Snapshot file cannot be null.");
+        char[] alphabet = alphabet().letters();
+        int letterBytes = alphabet.length <= 256 ? 1 : 2;
+        byte[] hash = contentHash();
+        double[] weights = weights();
+        int length = 6 * Integer.BYTES + alphabet.length * Character.BYTES
+                   + words.size() * wordSize * letterBytes
+                   + 3 * Integer.BYTES + hash.length + Long.BYTES
+                   + (weights == null ? 0 : 2 * Integer.BYTES + weights.length * Double.BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(SNAPSHOT_MAGIC)
+              .putInt(SNAPSHOT_VERSION)
+              .putInt(wordSize)
+              .putInt(words.size())
+              .putInt(alphabet.length);
+        for (char c : alphabet) {
+            buffer.putChar(c);
+        }
+        buffer.putInt(letterBytes);
+        for (NGram ngram : words) {
+            for (NGram.IndexedCharacter ic : ngram) {
+                int letter = alphabet().indexOf(ic.character());
+                if (letterBytes == 1) {
+                    buffer.put((byte) letter);
+                } else {
+                    buffer.putChar((char) letter);
+                }
+            }
+        }
+        buffer.putInt(weights == null ? 1 : 2)
+              .putInt(SECTION_CONTENT_HASH)
+              .putInt(hash.length)
+              .put(hash);
+        if (weights != null) {
+            buffer.putInt(SECTION_WEIGHTS)
+                  .putInt(weights.length * Double.BYTES);
+            for (double w : weights) {
+                buffer.putDouble(w);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        AtomicFiles.write(file, channel -> AtomicFiles.writeFully(channel, buffer.flip()));
+    }
+
+    /**
+     * Loads a snapshot written by {@link #writeSnapshot(Path)} with a single
+     * read-only mapping of the file. Words are decoded in id order and no set
+     * is built, so nothing is hashed while loading.
+     *
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static Corpus readSnapshot(Path file) throws IOException {
+        Objects.requireNonNull(file, "Snapshot file cannot be null.");
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            int end = buffer.limit() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(end));
+            if (buffer.getLong(end) != crc.getValue()) {
+                throw new IOException("Corpus snapshot " + file + " is corrupt.");
+            }
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException(file + " is not a corpus snapshot of version " + SNAPSHOT_VERSION + ".");
+            }
+            int wordSize = buffer.getInt();
+            int count = buffer.getInt();
+            char[] letters = new char[buffer.getInt()];
+            for (int i = 0; i < letters.length; i++) {
+                letters[i] = buffer.getChar();
+            }
+            Alphabet alphabet = Alphabet.ofSorted(letters);
+            int letterBytes = buffer.getInt();
+            // Box each letter once; words are then copied from these boxes, not parsed.
+            Character[] boxes = new Character[letters.length];
+            for (int i = 0; i < boxes.length; i++) {
+                boxes[i] = alphabet.letter(i);
+            }
+            NGram[] sorted = new NGram[count];
+            Character[] word = new Character[wordSize];
+            for (int w = 0; w < count; w++) {
+                for (int i = 0; i < wordSize; i++) {
+                    word[i] = boxes[letterBytes == 1 ? buffer.get() & 0xFF : buffer.getChar()];
+                }
+                sorted[w] = NGram.decoded(word);
+                if (w > 0 && sorted[w - 1].compareTo(sorted[w]) >= 0) {
+                    throw new IOException("Corpus snapshot " + file + " is not sorted.");
+                }
+            }
+            byte[] hash = null;
+            double[] weights = null;
+            int sections = buffer.getInt();
+            for (int s = 0; s < sections; s++) {
+                int tag = buffer.getInt();
+                byte[] section = new byte[buffer.getInt()];
+                buffer.get(section);
+                if (tag == SECTION_CONTENT_HASH) {
+                    hash = section;
+                } else if (tag == SECTION_WEIGHTS) {
+                    if (section.length != count * Double.BYTES) {
+                        throw new IOException("Corpus snapshot " + file + " has " + section.length
+                                              + " bytes of weights for " + count + " words.");
+                    }
+                    weights = new double[count];
+                    ByteBuffer.wrap(section).asDoubleBuffer().get(weights);
+                }
+            }
+            return new Corpus(sorted, wordSize, hash, alphabet, null, weights);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corpus snapshot " + file + " is truncated or malformed.", e);
+        }
+    }
+
+    /**
+     * Read-only list of a view's words, looked up in the root corpus.
+     */
+    private final class MemberList extends AbstractList<NGram> implements RandomAccess {
+        @Override
+        public NGram get(int id) {
+            return root.words.get(members.select(id));
+        }
+
+        @Override
+        public int size() {
+            return members.size();
+        }
+
+        @Override
+        public Iterator<NGram> iterator() {
+            PrimitiveIterator.OfInt ids = members.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return ids.hasNext();
+                }
+
+                @Override
+                public NGram next() {
+                    return root.words.get(ids.nextInt());
+                }
+            };
+        }
+    }
+
+    /**
+     * Read-only Set view of the sorted words; membership uses binary search.
+     */
+    private final class SortedView extends AbstractSet<NGram> {
+        @Override
+        public Iterator<NGram> iterator() {
+            return words.iterator();
+        }
+
+        @Override
+        public int size() {
+            return words.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof NGram && indexOf((NGram) o) >= 0;
+        }
     }
 
     // =========================================================
     // Nested Builder Class with enhanced defensive checks
     // =========================================================
+
+    /**
+     * Collects NGrams for a new corpus, from any number of threads at once.
+     *
+     * Each adding thread fills its own shard, so additions take no lock and
+     * share no hash table. Every shard splits its NGrams into the same hash
+     * partitions, and build() removes duplicates one partition at a time in
+     * parallel, writes each partition straight into its slice of the array the
+     * corpus will own, then sorts that array and hands it over without copying. Lengths are checked as NGrams arrive, so build() needs no
+     * pass for them. Large collections given to addAll are spread over the
+     * common pool.
+     *
+     * build() must run after every addition has completed (for example after
+     * joining the adding threads). A builder is single-use: build() hands the
+     * shards' words to the corpus, so once it has run, even if it threw,
+     * calling build(), add() or addAll() again throws IllegalStateException.
+     * Only {@link #EMPTY} builds any number of times.
+     */
     public static final class Builder {
 
-        private final Set<NGram> ngrams;
+        /**
+         * Hash partitions per shard; duplicates can only meet within a partition.
+         */
+        static final int PARTITIONS = 64;
+        private static final int PARTITION_BITS = Integer.numberOfTrailingZeros(PARTITIONS);
+
+        /**
+         * Smallest collection that addAll spreads over the common pool.
+         */
+        static final int PARALLEL_THRESHOLD = 1 << 14;
+
+        private final boolean shared;  // true only for EMPTY, which must never change
+        private final Queue<Shard> shards = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<Shard> local = ThreadLocal.withInitial(this::newShard);
+        private final AtomicInteger wordSize = new AtomicInteger(-1);  // -1 until the first NGram
+        private volatile boolean inconsistent;
+        private volatile boolean built;
 
         /**
-         * Private constructor that sets the underlying set.
+         * One thread's NGrams, split into hash partitions created on first use.
          */
-        private Builder(Set<NGram> ngrams) {
-            this.ngrams = new HashSet<>(Objects.requireNonNull(ngrams, "NGram set cannot be null."));
+        private static final class Shard {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            final Set<NGram>[] partitions = new Set[PARTITIONS];
+
+            void add(NGram ngram) {
+                // Top bits of a multiplicative hash, so the low bits the set uses stay varied
+                int p = (ngram.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - PARTITION_BITS);
+                Set<NGram> partition = partitions[p];
+                if (partition == null) {
+                    partition = new HashSet<>();
+                    partitions[p] = partition;
+                }
+                partition.add(ngram);
+            }
+        }
+
+        private Builder(boolean shared) {
+            this.shared = shared;
+        }
+
+        private Shard newShard() {
+            Shard shard = new Shard();
+            shards.add(shard);
+            return shard;
+        }
+
+        /**
+         * A builder with no NGrams. It is shared, so it only builds the empty
+         * corpus; adding to it throws. Start from {@link #create()} to add NGrams.
+         */
+        public static final Builder EMPTY = new Builder(true);
+
+        /**
+         * Returns a fresh builder with no NGrams, for adding from several threads.
+         */
+        public static Builder create() {
+            return new Builder(false);
         }
 
         /**
-         * A builder with no NGrams.
+         * Checks that NGrams may still be added to this builder.
          */
-        public static final Builder EMPTY = new Builder(new HashSet<>());
+        private void checkMutable() {
+            if (shared) {
+                throw new UnsupportedOperationException("Builder.EMPTY is shared; start from Builder.create().");
+            }
+            if (built) {
+                throw new IllegalStateException("Builder has already built its corpus.");
+            }
+        }
 
         /**
          * Creates a new Builder from the contents of the given Corpus.
+         * Its weights are not carried over.
          */
         public static final Builder of(Corpus corpus) {
-            return new Builder(new HashSet<>(Objects.requireNonNull(corpus, "Corpus cannot be null.").corpus()));
+            Objects.requireNonNull(corpus, "Corpus cannot be null.");
+            Builder builder = create();
+            corpus.forEach(builder::accept);
+            return builder;
         }
 
         /**
          * Adds a single NGram to the builder.
          *
          * @throws NullPointerException if the NGram is null.
+         * @throws UnsupportedOperationException if this is {@link #EMPTY}.
+         * @throws IllegalStateException if the builder has already built its corpus.
          */
         public Builder add(NGram ngram) {
-            ngrams.add(Objects.requireNonNull(ngram, "NGram cannot be null."));
+            Objects.requireNonNull(ngram, "NGram cannot be null.");
+            checkMutable();
+            accept(ngram);
             return this;
         }
 
         /**
-         * Adds all non-null NGrams from the given collection.
+         * Adds all non-null NGrams from the given collection, in parallel
+         * when the collection is large.
          *
          * @throws NullPointerException if the collection is null.
+         * @throws UnsupportedOperationException if this is {@link #EMPTY}.
+         * @throws IllegalStateException if the builder has already built its corpus.
          */
         public Builder addAll(Collection<NGram> collection) {
             Objects.requireNonNull(collection, "Collection of NGrams cannot be null.");
-            collection.stream()
-                      .filter(Objects::nonNull)
-                      .forEach(ngrams::add);
+            checkMutable();
+            Stream<NGram> stream = collection.size() >= PARALLEL_THRESHOLD
+                    ? collection.parallelStream() : collection.stream();
+            stream.filter(Objects::nonNull)
+                  .forEach(this::accept);
             return this;
         }
 
+        private void accept(NGram ngram) {
+            int size = ngram.size();
+            if (wordSize.get() != size && !wordSize.compareAndSet(-1, size) && wordSize.get() != size) {
+                inconsistent = true;  // The first NGram set another length
+            }
+            local.get().add(ngram);
+        }
+
         /**
          * Returns whether all NGrams in this builder have the given wordSize.
          *
@@ -141,33 +918,74 @@ public final class Corpus implements Iterable<NGram> {
          */
         public boolean isConsistent(Integer wordSize) {
             Objects.requireNonNull(wordSize, "wordSize cannot be null.");
-            for (NGram n : ngrams) {
-                // Extra defensive check: ensure no null elements are inside.
-                Objects.requireNonNull(n, "NGram in builder is null.");
-                if (n.size() != wordSize) {
-                    return false;
-                }
-            }
-            return true;
+            int size = this.wordSize.get();
+            return !inconsistent && (size < 0 || size == wordSize);
         }
 
         /**
          * Builds a new Corpus if all NGrams share the same word size;
          * otherwise throws an IllegalStateException.
+         *
+         * @throws IllegalStateException if the NGram sizes differ, or if this
+         *                               builder has already built (see {@link Builder}).
          */
         public Corpus build() {
-            if (ngrams.isEmpty()) {
+            if (shared) {
                 // When empty, we define a corpus with size 0
-                return new Corpus(Set.of(), 0);
+                return new Corpus(new NGram[0], 0, null, null);
+            }
+            if (built) {
+                throw new IllegalStateException("Builder has already built its corpus.");
+            }
+            built = true;
+            if (inconsistent) {
+                throw new IllegalStateException("Inconsistent NGram sizes in builder.");
+            }
+            List<Shard> all = List.copyOf(shards);
+            shards.clear();
+            @SuppressWarnings("unchecked")
+            Set<NGram>[] parts = IntStream.range(0, PARTITIONS).parallel()
+                                          .mapToObj(p -> merge(all, p))
+                                          .toArray(Set[]::new);
+            int[] offsets = new int[PARTITIONS + 1];
+            for (int p = 0; p < PARTITIONS; p++) {
+                offsets[p + 1] = offsets[p] + parts[p].size();
+            }
+            int count = offsets[PARTITIONS];
+            NGram[] sorted = new NGram[count];
+            IntStream.range(0, PARTITIONS).parallel().forEach(p -> {
+                int n = offsets[p];
+                for (NGram ngram : parts[p]) {
+                    sorted[n++] = ngram;
+                }
+            });
+            Arrays.parallelSort(sorted);
+            return new Corpus(sorted, count == 0 ? 0 : wordSize.get(), null, null);
+        }
+
+        /**
+         * Returns the distinct NGrams of partition p across all shards, merging
+         * into the largest shard's set and releasing the others.
+         */
+        private static Set<NGram> merge(List<Shard> all, int p) {
+            Set<NGram> largest = null;
+            for (Shard shard : all) {
+                Set<NGram> partition = shard.partitions[p];
+                if (partition != null && (largest == null || partition.size() > largest.size())) {
+                    largest = partition;
+                }
+            }
+            if (largest == null) {
+                return Collections.emptySet();
             }
-            int guessedSize = ngrams.iterator().next().size();
-            for (NGram n : ngrams) {
-                Objects.requireNonNull(n, "NGram in builder is null.");
-                if (n.size() != guessedSize) {
-                    throw new IllegalStateException("Inconsistent NGram sizes in builder.");
+            for (Shard shard : all) {
+                Set<NGram> partition = shard.partitions[p];
+                if (partition != null && partition != largest) {
+                    largest.addAll(partition);
                 }
+                shard.partitions[p] = null;
             }
-            return new Corpus(ngrams, guessedSize);
+            return largest;
         }
     }
 }
@@ -1,11 +1,22 @@
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class CorpusTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Building an empty corpus via the builder triggers the code path
      * that calls the private constructor with Set.of() and wordSize=0.
@@ -18,13 +29,26 @@ public class CorpusTest {
         assertEquals("WordSize of empty corpus should be 0", 0, c.wordSize());
     }
 
+    /**
+     * EMPTY is shared, so adding to it throws instead of leaking words into
+     * other corpora or silently dropping them.
+     */
+    @Test
+    public void testEmptyBuilderRejectsAdditions() {
+        Corpus.Builder b = Corpus.Builder.EMPTY;
+        assertThrows(UnsupportedOperationException.class, () -> b.add(NGram.from("cat")));
+        assertThrows(UnsupportedOperationException.class, () -> b.addAll(List.of(NGram.from("cat"))));
+        assertEquals(0, b.build().size());
+        assertNotSame(Corpus.Builder.create(), Corpus.Builder.create());
+    }
+
     /**
      * Building a corpus with one NGram triggers the normal code path
      * that calls the private constructor with a non-empty set.
      */
     @Test
     public void testBuildNonEmptyCorpus() {
-        Corpus c = Corpus.Builder.EMPTY
+        Corpus c = Corpus.Builder.create()
             .add(NGram.from("cat"))
             .build();
         assertNotNull("Corpus should not be null", c);
@@ -37,7 +61,7 @@ public class CorpusTest {
      */
     @Test
     public void testContainsAndSizeFilter() {
-        Corpus c = Corpus.Builder.EMPTY
+        Corpus c = Corpus.Builder.create()
             .add(NGram.from("cat"))
             .add(NGram.from("dog"))
             .build();
@@ -57,7 +81,7 @@ public class CorpusTest {
      */
     @Test
     public void testIteratorAndStream() {
-        Corpus c = Corpus.Builder.EMPTY
+        Corpus c = Corpus.Builder.create()
             .add(NGram.from("cat"))
             .add(NGram.from("dog"))
             .build();
@@ -80,7 +104,7 @@ public class CorpusTest {
      */
     @Test(expected = IllegalStateException.class)
     public void testBuildInconsistentSizes() {
-        Corpus.Builder.EMPTY
+        Corpus.Builder.create()
             .add(NGram.from("hello")) // length 5
             .add(NGram.from("cat"))   // length 3
             .build();                 // should throw IllegalStateException
@@ -91,7 +115,7 @@ public class CorpusTest {
      */
     @Test(expected = NullPointerException.class)
     public void testAddAllNullCollection() {
-        Corpus.Builder.EMPTY.addAll(null);
+        Corpus.Builder.create().addAll(null);
     }
 
     /**
@@ -99,6 +123,333 @@ public class CorpusTest {
      */
     @Test(expected = NullPointerException.class)
     public void testAddNullNGram() {
-        Corpus.Builder.EMPTY.add(null);
+        Corpus.Builder.create().add(null);
+    }
+
+    /**
+     * Word ids follow sorted order, so equal corpora get equal ids and hashes.
+     */
+    @Test
+    public void testIdsAndContentHash() {
+        Corpus c = Corpus.Builder.create()
+            .add(NGram.from("dog"))
+            .add(NGram.from("cat"))
+            .build();
+        assertEquals(NGram.from("cat"), c.get(0));
+        assertEquals(NGram.from("dog"), c.get(1));
+        assertEquals(1, c.indexOf(NGram.from("dog")));
+        assertEquals(-1, c.indexOf(NGram.from("fox")));
+        assertEquals(NGram.from("cat"), c.iterator().next());
+
+        Corpus same = Corpus.Builder.create()
+            .add(NGram.from("cat"))
+            .add(NGram.from("dog"))
+            .build();
+        Corpus other = Corpus.Builder.create()
+            .add(NGram.from("cat"))
+            .add(NGram.from("cot"))
+            .build();
+        assertArrayEquals(c.contentHash(), same.contentHash());
+        assertFalse(Arrays.equals(c.contentHash(), other.contentHash()));
+    }
+
+    /**
+     * A snapshot round trip keeps every word, id and the content hash.
+     */
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        Corpus c = Corpus.Builder.create()
+            .add(NGram.from("hello"))
+            .add(NGram.from("world"))
+            .add(NGram.from("cr\u00e8me"))
+            .build();
+        Path file = folder.getRoot().toPath().resolve("corpus.snapshot");
+        c.writeSnapshot(file);
+        Corpus loaded = Corpus.readSnapshot(file);
+        assertEquals(c.size(), loaded.size());
+        assertEquals(c.wordSize(), loaded.wordSize());
+        for (int id = 0; id < c.size(); id++) {
+            assertEquals(c.get(id), loaded.get(id));
+        }
+        assertTrue(loaded.contains(NGram.from("cr\u00e8me")));
+        // Loaded words are decoded without a charset, but answer the same.
+        NGram creme = loaded.get(loaded.indexOf(NGram.from("cr\u00e8me")));
+        assertTrue(creme.contains('\u00e8'));
+        assertFalse(creme.contains('f'));
+        assertTrue(loaded.corpus().contains(NGram.from("world")));
+        assertEquals(c.corpus(), loaded.corpus());
+        assertArrayEquals(c.contentHash(), loaded.contentHash());
+    }
+
+    /**
+     * Alphabets of more than 256 letters are stored with two bytes per letter.
+     */
+    @Test
+    public void testSnapshotWideAlphabet() throws IOException {
+        List<NGram> words = new ArrayList<>();
+        for (char c = 0x0400; c < 0x0400 + 300; c++) {
+            words.add(NGram.from(new String(new char[] {c, (char) (c + 1)})));
+        }
+        Corpus c = Corpus.Builder.create().addAll(words).build();
+        Path file = folder.getRoot().toPath().resolve("wide.snapshot");
+        c.writeSnapshot(file);
+        Corpus loaded = Corpus.readSnapshot(file);
+        assertEquals(c.corpus(), loaded.corpus());
+        assertArrayEquals(c.contentHash(), loaded.contentHash());
+    }
+
+    /**
+     * A damaged snapshot is rejected instead of producing a different corpus.
+     */
+    @Test(expected = IOException.class)
+    public void testCorruptSnapshot() throws IOException {
+        Corpus c = Corpus.Builder.create()
+            .add(NGram.from("cat"))
+            .add(NGram.from("dog"))
+            .build();
+        Path file = folder.getRoot().toPath().resolve("corrupt.snapshot");
+        c.writeSnapshot(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        Corpus.readSnapshot(file);
+    }
+
+    private Corpus createAnimals() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+            NGram.from("cat"), NGram.from("cow"), NGram.from("dog"),
+            NGram.from("eel"), NGram.from("emu"), NGram.from("owl"))).build();
+    }
+
+    /**
+     * Views keep sorted order, renumber ids and map them back to the full corpus.
+     */
+    /**
+     * Feedback filters are counted on the DAWG, other filters, views and words
+     * without an alphabet by testing every word; all agree with a scan.
+     */
+    @Test
+    public void testFeedbackSizeMatchesScan() {
+        List<NGram> words = new ArrayList<>();
+        for (String word : new String[] {"crane", "slate", "plane", "brace", "eerie", "sassy", "tacit", "alley"}) {
+            words.add(NGram.from(word));
+        }
+        Corpus corpus = Corpus.Builder.create().addAll(words).build();
+        Corpus view = corpus.filter(Filter.from(ng -> ng.get(0) != 'e'));
+        for (NGram key : words) {
+            for (NGram guess : words) {
+                Filter feedback = NGramMatcher.of(key, guess).match();
+                Filter opaque = Filter.from(feedback::test);
+                assertNull(opaque.constraints());
+                long expected = words.stream().filter(feedback::test).count();
+                assertEquals(expected, corpus.size(feedback));
+                assertEquals(expected, corpus.size(opaque));
+                assertEquals(view.stream().filter(feedback::test).count(), view.size(feedback));
+            }
+        }
+        Corpus emoji = Corpus.Builder.create().addAll(List.of(NGram.from("\uD83D\uDE00"),
+                                                              NGram.from("ab"))).build();
+        assertEquals(1, emoji.size(NGramMatcher.of(NGram.from("ab"), NGram.from("ab")).match()));
+    }
+
+    @Test
+    public void testFilterView() {
+        Corpus c = createAnimals();
+        Corpus view = c.filter(Filter.from(ng -> ng.contains('o')));
+        assertEquals(3, view.size());
+        assertEquals(Arrays.asList(NGram.from("cow"), NGram.from("dog"), NGram.from("owl")),
+                     view.stream().collect(Collectors.toList()));
+        assertEquals(1, view.indexOf(NGram.from("dog")));
+        assertEquals(-1, view.indexOf(NGram.from("cat")));
+        assertEquals(-1, view.indexOf(NGram.from("yak")));
+        assertTrue(view.contains(NGram.from("owl")));
+        assertFalse(view.corpus().contains(NGram.from("emu")));
+        assertEquals(c.indexOf(NGram.from("owl")), view.rootId(2));
+        assertSame(c, view.root());
+        assertSame(c.alphabet(), view.alphabet());
+        assertEquals(3, view.wordSize());
+        assertEquals(2, view.size(Filter.from(ng -> ng.contains('w'))));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(3));
+    }
+
+    /**
+     * A view of a view is a view of the full corpus, equal in content to a built copy.
+     */
+    @Test
+    public void testNestedViews() {
+        Corpus c = createAnimals();
+        Corpus first = c.filter(Filter.from(ng -> !ng.contains('a')));
+        Corpus second = first.subset(Arrays.asList(NGram.from("owl"), NGram.from("eel"), NGram.from("cat")));
+        assertTrue(second.isView());
+        assertSame(c, second.root());
+        assertEquals(Set.of(NGram.from("eel"), NGram.from("owl")), new HashSet<>(second.corpus()));
+        Corpus copy = Corpus.Builder.of(second).build();
+        assertFalse(copy.isView());
+        assertEquals(copy.corpus(), second.corpus());
+        assertArrayEquals(copy.contentHash(), second.contentHash());
+        assertEquals(0, c.subset(List.of()).size());
+    }
+
+    /**
+     * Encoded views share the full encoding and agree with the reference feedback.
+     */
+    @Test
+    public void testViewEncoding() {
+        Corpus c = createAnimals();
+        Corpus view = c.filter(Filter.from(ng -> ng.contains('e') || ng.contains('w')));
+        EncodedWords encoded = view.encoded();
+        assertEquals(view.size(), encoded.size());
+        NGram guess = NGram.from("owe");
+        int[] letters = encoded.encode(guess);
+        int[] scratch = encoded.scratch();
+        for (int id = 0; id < view.size(); id++) {
+            assertEquals(Feedback.code(view.get(id), guess), encoded.code(id, letters, scratch));
+        }
+        MatchleScorer scorer = new MatchleScorer(view);
+        MatchleScorer reference = new MatchleScorer(Corpus.Builder.of(view).build());
+        for (NGram g : c) {
+            assertEquals(reference.scoreWorstCase(g), scorer.scoreWorstCase(g));
+            assertEquals(reference.scoreAverageCase(g), scorer.scoreAverageCase(g), 1e-9);
+        }
+    }
+
+    /**
+     * Views are candidate sets over the full corpus' ids; retain and intersect combine them.
+     */
+    @Test
+    public void testCandidateSetViews() {
+        Corpus c = createAnimals();
+        assertEquals(CandidateSet.all(6), c.candidates());
+        Corpus withO = c.filter(Filter.from(ng -> ng.contains('o')));
+        Corpus withW = c.filter(Filter.from(ng -> ng.contains('w')));
+        assertArrayEquals(new int[] {1, 2, 5}, withO.candidates().toArray());
+        Corpus both = withO.intersect(withW);
+        assertSame(c, both.root());
+        assertEquals(Arrays.asList(NGram.from("cow"), NGram.from("owl")), new ArrayList<>(both.corpus()));
+        assertEquals(both.corpus(), withO.retain(CandidateSet.of(6, 1, 3, 5)).corpus());
+        assertEquals(both.corpus(), c.retain(both.candidates()).corpus());
+        Corpus built = Corpus.Builder.of(withW).build();
+        assertEquals(both.corpus(), withO.intersect(built).corpus());
+        assertThrows(IllegalArgumentException.class, () -> withO.retain(CandidateSet.all(5)));
+        assertThrows(NullPointerException.class, () -> c.retain(null));
+    }
+
+    /**
+     * Threads adding overlapping words to one builder yield each word once, in sorted order.
+     */
+    @Test
+    public void testConcurrentBuilder() throws InterruptedException {
+        Corpus.Builder builder = Corpus.Builder.create();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    builder.add(NGram.from(String.format("w%04d", (i + offset * 500) % 3000)));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(builder.isConsistent(5));
+        Corpus c = builder.build();
+        assertEquals(3000, c.size());
+        for (int id = 0; id < c.size(); id++) {
+            assertEquals(NGram.from(String.format("w%04d", id)), c.get(id));
+        }
+        assertEquals(0, Corpus.Builder.EMPTY.build().size());
+    }
+
+    /**
+     * Large collections are added in parallel; lengths are checked as words arrive.
+     */
+    @Test
+    public void testBuilderIngestion() {
+        List<NGram> words = new ArrayList<>();
+        for (int i = 0; i < Corpus.Builder.PARALLEL_THRESHOLD * 2; i++) {
+            words.add(NGram.from(String.format("%06d", i % 20_000)));
+        }
+        words.add(null);
+        Corpus.Builder builder = Corpus.Builder.create().addAll(words);
+        assertTrue(builder.isConsistent(6));
+        assertFalse(builder.isConsistent(5));
+        assertEquals(20_000, builder.build().size());
+        assertThrows(IllegalStateException.class, builder::build);
+        assertThrows(IllegalStateException.class, () -> builder.add(NGram.from("000000")));
+
+        Corpus.Builder mixed = Corpus.Builder.create().add(NGram.from("cat")).add(NGram.from("goose"));
+        assertFalse(mixed.isConsistent(3));
+        assertThrows(IllegalStateException.class, mixed::build);
+        assertTrue(Corpus.Builder.create().isConsistent(4));
+    }
+
+    /**
+     * A builder builds once; afterwards, even after a failed build, it takes nothing more.
+     */
+    @Test
+    public void testBuilderIsSingleUse() {
+        Corpus.Builder builder = Corpus.Builder.create().add(NGram.from("cat"));
+        assertEquals(1, builder.build().size());
+        assertThrows(IllegalStateException.class, builder::build);
+        assertThrows(IllegalStateException.class, () -> builder.add(NGram.from("dog")));
+        assertThrows(IllegalStateException.class, () -> builder.addAll(List.of(NGram.from("dog"))));
+
+        Corpus.Builder mixed = Corpus.Builder.create().add(NGram.from("cat")).add(NGram.from("goose"));
+        assertThrows(IllegalStateException.class, mixed::build);
+        assertThrows(IllegalStateException.class, () -> mixed.add(NGram.from("dog")));
+        assertThrows(IllegalStateException.class, mixed::build);
+
+        assertEquals(0, Corpus.Builder.EMPTY.build().size());
+        assertEquals(0, Corpus.Builder.EMPTY.build().size());
+    }
+
+    /**
+     * Weights follow the words into views, edits and snapshots.
+     */
+    @Test
+    public void testWeights() throws IOException {
+        Corpus plain = Corpus.Builder.create()
+            .addAll(Arrays.asList(NGram.from("cat"), NGram.from("cot"), NGram.from("cut")))
+            .build();
+        assertFalse(plain.isWeighted());
+        assertEquals(1, plain.weight(2), 0);
+        assertEquals(3, plain.totalWeight(), 0);
+
+        Corpus c = plain.withWeights(ng -> ng.charAt(1) == 'o' ? 0.5 : 2);
+        assertTrue(c.isWeighted());
+        assertEquals(plain.corpus(), c.corpus());
+        assertArrayEquals(plain.contentHash(), c.contentHash());
+        assertEquals(4.5, c.totalWeight(), 1e-12);
+
+        Corpus view = c.filter(Filter.from(ng -> !ng.equals(NGram.from("cat"))));
+        assertTrue(view.isWeighted());
+        assertEquals(0.5, view.weight(0), 0);
+        assertEquals(2, view.weight(1), 0);
+        assertEquals(2.5, view.totalWeight(), 1e-12);
+        Corpus reweighted = view.withWeights(ng -> 3);
+        assertEquals(view.corpus(), reweighted.corpus());
+        assertEquals(6, reweighted.totalWeight(), 0);
+
+        Corpus edited = c.edit(List.of(NGram.from("cab")), List.of(NGram.from("cut")));
+        assertEquals(NGram.from("cab"), edited.get(0));
+        assertEquals(1, edited.weight(0), 0);
+        assertEquals(2, edited.weight(1), 0);
+        assertEquals(0.5, edited.weight(2), 0);
+
+        Path file = folder.getRoot().toPath().resolve("weighted.snapshot");
+        c.writeSnapshot(file);
+        Corpus loaded = Corpus.readSnapshot(file);
+        for (int id = 0; id < c.size(); id++) {
+            assertEquals(c.weight(id), loaded.weight(id), 0);
+        }
+        plain.writeSnapshot(file);
+        assertFalse(Corpus.readSnapshot(file).isWeighted());
+
+        assertThrows(IllegalArgumentException.class, () -> plain.withWeights(ng -> -1));
+        assertThrows(IllegalArgumentException.class, () -> plain.withWeights(ng -> Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> plain.withWeights(ng -> Double.POSITIVE_INFINITY));
+        assertThrows(IndexOutOfBoundsException.class, () -> c.weight(3));
     }
 }
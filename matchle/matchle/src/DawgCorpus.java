@@ -0,0 +1,639 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A corpus stored as a minimal DAWG (directed acyclic word graph): words that
+ * share a prefix share the path from the root, words that share a suffix share
+ * the path to the end, and each node is a range of edges in a few primitive
+ * arrays. A dictionary of a few thousand words takes a few tens of kilobytes
+ * instead of one NGram, list and letter set per word.
+ *
+ * All words have the same length, so every path from the root to a node has
+ * the same length and a node stands for one position. Each node records how
+ * many words pass through it and which letters occur below it, so queries
+ * made of feedback checks ({@link #count(Filter)} and
+ * {@link #forEach(Filter, Consumer)}) prune a whole subtree as soon as a
+ * prefix breaks an exact or absent check, or a misplaced letter can no longer
+ * occur below, and count a subtree in one step once nothing below it can fail.
+ * Other filters are answered by testing every word.
+ *
+ * Words are numbered in sorted order, as in {@link Corpus}; {@link #of(Corpus)}
+ * and {@link #toCorpus()} convert between the two. A full Corpus also keeps
+ * one, built on its first feedback count, to answer {@link Corpus#size(Filter)}.
+ * Instances are immutable.
+ */
+public final class DawgCorpus implements Iterable<NGram> {
+
+    /**
+     * Most misplaced checks a query may have and still be pruned and memoized;
+     * larger queries test every word.
+     */
+    static final int MAX_MISPLACED = 32;
+
+    private final Alphabet alphabet;
+    private final int wordSize;
+    private final int size;
+    private final int stride;        // Longs per letter mask
+    private final int[] firstEdge;   // Edges of node v are firstEdge[v] .. firstEdge[v + 1] - 1; root is 0
+    private final int[] counts;      // counts[v]: words through node v
+    private final long[] below;      // below[v * stride ..]: letters on some edge below node v
+    private final char[] labels;     // Edge letters as alphabet numbers, ascending per node
+    private final int[] targets;     // Edge target nodes
+    private final boolean[] shared;  // shared[v]: node v has several incoming edges; only those are memoized
+
+    private DawgCorpus(Alphabet alphabet, int wordSize, int[] firstEdge, int[] counts, long[] below,
+                       char[] labels, int[] targets) {
+        this.alphabet = alphabet;
+        this.wordSize = wordSize;
+        this.stride = Math.max(1, (alphabet.size() + 63) >>> 6);
+        this.firstEdge = firstEdge;
+        this.counts = counts;
+        this.below = below;
+        this.labels = labels;
+        this.targets = targets;
+        this.size = counts.length == 0 ? 0 : counts[0];
+        this.shared = new boolean[counts.length];
+        boolean[] reached = new boolean[counts.length];
+        for (int target : targets) {
+            shared[target] |= reached[target];
+            reached[target] = true;
+        }
+    }
+
+    // =========================================================
+    // Building
+    // =========================================================
+
+    /**
+     * A node while the graph is built; children are registered before their parent.
+     */
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] targets = new Node[0];
+        int id = -1;  // Set when registered
+
+        Node last() {
+            return targets[targets.length - 1];
+        }
+
+        Node add(char label) {
+            Node child = new Node();
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            targets = Arrays.copyOf(targets, targets.length + 1);
+            labels[labels.length - 1] = label;
+            targets[targets.length - 1] = child;
+            return child;
+        }
+    }
+
+    /**
+     * The edges of a registered node, by label and child id; equal signatures
+     * mean equal suffix languages.
+     */
+    private static record Signature(char[] labels, int[] children) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(labels, ((Signature) o).labels)
+                   && Arrays.equals(children, ((Signature) o).children);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(labels) + Arrays.hashCode(children);
+        }
+    }
+
+    /**
+     * Builds the minimal DAWG of the corpus' words in one pass over them in
+     * sorted order, merging each finished suffix with an equal one already
+     * seen (Daciuk et al.'s incremental construction).
+     *
+     * @throws NullPointerException if corpus is null.
+     */
+    public static DawgCorpus of(Corpus corpus) {
+        Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        Alphabet alphabet = corpus.alphabet();
+        int wordSize = corpus.wordSize();
+        Map<Signature, Node> register = new HashMap<>();
+        List<Node> registered = new ArrayList<>();
+        Node root = new Node();
+        char[] previous = null;
+        for (NGram ngram : corpus) {
+            char[] word = new char[wordSize];
+            for (int i = 0; i < wordSize; i++) {
+                word[i] = (char) alphabet.indexOf(ngram.charAt(i));
+            }
+            int common = 0;
+            Node node = root;
+            if (previous != null) {
+                while (common < wordSize && word[common] == previous[common]) {
+                    node = node.last();
+                    common++;
+                }
+                if (node.targets.length > 0) {
+                    minimize(node, register, registered);
+                }
+            }
+            for (int i = common; i < wordSize; i++) {
+                node = node.add(word[i]);
+            }
+            previous = word;
+        }
+        if (root.targets.length > 0) {
+            minimize(root, register, registered);
+        }
+        return freeze(root, registered, alphabet, wordSize);
+    }
+
+    /**
+     * Replaces the last child of node, and recursively its last descendants,
+     * with the registered equivalent, or registers them.
+     */
+    private static void minimize(Node node, Map<Signature, Node> register, List<Node> registered) {
+        Node child = node.last();
+        if (child.targets.length > 0) {
+            minimize(child, register, registered);
+        }
+        int[] children = new int[child.targets.length];
+        for (int e = 0; e < children.length; e++) {
+            children[e] = child.targets[e].id;
+        }
+        Signature signature = new Signature(child.labels, children);
+        Node existing = register.get(signature);
+        if (existing != null) {
+            node.targets[node.targets.length - 1] = existing;
+        } else {
+            child.id = registered.size();
+            registered.add(child);
+            register.put(signature, child);
+        }
+    }
+
+    /**
+     * Lays the graph out in arrays, root first; registered nodes come children
+     * first, so their counts and letter masks are computed in one reverse pass.
+     */
+    private static DawgCorpus freeze(Node root, List<Node> registered, Alphabet alphabet, int wordSize) {
+        int stride = Math.max(1, (alphabet.size() + 63) >>> 6);
+        if (root.targets.length == 0) {
+            return new DawgCorpus(alphabet, wordSize, new int[] {0, 0}, new int[0], new long[0],
+                                  new char[0], new int[0]);
+        }
+        int nodes = registered.size() + 1;
+        int[] order = new int[registered.size()];  // order[id]: array index of registered node id
+        for (int id = 0; id < order.length; id++) {
+            order[id] = nodes - 1 - id;  // Children before parents become parents before children
+        }
+        int[] firstEdge = new int[nodes + 1];
+        int edges = root.labels.length;
+        for (Node node : registered) {
+            edges += node.labels.length;
+        }
+        char[] labels = new char[edges];
+        int[] targets = new int[edges];
+        int[] counts = new int[nodes];
+        long[] below = new long[nodes * stride];
+        int e = 0;
+        for (int v = 0; v < nodes; v++) {
+            Node node = v == 0 ? root : registered.get(nodes - 1 - v);
+            firstEdge[v] = e;
+            for (int k = 0; k < node.labels.length; k++, e++) {
+                labels[e] = node.labels[k];
+                targets[e] = order[node.targets[k].id];
+            }
+        }
+        firstEdge[nodes] = e;
+        for (int v = nodes - 1; v >= 0; v--) {  // Targets have larger indexes than their sources
+            if (firstEdge[v] == firstEdge[v + 1]) {
+                counts[v] = 1;  // The end of every word
+            }
+            for (int k = firstEdge[v]; k < firstEdge[v + 1]; k++) {
+                int t = targets[k];
+                counts[v] += counts[t];
+                below[v * stride + (labels[k] >>> 6)] |= 1L << labels[k];
+                for (int w = 0; w < stride; w++) {
+                    below[v * stride + w] |= below[t * stride + w];
+                }
+            }
+        }
+        return new DawgCorpus(alphabet, wordSize, firstEdge, counts, below, labels, targets);
+    }
+
+    // =========================================================
+    // Queries
+    // =========================================================
+
+    /**
+     * Returns the common size of the words.
+     */
+    public int wordSize() {
+        return wordSize;
+    }
+
+    /**
+     * Returns the number of words.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the word is stored, walking one edge per letter.
+     *
+     * @throws NullPointerException if ngram is null.
+     */
+    public boolean contains(NGram ngram) {
+        Objects.requireNonNull(ngram, "NGram cannot be null.");
+        if (size == 0 || ngram.size() != wordSize) {
+            return false;
+        }
+        int node = 0;
+        for (int i = 0; i < wordSize; i++) {
+            int letter = alphabet.indexOf(ngram.charAt(i));
+            int edge = letter < 0 ? -1 : edge(node, letter);
+            if (edge < 0) {
+                return false;
+            }
+            node = targets[edge];
+        }
+        return true;
+    }
+
+    private int edge(int node, int letter) {
+        int e = Arrays.binarySearch(labels, firstEdge[node], firstEdge[node + 1], (char) letter);
+        return e >= 0 ? e : -1;
+    }
+
+    /**
+     * Returns an iterator over the words, in sorted order.
+     */
+    @Override
+    public Iterator<NGram> iterator() {
+        return new Iterator<>() {
+            private final int[] path = new int[wordSize + 1];   // Nodes from the root
+            private final int[] next = new int[wordSize];       // Edge taken at each depth
+            private int remaining = size;
+
+            {
+                if (size > 0) {
+                    descend(0);
+                }
+            }
+
+            private void descend(int depth) {
+                for (int d = depth; d < wordSize; d++) {
+                    next[d] = firstEdge[path[d]];
+                    path[d + 1] = targets[next[d]];
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public NGram next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                NGram word = word(next);
+                if (--remaining > 0) {
+                    int d = wordSize - 1;
+                    while (next[d] + 1 == firstEdge[path[d] + 1]) {
+                        d--;
+                    }
+                    next[d]++;
+                    path[d + 1] = targets[next[d]];
+                    descend(d + 1);
+                }
+                return word;
+            }
+        };
+    }
+
+    private NGram word(int[] edges) {
+        char[] chars = new char[wordSize];
+        for (int i = 0; i < wordSize; i++) {
+            chars[i] = alphabet.letter(labels[edges[i]]);
+        }
+        return NGram.from(new String(chars));
+    }
+
+    /**
+     * Returns a Corpus holding the same words.
+     */
+    public Corpus toCorpus() {
+        List<NGram> words = new ArrayList<>(size);
+        forEach(words::add);
+        return Corpus.Builder.create().addAll(words).build();
+    }
+
+    /**
+     * Returns the number of words that pass the filter.
+     *
+     * @throws NullPointerException if the filter is null.
+     */
+    public long count(Filter filter) {
+        Objects.requireNonNull(filter, "Filter cannot be null.");
+        Query query = Query.of(filter, this);
+        if (query == null) {
+            long count = 0;
+            for (NGram word : this) {
+                if (filter.test(word)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return size == 0 || query.impossible ? 0 : count(query, 0, 0, 0, new Memo());
+    }
+
+    /**
+     * Calls the action with every word that passes the filter, in sorted order.
+     *
+     * @throws NullPointerException if the filter or action is null.
+     */
+    public void forEach(Filter filter, Consumer<NGram> action) {
+        Objects.requireNonNull(filter, "Filter cannot be null.");
+        Objects.requireNonNull(action, "Action cannot be null.");
+        Query query = Query.of(filter, this);
+        if (query == null) {
+            for (NGram word : this) {
+                if (filter.test(word)) {
+                    action.accept(word);
+                }
+            }
+        } else if (size > 0 && !query.impossible) {
+            visit(query, 0, 0, 0, new int[wordSize], action);
+        }
+    }
+
+    /**
+     * Counts the words below node (at the given depth) that complete the query,
+     * given the misplaced checks already satisfied above it.
+     */
+    private long count(Query query, int node, int depth, long satisfied, Memo memo) {
+        if (depth == wordSize) {
+            return satisfied == query.allMisplaced ? 1 : 0;
+        }
+        if (satisfied == query.allMisplaced && query.exactFrom[depth] == 0 && !query.hitsAbsent(below, node * stride)) {
+            return counts[node];  // Nothing below can fail
+        }
+        if (!query.canSatisfy(below, node * stride, satisfied, wordSize - depth)) {
+            return 0;
+        }
+        long key = (long) node << 32 | satisfied;
+        long known = shared[node] ? memo.get(key) : -1;
+        if (known >= 0) {
+            return known;
+        }
+        long total = 0;
+        int from = firstEdge[node];
+        int to = firstEdge[node + 1];
+        if (query.exact[depth] >= 0) {
+            from = edge(node, query.exact[depth]);
+            to = from + 1;
+        }
+        for (int e = Math.max(from, 0); e < to; e++) {
+            if (!query.isAbsent(labels[e])) {
+                total += count(query, targets[e], depth + 1, satisfied | query.satisfies(labels[e], depth), memo);
+            }
+        }
+        if (shared[node]) {
+            memo.put(key, total);  // A node with one incoming edge is rarely asked again
+        }
+        return total;
+    }
+
+    private void visit(Query query, int node, int depth, long satisfied, int[] edges, Consumer<NGram> action) {
+        if (depth == wordSize) {
+            if (satisfied == query.allMisplaced) {
+                action.accept(word(edges));
+            }
+            return;
+        }
+        if (!query.canSatisfy(below, node * stride, satisfied, wordSize - depth)) {
+            return;
+        }
+        int from = firstEdge[node];
+        int to = firstEdge[node + 1];
+        if (query.exact[depth] >= 0) {
+            from = edge(node, query.exact[depth]);
+            to = from + 1;
+        }
+        for (int e = Math.max(from, 0); e < to; e++) {
+            if (!query.isAbsent(labels[e])) {
+                edges[depth] = e;
+                visit(query, targets[e], depth + 1, satisfied | query.satisfies(labels[e], depth), edges, action);
+            }
+        }
+    }
+
+    /**
+     * Counts already known per (node, satisfied checks) key, in an open
+     * addressing table of primitives so that a count boxes nothing.
+     */
+    private static final class Memo {
+        private long[] keys = new long[16];  // key + 1, or 0 for a free slot
+        private long[] values = new long[16];
+        private int size;
+
+        /**
+         * Returns the count stored for the key, or -1.
+         */
+        long get(long key) {
+            for (int i = slot(key, keys.length); keys[i] != 0; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key + 1) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, long value) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int i = slot(key, keys.length);
+            while (keys[i] != 0 && keys[i] != key + 1) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            size += keys[i] == 0 ? 1 : 0;
+            keys[i] = key + 1;
+            values[i] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[2 * oldKeys.length];
+            values = new long[2 * oldValues.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i] - 1, oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int length) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (length - 1);
+        }
+    }
+
+    /**
+     * A filter of feedback checks, over alphabet numbers: the exact letter per
+     * position, the absent letters, and the misplaced checks as bits.
+     */
+    private static final class Query {
+        int[] exact;            // exact[i]: letter required at i, or -1
+        int[] exactFrom;        // exactFrom[i]: exact checks at positions >= i
+        long[] absent;          // Letters that must not occur
+        int[] misplacedLetter;  // Misplaced check k: letter somewhere other than misplacedIndex[k]
+        int[] misplacedIndex;
+        long allMisplaced;      // One bit per misplaced check
+        int[] groupLetter;      // Distinct misplaced letters
+        long[] groupChecks;     // groupChecks[g]: the checks naming groupLetter[g]
+        boolean impossible;     // A check names a letter no word has, or two exact letters clash
+
+        /**
+         * Returns the query for a filter of feedback checks, or null if the
+         * filter has other parts or too many misplaced checks.
+         */
+        static Query of(Filter filter, DawgCorpus dawg) {
+            List<Filter.Constraint> constraints = filter.constraints();
+            if (constraints == null) {
+                return null;
+            }
+            Query query = new Query();
+            query.exact = new int[dawg.wordSize];
+            Arrays.fill(query.exact, -1);
+            query.exactFrom = new int[dawg.wordSize + 1];
+            query.absent = new long[dawg.stride];
+            List<int[]> misplaced = new ArrayList<>();
+            for (Filter.Constraint c : constraints) {
+                int letter = dawg.alphabet.indexOf(c.letter());
+                if (c.state() == Feedback.ABSENT) {
+                    if (letter >= 0) {
+                        query.absent[letter >>> 6] |= 1L << letter;
+                    }
+                } else if (letter < 0) {
+                    query.impossible = true;  // No word has the letter
+                } else if (c.state() == Feedback.MISPLACED) {
+                    misplaced.add(new int[] {letter, c.index()});  // An index past the end never blocks a position
+                } else if (c.index() < 0 || c.index() >= dawg.wordSize) {
+                    query.impossible = true;
+                } else {
+                    query.impossible |= query.exact[c.index()] >= 0 && query.exact[c.index()] != letter;
+                    query.exact[c.index()] = letter;
+                }
+            }
+            if (misplaced.size() > MAX_MISPLACED) {
+                return null;
+            }
+            for (int i = dawg.wordSize - 1; i >= 0; i--) {
+                query.exactFrom[i] = query.exactFrom[i + 1] + (query.exact[i] >= 0 ? 1 : 0);
+            }
+            query.misplacedLetter = new int[misplaced.size()];
+            query.misplacedIndex = new int[misplaced.size()];
+            Map<Integer, Long> groups = new HashMap<>();
+            for (int k = 0; k < misplaced.size(); k++) {
+                query.misplacedLetter[k] = misplaced.get(k)[0];
+                query.misplacedIndex[k] = misplaced.get(k)[1];
+                query.allMisplaced |= 1L << k;
+                groups.merge(query.misplacedLetter[k], 1L << k, (a, b) -> a | b);
+            }
+            query.groupLetter = new int[groups.size()];
+            query.groupChecks = new long[groups.size()];
+            int g = 0;
+            for (Map.Entry<Integer, Long> group : groups.entrySet()) {
+                query.groupLetter[g] = group.getKey();
+                query.groupChecks[g++] = group.getValue();
+            }
+            return query;
+        }
+
+        boolean isAbsent(int letter) {
+            return (absent[letter >>> 6] & (1L << letter)) != 0;
+        }
+
+        boolean hitsAbsent(long[] below, int offset) {
+            for (int w = 0; w < absent.length; w++) {
+                if ((below[offset + w] & absent[w]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the misplaced checks that the letter satisfies at the given position.
+         */
+        long satisfies(int letter, int position) {
+            long bits = 0;
+            for (int k = 0; k < misplacedLetter.length; k++) {
+                if (misplacedLetter[k] == letter && misplacedIndex[k] != position) {
+                    bits |= 1L << k;
+                }
+            }
+            return bits;
+        }
+
+        /**
+         * Checks that every unsatisfied misplaced letter still occurs below the
+         * node and that there are positions enough for the distinct ones.
+         */
+        boolean canSatisfy(long[] below, int offset, long satisfied, int positionsLeft) {
+            long missing = allMisplaced & ~satisfied;
+            if (missing == 0) {
+                return true;
+            }
+            int distinct = 0;
+            for (int g = 0; g < groupLetter.length; g++) {
+                if ((missing & groupChecks[g]) != 0) {
+                    int letter = groupLetter[g];
+                    if ((below[offset + (letter >>> 6)] & (1L << letter)) == 0) {
+                        return false;
+                    }
+                    distinct++;
+                }
+            }
+            return distinct <= positionsLeft;
+        }
+    }
+
+    // =========================================================
+    // Size
+    // =========================================================
+
+    /**
+     * Returns the number of nodes in the graph.
+     */
+    int nodes() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     */
+    int edges() {
+        return labels.length;
+    }
+
+    /**
+     * Returns the approximate number of bytes of the graph's arrays.
+     */
+    public long sizeInBytes() {
+        return (long) firstEdge.length * Integer.BYTES + (long) counts.length * Integer.BYTES
+               + (long) below.length * Long.BYTES + (long) labels.length * Character.BYTES
+               + (long) targets.length * Integer.BYTES + shared.length;
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class DawgCorpusTest {
+
+    private static Corpus randomCorpus(Random random, int count, int length, String letters) {
+        Set<NGram> words = new HashSet<>();
+        while (words.size() < count) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = letters.charAt(random.nextInt(letters.length()));
+            }
+            words.add(NGram.from(new String(chars)));
+        }
+        return Corpus.Builder.create().addAll(words).build();
+    }
+
+    @Test
+    public void testHoldsTheSameWordsInOrder() {
+        Corpus corpus = randomCorpus(new Random(3), 400, 5, "abcdefgh");
+        DawgCorpus dawg = DawgCorpus.of(corpus);
+        assertEquals(corpus.size(), dawg.size());
+        assertEquals(5, dawg.wordSize());
+        List<NGram> words = new ArrayList<>();
+        dawg.forEach(words::add);
+        assertEquals(new ArrayList<>(corpus.corpus()), words);
+        for (NGram word : corpus) {
+            assertTrue(dawg.contains(word));
+        }
+        assertFalse(dawg.contains(NGram.from("zzzzz")));
+        assertFalse(dawg.contains(NGram.from("abc")));
+        assertEquals(corpus.corpus(), dawg.toCorpus().corpus());
+        assertArrayEquals(corpus.contentHash(), dawg.toCorpus().contentHash());
+    }
+
+    @Test
+    public void testSharesPrefixesAndSuffixes() {
+        Corpus corpus = Corpus.Builder.create().addAll(Arrays.asList(
+                NGram.from("bakes"), NGram.from("cakes"), NGram.from("lakes"),
+                NGram.from("baked"), NGram.from("caked"), NGram.from("faked"))).build();
+        DawgCorpus dawg = DawgCorpus.of(corpus);
+        // b and c share "ake{d,s}"; f has "aked" and l "akes"; every chain ends in one sink
+        assertEquals(14, dawg.nodes());
+        assertEquals(17, dawg.edges());
+        assertEquals(6, dawg.size());
+    }
+
+    @Test
+    public void testFeedbackQueriesMatchCorpus() {
+        Random random = new Random(5);
+        for (String letters : new String[] {"ab", "abc", "aabbcdeeee", "abcdefghijklmnop"}) {
+            for (int length = 1; length <= 6; length++) {
+                int possible = (int) Math.min(150, Math.pow(new HashSet<>(Arrays.asList(
+                        letters.chars().boxed().toArray(Integer[]::new))).size(), length));
+                Corpus corpus = randomCorpus(random, possible, length, letters);
+                DawgCorpus dawg = DawgCorpus.of(corpus);
+                for (int q = 0; q < 40; q++) {
+                    NGram key = corpus.get(random.nextInt(corpus.size()));
+                    NGram guess = randomCorpus(random, 1, length, letters + "xy").get(0);
+                    Filter filter = Feedback.filter(guess, Feedback.code(key, guess));
+                    assertEquals(corpus.size(filter), dawg.count(filter));
+                    List<NGram> matches = new ArrayList<>();
+                    dawg.forEach(filter, matches::add);
+                    assertEquals(new ArrayList<>(corpus.filter(filter).corpus()), matches);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHandBuiltQueries() {
+        Corpus corpus = Corpus.Builder.create().addAll(Arrays.asList(
+                NGram.from("cat"), NGram.from("cot"), NGram.from("act"), NGram.from("tac"), NGram.from("dog"))).build();
+        DawgCorpus dawg = DawgCorpus.of(corpus);
+        Filter misplacedA = Filter.constraint(Feedback.MISPLACED, 1, 'a');
+        assertEquals(corpus.size(misplacedA), dawg.count(misplacedA));
+        Filter anyA = Filter.constraint(Feedback.MISPLACED, 7, 'a');
+        assertEquals(corpus.size(anyA), dawg.count(anyA));
+        assertEquals(0, dawg.count(Filter.constraint(Feedback.EXACT, 0, 'z')));
+        assertEquals(0, dawg.count(Filter.constraint(Feedback.EXACT, 3, 'c')));
+        assertEquals(0, dawg.count(Filter.constraint(Feedback.EXACT, 0, 'c')
+                                         .and(Filter.constraint(Feedback.EXACT, 0, 'd'))));
+        assertEquals(5, dawg.count(Filter.constraint(Feedback.ABSENT, 0, 'z')));
+        assertEquals(2, dawg.count(Filter.constraint(Feedback.EXACT, 0, 'c')
+                                         .and(Filter.constraint(Feedback.ABSENT, 0, 'z'))));
+        Filter plain = Filter.from(ng -> ng.contains('o'));
+        assertEquals(2, dawg.count(plain));
+        List<NGram> matches = new ArrayList<>();
+        dawg.forEach(plain, matches::add);
+        assertEquals(Arrays.asList(NGram.from("cot"), NGram.from("dog")), matches);
+    }
+
+    @Test
+    public void testEmptyCorpus() {
+        DawgCorpus dawg = DawgCorpus.of(Corpus.Builder.EMPTY.build());
+        assertEquals(0, dawg.size());
+        assertFalse(dawg.iterator().hasNext());
+        assertFalse(dawg.contains(NGram.from("cat")));
+        assertEquals(0, dawg.count(Filter.constraint(Feedback.ABSENT, 0, 'a')));
+        assertEquals(0, dawg.toCorpus().size());
+        assertThrows(NullPointerException.class, () -> DawgCorpus.of(null));
+    }
+
+    @Test
+    public void testSmallerThanTheCorpus() {
+        Corpus corpus = randomCorpus(new Random(9), 3000, 5, "abcdefghijklmnopqrstuvwxyz");
+        DawgCorpus dawg = DawgCorpus.of(corpus);
+        assertTrue(dawg.edges() < corpus.size() * corpus.wordSize());
+        assertTrue(dawg.sizeInBytes() < corpus.size() * 40L);
+    }
+}
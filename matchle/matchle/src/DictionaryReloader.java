@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a dictionary in sync with its word files while it is being served.
+ *
+ * The current {@link Generation} (a Corpus, its MatchleScorer, a Suggester
+ * and warmed indexes) is read with {@link #current()}, once per request, as
+ * {@link SuggestionServer} does. Once started, a watcher thread listens for
+ * changes to the word files through a WatchService. After a change, and a
+ * short quiet period so that an editor's burst of writes becomes one reload,
+ * the next generation is built and swapped in atomically. Until then every
+ * reader keeps getting the old generation; a build that fails leaves it in
+ * place.
+ *
+ * Reloads run one at a time, and each build runs in a fork-join pool of
+ * minimum-priority threads rather than the common pool, so the parallel parts
+ * of Corpus.Builder (addAll of large collections, the merge and the sort) run
+ * there too and never compete with serving threads at normal priority.
+ */
+public final class DictionaryReloader implements AutoCloseable {
+
+    /**
+     * Quiet period after the last change before reloading.
+     */
+    static final long QUIET_MILLIS = 100;
+
+    /**
+     * One loaded dictionary, ready to serve.
+     */
+    public static record Generation(long number, Corpus corpus, MatchleScorer scorer, Suggester suggester) {
+    }
+
+    private final List<Path> files;
+    private final Function<List<String>, Corpus> builder;
+    private final AtomicReference<Generation> current;
+    private final AtomicLong numbers = new AtomicLong();
+    private final ExecutorService background;  // Runs reloads one at a time
+    private final ForkJoinPool builds;          // Runs each build, at minimum priority
+    private volatile Exception lastFailure;
+    private volatile WatchService watcher;
+    private volatile Thread watchThread;
+
+    /**
+     * Loads the first generation from the given files and reloads them with
+     * the given builder, which turns every word of every file into a Corpus.
+     *
+     * @throws NullPointerException if any argument is null.
+     * @throws IllegalArgumentException if no files are given.
+     * @throws IOException if the files cannot be read.
+     */
+    public DictionaryReloader(List<Path> files, Function<List<String>, Corpus> builder) throws IOException {
+        Objects.requireNonNull(files, "Files cannot be null.");
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("At least one word file is needed.");
+        }
+        this.files = files.stream().map(file -> Objects.requireNonNull(file, "File cannot be null.").toAbsolutePath())
+                          .collect(Collectors.toUnmodifiableList());
+        this.builder = Objects.requireNonNull(builder, "Builder cannot be null.");
+        this.current = new AtomicReference<>(load());
+        this.background = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "matchle-dictionary-loader");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.builds = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("matchle-dictionary-builder-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Reloads the given files keeping the words of length n, as
+     * {@link MatchleExtensionApp#downloadWordList(String)} reads them.
+     *
+     * @throws IOException if the files cannot be read.
+     */
+    public static DictionaryReloader forWordLength(int n, List<Path> files) throws IOException {
+        return new DictionaryReloader(files, words -> Corpus.Builder.create().addAll(
+                words.stream().filter(w -> w.length() == n).map(NGram::from)
+                     .collect(Collectors.toList())).build());
+    }
+
+    /**
+     * Returns the generation to serve requests from.
+     */
+    public Generation current() {
+        return current.get();
+    }
+
+    /**
+     * Returns why the last reload failed, or null if it succeeded.
+     */
+    public Exception lastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Starts watching the directories of the word files.
+     *
+     * @throws IOException if the directories cannot be watched.
+     * @throws IllegalStateException if already started.
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) {
+            throw new IllegalStateException("Already watching.");
+        }
+        WatchService service = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        for (Path file : files) {
+            directories.add(file.getParent());
+        }
+        for (Path directory : directories) {
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                               StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        watcher = service;
+        Thread thread = new Thread(() -> watch(service), "matchle-dictionary-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        watchThread = thread;
+    }
+
+    /**
+     * Builds the next generation in the background and swaps it in. The
+     * future completes with the generation being served afterwards, which is
+     * the old one if the build failed.
+     */
+    public CompletableFuture<Generation> reload() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                // Parallel streams and sorts started from a pool's worker stay in that pool.
+                Generation next = builds.submit(this::load).get();
+                current.set(next);
+                lastFailure = null;
+            } catch (ExecutionException e) {
+                lastFailure = cause(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lastFailure = e;
+            }
+            return current.get();
+        }, background);
+    }
+
+    /**
+     * Stops watching and building.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        background.shutdownNow();
+        builds.shutdownNow();
+        if (watcher != null) {
+            watcher.close();
+            watchThread.interrupt();
+        }
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = relevant(key);
+                // Let a burst of writes settle into a single reload.
+                for (WatchKey more; (more = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null; ) {
+                    changed |= relevant(more);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException | RejectedExecutionException e) {
+            // Closed
+        }
+    }
+
+    private boolean relevant(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || files.contains(directory.resolve((Path) event.context()))) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * Returns what made a build fail. The pool wraps checked exceptions in a
+     * RuntimeException, so an IOException is looked for among the causes.
+     */
+    private static Exception cause(ExecutionException e) {
+        for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+            if (t instanceof IOException) {
+                return (IOException) t;
+            }
+        }
+        return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+
+    /**
+     * Reads the files and builds and warms the next generation.
+     */
+    private Generation load() throws IOException {
+        List<String> words = new ArrayList<>();
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file)) {
+                String word = line.trim();
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        Corpus corpus = Objects.requireNonNull(builder.apply(words), "Builder returned no corpus.");
+        // Warm what the first requests would otherwise compute on the critical path.
+        corpus.contentHash();
+        corpus.encoded();
+        return new Generation(numbers.getAndIncrement(), corpus, new MatchleScorer(corpus), new Suggester(corpus));
+    }
+}
@@ -0,0 +1,149 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+public class DictionaryReloaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeWords(String name, String... words) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, List.of(words));
+        return file;
+    }
+
+    @Test
+    public void testInitialGeneration() throws IOException {
+        Path file = writeWords("words.txt", "cat", "dog", "horse", " emu ");
+        try (DictionaryReloader reloader = DictionaryReloader.forWordLength(3, List.of(file))) {
+            DictionaryReloader.Generation generation = reloader.current();
+            assertEquals(0, generation.number());
+            assertEquals(3, generation.corpus().size());
+            assertTrue(generation.corpus().contains(NGram.from("emu")));
+            assertNotNull(generation.scorer());
+        }
+    }
+
+    @Test
+    public void testReloadSwapsGeneration() throws Exception {
+        Path first = writeWords("a.txt", "cat", "dog");
+        Path second = writeWords("b.txt", "emu");
+        try (DictionaryReloader reloader = DictionaryReloader.forWordLength(3, List.of(first, second))) {
+            DictionaryReloader.Generation old = reloader.current();
+            writeWords("b.txt", "emu", "owl");
+            DictionaryReloader.Generation next = reloader.reload().get(10, TimeUnit.SECONDS);
+            assertEquals(1, next.number());
+            assertSame(next, reloader.current());
+            assertEquals(4, next.corpus().size());
+            // The old generation is untouched for anyone still holding it.
+            assertEquals(3, old.corpus().size());
+        }
+    }
+
+    @Test
+    public void testFailedReloadKeepsOldGeneration() throws Exception {
+        Path file = writeWords("words.txt", "cat", "dog");
+        try (DictionaryReloader reloader = DictionaryReloader.forWordLength(3, List.of(file))) {
+            DictionaryReloader.Generation old = reloader.current();
+            Files.delete(file);
+            assertSame(old, reloader.reload().get(10, TimeUnit.SECONDS));
+            assertTrue(reloader.lastFailure() instanceof IOException);
+            writeWords("words.txt", "cat", "dog", "emu");
+            assertEquals(3, reloader.reload().get(10, TimeUnit.SECONDS).corpus().size());
+            assertNull(reloader.lastFailure());
+        }
+    }
+
+    @Test
+    public void testWatcherReloadsOnChange() throws Exception {
+        Path file = writeWords("words.txt", "cat", "dog");
+        try (DictionaryReloader reloader = DictionaryReloader.forWordLength(3, List.of(file))) {
+            reloader.start();
+            assertThrows(IllegalStateException.class, reloader::start);
+            writeWords("other.txt", "yak");
+            writeWords("words.txt", "cat", "dog", "emu");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+            while (reloader.current().corpus().size() != 3 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(3, reloader.current().corpus().size());
+            assertFalse(reloader.current().corpus().contains(NGram.from("yak")));
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> DictionaryReloader.forWordLength(3, List.of()));
+        assertThrows(IOException.class,
+                     () -> DictionaryReloader.forWordLength(3, List.of(folder.getRoot().toPath().resolve("none"))));
+    }
+
+    /**
+     * Every thread a reload builds on, including those of its parallel
+     * streams, runs at minimum priority outside the common pool.
+     */
+    @Test
+    public void testReloadBuildsAtMinimumPriority() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < Corpus.Builder.PARALLEL_THRESHOLD; i++) {
+            char[] word = new char[4];
+            for (int j = 0, rest = i; j < word.length; j++, rest /= 26) {
+                word[j] = (char) ('a' + rest % 26);
+            }
+            lines.add(new String(word));
+        }
+        Path file = writeWords("words.txt", lines.toArray(new String[0]));
+        AtomicBoolean watching = new AtomicBoolean();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        try (DictionaryReloader reloader = new DictionaryReloader(List.of(file), words -> {
+            List<NGram> ngrams = words.parallelStream()
+                                      .peek(word -> {
+                                          if (watching.get()) {
+                                              threads.add(Thread.currentThread());
+                                          }
+                                      })
+                                      .map(NGram::from)
+                                      .collect(Collectors.toList());
+            return Corpus.Builder.create().addAll(ngrams).build();
+        })) {
+            watching.set(true);
+            assertEquals(lines.size(), reloader.reload().get(30, TimeUnit.SECONDS).corpus().size());
+            assertFalse(threads.isEmpty());
+            for (Thread thread : threads) {
+                assertEquals(thread.getName(), Thread.MIN_PRIORITY, thread.getPriority());
+                if (thread instanceof ForkJoinWorkerThread) {
+                    assertNotSame(ForkJoinPool.commonPool(), ((ForkJoinWorkerThread) thread).getPool());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testServerAnswersFromCurrentGeneration() throws Exception {
+        Path file = writeWords("words.txt", "cat");
+        try (DictionaryReloader reloader = DictionaryReloader.forWordLength(3, List.of(file));
+             SuggestionServer server = new SuggestionServer(reloader, 0, 1)) {
+            server.start();
+            LoadGenerator.Target target = LoadGenerator.http(URI.create("http://localhost:" + server.port()));
+            assertEquals(NGram.from("cat"), target.suggest(GameSimulator.Strategy.WORST_CASE, List.of()));
+            writeWords("words.txt", "dog");
+            reloader.reload().get(10, TimeUnit.SECONDS);
+            assertEquals(NGram.from("dog"), target.suggest(GameSimulator.Strategy.WORST_CASE, List.of()));
+        }
+    }
+}
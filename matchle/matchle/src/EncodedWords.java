@@ -0,0 +1,200 @@
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Package-private dense form of a corpus: every word as alphabet numbers plus
+ * a bitmask of the letters it contains. Feedback codes and feedback filters
+ * are evaluated on these small arrays, sized to the corpus' own alphabet,
+ * instead of on boxed Characters and hash sets.
+ */
+final class EncodedWords {
+
+    private final Alphabet alphabet;
+    private final int wordSize;
+    private final int count;
+    private final int stride;     // longs per letter mask
+    private final int[] letters;  // count * wordSize letter numbers, in id order
+    private final long[] masks;   // count * stride bits, bit l set if letter l occurs
+    private final int[] rows;     // Row in letters/masks of each id; null when ids are rows
+
+    EncodedWords(Alphabet alphabet, List<NGram> words, int wordSize) {
+        this(Objects.requireNonNull(alphabet, "Alphabet cannot be null."), wordSize, words.size());
+        for (int id = 0; id < count; id++) {
+            encodeRow(id, words.get(id));
+        }
+    }
+
+    private EncodedWords(Alphabet alphabet, int wordSize, int count) {
+        this.alphabet = alphabet;
+        this.wordSize = wordSize;
+        this.count = count;
+        this.stride = (alphabet.size() + 63) >>> 6;
+        this.letters = new int[count * wordSize];
+        this.masks = new long[count * stride];
+        this.rows = null;
+    }
+
+    private EncodedWords(EncodedWords parent, int[] rows) {
+        this.alphabet = parent.alphabet;
+        this.wordSize = parent.wordSize;
+        this.count = rows.length;
+        this.stride = parent.stride;
+        this.letters = parent.letters;
+        this.masks = parent.masks;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the words with the given ids, renumbered from 0, sharing this
+     * instance's arrays. The ids must be ids of this instance with no rows.
+     */
+    EncodedWords subset(int[] ids) {
+        if (rows != null) {
+            throw new IllegalStateException("Subsets are taken from the full encoding.");
+        }
+        return new EncodedWords(this, ids);
+    }
+
+    /**
+     * Returns the encoding of a new word list over the same alphabet, where
+     * source[i] is the id here of word i, or -1 for a word to encode afresh.
+     * Kept rows are copied, not re-encoded.
+     */
+    EncodedWords remap(int[] source, NGram[] words) {
+        EncodedWords result = new EncodedWords(alphabet, wordSize, words.length);
+        for (int id = 0; id < words.length; id++) {
+            if (source[id] >= 0) {
+                int from = row(source[id]);
+                System.arraycopy(letters, from * wordSize, result.letters, id * wordSize, wordSize);
+                System.arraycopy(masks, from * stride, result.masks, id * stride, stride);
+            } else {
+                result.encodeRow(id, words[id]);
+            }
+        }
+        return result;
+    }
+
+    private void encodeRow(int id, NGram ngram) {
+        for (int i = 0; i < wordSize; i++) {
+            int letter = alphabet.indexOf(ngram.get(i));
+            letters[id * wordSize + i] = letter;
+            masks[id * stride + (letter >>> 6)] |= 1L << letter;
+        }
+    }
+
+    private int row(int id) {
+        return rows == null ? id : rows[id];
+    }
+
+    Alphabet alphabet() {
+        return alphabet;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the letter number at the given position of a word.
+     */
+    int letter(int id, int index) {
+        return letters[row(id) * wordSize + index];
+    }
+
+    /**
+     * Encodes a guess over this alphabet; unknown letters become -1.
+     */
+    int[] encode(NGram guess) {
+        return alphabet.encode(guess);
+    }
+
+    /**
+     * Returns a zeroed scratch array for {@link #code(int, int[], int[])}.
+     */
+    int[] scratch() {
+        return new int[alphabet.size()];
+    }
+
+    /**
+     * Checks whether the word contains the given letter number.
+     */
+    boolean contains(int id, int letter) {
+        return letter >= 0 && (masks[row(id) * stride + (letter >>> 6)] & (1L << letter)) != 0;
+    }
+
+    /**
+     * Computes the same code as {@link Feedback#code(NGram, NGram)} for the word
+     * with id keyId as the key. Unmatched key letters are counted in scratch,
+     * which must be zeroed and is left zeroed again.
+     */
+    int code(int keyId, int[] guess, int[] scratch) {
+        int base = row(keyId) * wordSize;
+        int exact = 0;  // bit i set if position i matched exactly
+        for (int i = 0; i < wordSize; i++) {
+            if (letters[base + i] == guess[i]) {
+                exact |= 1 << i;
+            } else {
+                scratch[letters[base + i]]++;
+            }
+        }
+        int code = 0;
+        for (int i = wordSize - 1; i >= 0; i--) {
+            code *= 3;
+            if ((exact & (1 << i)) != 0) {
+                code += Feedback.EXACT;
+            }
+        }
+        // Misplaced letters consume unmatched key letters from left to right.
+        int weight = 1;
+        for (int i = 0; i < wordSize; i++, weight *= 3) {
+            int g = guess[i];
+            if ((exact & (1 << i)) == 0 && g >= 0 && scratch[g] > 0) {
+                scratch[g]--;
+                code += weight * Feedback.MISPLACED;
+            }
+        }
+        for (int i = 0; i < wordSize; i++) {
+            scratch[letters[base + i]] = 0;
+        }
+        return code;
+    }
+
+    /**
+     * Evaluates the filter {@link Feedback#filter(NGram, int)} would build for
+     * the encoded guess and per-position states, against the word with the given id.
+     */
+    boolean accepts(int id, int[] guess, int[] states) {
+        int base = row(id) * wordSize;
+        for (int i = 0; i < wordSize; i++) {
+            int g = guess[i];
+            switch (states[i]) {
+                case Feedback.EXACT:
+                    if (letters[base + i] != g) {
+                        return false;
+                    }
+                    break;
+                case Feedback.MISPLACED:
+                    if (!contains(id, g) || (letters[base + i] == g && occurrences(id, g) < 2)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (contains(id, g)) {
+                        return false;
+                    }
+            }
+        }
+        return true;
+    }
+
+    private int occurrences(int id, int letter) {
+        int base = row(id) * wordSize;
+        int n = 0;
+        for (int i = 0; i < wordSize; i++) {
+            if (letters[base + i] == letter) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EncodedWordsTest {
+
+    private Corpus corpusOf(List<String> words) {
+        Corpus.Builder builder = Corpus.Builder.create();
+        for (String w : words) {
+            builder.add(NGram.from(w));
+        }
+        return builder.build();
+    }
+
+    private void assertMatchesReference(Corpus corpus) {
+        EncodedWords encoded = corpus.encoded();
+        int[] scratch = encoded.scratch();
+        for (NGram guess : corpus) {
+            int[] letters = encoded.encode(guess);
+            for (int k = 0; k < corpus.size(); k++) {
+                NGram key = corpus.get(k);
+                int code = Feedback.code(key, guess);
+                assertEquals(key + "/" + guess, code, encoded.code(k, letters, scratch));
+                Filter reference = NGramMatcher.of(key, guess).match();
+                int[] states = Feedback.states(code, guess.size());
+                for (int w = 0; w < corpus.size(); w++) {
+                    assertEquals(key + "/" + guess + "/" + corpus.get(w),
+                                 reference.test(corpus.get(w)), encoded.accepts(w, letters, states));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesReferenceWithRepeatedLetters() {
+        assertMatchesReference(corpusOf(List.of("rebus", "rubes", "eerie", "geese", "esses", "boats", "beets")));
+    }
+
+    @Test
+    public void testMatchesReferenceForCyrillic() {
+        assertMatchesReference(corpusOf(List.of(
+            "\u043c\u0438\u0440", "\u0440\u0438\u043c", "\u043c\u0430\u043c", "\u0430\u0440\u0430")));
+    }
+
+    @Test
+    public void testMatchesReferenceBeyondSixtyFourLetters() {
+        // 80 distinct letters need two longs per letter mask.
+        List<String> words = new ArrayList<>();
+        for (char c = 0x0100; c < 0x0100 + 80; c += 2) {
+            words.add(new String(new char[] {c, (char) (c + 1), c}));
+        }
+        assertEquals(80, corpusOf(words).alphabet().size());
+        assertMatchesReference(corpusOf(words));
+    }
+
+    @Test
+    public void testUnknownGuessLettersAreAbsent() {
+        Corpus corpus = corpusOf(List.of("cat", "cot"));
+        EncodedWords encoded = corpus.encoded();
+        int[] letters = encoded.encode(NGram.from("cxt"));
+        assertEquals(-1, letters[1]);
+        assertEquals(Feedback.code(NGram.from("cat"), NGram.from("cxt")),
+                     encoded.code(corpus.indexOf(NGram.from("cat")), letters, encoded.scratch()));
+    }
+}
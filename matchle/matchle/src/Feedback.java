@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Package-private helpers for packed feedback codes.
+ *
+ * A feedback code stores the outcome of the MATCH algorithm for every position
+ * of a guess as one base-3 digit (position 0 is the least significant digit):
+ * {@link #ABSENT}, {@link #MISPLACED} or {@link #EXACT}. The digits are
+ * assigned by the same three passes as {@link NGramMatcher#match()}.
+ */
+final class Feedback {
+
+    static final int ABSENT = 0;
+    static final int MISPLACED = 1;
+    static final int EXACT = 2;
+
+    /**
+     * Longest word whose code still fits in a non-negative int.
+     */
+    static final int MAX_LENGTH = 19;
+
+    /**
+     * Version of the code assignment. Bump it whenever code() changes, so that
+     * persisted codes are rebuilt instead of reused.
+     */
+    static final int VERSION = 1;
+
+    private Feedback() {
+    }
+
+    /**
+     * Computes the feedback code for the given key and guess.
+     *
+     * @throws NullPointerException if key or guess is null.
+     * @throws IllegalArgumentException if the lengths differ or exceed MAX_LENGTH.
+     */
+    static int code(NGram key, NGram guess) {
+        Objects.requireNonNull(key, "Key cannot be null.");
+        Objects.requireNonNull(guess, "Guess cannot be null.");
+        int n = checkLength(key.size());
+        if (guess.size() != n) {
+            throw new IllegalArgumentException("Key and guess lengths differ.");
+        }
+        boolean[] keyMatched = new boolean[n];
+        int[] states = new int[n];
+
+        // PASS 1: Exact matches
+        for (int i = 0; i < n; i++) {
+            if (key.get(i).equals(guess.get(i))) {
+                keyMatched[i] = true;
+                states[i] = EXACT;
+            }
+        }
+        // PASS 2: Misplaced matches, first unmatched key position wins
+        for (int i = 0; i < n; i++) {
+            if (states[i] == EXACT) {
+                continue;
+            }
+            char guessChar = guess.get(i);
+            for (int j = 0; j < n; j++) {
+                if (!keyMatched[j] && key.get(j) == guessChar) {
+                    keyMatched[j] = true;
+                    states[i] = MISPLACED;
+                    break;
+                }
+            }
+        }
+        // PASS 3: Everything left is absent (already zero)
+        return pack(states);
+    }
+
+    /**
+     * Computes the same code as {@link #code(NGram, NGram)} for two words of
+     * length n stored as chars at the given offsets, so bulk callers need not
+     * build NGrams. keyMatched is scratch space of at least n entries.
+     *
+     * @throws IllegalArgumentException if n exceeds MAX_LENGTH.
+     */
+    static int code(char[] key, int keyOffset, char[] guess, int guessOffset, int n, boolean[] keyMatched) {
+        checkLength(n);
+        int exact = 0;
+        int misplaced = 0;
+        for (int i = 0; i < n; i++) {
+            keyMatched[i] = key[keyOffset + i] == guess[guessOffset + i];
+            if (keyMatched[i]) {
+                exact |= 1 << i;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if ((exact & (1 << i)) != 0) {
+                continue;
+            }
+            char guessChar = guess[guessOffset + i];
+            for (int j = 0; j < n; j++) {
+                if (!keyMatched[j] && key[keyOffset + j] == guessChar) {
+                    keyMatched[j] = true;
+                    misplaced |= 1 << i;
+                    break;
+                }
+            }
+        }
+        int code = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            code = code * 3 + ((exact >> i & 1) != 0 ? EXACT : (misplaced >> i & 1) != 0 ? MISPLACED : ABSENT);
+        }
+        return code;
+    }
+
+    /**
+     * Builds the Filter that NGramMatcher.match() returns for every key whose
+     * feedback for guess is code: exact checks first, then misplaced, then absent.
+     *
+     * @throws NullPointerException if guess is null.
+     */
+    static Filter filter(NGram guess, int code) {
+        Objects.requireNonNull(guess, "Guess cannot be null.");
+        int n = guess.size();
+        List<Filter> checks = new ArrayList<>(n);
+        for (int state : new int[] {EXACT, MISPLACED, ABSENT}) {
+            int rest = code;
+            for (int i = 0; i < n; i++, rest /= 3) {
+                if (rest % 3 == state) {
+                    checks.add(Filter.constraint(state, i, guess.get(i)));
+                }
+            }
+        }
+        return Filter.allOf(checks);
+    }
+
+    /**
+     * Packs per-position states into a code.
+     */
+    static int pack(int[] states) {
+        int code = 0;
+        for (int i = states.length - 1; i >= 0; i--) {
+            code = code * 3 + states[i];
+        }
+        return code;
+    }
+
+    /**
+     * Unpacks a code into per-position states.
+     */
+    static int[] states(int code, int n) {
+        int[] states = new int[n];
+        for (int i = 0; i < n; i++, code /= 3) {
+            states[i] = code % 3;
+        }
+        return states;
+    }
+
+    /**
+     * Returns the state of the given position in a code.
+     */
+    static int state(int code, int index) {
+        for (int i = 0; i < index; i++) {
+            code /= 3;
+        }
+        return code % 3;
+    }
+
+    /**
+     * Returns the number of distinct codes for words of length n.
+     */
+    static int patterns(int n) {
+        checkLength(n);
+        int count = 1;
+        for (int i = 0; i < n; i++) {
+            count *= 3;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the code meaning every position is an exact match.
+     */
+    static int solved(int n) {
+        return patterns(n) - 1;
+    }
+
+    private static int checkLength(int n) {
+        if (n > MAX_LENGTH) {
+            throw new IllegalArgumentException("Feedback codes support at most " + MAX_LENGTH + " characters.");
+        }
+        return n;
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Package-private reduction of a guess pool to one guess per class of
+ * interchangeable guesses.
+ *
+ * Against a word w, a guess g is fully described by its match matrix: which
+ * guess positions i hold the same letter as which word positions j. Both the
+ * feedback code for key w and whether a feedback filter accepts w are
+ * functions of that matrix alone, so two guesses with the same matrix against
+ * every word of a corpus get the same score under every criterion of
+ * {@link MatchleScorer}. Each guess's row of matrices is hashed in one pass;
+ * guesses whose hashes collide are compared in full, so the grouping is exact.
+ */
+final class FeedbackClasses {
+
+    private FeedbackClasses() {
+    }
+
+    /**
+     * Returns the first guess of every class, in the order of the pool.
+     * Guesses that do not have the corpus' word size are returned as they are.
+     *
+     * @throws NullPointerException if the corpus or pool is null.
+     */
+    static List<NGram> representatives(Corpus corpus, List<NGram> pool) {
+        Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        Objects.requireNonNull(pool, "Guess pool cannot be null.");
+        EncodedWords encoded = corpus.encoded();
+        int n = corpus.wordSize();
+        int[][] letters = new int[pool.size()][];
+        for (int g = 0; g < letters.length; g++) {
+            NGram guess = Objects.requireNonNull(pool.get(g), "Guess cannot be null.");
+            letters[g] = guess.size() == n ? encoded.encode(guess) : null;
+        }
+        long[] hashes = IntStream.range(0, letters.length).parallel()
+                                 .mapToLong(g -> letters[g] == null ? 0 : hash(encoded, letters[g]))
+                                 .toArray();
+
+        List<NGram> result = new ArrayList<>();
+        Map<Long, List<Integer>> classes = new HashMap<>();
+        for (int g = 0; g < letters.length; g++) {
+            if (letters[g] == null) {
+                result.add(pool.get(g));
+                continue;
+            }
+            List<Integer> sameHash = classes.computeIfAbsent(hashes[g], h -> new ArrayList<>(1));
+            boolean known = false;
+            for (int rep : sameHash) {
+                if (sameRow(encoded, letters[rep], letters[g])) {
+                    known = true;
+                    break;
+                }
+            }
+            if (!known) {
+                sameHash.add(g);
+                result.add(pool.get(g));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hashes the match matrices of the guess against every word, in id order.
+     */
+    private static long hash(EncodedWords encoded, int[] guess) {
+        long hash = 0x9E3779B97F4A7C15L;
+        int blocks = blocks(guess.length);
+        for (int id = 0; id < encoded.size(); id++) {
+            for (int block = 0; block < blocks; block++) {
+                hash = (hash ^ matrix(encoded, id, guess, block)) * 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+
+    private static boolean sameRow(EncodedWords encoded, int[] first, int[] second) {
+        int blocks = blocks(first.length);
+        for (int id = 0; id < encoded.size(); id++) {
+            for (int block = 0; block < blocks; block++) {
+                if (matrix(encoded, id, first, block) != matrix(encoded, id, second, block)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int blocks(int n) {
+        return Math.max(1, (n * n + 63) / 64);
+    }
+
+    /**
+     * Returns 64 bits of the match matrix of the guess against a word: bit
+     * i * n + j - 64 * block is set if guess[i] equals the word's letter j.
+     */
+    private static long matrix(EncodedWords encoded, int id, int[] guess, int block) {
+        int n = guess.length;
+        long bits = 0;
+        if (n * n <= 64) {
+            for (int j = 0; j < n; j++) {
+                int letter = encoded.letter(id, j);
+                for (int i = 0; i < n; i++) {
+                    if (guess[i] == letter) {
+                        bits |= 1L << (i * n + j);
+                    }
+                }
+            }
+            return bits;
+        }
+        int from = block * 64;
+        int to = Math.min(n * n, from + 64);
+        for (int cell = from; cell < to; cell++) {
+            if (guess[cell / n] == encoded.letter(id, cell % n)) {
+                bits |= 1L << (cell - from);
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class FeedbackClassesTest {
+
+    private static List<NGram> randomWords(Random random, int count, int length, String letters) {
+        List<NGram> words = new ArrayList<>();
+        for (int w = 0; w < count; w++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                sb.append(letters.charAt(random.nextInt(letters.length())));
+            }
+            words.add(NGram.from(sb.toString()));
+        }
+        return words;
+    }
+
+    @Test
+    public void testGuessesWithoutSharedLettersCollapse() {
+        Corpus corpus = Corpus.Builder.create().addAll(Arrays.asList(NGram.from("cat"), NGram.from("cot"))).build();
+        List<NGram> pool = Arrays.asList(NGram.from("xyz"), NGram.from("cab"), NGram.from("qqq"), NGram.from("cax"));
+        assertEquals(Arrays.asList(NGram.from("xyz"), NGram.from("cab")),
+                     FeedbackClasses.representatives(corpus, pool));
+    }
+
+    @Test
+    public void testRepeatedLettersKeptApart() {
+        Corpus corpus = Corpus.Builder.create().addAll(Arrays.asList(NGram.from("eel"), NGram.from("lee"))).build();
+        // "eex" and "exe" hit the same letters at different positions.
+        List<NGram> pool = Arrays.asList(NGram.from("eex"), NGram.from("exe"), NGram.from("eey"));
+        assertEquals(Arrays.asList(NGram.from("eex"), NGram.from("exe")),
+                     FeedbackClasses.representatives(corpus, pool));
+    }
+
+    @Test
+    public void testClassesShareScores() {
+        Random random = new Random(11);
+        Corpus corpus = Corpus.Builder.create().addAll(randomWords(random, 30, 4, "abcdefg")).build();
+        List<NGram> pool = randomWords(random, 200, 4, "abcdefghijk");
+        List<NGram> representatives = FeedbackClasses.representatives(corpus, pool);
+        assertTrue(representatives.size() < pool.size());
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        for (NGram guess : pool) {
+            NGram rep = representatives.stream()
+                    .filter(r -> scorer.scoreWorstCase(r) == scorer.scoreWorstCase(guess)
+                              && scorer.scoreAverageCase(r) == scorer.scoreAverageCase(guess)
+                              && scorer.scoreEntropy(r) == scorer.scoreEntropy(guess))
+                    .findFirst().orElse(null);
+            assertNotNull(guess.toString(), rep);
+        }
+    }
+
+    @Test
+    public void testBestGuessUnchanged() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 5; trial++) {
+            Corpus corpus = Corpus.Builder.create().addAll(randomWords(random, 25, 3, "abcdef")).build();
+            List<NGram> pool = randomWords(random, 120, 3, "abcdefghi");
+            MatchleScorer scorer = new MatchleScorer(corpus);
+            assertEquals(pool.stream().min(Comparator.comparingLong(scorer::scoreWorstCase)).get(),
+                         scorer.bestWorstCaseGuess(pool));
+            assertEquals(pool.stream().min(Comparator.comparingLong(scorer::scoreAverageCase)).get(),
+                         scorer.bestAverageCaseGuess(pool));
+            assertEquals(pool.stream().min(Comparator.comparingDouble(scorer::scoreEntropy).reversed()).get(),
+                         scorer.bestEntropyGuess(pool));
+            assertEquals(scorer.bestGuess(scorer::scoreWorstCase), scorer.bestWorstCaseGuess());
+        }
+    }
+
+    @Test
+    public void testLongWords() {
+        Random random = new Random(3);
+        Corpus corpus = Corpus.Builder.create().addAll(randomWords(random, 10, 9, "abc")).build();
+        List<NGram> pool = randomWords(random, 40, 9, "abcd");
+        List<NGram> representatives = FeedbackClasses.representatives(corpus, pool);
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        assertEquals(pool.stream().min(Comparator.comparingLong(scorer::scoreWorstCase)).get(),
+                     scorer.bestWorstCaseGuess(pool));
+        assertTrue(representatives.size() <= pool.size());
+    }
+
+    @Test
+    public void testPoolValidation() {
+        MatchleScorer scorer = new MatchleScorer(
+                Corpus.Builder.create().addAll(Arrays.asList(NGram.from("cat"), NGram.from("cot"))).build());
+        assertThrows(IllegalArgumentException.class, () -> scorer.bestWorstCaseGuess(List.of(NGram.from("cats"))));
+        assertThrows(NullPointerException.class, () -> scorer.bestAverageCaseGuess(null));
+        assertNull(scorer.bestEntropyGuess(List.of()));
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Package-private table of the feedback code for every guess/key pair of a
+ * corpus, indexed by word id.
+ *
+ * The table can be persisted to a cache file and memory-mapped read-only, so
+ * pages are loaded on demand and shared by every process that maps the same
+ * file. A file is only reused when its corpus hash, word size and matcher
+ * version all agree with the corpus; otherwise it is rebuilt.
+ *
+ * File layout (big-endian): magic, format version, matcher version, word size,
+ * number of words, bytes per code, the 32-byte corpus hash, then one row of
+ * codes per guess id, each holding one code per key id.
+ */
+final class FeedbackMatrix {
+
+    private static final int MAGIC = 0x4D4C4643;  // "MLFC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_BYTES = 32;
+    static final int HEADER_BYTES = 6 * Integer.BYTES + HASH_BYTES;
+
+    private final int size;
+    private final int wordSize;
+    private final int width;
+    private final int rowsPerSegment;
+    private final ByteBuffer[] segments;  // Whole rows only, each under 2 GB
+    private final byte[] corpusHash;
+
+    private FeedbackMatrix(int size, int wordSize, byte[] corpusHash, ByteBuffer[] segments) {
+        this.size = size;
+        this.wordSize = wordSize;
+        this.width = widthFor(wordSize);
+        this.rowsPerSegment = rowsPerSegment(size, width);
+        this.corpusHash = corpusHash;
+        this.segments = segments;
+    }
+
+    /**
+     * Computes the matrix for the given corpus in memory, one guess row per task.
+     *
+     * @throws NullPointerException if corpus is null.
+     */
+    static FeedbackMatrix compute(Corpus corpus) {
+        Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        int n = corpus.size();
+        int width = widthFor(corpus.wordSize());
+        int perSegment = rowsPerSegment(n, width);
+        ByteBuffer[] segments = new ByteBuffer[(n + perSegment - 1) / perSegment];
+        for (int s = 0; s < segments.length; s++) {
+            int rows = Math.min(perSegment, n - s * perSegment);
+            segments[s] = ByteBuffer.allocate(rows * n * width);
+        }
+        FeedbackMatrix matrix = new FeedbackMatrix(n, corpus.wordSize(), corpus.contentHash(), segments);
+        IntStream.range(0, n).parallel().forEach(guessId -> {
+            NGram guess = corpus.get(guessId);
+            for (int keyId = 0; keyId < n; keyId++) {
+                matrix.put(keyId, guessId, Feedback.code(corpus.get(keyId), guess));
+            }
+        });
+        return matrix;
+    }
+
+    /**
+     * Returns the matrix for a corpus edited from this matrix's corpus (see
+     * {@link Corpus#edit}), where source[id] is the old id of the edited
+     * corpus' word id, or -1 for an added word. Codes between kept words are
+     * copied a run of consecutive ids at a time; only the rows and columns of
+     * added words are computed.
+     *
+     * @throws IllegalArgumentException if the words differ in length or source does not fit.
+     */
+    FeedbackMatrix remap(int[] source, Corpus next) {
+        int n = next.size();
+        if (next.wordSize() != wordSize || source.length != n) {
+            throw new IllegalArgumentException("Edited corpus does not match the id map.");
+        }
+        int perSegment = rowsPerSegment(n, width);
+        ByteBuffer[] copies = new ByteBuffer[(n + perSegment - 1) / perSegment];
+        for (int s = 0; s < copies.length; s++) {
+            int rows = Math.min(perSegment, n - s * perSegment);
+            copies[s] = ByteBuffer.allocate(rows * n * width);
+        }
+        FeedbackMatrix matrix = new FeedbackMatrix(n, wordSize, next.contentHash(), copies);
+        IntStream.range(0, n).parallel().forEach(guessId -> {
+            NGram guess = next.get(guessId);
+            int from = source[guessId];
+            if (from < 0) {
+                for (int keyId = 0; keyId < n; keyId++) {
+                    matrix.put(keyId, guessId, Feedback.code(next.get(keyId), guess));
+                }
+                return;
+            }
+            ByteBuffer in = segments[from / rowsPerSegment];
+            int inRow = (from % rowsPerSegment) * size;
+            ByteBuffer out = copies[guessId / perSegment];
+            int outRow = (guessId % perSegment) * n;
+            int keyId = 0;
+            while (keyId < n) {
+                if (source[keyId] < 0) {
+                    matrix.put(keyId, guessId, Feedback.code(next.get(keyId), guess));
+                    keyId++;
+                    continue;
+                }
+                int start = keyId;
+                while (keyId < n && source[keyId] - source[start] == keyId - start) {
+                    keyId++;
+                }
+                out.put((outRow + start) * width, in, (inRow + source[start]) * width, (keyId - start) * width);
+            }
+        });
+        return matrix;
+    }
+
+    /**
+     * Maps the cache file if it was built for this corpus and matcher version;
+     * otherwise computes the matrix, writes it atomically and maps the new file.
+     *
+     * @throws IOException if the cache file cannot be read or written.
+     */
+    static FeedbackMatrix loadOrBuild(Path file, Corpus corpus) throws IOException {
+        FeedbackMatrix cached = load(file, corpus);
+        if (cached != null) {
+            return cached;
+        }
+        compute(corpus).write(file);
+        FeedbackMatrix written = load(file, corpus);
+        if (written == null) {
+            throw new IOException("Cache file " + file + " was replaced while loading.");
+        }
+        return written;
+    }
+
+    /**
+     * Maps the cache file read-only, or returns null if it is missing or was
+     * built for a different corpus, word size or matcher version.
+     *
+     * @throws IOException if the file exists but cannot be read.
+     */
+    static FeedbackMatrix load(Path file, Corpus corpus) throws IOException {
+        Objects.requireNonNull(file, "Cache file cannot be null.");
+        Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+            byte[] hash = new byte[HASH_BYTES];
+            boolean current = header.getInt() == MAGIC
+                    & header.getInt() == FORMAT_VERSION
+                    & header.getInt() == Feedback.VERSION
+                    & header.getInt() == corpus.wordSize()
+                    & header.getInt() == corpus.size()
+                    & header.getInt() == widthFor(corpus.wordSize());
+            header.get(hash);
+            int n = corpus.size();
+            int width = widthFor(corpus.wordSize());
+            long expected = HEADER_BYTES + (long) n * n * width;
+            if (!current || !Arrays.equals(hash, corpus.contentHash()) || channel.size() != expected) {
+                return null;
+            }
+            int perSegment = rowsPerSegment(n, width);
+            ByteBuffer[] segments = new ByteBuffer[(n + perSegment - 1) / perSegment];
+            for (int s = 0; s < segments.length; s++) {
+                long offset = HEADER_BYTES + (long) s * perSegment * n * width;
+                int rows = Math.min(perSegment, n - s * perSegment);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) rows * n * width);
+            }
+            return new FeedbackMatrix(n, corpus.wordSize(), hash, segments);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the matrix to a temporary file beside the target and renames it
+     * into place, so readers never observe a partially written cache.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    void write(Path file) throws IOException {
+        AtomicFiles.write(file, channel -> {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putInt(Feedback.VERSION)
+                    .putInt(wordSize)
+                    .putInt(size)
+                    .putInt(width)
+                    .put(corpusHash);
+            AtomicFiles.writeFully(channel, header.flip());
+            for (ByteBuffer segment : segments) {
+                AtomicFiles.writeFully(channel, segment.duplicate().clear());
+            }
+        });
+    }
+
+    /**
+     * Returns the feedback code of guessId against keyId.
+     *
+     * @throws IndexOutOfBoundsException if either id is out of range.
+     */
+    int code(int keyId, int guessId) {
+        Objects.checkIndex(keyId, size);
+        Objects.checkIndex(guessId, size);
+        ByteBuffer segment = segments[guessId / rowsPerSegment];
+        int index = (guessId % rowsPerSegment) * size + keyId;
+        switch (width) {
+            case 1:
+                return segment.get(index) & 0xFF;
+            case 2:
+                return segment.getShort(index * 2) & 0xFFFF;
+            default:
+                return segment.getInt(index * 4);
+        }
+    }
+
+    /**
+     * Returns the number of words on each side of the matrix.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether this matrix was built for a corpus with the same contents.
+     */
+    boolean matches(Corpus corpus) {
+        return corpus.size() == size
+            && corpus.wordSize() == wordSize
+            && Arrays.equals(corpusHash, corpus.contentHash());
+    }
+
+    private void put(int keyId, int guessId, int code) {
+        ByteBuffer segment = segments[guessId / rowsPerSegment];
+        int index = (guessId % rowsPerSegment) * size + keyId;
+        switch (width) {
+            case 1:
+                segment.put(index, (byte) code);
+                break;
+            case 2:
+                segment.putShort(index * 2, (short) code);
+                break;
+            default:
+                segment.putInt(index * 4, code);
+        }
+    }
+
+    /**
+     * Bytes needed to store one code for words of the given size.
+     */
+    private static int widthFor(int wordSize) {
+        int patterns = Feedback.patterns(wordSize);
+        return patterns <= 1 << 8 ? 1 : patterns <= 1 << 16 ? 2 : 4;
+    }
+
+    private static int rowsPerSegment(int size, int width) {
+        long rowBytes = Math.max(1L, (long) size * width);
+        return (int) Math.max(1L, Math.min(size, Integer.MAX_VALUE / rowBytes));
+    }
+}
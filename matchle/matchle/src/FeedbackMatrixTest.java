@@ -0,0 +1,89 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class FeedbackMatrixTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Corpus corpusOf(String... words) {
+        Corpus.Builder builder = Corpus.Builder.create();
+        for (String w : words) {
+            builder.add(NGram.from(w));
+        }
+        return builder.build();
+    }
+
+    private void assertMatchesFeedback(FeedbackMatrix matrix, Corpus corpus) {
+        for (int k = 0; k < corpus.size(); k++) {
+            for (int g = 0; g < corpus.size(); g++) {
+                assertEquals(Feedback.code(corpus.get(k), corpus.get(g)), matrix.code(k, g));
+            }
+        }
+    }
+
+    @Test
+    public void testComputeMatchesFeedback() {
+        Corpus corpus = corpusOf("rebus", "rubes", "eerie", "geese", "boats");
+        assertMatchesFeedback(FeedbackMatrix.compute(corpus), corpus);
+    }
+
+    @Test
+    public void testWriteAndMap() throws IOException {
+        Corpus corpus = corpusOf("cat", "cot", "cut", "tac");
+        Path file = folder.getRoot().toPath().resolve("feedback.bin");
+        FeedbackMatrix built = FeedbackMatrix.loadOrBuild(file, corpus);
+        assertTrue(Files.exists(file));
+        assertEquals(FeedbackMatrix.HEADER_BYTES + 16, Files.size(file));
+        FeedbackMatrix mapped = FeedbackMatrix.load(file, corpus);
+        assertNotNull("A current cache file should be reused", mapped);
+        assertMatchesFeedback(built, corpus);
+        assertMatchesFeedback(mapped, corpus);
+    }
+
+    @Test
+    public void testStaleCacheIsRebuilt() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("feedback.bin");
+        FeedbackMatrix.loadOrBuild(file, corpusOf("cat", "cot", "cut", "tac"));
+        // Same size and word length, different words: only the hash differs.
+        Corpus other = corpusOf("dog", "dig", "dug", "god");
+        assertNull(FeedbackMatrix.load(file, other));
+        FeedbackMatrix rebuilt = FeedbackMatrix.loadOrBuild(file, other);
+        assertTrue(rebuilt.matches(other));
+        assertMatchesFeedback(rebuilt, other);
+    }
+
+    @Test
+    public void testTruncatedCacheIsRebuilt() throws IOException {
+        Corpus corpus = corpusOf("cat", "cot", "cut");
+        Path file = folder.getRoot().toPath().resolve("feedback.bin");
+        FeedbackMatrix.loadOrBuild(file, corpus);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(FeedbackMatrix.load(file, corpus));
+        assertMatchesFeedback(FeedbackMatrix.loadOrBuild(file, corpus), corpus);
+    }
+
+    @Test
+    public void testScorerWithMatrixMatchesScorer() {
+        Corpus corpus = corpusOf("rebus", "rubes", "eerie", "geese", "boats", "beets");
+        MatchleScorer plain = new MatchleScorer(corpus);
+        MatchleScorer cached = new MatchleScorer(corpus, FeedbackMatrix.compute(corpus));
+        for (NGram guess : corpus) {
+            assertEquals(plain.scoreWorstCase(guess), cached.scoreWorstCase(guess));
+            assertEquals(plain.scoreAverageCase(guess), cached.scoreAverageCase(guess));
+            assertEquals(plain.scoreEntropy(guess), cached.scoreEntropy(guess), 1e-12);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScorerRejectsMatrixOfOtherCorpus() {
+        new MatchleScorer(corpusOf("cat", "cot"), FeedbackMatrix.compute(corpusOf("dog", "dig")));
+    }
+}
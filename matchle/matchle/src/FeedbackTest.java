@@ -0,0 +1,70 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FeedbackTest {
+
+    private static int code(String key, String guess) {
+        return Feedback.code(NGram.from(key), NGram.from(guess));
+    }
+
+    @Test
+    public void testExactAndAbsent() {
+        // "cat" vs "cot": exact, absent, exact.
+        assertEquals(Feedback.pack(new int[] {Feedback.EXACT, Feedback.ABSENT, Feedback.EXACT}), code("cat", "cot"));
+        assertEquals(Feedback.EXACT, Feedback.state(code("cat", "cot"), 2));
+    }
+
+    @Test
+    public void testRepeatedLettersOnlyMatchOnce() {
+        // The key's only 'e' is used by the exact match, so the other two are absent.
+        int code = code("rebus", "eerie");
+        assertEquals(Feedback.ABSENT, Feedback.state(code, 0));
+        assertEquals(Feedback.EXACT, Feedback.state(code, 1));
+        assertEquals(Feedback.MISPLACED, Feedback.state(code, 2));
+        assertEquals(Feedback.ABSENT, Feedback.state(code, 4));
+        // With two 'e's in the key, the first misplaced 'e' of the guess counts.
+        code = code("geese", "eerie");
+        assertEquals(Feedback.MISPLACED, Feedback.state(code, 0));
+        assertEquals(Feedback.EXACT, Feedback.state(code, 1));
+        assertEquals(Feedback.EXACT, Feedback.state(code, 4));
+    }
+
+    @Test
+    public void testSolvedCode() {
+        assertEquals(Feedback.solved(5), code("rebus", "rebus"));
+        assertEquals(243, Feedback.patterns(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentLengths() {
+        code("rebus", "four");
+    }
+
+    @Test
+    public void testFilterMatchesMatcher() {
+        String[] words = {"rebus", "rubes", "eerie", "geese", "boats", "beets", "esses"};
+        for (String key : words) {
+            for (String guess : words) {
+                Filter expected = NGramMatcher.of(NGram.from(key), NGram.from(guess)).match();
+                Filter actual = Feedback.filter(NGram.from(guess), code(key, guess));
+                for (String word : words) {
+                    assertEquals(key + "/" + guess + "/" + word,
+                                 expected.test(NGram.from(word)), actual.test(NGram.from(word)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCharCodeMatchesNGramCode() {
+        String[] words = {"rebus", "rubes", "eerie", "geese", "boats", "beets", "esses"};
+        char[] buf = ("  " + String.join("", words)).toCharArray();
+        boolean[] scratch = new boolean[5];
+        for (int k = 0; k < words.length; k++) {
+            for (int g = 0; g < words.length; g++) {
+                assertEquals(words[k] + "/" + words[g], code(words[k], words[g]),
+                             Feedback.code(buf, 2 + 5 * k, buf, 2 + 5 * g, 5, scratch));
+            }
+        }
+    }
+}
@@ -1,18 +1,37 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
 
 public final class Filter {
 
+    /**
+     * One per-position check of a feedback filter: the guess letter at index
+     * was EXACT, MISPLACED or ABSENT (see {@link Feedback}).
+     */
+    static record Constraint(int state, int index, char letter) {}
+
     private final Predicate<NGram> predicate;
+    private final List<Constraint> constraints;  // null unless built only from feedback checks
+    private final boolean compiled;
+    private volatile Filter compiledForm;  // Set by FilterCompiler on compile
+    private volatile int compiledVersion;  // Conjunction order version the compiled form follows
 
     /**
      * Private constructor that sets the internal predicate.
      */
     private Filter(Predicate<NGram> predicate) {
+        this(predicate, null, false);
+    }
+
+    private Filter(Predicate<NGram> predicate, List<Constraint> constraints, boolean compiled) {
         if (predicate == null) {
             throw new NullPointerException("Internal predicate cannot be null.");
         }
         this.predicate = predicate;
+        this.constraints = constraints;
+        this.compiled = compiled;
     }
 
     /**
@@ -30,6 +49,107 @@ public final class Filter {
      */
     public static final Filter FALSE = new Filter(nGram -> false);
 
+    /**
+     * A filter that always evaluates to true and has no constraints, the
+     * starting point of feedback filters.
+     */
+    static final Filter ANY = new Filter(nGram -> true, Collections.emptyList(), false);
+
+    /**
+     * Creates the filter for one feedback check, remembering the check so the
+     * whole conjunction can later be compiled by {@link FilterCompiler}.
+     */
+    static Filter constraint(int state, int index, char letter) {
+        NGram.IndexedCharacter ic = new NGram.IndexedCharacter(index, letter);
+        Predicate<NGram> predicate;
+        switch (state) {
+            case Feedback.EXACT:
+                predicate = ng -> ng.matches(ic);
+                break;
+            case Feedback.MISPLACED:
+                predicate = ng -> ng.containsElsewhere(ic);
+                break;
+            case Feedback.ABSENT:
+                predicate = ng -> !ng.contains(letter);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown feedback state: " + state);
+        }
+        return new Filter(predicate, List.of(new Constraint(state, index, letter)), false);
+    }
+
+    /**
+     * Wraps a compiled predicate equivalent to a filter with the given constraints.
+     */
+    static Filter compiled(Predicate<NGram> predicate, List<Constraint> constraints) {
+        return new Filter(predicate, constraints, true);
+    }
+
+    /**
+     * Returns the feedback checks this filter is the conjunction of, in
+     * evaluation order, or null if it was built from arbitrary predicates.
+     */
+    List<Constraint> constraints() {
+        if (predicate instanceof Conjunction) {
+            return ((Conjunction) predicate).constraints();
+        }
+        return constraints;
+    }
+
+    /**
+     * Returns the predicate this filter delegates to.
+     */
+    Predicate<NGram> predicate() {
+        return predicate;
+    }
+
+    /**
+     * Returns the conjunction behind a filter built with and(), or null.
+     */
+    Conjunction conjunction() {
+        return predicate instanceof Conjunction ? (Conjunction) predicate : null;
+    }
+
+    /**
+     * Returns a copy of this filter whose conjunction samples one call in
+     * every samplePeriod to reorder its checks (see {@link Conjunction});
+     * 0 turns sampling off. Filters that are not conjunctions are returned as is.
+     *
+     * @throws IllegalArgumentException if samplePeriod is negative.
+     */
+    Filter sampled(int samplePeriod) {
+        if (!(predicate instanceof Conjunction)) {
+            return this;
+        }
+        return new Filter(new Conjunction(((Conjunction) predicate).components(), samplePeriod));
+    }
+
+    /**
+     * Returns the compiled equivalent of this filter, or null if not compiled yet.
+     */
+    Filter compiledForm() {
+        return compiledForm;
+    }
+
+    /**
+     * Returns the version of the conjunction's order the compiled form was built in.
+     */
+    int compiledVersion() {
+        return compiledVersion;
+    }
+
+    void setCompiledForm(Filter compiled, int version) {
+        compiledVersion = version;
+        compiledForm = compiled;
+    }
+
+    /**
+     * Checks whether this filter was produced by {@link FilterCompiler}.
+     */
+    boolean isCompiled() {
+        return compiled;
+    }
+
     /**
      * Delegates the test to the internal predicate.
      */
@@ -56,10 +176,35 @@ public final class Filter {
         if (otherFilter == null) {
             throw new NullPointerException("Filter inside Optional cannot be null.");
         }
-        // Combine predicates with logical AND
-        Predicate<NGram> newPredicate = nGram ->
-                this.predicate.test(nGram) && otherFilter.predicate.test(nGram);
-        return new Filter(newPredicate);
+        // Combine predicates with logical AND, as one flat conjunction
+        return allOf(List.of(this, otherFilter));
+    }
+
+    /**
+     * Returns the conjunction of the given filters as one flat conjunction,
+     * copying each component once. Building an n-check filter this way costs
+     * O(n), where chaining and() copies the checks so far on every call.
+     */
+    static Filter allOf(List<Filter> filters) {
+        List<Filter> components = new ArrayList<>();
+        for (Filter filter : filters) {
+            filter.addComponentsTo(components);
+        }
+        if (components.isEmpty()) {
+            return ANY;
+        }
+        return new Filter(new Conjunction(components, Conjunction.DEFAULT_SAMPLE_PERIOD));
+    }
+
+    private void addComponentsTo(List<Filter> components) {
+        if (this == ANY) {
+            return;  // Always true, so it adds nothing to a conjunction
+        }
+        if (predicate instanceof Conjunction) {
+            components.addAll(((Conjunction) predicate).components());
+        } else {
+            components.add(this);
+        }
     }
 
     /**
@@ -0,0 +1,278 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Package-private compiler that turns a finished feedback Filter into a
+ * predicate class of its own, specialised to the filter's shape.
+ *
+ * A filter from {@link NGramMatcher#match()} or {@link Feedback#filter(NGram, int)}
+ * is a chain of Predicate lambdas, one megamorphic Predicate.test call per
+ * check. Its constraints are only EXACT, MISPLACED and ABSENT checks, so the
+ * compiler builds one guardWithTest chain of them instead and defines a hidden
+ * class (see {@link MethodHandles.Lookup#defineHiddenClassWithClassData}) that
+ * holds the chain in a static final field. The JIT treats that field as a
+ * constant and inlines the whole chain into the class' test method, leaving
+ * one call per test. Letters are compared as chars, though NGram still reads
+ * them from its list of Characters.
+ *
+ * Classes depend only on the shape of the filter (the state and index of each
+ * check, in order), so they are cached by shape and each compiled filter is an
+ * instance holding its letters. Once MAX_CACHED_SHAPES shapes are cached,
+ * filters of new shapes are left uncompiled rather than defining a class per
+ * filter. Checks are compiled in the conjunction's current evaluation order;
+ * with sampling on, that order is shared by every filter of the same checks,
+ * and the compiled filter keeps sampling into it from its own test method
+ * (see {@link Conjunction}). A filter remembers its compiled form and compiles
+ * again only when its order has changed since.
+ */
+final class FilterCompiler {
+
+    /**
+     * Most shapes cached; filters of any other shape are not compiled.
+     */
+    static final int MAX_CACHED_SHAPES = 4096;
+
+    private static final MethodHandle[] CHECKS = new MethodHandle[3];  // (NGram, char[], int, int)boolean by state
+    private static final MethodHandle TRUE;
+    private static final byte[] TEMPLATE;  // Class file of Compiled, copied for every shape
+    private static final Map<Shape, MethodHandle> FACTORIES = new ConcurrentHashMap<>();  // (char[], Conjunction)Predicate
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType check = MethodType.methodType(boolean.class, NGram.class, char[].class, int.class, int.class);
+            CHECKS[Feedback.EXACT] = lookup.findStatic(FilterCompiler.class, "exact", check);
+            CHECKS[Feedback.MISPLACED] = lookup.findStatic(FilterCompiler.class, "misplaced", check);
+            CHECKS[Feedback.ABSENT] = lookup.findStatic(FilterCompiler.class, "absent", check);
+            TRUE = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true),
+                                               0, NGram.class, char[].class);
+            try (InputStream in = FilterCompiler.class.getResourceAsStream("FilterCompiler$Compiled.class")) {
+                if (in == null) {
+                    throw new IOException("FilterCompiler$Compiled.class is not on the class path.");
+                }
+                TEMPLATE = in.readAllBytes();
+            }
+        } catch (ReflectiveOperationException | IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The states and indexes of a filter's checks, without their letters.
+     */
+    static record Shape(int[] cells) {
+        static Shape of(List<Filter.Constraint> constraints) {
+            int[] cells = new int[constraints.size()];
+            for (int k = 0; k < cells.length; k++) {
+                Filter.Constraint c = constraints.get(k);
+                cells[k] = c.index() * 3 + c.state();
+            }
+            return new Shape(cells);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape && Arrays.equals(cells, ((Shape) o).cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(cells);
+        }
+    }
+
+    /**
+     * Template of the class defined for each shape. Only its hidden copies are
+     * ever loaded as classes of their own; each gets the check chain of its
+     * shape, (NGram, char[] letters)boolean, as class data. With sampling on,
+     * every samplePeriod-th test is handed to the conjunction to sample.
+     */
+    static final class Compiled implements Predicate<NGram> {
+
+        private static final MethodHandle CHAIN = chain();
+
+        private final char[] letters;
+        private final Conjunction conjunction;  // Null unless sampling
+        private final int samplePeriod;         // 0 unless sampling
+        private int countdown;                  // Tests left until the next sample; racy on purpose
+
+        Compiled(char[] letters, Conjunction conjunction) {
+            this.letters = letters;
+            this.samplePeriod = conjunction == null ? 0 : conjunction.samplePeriod();
+            this.conjunction = samplePeriod == 0 ? null : conjunction;
+            this.countdown = samplePeriod;
+        }
+
+        private static MethodHandle chain() {
+            try {
+                return MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+            } catch (IllegalAccessException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        @Override
+        public boolean test(NGram ngram) {
+            if (samplePeriod != 0 && --countdown <= 0) {
+                countdown = samplePeriod;
+                return conjunction.sample(ngram);
+            }
+            try {
+                return (boolean) CHAIN.invokeExact(ngram, letters);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private FilterCompiler() {
+    }
+
+    /**
+     * Returns a filter that accepts exactly the same NGrams, compiled when the
+     * filter is a conjunction of feedback checks and unchanged otherwise.
+     *
+     * @throws NullPointerException if the filter is null.
+     */
+    static Filter compile(Filter filter) {
+        Objects.requireNonNull(filter, "Filter cannot be null.");
+        if (filter.isCompiled()) {
+            return filter;
+        }
+        Conjunction conjunction = filter.conjunction();
+        int version = conjunction == null ? 0 : conjunction.version();
+        Filter cached = filter.compiledForm();
+        if (cached != null && filter.compiledVersion() == version) {
+            return cached;
+        }
+        // Read after the version, so a reorder in between only makes the next compile redo this one.
+        List<Filter.Constraint> constraints = filter.constraints();
+        if (constraints == null) {
+            return filter;
+        }
+        Predicate<NGram> predicate = instantiate(constraints, conjunction);
+        if (predicate == null) {
+            // The cache is full: stay interpreted rather than define a class per filter.
+            filter.setCompiledForm(filter, version);
+            return filter;
+        }
+        Filter compiled = Filter.compiled(predicate, constraints);
+        filter.setCompiledForm(compiled, version);
+        return compiled;
+    }
+
+    /**
+     * Returns the number of shapes currently cached.
+     */
+    static int cachedShapes() {
+        return FACTORIES.size();
+    }
+
+    /**
+     * Forgets every cached shape. Filters already compiled keep their classes.
+     */
+    static void clearCache() {
+        FACTORIES.clear();
+    }
+
+    /**
+     * Returns an instance of the class for the constraints' shape, holding
+     * their letters and sampling into the conjunction if it samples, or null
+     * if the shape is new and the cache is full.
+     */
+    private static Predicate<NGram> instantiate(List<Filter.Constraint> constraints, Conjunction conjunction) {
+        Shape shape = Shape.of(constraints);
+        MethodHandle factory = FACTORIES.get(shape);
+        if (factory == null) {
+            if (FACTORIES.size() >= MAX_CACHED_SHAPES) {
+                return null;
+            }
+            factory = define(constraints);
+            MethodHandle raced = FACTORIES.putIfAbsent(shape, factory);
+            factory = raced == null ? factory : raced;
+        }
+        char[] letters = new char[constraints.size()];
+        for (int k = 0; k < letters.length; k++) {
+            letters[k] = constraints.get(k).letter();
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            Predicate<NGram> predicate = (Predicate<NGram>) factory.invokeExact(letters, conjunction);
+            return predicate;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Defines the hidden class for the constraints' shape and returns its
+     * constructor as (char[], Conjunction)Predicate.
+     */
+    private static MethodHandle define(List<Filter.Constraint> constraints) {
+        try {
+            MethodHandles.Lookup hidden = MethodHandles.lookup()
+                    .defineHiddenClassWithClassData(TEMPLATE, chain(constraints), true);
+            return hidden.findConstructor(hidden.lookupClass(),
+                                          MethodType.methodType(void.class, char[].class, Conjunction.class))
+                         .asType(MethodType.methodType(Predicate.class, char[].class, Conjunction.class));
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Cannot define a compiled filter class.", e);
+        }
+    }
+
+    /**
+     * Builds (NGram, char[] letters)boolean that runs the checks in order and
+     * stops at the first failure; check k compares letters[k].
+     */
+    private static MethodHandle chain(List<Filter.Constraint> constraints) {
+        MethodHandle rest = TRUE;
+        MethodHandle reject = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false),
+                                                         0, NGram.class, char[].class);
+        for (int k = constraints.size() - 1; k >= 0; k--) {
+            Filter.Constraint c = constraints.get(k);
+            MethodHandle test = MethodHandles.insertArguments(CHECKS[c.state()], 2, k, c.index());
+            rest = MethodHandles.guardWithTest(test, rest, reject);
+        }
+        return rest;
+    }
+
+    // Same results as NGram.matches, containsElsewhere and contains, for letters[slot].
+
+    private static boolean exact(NGram ngram, char[] letters, int slot, int index) {
+        return index < ngram.size() && ngram.charAt(index) == letters[slot];
+    }
+
+    private static boolean misplaced(NGram ngram, char[] letters, int slot, int index) {
+        char letter = letters[slot];
+        for (int j = 0; j < ngram.size(); j++) {
+            if (j != index && ngram.charAt(j) == letter) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean absent(NGram ngram, char[] letters, int slot, int index) {
+        char letter = letters[slot];
+        for (int j = 0; j < ngram.size(); j++) {
+            if (ngram.charAt(j) == letter) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
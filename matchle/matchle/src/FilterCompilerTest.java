@@ -0,0 +1,129 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FilterCompilerTest {
+
+    private static final List<NGram> WORDS = List.of(
+        NGram.from("geese"), NGram.from("eerie"), NGram.from("rebus"), NGram.from("crane"),
+        NGram.from("speed"), NGram.from("erase"), NGram.from("sheep"), NGram.from("abbey"),
+        NGram.from("eee"), NGram.from("seesaw"), NGram.from(""), NGram.from("e")
+    );
+
+    private static NGram randomWord(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append("abe".charAt(random.nextInt(3)));
+        }
+        return NGram.from(sb.toString());
+    }
+
+    @Test
+    public void testCompiledMatchesInterpreted() {
+        Random random = new Random(7);
+        List<NGram> words = new ArrayList<>(WORDS);
+        for (int i = 0; i < 50; i++) {
+            words.add(randomWord(random, 1 + random.nextInt(6)));
+        }
+        for (NGram key : words.subList(0, 8)) {
+            for (NGram guess : words.subList(0, 8)) {
+                Filter filter = NGramMatcher.of(key, guess).match();
+                Filter compiled = FilterCompiler.compile(filter);
+                assertTrue(compiled.isCompiled());
+                assertEquals(filter.constraints(), compiled.constraints());
+                for (NGram word : words) {
+                    assertEquals(key + "/" + guess + " on " + word, filter.test(word), compiled.test(word));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFeedbackFiltersCarryConstraints() {
+        NGram guess = NGram.from("eerie");
+        Filter filter = NGramMatcher.of(NGram.from("rebus"), guess).match();
+        List<Filter.Constraint> constraints = filter.constraints();
+        assertEquals(5, constraints.size());
+        // Exact checks come first, then misplaced, then absent.
+        assertEquals(new Filter.Constraint(Feedback.EXACT, 1, 'e'), constraints.get(0));
+        assertEquals(new Filter.Constraint(Feedback.MISPLACED, 2, 'r'), constraints.get(1));
+        int code = Feedback.code(NGram.from("rebus"), guess);
+        assertEquals(constraints, Feedback.filter(guess, code).constraints());
+    }
+
+    @Test
+    public void testTemplatesCachedByShape() {
+        Filter first = NGramMatcher.of(NGram.from("abcde"), NGram.from("axcyz")).match().sampled(0);
+        FilterCompiler.compile(first);
+        int cached = FilterCompiler.cachedShapes();
+        // Same states at the same positions, different letters.
+        Filter second = NGramMatcher.of(NGram.from("fghij"), NGram.from("fqhrs")).match().sampled(0);
+        Filter compiled = FilterCompiler.compile(second);
+        assertEquals(cached, FilterCompiler.cachedShapes());
+        // One hidden class per shape, one instance per filter.
+        Class<?> type = compiled.predicate().getClass();
+        assertTrue(type.isHidden());
+        assertSame(type, FilterCompiler.compile(first).predicate().getClass());
+        assertNotSame(FilterCompiler.compile(first).predicate(), compiled.predicate());
+        assertTrue(compiled.test(NGram.from("fahbc")));
+        assertFalse(compiled.test(NGram.from("aahbc")));
+    }
+
+    /**
+     * A sampling filter samples from the hidden class itself, with no wrapper in front.
+     */
+    @Test
+    public void testSamplingInsideCompiledClass() {
+        Filter filter = NGramMatcher.of(NGram.from("crane"), NGram.from("slate")).match().sampled(3);
+        Filter compiled = FilterCompiler.compile(filter);
+        assertTrue(compiled.predicate().getClass().isHidden());
+        for (String word : new String[] {"grace", "brace", "slate", "crane", "trace", "plane"}) {
+            assertEquals(word, filter.test(NGram.from(word)), compiled.test(NGram.from(word)));
+        }
+    }
+
+    /**
+     * Once the cache is full, filters of new shapes stay interpreted instead of
+     * defining a class each; cached shapes (here every five-letter one) still compile.
+     */
+    @Test
+    public void testFullCacheLeavesNewShapesInterpreted() {
+        try {
+            // Every feedback code of a guess of distinct letters has its own shape.
+            for (int length = 1; FilterCompiler.cachedShapes() < FilterCompiler.MAX_CACHED_SHAPES; length++) {
+                NGram guess = NGram.from("abcdefghij".substring(0, length));
+                for (int code = 0; code < Feedback.patterns(length)
+                        && FilterCompiler.cachedShapes() < FilterCompiler.MAX_CACHED_SHAPES; code++) {
+                    FilterCompiler.compile(Feedback.filter(guess, code).sampled(0));
+                }
+            }
+            Filter fresh = Feedback.filter(NGram.from("abcdefghijk"), 5).sampled(0);
+            assertSame(fresh, FilterCompiler.compile(fresh));
+            assertSame(fresh, FilterCompiler.compile(fresh));
+            assertEquals(FilterCompiler.MAX_CACHED_SHAPES, FilterCompiler.cachedShapes());
+            assertTrue(FilterCompiler.compile(NGramMatcher.of(NGram.from("brand"), NGram.from("plank")).match().sampled(0))
+                                     .isCompiled());
+        } finally {
+            FilterCompiler.clearCache();
+        }
+    }
+
+    @Test
+    public void testArbitraryFiltersUnchanged() {
+        Filter plain = Filter.from(ng -> ng.size() > 3);
+        assertSame(plain, FilterCompiler.compile(plain));
+        Filter mixed = NGramMatcher.of(NGram.from("cat"), NGram.from("cot")).match().and(plain);
+        assertNull(mixed.constraints());
+        assertSame(mixed, FilterCompiler.compile(mixed));
+        assertSame(Filter.FALSE, FilterCompiler.compile(Filter.FALSE));
+        Filter compiled = FilterCompiler.compile(NGramMatcher.of(NGram.from("cat"), NGram.from("cot")).match());
+        assertSame(compiled, FilterCompiler.compile(compiled));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testCompiledRejectsNull() {
+        FilterCompiler.compile(NGramMatcher.of(NGram.from("cat"), NGram.from("cot")).match()).test(null);
+    }
+}
@@ -0,0 +1,295 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Plays complete Matchle games for every key of a corpus (or a seeded sample of
+ * its keys) against a fixed guessing strategy, in parallel, and reports the
+ * guess-count distribution, the failure rate and the throughput as one JSON
+ * object per strategy.
+ *
+ * Usage: {@code java GameSimulator [strategy|all] [corpusSize] [keySample] [seed] [maxRounds] [cacheDir]}
+ * where a size of 0 means "all words" and strategy is one of worst, average or entropy.
+ * Given a cacheDir, the feedback matrix is kept there in a file named by the
+ * corpus' content hash (see {@link #cacheFile}); otherwise nothing is written.
+ */
+public final class GameSimulator {
+
+    /**
+     * A rule for picking the next guess from the remaining candidates.
+     */
+    public enum Strategy {
+        WORST_CASE("worst") {
+            @Override
+            NGram choose(MatchleScorer scorer) {
+                return scorer.bestWorstCaseGuess();
+            }
+
+            @Override
+            CompletableFuture<NGram> chooseAsync(MatchleScorer scorer, MatchleScorer.Priority priority) {
+                return scorer.bestWorstCaseGuessAsync(priority);
+            }
+        },
+        AVERAGE_CASE("average") {
+            @Override
+            NGram choose(MatchleScorer scorer) {
+                return scorer.bestAverageCaseGuess();
+            }
+
+            @Override
+            CompletableFuture<NGram> chooseAsync(MatchleScorer scorer, MatchleScorer.Priority priority) {
+                return scorer.bestAverageCaseGuessAsync(priority);
+            }
+        },
+        ENTROPY("entropy") {
+            @Override
+            NGram choose(MatchleScorer scorer) {
+                return scorer.bestEntropyGuess();
+            }
+
+            @Override
+            CompletableFuture<NGram> chooseAsync(MatchleScorer scorer, MatchleScorer.Priority priority) {
+                return scorer.bestEntropyGuessAsync(priority);
+            }
+        };
+
+        private final String label;
+
+        Strategy(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the short name used on the command line and in reports.
+         */
+        public String label() {
+            return label;
+        }
+
+        abstract NGram choose(MatchleScorer scorer);
+
+        /**
+         * Same choice as {@link #choose(MatchleScorer)}, made on the scorer's
+         * executor; cancelling the future stops the scoring.
+         */
+        abstract CompletableFuture<NGram> chooseAsync(MatchleScorer scorer, MatchleScorer.Priority priority);
+
+        /**
+         * Looks up a strategy by its label.
+         *
+         * @throws IllegalArgumentException if no strategy has that label.
+         */
+        public static Strategy fromLabel(String label) {
+            for (Strategy s : values()) {
+                if (s.label.equalsIgnoreCase(label)) {
+                    return s;
+                }
+            }
+            throw new IllegalArgumentException("Unknown strategy: " + label);
+        }
+    }
+
+    /**
+     * Outcome of a batch of simulated games.
+     *
+     * @param distribution distribution[i] is the number of games solved with i + 1 guesses.
+     */
+    public static record Report(Strategy strategy, int corpusSize, int games, int failures,
+                                int[] distribution, long elapsedNanos) {
+
+        public double failureRate() {
+            return games == 0 ? 0 : (double) failures / games;
+        }
+
+        public double averageGuesses() {
+            long solved = 0;
+            long guesses = 0;
+            for (int i = 0; i < distribution.length; i++) {
+                solved += distribution[i];
+                guesses += (long) distribution[i] * (i + 1);
+            }
+            return solved == 0 ? 0 : (double) guesses / solved;
+        }
+
+        public double gamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Renders the report as a single-line JSON object.
+         */
+        public String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"strategy\":\"").append(strategy.label()).append('"')
+              .append(",\"corpusSize\":").append(corpusSize)
+              .append(",\"games\":").append(games)
+              .append(",\"failures\":").append(failures)
+              .append(",\"failureRate\":").append(String.format(Locale.ROOT, "%.4f", failureRate()))
+              .append(",\"averageGuesses\":").append(String.format(Locale.ROOT, "%.4f", averageGuesses()))
+              .append(",\"distribution\":[");
+            for (int i = 0; i < distribution.length; i++) {
+                sb.append(i == 0 ? "" : ",").append(distribution[i]);
+            }
+            sb.append("],\"elapsedMillis\":").append(elapsedNanos / 1_000_000)
+              .append(",\"gamesPerSecond\":").append(String.format(Locale.ROOT, "%.2f", gamesPerSecond()))
+              .append('}');
+            return sb.toString();
+        }
+    }
+
+    private final Corpus corpus;
+    private final int maxRounds;
+    private final FeedbackMatrix matrix;  // Optional, speeds up the shared opening guess
+
+    /**
+     * Creates a simulator for the given corpus, giving up on a key after maxRounds guesses.
+     *
+     * @throws NullPointerException if corpus is null.
+     * @throws IllegalArgumentException if the corpus is empty or maxRounds is not positive.
+     */
+    public GameSimulator(Corpus corpus, int maxRounds) {
+        this(corpus, maxRounds, null);
+    }
+
+    /**
+     * Creates a simulator that scores the opening guess from a precomputed feedback matrix.
+     */
+    GameSimulator(Corpus corpus, int maxRounds, FeedbackMatrix matrix) {
+        this.corpus = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        if (corpus.size() == 0) {
+            throw new IllegalArgumentException("Corpus must not be empty.");
+        }
+        if (maxRounds <= 0) {
+            throw new IllegalArgumentException("maxRounds must be positive.");
+        }
+        this.maxRounds = maxRounds;
+        this.matrix = matrix;
+    }
+
+    /**
+     * Plays every key in the corpus.
+     */
+    public Report simulate(Strategy strategy) {
+        return simulate(strategy, new ArrayList<>(corpus.corpus()));
+    }
+
+    /**
+     * Plays a sample of sampleSize keys, chosen reproducibly from seed.
+     */
+    public Report simulate(Strategy strategy, int sampleSize, long seed) {
+        List<NGram> keys = new ArrayList<>(corpus.corpus());
+        Collections.shuffle(keys, new Random(seed));
+        return simulate(strategy, keys.subList(0, Math.min(sampleSize, keys.size())));
+    }
+
+    private Report simulate(Strategy strategy, List<NGram> keys) {
+        Objects.requireNonNull(strategy, "Strategy cannot be null.");
+        long start = System.nanoTime();
+        // Every game opens from the full corpus, so the first guess is shared.
+        NGram opening = strategy.choose(matrix == null ? new MatchleScorer(corpus) : new MatchleScorer(corpus, matrix));
+        int[] rounds = keys.parallelStream()
+                           .mapToInt(key -> play(strategy, opening, key))
+                           .toArray();
+        long elapsed = System.nanoTime() - start;
+
+        int[] distribution = new int[maxRounds];
+        int failures = 0;
+        for (int r : rounds) {
+            if (r == 0) {
+                failures++;
+            } else {
+                distribution[r - 1]++;
+            }
+        }
+        return new Report(strategy, corpus.size(), keys.size(), failures, distribution, elapsed);
+    }
+
+    /**
+     * Plays one game and returns the number of guesses used, or 0 if the key
+     * was not found within maxRounds.
+     */
+    int play(Strategy strategy, NGram opening, NGram key) {
+        Corpus candidates = corpus;
+        NGram guess = opening;
+        for (int round = 1; round <= maxRounds; round++) {
+            if (guess.equals(key)) {
+                return round;
+            }
+            int code = Feedback.code(key, guess);
+            candidates = narrow(candidates, guess, code);
+            guess = strategy.choose(new MatchleScorer(candidates));
+        }
+        return 0;
+    }
+
+    /**
+     * Keeps the candidates that would have produced the same feedback for guess.
+     */
+    static Corpus narrow(Corpus candidates, NGram guess, int code) {
+        EncodedWords encoded = candidates.encoded();
+        int[] letters = encoded.encode(guess);
+        int[] scratch = encoded.scratch();
+        return candidates.select(id -> encoded.code(id, letters, scratch) == code);
+    }
+
+    /**
+     * Loads the five-letter words of words.txt, shuffled by seed and cut down to
+     * corpusSize words unless it is 0; shared by the command-line tools.
+     */
+    static Corpus sampleCorpus(int corpusSize, long seed) throws IOException {
+        List<String> words = MatchleExtensionApp.downloadWordList("words.txt").stream()
+                .filter(w -> w.length() == 5)
+                .collect(Collectors.toList());
+        Collections.shuffle(words, new Random(seed));
+        if (corpusSize > 0 && words.size() > corpusSize) {
+            words = words.subList(0, corpusSize);
+        }
+        return Corpus.Builder.create()
+                .addAll(words.stream().map(NGram::from).collect(Collectors.toList()))
+                .build();
+    }
+
+    /**
+     * Returns the feedback matrix cache file for the corpus in the given
+     * directory, named by the corpus' content hash so that different corpora
+     * never share a file.
+     */
+    static Path cacheFile(Path directory, Corpus corpus) {
+        return directory.resolve("feedback-" + HexFormat.of().formatHex(corpus.contentHash()) + ".cache");
+    }
+
+    public static void main(String[] args) throws IOException {
+        String strategyArg = args.length > 0 ? args[0] : "all";
+        int corpusSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int keySample = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+        int maxRounds = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+        Path cacheDir = args.length > 5 ? Paths.get(args[5]) : null;
+
+        Corpus corpus = sampleCorpus(corpusSize, seed);
+
+        FeedbackMatrix matrix = cacheDir == null
+                ? FeedbackMatrix.compute(corpus)
+                : FeedbackMatrix.loadOrBuild(cacheFile(Files.createDirectories(cacheDir), corpus), corpus);
+        GameSimulator simulator = new GameSimulator(corpus, maxRounds, matrix);
+        List<Strategy> strategies = strategyArg.equalsIgnoreCase("all")
+                ? List.of(Strategy.values())
+                : List.of(Strategy.fromLabel(strategyArg));
+        for (Strategy strategy : strategies) {
+            Report report = keySample > 0
+                    ? simulator.simulate(strategy, keySample, seed)
+                    : simulator.simulate(strategy);
+            System.out.println(report.toJson());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class GameSimulatorTest {
+
+    private Corpus createTestCorpus() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+            NGram.from("cat"),
+            NGram.from("cot"),
+            NGram.from("cut"),
+            NGram.from("dog"),
+            NGram.from("dig"),
+            NGram.from("tag")
+        )).build();
+    }
+
+    @Test
+    public void testEveryKeySolvedWithEnoughRounds() {
+        Corpus corpus = createTestCorpus();
+        GameSimulator simulator = new GameSimulator(corpus, corpus.size());
+        for (GameSimulator.Strategy strategy : GameSimulator.Strategy.values()) {
+            GameSimulator.Report report = simulator.simulate(strategy);
+            assertEquals(corpus.size(), report.games());
+            assertEquals("No game should fail for " + strategy, 0, report.failures());
+            assertEquals(corpus.size(), Arrays.stream(report.distribution()).sum());
+        }
+    }
+
+    @Test
+    public void testSingleRoundOnlySolvesOpeningGuess() {
+        GameSimulator simulator = new GameSimulator(createTestCorpus(), 1);
+        GameSimulator.Report report = simulator.simulate(GameSimulator.Strategy.WORST_CASE);
+        assertEquals(1, report.distribution()[0]);
+        assertEquals(report.games() - 1, report.failures());
+    }
+
+    @Test
+    public void testSeededSampleIsReproducible() {
+        GameSimulator simulator = new GameSimulator(createTestCorpus(), 6);
+        GameSimulator.Report first = simulator.simulate(GameSimulator.Strategy.ENTROPY, 3, 7L);
+        GameSimulator.Report second = simulator.simulate(GameSimulator.Strategy.ENTROPY, 3, 7L);
+        assertEquals(3, first.games());
+        assertArrayEquals(first.distribution(), second.distribution());
+    }
+
+    /**
+     * Cache files are named by corpus content, not by how the corpus was sampled.
+     */
+    @Test
+    public void testCacheFileNamedByContent() {
+        Path dir = Paths.get("cache");
+        Corpus corpus = createTestCorpus();
+        Corpus same = Corpus.Builder.of(corpus).build();
+        Corpus other = Corpus.Builder.create().add(NGram.from("cat")).build();
+        assertEquals(dir, GameSimulator.cacheFile(dir, corpus).getParent());
+        assertEquals(GameSimulator.cacheFile(dir, corpus), GameSimulator.cacheFile(dir, same));
+        assertNotEquals(GameSimulator.cacheFile(dir, corpus), GameSimulator.cacheFile(dir, other));
+    }
+
+    @Test
+    public void testReportJson() {
+        GameSimulator.Report report = new GameSimulator.Report(
+            GameSimulator.Strategy.AVERAGE_CASE, 10, 4, 1, new int[] {1, 2, 0}, 2_000_000_000L);
+        String json = report.toJson();
+        assertTrue(json.startsWith("{\"strategy\":\"average\""));
+        assertTrue(json.contains("\"failureRate\":0.2500"));
+        assertTrue(json.contains("\"distribution\":[1,2,0]"));
+        assertTrue(json.contains("\"gamesPerSecond\":2.00"));
+        assertEquals(5.0 / 3, report.averageGuesses(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStrategy() {
+        GameSimulator.Strategy.fromLabel("random");
+    }
+}
@@ -0,0 +1,423 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Scoring state for a game whose candidate keys only ever shrink.
+ *
+ * For every word of the corpus, taken as a guess, it keeps the number of
+ * remaining keys in each feedback bucket, along with the largest bucket (the
+ * worst case) and the sum of squared bucket sizes (the average case: the sum,
+ * over remaining keys, of the size of the key's bucket). Removing a key
+ * decrements one bucket per guess and updates both scores in place, so a
+ * round costs time proportional to the number of keys removed times the
+ * number of guesses, instead of rescoring every guess against every remaining
+ * key. When more keys leave than stay, the buckets are recounted from the
+ * survivors instead, so a round never costs more than min(removed, remaining)
+ * times the number of guesses. The bucket codes are found once, when the state
+ * is created.
+ *
+ * By default scores follow the feedback buckets that narrow a game, as in
+ * {@link MultiBoardScorer}. With {@link Scores#FILTER_COUNTS} they are instead
+ * MatchleScorer's filter counts over the remaining keys: each bucket also
+ * keeps how many remaining words its feedback filter accepts, and removing a
+ * word decrements every bucket whose filter accepts it. A round then costs
+ * min(removed, remaining) times the number of guesses times the number of
+ * buckets, where scoring from scratch costs all the remaining words instead.
+ * Instances are not thread-safe; removals are spread over the common pool.
+ */
+public final class IncrementalScorer {
+
+    /**
+     * What the scores of a guess count.
+     */
+    public enum Scores {
+        /** Keys sharing a key's feedback bucket, as the game narrows them. */
+        BUCKET_SIZES,
+        /**
+         * Keys accepted by the feedback filter of a key's bucket, as
+         * {@link MatchleScorer#score(NGram, NGram)} counts them over a corpus
+         * of the remaining keys.
+         */
+        FILTER_COUNTS
+    }
+
+    private final Corpus corpus;
+    private final Scores scores;
+    private final EncodedWords encoded;
+    private final int[][] letters;    // letters[g]: encoded guess g
+    private final int[][] codes;      // codes[g]: distinct feedback codes of guess g, ascending
+    private final int[][] counts;     // counts[g][b]: remaining keys in bucket codes[g][b]
+    private final int[][] accepted;   // accepted[g][b]: remaining keys the filter of bucket b accepts; null for buckets
+    private final int[] worst;        // worst[g]: worst-case score of guess g
+    private final int[] atWorst;      // atWorst[g]: number of buckets of guess g at that size; buckets only
+    private final long[] totals;      // totals[g]: average-case score of guess g, the sum over remaining keys
+    private final boolean[] alive;
+    private int remaining;
+
+    /**
+     * Creates the state for a game whose keys and guesses are the words of
+     * the corpus, scoring guesses by bucket size.
+     *
+     * @throws NullPointerException if corpus is null.
+     * @throws IllegalArgumentException if the words are longer than feedback codes allow.
+     */
+    public IncrementalScorer(Corpus corpus) {
+        this(corpus, Scores.BUCKET_SIZES);
+    }
+
+    /**
+     * Creates the state for a game whose keys and guesses are the words of
+     * the corpus, scoring guesses as given.
+     *
+     * @throws NullPointerException if corpus or scores is null.
+     * @throws IllegalArgumentException if the words are longer than feedback codes allow.
+     */
+    public IncrementalScorer(Corpus corpus, Scores scores) {
+        this.corpus = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        this.scores = Objects.requireNonNull(scores, "Scores cannot be null.");
+        int size = corpus.size();
+        if (size > 0 && corpus.wordSize() > Feedback.MAX_LENGTH) {
+            throw new IllegalArgumentException("Words longer than " + Feedback.MAX_LENGTH + " are not supported.");
+        }
+        this.encoded = corpus.encoded();
+        this.letters = new int[size][];
+        this.codes = new int[size][];
+        this.counts = new int[size][];
+        this.accepted = scores == Scores.FILTER_COUNTS ? new int[size][] : null;
+        this.worst = new int[size];
+        this.atWorst = new int[size];
+        this.totals = new long[size];
+        this.alive = new boolean[size];
+        Arrays.fill(alive, true);
+        this.remaining = size;
+        IntStream.range(0, size).parallel().forEach(this::initialize);
+    }
+
+    private void initialize(int g) {
+        letters[g] = encoded.encode(corpus.get(g));
+        int[] scratch = encoded.scratch();
+        int[] all = new int[alive.length];
+        for (int k = 0; k < all.length; k++) {
+            all[k] = encoded.code(k, letters[g], scratch);
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int k = 0; k < all.length; k++) {
+            if (k == 0 || all[k] != all[k - 1]) {
+                distinct++;
+            }
+        }
+        int[] bucketCodes = new int[distinct];
+        int[] bucketCounts = new int[distinct];
+        int b = -1;
+        for (int k = 0; k < all.length; k++) {
+            if (k == 0 || all[k] != all[k - 1]) {
+                bucketCodes[++b] = all[k];
+            }
+            bucketCounts[b]++;
+        }
+        codes[g] = bucketCodes;
+        counts[g] = bucketCounts;
+        if (accepted != null) {
+            accepted[g] = new int[distinct];
+            int[][] states = states(g);
+            for (int k = 0; k < all.length; k++) {
+                accept(g, k, states, 1);
+            }
+            total(g);
+            return;
+        }
+        for (int count : bucketCounts) {
+            totals[g] += (long) count * count;
+        }
+        rescan(g);
+    }
+
+    /**
+     * Returns the scores this state keeps.
+     */
+    public Scores scores() {
+        return scores;
+    }
+
+    /**
+     * Returns the number of keys still possible.
+     */
+    public int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Returns the keys still possible, in corpus order.
+     */
+    public List<NGram> candidates() {
+        List<NGram> result = new ArrayList<>(remaining);
+        for (int k = 0; k < alive.length; k++) {
+            if (alive[k]) {
+                result.add(corpus.get(k));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the word is one of the keys still possible.
+     */
+    public boolean isCandidate(NGram word) {
+        int id = corpus.indexOf(word);
+        return id >= 0 && alive[id];
+    }
+
+    /**
+     * Eliminates the given keys; words that are not remaining keys are ignored.
+     *
+     * @return the number of keys eliminated.
+     * @throws NullPointerException if keys is null.
+     */
+    public int removeAll(Collection<NGram> keys) {
+        Objects.requireNonNull(keys, "Keys cannot be null.");
+        int[] ids = new int[keys.size()];
+        int n = 0;
+        for (NGram key : keys) {
+            int id = corpus.indexOf(key);
+            if (id >= 0 && alive[id]) {
+                alive[id] = false;
+                ids[n++] = id;
+            }
+        }
+        return remove(Arrays.copyOf(ids, n));
+    }
+
+    /**
+     * Eliminates every remaining key that is not in candidates.
+     *
+     * @return the number of keys eliminated.
+     * @throws NullPointerException if candidates is null.
+     */
+    public int retainAll(Corpus candidates) {
+        Objects.requireNonNull(candidates, "Candidates cannot be null.");
+        if (!corpus.isView() && candidates.root() == corpus) {
+            return retainAll(candidates.candidates());
+        }
+        int[] ids = new int[remaining];
+        int n = 0;
+        for (int k = 0; k < alive.length; k++) {
+            if (alive[k] && candidates.indexOf(corpus.get(k)) < 0) {
+                alive[k] = false;
+                ids[n++] = k;
+            }
+        }
+        return remove(Arrays.copyOf(ids, n));
+    }
+
+    /**
+     * Eliminates every remaining key whose corpus id is not in candidates,
+     * without looking up any NGram.
+     *
+     * @return the number of keys eliminated.
+     * @throws NullPointerException if candidates is null.
+     * @throws IllegalArgumentException if the set is not over this corpus' ids.
+     */
+    public int retainAll(CandidateSet candidates) {
+        Objects.requireNonNull(candidates, "Candidates cannot be null.");
+        if (candidates.universe() != alive.length) {
+            throw new IllegalArgumentException("Candidate set is not over this corpus' ids.");
+        }
+        int[] ids = new int[remaining];
+        int n = 0;
+        for (int k = 0; k < alive.length; k++) {
+            if (alive[k] && !candidates.contains(k)) {
+                alive[k] = false;
+                ids[n++] = k;
+            }
+        }
+        return remove(Arrays.copyOf(ids, n));
+    }
+
+    private int remove(int[] ids) {
+        if (ids.length == 0) {
+            return 0;
+        }
+        remaining -= ids.length;
+        if (ids.length <= remaining && accepted != null) {
+            IntStream.range(0, alive.length).parallel().forEach(g -> {
+                int[] scratch = encoded.scratch();
+                int[][] states = states(g);
+                for (int id : ids) {
+                    counts[g][Arrays.binarySearch(codes[g], encoded.code(id, letters[g], scratch))]--;
+                    accept(g, id, states, -1);
+                }
+                total(g);
+            });
+        } else if (ids.length <= remaining) {
+            IntStream.range(0, alive.length).parallel().forEach(g -> {
+                int[] scratch = encoded.scratch();
+                for (int id : ids) {
+                    decrement(g, encoded.code(id, letters[g], scratch));
+                }
+            });
+        } else {
+            int[] survivors = new int[remaining];
+            for (int k = 0, n = 0; k < alive.length; k++) {
+                if (alive[k]) {
+                    survivors[n++] = k;
+                }
+            }
+            IntStream.range(0, alive.length).parallel().forEach(g -> recount(g, survivors));
+        }
+        return ids.length;
+    }
+
+    /**
+     * Rebuilds the buckets of guess g from the survivors; cheaper than
+     * decrementing when more keys leave than stay.
+     */
+    private void recount(int g, int[] survivors) {
+        int[] scratch = encoded.scratch();
+        Arrays.fill(counts[g], 0);
+        for (int id : survivors) {
+            counts[g][Arrays.binarySearch(codes[g], encoded.code(id, letters[g], scratch))]++;
+        }
+        if (accepted != null) {
+            Arrays.fill(accepted[g], 0);
+            int[][] states = states(g);
+            for (int id : survivors) {
+                accept(g, id, states, 1);
+            }
+            total(g);
+            return;
+        }
+        totals[g] = 0;
+        for (int count : counts[g]) {
+            totals[g] += (long) count * count;
+        }
+        rescan(g);
+    }
+
+    /**
+     * Returns the feedback states of every bucket of guess g.
+     */
+    private int[][] states(int g) {
+        int[][] states = new int[codes[g].length][];
+        for (int b = 0; b < states.length; b++) {
+            states[b] = Feedback.states(codes[g][b], letters[g].length);
+        }
+        return states;
+    }
+
+    /**
+     * Adds delta to the accepted count of every bucket of guess g whose filter accepts word id.
+     */
+    private void accept(int g, int id, int[][] states, int delta) {
+        for (int b = 0; b < states.length; b++) {
+            if (encoded.accepts(id, letters[g], states[b])) {
+                accepted[g][b] += delta;
+            }
+        }
+    }
+
+    /**
+     * Sets the filter-count scores of guess g from its buckets: the largest
+     * accepted count of a bucket that still holds a key, and the sum over
+     * remaining keys of their bucket's accepted count.
+     */
+    private void total(int g) {
+        int max = 0;
+        long sum = 0;
+        for (int b = 0; b < counts[g].length; b++) {
+            if (counts[g][b] > 0) {
+                max = Math.max(max, accepted[g][b]);
+                sum += (long) counts[g][b] * accepted[g][b];
+            }
+        }
+        worst[g] = max;
+        totals[g] = sum;
+    }
+
+    private void decrement(int g, int code) {
+        int b = Arrays.binarySearch(codes[g], code);
+        int count = counts[g][b]--;
+        totals[g] -= 2L * count - 1;
+        if (count == worst[g] && --atWorst[g] == 0) {
+            rescan(g);  // The bucket just decremented is now among the largest
+        }
+    }
+
+    private void rescan(int g) {
+        int max = 0;
+        int ties = 0;
+        for (int count : counts[g]) {
+            if (count > max) {
+                max = count;
+                ties = 1;
+            } else if (count == max) {
+                ties++;
+            }
+        }
+        worst[g] = max;
+        atWorst[g] = ties;
+    }
+
+    /**
+     * Returns the size of the largest feedback bucket the guess leaves among
+     * the remaining keys, or with filter counts the largest score(key, guess)
+     * over the remaining keys.
+     *
+     * @throws IllegalArgumentException if the guess is not a word of the corpus.
+     */
+    public long scoreWorstCase(NGram guess) {
+        return worst[guessId(guess)];
+    }
+
+    /**
+     * Returns the sum, over remaining keys, of the number of remaining keys
+     * sharing the key's feedback bucket for the guess, or with filter counts
+     * of score(key, guess).
+     *
+     * @throws IllegalArgumentException if the guess is not a word of the corpus.
+     */
+    public long scoreAverageCase(NGram guess) {
+        return totals[guessId(guess)];
+    }
+
+    /**
+     * Returns the remaining key with the smallest worst-case score, the first in
+     * corpus order on ties, or null if no key remains.
+     */
+    public NGram bestWorstCaseGuess() {
+        int best = -1;
+        for (int g = 0; g < alive.length; g++) {
+            if (alive[g] && (best < 0 || worst[g] < worst[best])) {
+                best = g;
+            }
+        }
+        return best < 0 ? null : corpus.get(best);
+    }
+
+    /**
+     * Returns the remaining key with the smallest average-case score, the first
+     * in corpus order on ties, or null if no key remains.
+     */
+    public NGram bestAverageCaseGuess() {
+        int best = -1;
+        for (int g = 0; g < alive.length; g++) {
+            if (alive[g] && (best < 0 || totals[g] < totals[best])) {
+                best = g;
+            }
+        }
+        return best < 0 ? null : corpus.get(best);
+    }
+
+    private int guessId(NGram guess) {
+        Objects.requireNonNull(guess, "Guess cannot be null.");
+        int id = corpus.indexOf(guess);
+        if (id < 0) {
+            throw new IllegalArgumentException("Guess is not a word of the corpus.");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,181 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class IncrementalScorerTest {
+
+    private static Corpus randomCorpus(Random random, int count, int length, String letters) {
+        List<NGram> words = new ArrayList<>();
+        for (int w = 0; w < count; w++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                sb.append(letters.charAt(random.nextInt(letters.length())));
+            }
+            words.add(NGram.from(sb.toString()));
+        }
+        return Corpus.Builder.create().addAll(words).build();
+    }
+
+    /**
+     * Bucket sizes of guess over keys, computed from scratch.
+     */
+    private static Map<Integer, Long> buckets(NGram guess, List<NGram> keys) {
+        Map<Integer, Long> buckets = new HashMap<>();
+        for (NGram key : keys) {
+            buckets.merge(Feedback.code(key, guess), 1L, Long::sum);
+        }
+        return buckets;
+    }
+
+    private static void assertScores(Corpus corpus, IncrementalScorer state, List<NGram> keys) {
+        assertEquals(keys.size(), state.remaining());
+        assertEquals(keys, state.candidates());
+        for (NGram guess : corpus.corpus()) {
+            Map<Integer, Long> buckets = buckets(guess, keys);
+            long worst = buckets.values().stream().mapToLong(c -> c).max().orElse(0);
+            long squares = buckets.values().stream().mapToLong(c -> c * c).sum();
+            assertEquals(worst, state.scoreWorstCase(guess));
+            assertEquals(squares, state.scoreAverageCase(guess));
+        }
+    }
+
+    @Test
+    public void testInitialScores() {
+        Corpus corpus = Corpus.Builder.create().addAll(Arrays.asList(
+                NGram.from("cat"), NGram.from("cot"), NGram.from("dog"), NGram.from("dig"))).build();
+        IncrementalScorer state = new IncrementalScorer(corpus);
+        // "cat" splits the keys into {cat}, {cot}, {dog, dig}.
+        assertEquals(2, state.scoreWorstCase(NGram.from("cat")));
+        assertEquals(1 + 1 + 4, state.scoreAverageCase(NGram.from("cat")));
+        assertScores(corpus, state, new ArrayList<>(corpus.corpus()));
+    }
+
+    @Test
+    public void testScoresFollowRemovals() {
+        Random random = new Random(4);
+        Corpus corpus = randomCorpus(random, 60, 4, "abcdef");
+        IncrementalScorer state = new IncrementalScorer(corpus);
+        List<NGram> keys = new ArrayList<>(corpus.corpus());
+        while (!keys.isEmpty()) {
+            List<NGram> removed = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(8) && !keys.isEmpty(); i++) {
+                removed.add(keys.remove(random.nextInt(keys.size())));
+            }
+            assertEquals(removed.size(), state.removeAll(removed));
+            assertEquals(0, state.removeAll(removed));
+            assertScores(corpus, state, keys);
+        }
+        assertNull(state.bestWorstCaseGuess());
+        assertNull(state.bestAverageCaseGuess());
+    }
+
+    @Test
+    public void testRetainAllFollowsGame() {
+        Random random = new Random(8);
+        Corpus corpus = randomCorpus(random, 80, 5, "abcdefgh");
+        NGram key = corpus.get(random.nextInt(corpus.size()));
+        IncrementalScorer state = new IncrementalScorer(corpus);
+        Corpus candidates = corpus;
+        for (int round = 0; round < 6 && candidates.size() > 1; round++) {
+            NGram guess = state.bestWorstCaseGuess();
+            candidates = GameSimulator.narrow(candidates, guess, Feedback.code(key, guess));
+            state.retainAll(candidates);
+            assertScores(corpus, state, new ArrayList<>(candidates.corpus()));
+            assertTrue(state.isCandidate(key));
+        }
+    }
+
+    @Test
+    public void testBestGuessesAmongCandidates() {
+        Random random = new Random(2);
+        Corpus corpus = randomCorpus(random, 50, 4, "abcdefg");
+        IncrementalScorer state = new IncrementalScorer(corpus);
+        List<NGram> keys = new ArrayList<>(corpus.corpus());
+        Collections.shuffle(keys, random);
+        state.removeAll(keys.subList(0, 30));
+        List<NGram> left = state.candidates();
+        NGram bestWorst = left.stream().min((a, b) -> Long.compare(
+                state.scoreWorstCase(a), state.scoreWorstCase(b))).get();
+        NGram bestAverage = left.stream().min((a, b) -> Long.compare(
+                state.scoreAverageCase(a), state.scoreAverageCase(b))).get();
+        assertEquals(bestWorst, state.bestWorstCaseGuess());
+        assertEquals(bestAverage, state.bestAverageCaseGuess());
+        assertTrue(state.isCandidate(bestWorst));
+        assertFalse(state.isCandidate(keys.get(0)));
+    }
+
+    /**
+     * Filter-count scores are MatchleScorer's over a corpus of the remaining keys.
+     */
+    private static void assertFilterCounts(Corpus corpus, IncrementalScorer state, Corpus keys) {
+        MatchleScorer scorer = new MatchleScorer(keys);
+        for (NGram guess : corpus.corpus()) {
+            assertEquals(scorer.scoreWorstCase(guess), state.scoreWorstCase(guess));
+            assertEquals(scorer.scoreAverageCase(guess), state.scoreAverageCase(guess));
+        }
+        assertEquals(scorer.bestWorstCaseGuess(), state.bestWorstCaseGuess());
+        assertEquals(scorer.bestAverageCaseGuess(), state.bestAverageCaseGuess());
+    }
+
+    @Test
+    public void testFilterCountsMatchScorer() {
+        Random random = new Random(6);
+        // Few letters, so repeated letters make filters accept words outside their bucket.
+        Corpus corpus = randomCorpus(random, 70, 5, "abcde");
+        NGram key = corpus.get(random.nextInt(corpus.size()));
+        IncrementalScorer state = new IncrementalScorer(corpus, IncrementalScorer.Scores.FILTER_COUNTS);
+        assertEquals(IncrementalScorer.Scores.FILTER_COUNTS, state.scores());
+        assertFilterCounts(corpus, state, corpus);
+        Corpus candidates = corpus;
+        for (int round = 0; round < 6 && candidates.size() > 1; round++) {
+            // Drop a few keys first, so both the decrementing and the recounting paths run.
+            List<NGram> few = new ArrayList<>(candidates.corpus()).subList(0, Math.min(3, candidates.size() - 1));
+            state.removeAll(few);
+            candidates = candidates.filter(Filter.from(ng -> !few.contains(ng)));
+            assertFilterCounts(corpus, state, candidates);
+            NGram guess = state.bestWorstCaseGuess();
+            candidates = GameSimulator.narrow(candidates, guess, Feedback.code(key, guess));
+            state.retainAll(candidates);
+            assertFilterCounts(corpus, state, candidates);
+        }
+    }
+
+    @Test
+    public void testAppSuggestionsMatchScorer() {
+        Random random = new Random(10);
+        Corpus corpus = randomCorpus(random, 60, 4, "abcdef");
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        IncrementalScorer state = new IncrementalScorer(corpus, IncrementalScorer.Scores.FILTER_COUNTS);
+        char[] correctPositions = "____".toCharArray();
+        NGram key = corpus.get(random.nextInt(corpus.size()));
+        for (int round = 0; round < 4; round++) {
+            Map<String, NGram> expected = MatchleExtensionApp.getBestGuessesUtility(corpus, scorer, correctPositions);
+            assertEquals(expected, MatchleExtensionApp.getBestGuessesUtility(state, corpus, correctPositions));
+            assertEquals(Set.of("Worst-case", "Average-case"), expected.keySet());
+            MatchleExtensionApp.updateCorrectPositions(key, expected.get("Average-case"), correctPositions);
+            correctPositions[round] = key.get(round);
+        }
+        assertThrows(IllegalArgumentException.class, () -> MatchleExtensionApp.getBestGuessesUtility(
+                new IncrementalScorer(corpus), corpus, correctPositions));
+    }
+
+    @Test
+    public void testValidation() {
+        IncrementalScorer state = new IncrementalScorer(
+                Corpus.Builder.create().addAll(Arrays.asList(NGram.from("cat"), NGram.from("cot"))).build());
+        assertThrows(IllegalArgumentException.class, () -> state.scoreWorstCase(NGram.from("dog")));
+        assertThrows(NullPointerException.class, () -> state.removeAll(null));
+        assertEquals(0, state.removeAll(List.of(NGram.from("dog"))));
+        assertThrows(IllegalArgumentException.class, () -> state.retainAll(CandidateSet.all(3)));
+        assertEquals(1, state.retainAll(CandidateSet.of(2, 1)));
+        assertEquals(List.of(NGram.from("cot")), state.candidates());
+        assertThrows(NullPointerException.class, () -> new IncrementalScorer(null));
+    }
+}
@@ -0,0 +1,468 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Replays production-like traffic against the suggestion stack: many players
+ * arrive at random (a Poisson process), each picks a secret key and a strategy
+ * from a weighted mix, and plays a whole game by asking the target for a guess,
+ * working out the feedback itself and thinking before the next request. The
+ * report covers throughput, request latency percentiles, process CPU use and
+ * GC pauses over the run.
+ *
+ * The target is either a {@link Suggester} called in-process or a
+ * {@link SuggestionServer} reached over HTTP. CPU use is for the whole process,
+ * so a server started in the same JVM is included in it.
+ *
+ * Usage: {@code java LoadGenerator [players] [arrivalsPerSecond] [thinkMillis] [mix] [target] [corpusSize] [seed] [threads]}
+ * where mix looks like {@code worst:2,entropy:1} and target is {@code inprocess},
+ * {@code server} (start a local SuggestionServer and drive it over HTTP) or the
+ * base URL of a running server such as {@code http://localhost:8080}.
+ */
+public final class LoadGenerator {
+
+    /**
+     * Where players send their requests; implementations must be thread-safe.
+     */
+    public interface Target {
+        /**
+         * Returns the next guess for the history, or null if no key is consistent with it.
+         */
+        NGram suggest(GameSimulator.Strategy strategy, List<Suggester.Turn> history)
+                throws IOException, InterruptedException;
+    }
+
+    /**
+     * Returns a target that calls the suggester directly.
+     */
+    public static Target inProcess(Suggester suggester) {
+        Objects.requireNonNull(suggester, "Suggester cannot be null.");
+        return suggester::suggest;
+    }
+
+    /**
+     * Returns a target that sends each request to {@code base/suggest}.
+     */
+    public static Target http(URI base) {
+        Objects.requireNonNull(base, "Base URI cannot be null.");
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String prefix = base.toString().replaceAll("/+$", "") + "/suggest?strategy=";
+        return (strategy, history) -> {
+            URI uri = URI.create(prefix + strategy.label() + "&history="
+                    + URLEncoder.encode(Suggester.formatHistory(history), StandardCharsets.UTF_8));
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                                                        HttpResponse.BodyHandlers.ofString());
+            switch (response.statusCode()) {
+                case 200:
+                    return NGram.from(response.body());
+                case 404:
+                    return null;
+                default:
+                    throw new IOException("HTTP " + response.statusCode() + ": " + response.body());
+            }
+        };
+    }
+
+    /**
+     * Shape of the simulated traffic.
+     *
+     * @param players number of games to play.
+     * @param arrivalsPerSecond mean rate at which new players arrive; infinity starts everyone at once.
+     * @param thinkMillis mean pause between a player's requests, exponentially distributed.
+     * @param mix relative weight of each strategy among players.
+     * @param maxRounds guesses after which a player gives up.
+     * @param threads threads running players; each request blocks one of them.
+     * @param seed seed for keys, strategies, arrivals and think times.
+     */
+    public static record Config(int players, double arrivalsPerSecond, long thinkMillis,
+                                Map<GameSimulator.Strategy, Integer> mix, int maxRounds, int threads, long seed) {
+        public Config {
+            if (players <= 0 || maxRounds <= 0 || threads <= 0) {
+                throw new IllegalArgumentException("Players, rounds and threads must be positive.");
+            }
+            if (!(arrivalsPerSecond > 0) || thinkMillis < 0) {
+                throw new IllegalArgumentException("Arrival rate must be positive and think time non-negative.");
+            }
+            mix = Map.copyOf(Objects.requireNonNull(mix, "Mix cannot be null."));
+            if (mix.values().stream().anyMatch(w -> w < 0) || mix.values().stream().mapToInt(w -> w).sum() <= 0) {
+                throw new IllegalArgumentException("Mix weights must be non-negative with a positive total.");
+            }
+        }
+    }
+
+    /**
+     * Outcome of a run. Latencies are per request, in nanoseconds, accurate to
+     * about 6%; cpuUtilization is the share of all processors the process used,
+     * or -1 if the JVM cannot tell.
+     */
+    public static record Report(int players, int solved, long requests, long errors,
+                                long elapsedNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                                long p999Nanos, long maxNanos, double cpuUtilization,
+                                long gcCount, long gcMillis, long maxGcPauseMillis) {
+
+        public double requestsPerSecond() {
+            return elapsedNanos == 0 ? 0 : requests * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Renders the report as a single-line JSON object.
+         */
+        public String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"players\":").append(players)
+              .append(",\"solved\":").append(solved)
+              .append(",\"requests\":").append(requests)
+              .append(",\"errors\":").append(errors)
+              .append(",\"elapsedMillis\":").append(elapsedNanos / 1_000_000)
+              .append(",\"requestsPerSecond\":").append(String.format(Locale.ROOT, "%.2f", requestsPerSecond()))
+              .append(",\"latencyMillis\":{")
+              .append("\"p50\":").append(millis(p50Nanos))
+              .append(",\"p90\":").append(millis(p90Nanos))
+              .append(",\"p99\":").append(millis(p99Nanos))
+              .append(",\"p999\":").append(millis(p999Nanos))
+              .append(",\"max\":").append(millis(maxNanos))
+              .append("},\"cpuUtilization\":").append(String.format(Locale.ROOT, "%.4f", cpuUtilization))
+              .append(",\"gcCount\":").append(gcCount)
+              .append(",\"gcMillis\":").append(gcMillis)
+              .append(",\"maxGcPauseMillis\":").append(maxGcPauseMillis)
+              .append('}');
+            return sb.toString();
+        }
+
+        private static String millis(long nanos) {
+            return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+        }
+    }
+
+    private final List<NGram> keys;
+    private final Target target;
+    private final Config config;
+
+    /**
+     * Creates a generator whose players draw their keys from the corpus.
+     *
+     * @throws NullPointerException if any argument is null.
+     * @throws IllegalArgumentException if the corpus is empty.
+     */
+    public LoadGenerator(Corpus corpus, Target target, Config config) {
+        Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        this.target = Objects.requireNonNull(target, "Target cannot be null.");
+        this.config = Objects.requireNonNull(config, "Config cannot be null.");
+        if (corpus.size() == 0) {
+            throw new IllegalArgumentException("Corpus cannot be empty.");
+        }
+        this.keys = new ArrayList<>(corpus.corpus());
+    }
+
+    /**
+     * Plays every player's game and waits for the last one to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting; the run is abandoned.
+     */
+    public Report run() throws InterruptedException {
+        Run run = new Run(config.players());
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(config.threads(), r -> {
+            Thread t = new Thread(r, "load-generator");
+            t.setDaemon(true);
+            return t;
+        });
+        SplittableRandom random = new SplittableRandom(config.seed());
+        GameSimulator.Strategy[] strategies = GameSimulator.Strategy.values();
+        int totalWeight = config.mix().values().stream().mapToInt(w -> w).sum();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        try (GcMonitor gc = new GcMonitor()) {
+            long cpuStart = processCpuNanos(os);
+            long start = System.nanoTime();
+            double arrival = 0;
+            for (int p = 0; p < config.players(); p++) {
+                arrival += -Math.log(1 - random.nextDouble()) / config.arrivalsPerSecond();
+                int pick = random.nextInt(totalWeight);
+                GameSimulator.Strategy strategy = null;
+                for (GameSimulator.Strategy s : strategies) {
+                    pick -= config.mix().getOrDefault(s, 0);
+                    if (pick < 0) {
+                        strategy = s;
+                        break;
+                    }
+                }
+                Player player = new Player(run, scheduler, keys.get(random.nextInt(keys.size())),
+                                           strategy, random.split());
+                scheduler.schedule(player, Math.round(arrival * 1e9), TimeUnit.NANOSECONDS);
+            }
+            run.done.await();
+            long elapsed = System.nanoTime() - start;
+            long cpuEnd = processCpuNanos(os);
+            double cpu = cpuStart < 0 || cpuEnd < 0 || elapsed == 0 ? -1
+                    : (cpuEnd - cpuStart) / ((double) elapsed * Runtime.getRuntime().availableProcessors());
+            Histogram h = run.latencies;
+            return new Report(config.players(), run.solved.intValue(),
+                              run.requests.sum(), run.errors.sum(), elapsed,
+                              h.percentile(0.50), h.percentile(0.90), h.percentile(0.99),
+                              h.percentile(0.999), h.max(), cpu,
+                              gc.count.sum(), gc.totalMillis.sum(), gc.maxMillis.get());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static long processCpuNanos(OperatingSystemMXBean os) {
+        return os instanceof com.sun.management.OperatingSystemMXBean
+                ? ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime()
+                : -1;
+    }
+
+    /**
+     * Counters shared by the players of one run.
+     */
+    private static final class Run {
+        final CountDownLatch done;
+        final Histogram latencies = new Histogram();
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder solved = new LongAdder();
+
+        Run(int players) {
+            this.done = new CountDownLatch(players);
+        }
+    }
+
+    /**
+     * One game, run as a chain of scheduled steps: one request per step and a
+     * think-time delay in between, so a player holds no thread while thinking.
+     */
+    private final class Player implements Runnable {
+        private final Run run;
+        private final ScheduledThreadPoolExecutor scheduler;
+        private final NGram key;
+        private final GameSimulator.Strategy strategy;
+        private final SplittableRandom random;
+        private final List<Suggester.Turn> history = new ArrayList<>();
+
+        Player(Run run, ScheduledThreadPoolExecutor scheduler, NGram key,
+               GameSimulator.Strategy strategy, SplittableRandom random) {
+            this.run = run;
+            this.scheduler = scheduler;
+            this.key = key;
+            this.strategy = strategy;
+            this.random = random;
+        }
+
+        @Override
+        public void run() {
+            NGram guess;
+            long start = System.nanoTime();
+            try {
+                guess = target.suggest(strategy, List.copyOf(history));
+            } catch (IOException | RuntimeException e) {
+                run.errors.increment();
+                run.done.countDown();
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                run.done.countDown();
+                return;
+            }
+            run.latencies.record(System.nanoTime() - start);
+            run.requests.increment();
+            if (guess == null) {
+                run.errors.increment();  // The key itself is always consistent
+            } else if (guess.equals(key)) {
+                run.solved.increment();
+            } else if (history.size() + 1 < config.maxRounds()) {
+                history.add(new Suggester.Turn(guess, Feedback.code(key, guess)));
+                long think = Math.round(-Math.log(1 - random.nextDouble()) * config.thinkMillis() * 1e6);
+                scheduler.schedule(this, think, TimeUnit.NANOSECONDS);
+                return;
+            }
+            run.done.countDown();
+        }
+    }
+
+    /**
+     * Lock-free log-linear histogram of microseconds: exact below 16, then 16
+     * buckets per power of two.
+     */
+    private static final class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(64 * 16);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            counts.incrementAndGet(index(micros));
+            total.incrementAndGet();
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the q-quantile, in nanoseconds.
+         */
+        long percentile(double q) {
+            long n = total.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperMicros(i) * 1000, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int index(long micros) {
+            if (micros < 16) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            return (exponent - 3) * 16 + (int) ((micros >>> (exponent - 4)) & 15);
+        }
+
+        private static long upperMicros(int index) {
+            if (index < 16) {
+                return index;
+            }
+            int shift = index / 16 - 1;
+            return ((16L + index % 16 + 1) << shift) - 1;
+        }
+    }
+
+    /**
+     * Listens for GC notifications while open. Concurrent cycles (reported by
+     * beans named "... Cycles" or "... Concurrent ...") do not stop the
+     * application, so only the pauses are counted.
+     */
+    private static final class GcMonitor implements NotificationListener, AutoCloseable {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalMillis = new LongAdder();
+        final AtomicLong maxMillis = new AtomicLong();
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+        GcMonitor() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter) {
+                    NotificationEmitter emitter = (NotificationEmitter) bean;
+                    emitter.addNotificationListener(this, null, null);
+                    emitters.add(emitter);
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            String name = info.getGcName();
+            if (name.endsWith("Cycles") || name.contains("Concurrent")) {
+                return;
+            }
+            long millis = info.getGcInfo().getDuration();
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+        }
+
+        @Override
+        public void close() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // Already gone
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a strategy mix such as {@code worst:2,entropy:1}; a label without
+     * a weight counts once.
+     *
+     * @throws IllegalArgumentException if a label or weight is malformed.
+     */
+    static Map<GameSimulator.Strategy, Integer> parseMix(String text) {
+        Map<GameSimulator.Strategy, Integer> mix = new EnumMap<>(GameSimulator.Strategy.class);
+        for (String part : text.split(",")) {
+            int colon = part.indexOf(':');
+            GameSimulator.Strategy strategy = GameSimulator.Strategy.fromLabel(
+                    colon < 0 ? part.trim() : part.substring(0, colon).trim());
+            int weight;
+            try {
+                weight = colon < 0 ? 1 : Integer.parseInt(part.substring(colon + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed weight: " + part, e);
+            }
+            mix.merge(strategy, weight, Integer::sum);
+        }
+        return mix;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        double arrivalsPerSecond = args.length > 1 ? Double.parseDouble(args[1]) : 200;
+        long thinkMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+        String mix = args.length > 3 ? args[3] : "worst,average,entropy";
+        String targetArg = args.length > 4 ? args[4] : "inprocess";
+        int corpusSize = args.length > 5 ? Integer.parseInt(args[5]) : 500;
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 42L;
+        int threads = args.length > 7 ? Integer.parseInt(args[7])
+                : targetArg.equals("inprocess") ? Runtime.getRuntime().availableProcessors() : 64;
+
+        Corpus corpus = GameSimulator.sampleCorpus(corpusSize, seed);
+        Config config = new Config(players, arrivalsPerSecond, thinkMillis, parseMix(mix), 6, threads, seed);
+        SuggestionServer server = null;
+        try {
+            Target target;
+            if (targetArg.equals("inprocess")) {
+                target = inProcess(new Suggester(corpus));
+            } else if (targetArg.equals("server")) {
+                server = new SuggestionServer(new Suggester(corpus), 0, Runtime.getRuntime().availableProcessors());
+                server.start();
+                target = http(URI.create("http://localhost:" + server.port()));
+            } else {
+                target = http(URI.create(targetArg));
+            }
+            System.out.println(new LoadGenerator(corpus, target, config).run().toJson());
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class LoadGeneratorTest {
+
+    private static Corpus createCorpus() {
+        List<NGram> words = new ArrayList<>();
+        for (char a = 'a'; a <= 'z'; a += 3) {
+            for (char b = 'a'; b <= 'z'; b += 4) {
+                words.add(NGram.from(new String(new char[] {a, b, 'e', b})));
+            }
+        }
+        return Corpus.Builder.create().addAll(words).build();
+    }
+
+    private static LoadGenerator.Config config(int players) {
+        return new LoadGenerator.Config(players, 2_000, 1, LoadGenerator.parseMix("worst:2,entropy"), 30, 4, 7);
+    }
+
+    private static void assertSane(LoadGenerator.Report report, int players) {
+        assertEquals(players, report.players());
+        assertEquals(0, report.errors());
+        assertEquals(players, report.solved());
+        assertTrue(report.requests() >= players);
+        assertTrue(report.p50Nanos() <= report.p90Nanos());
+        assertTrue(report.p90Nanos() <= report.p99Nanos());
+        assertTrue(report.p99Nanos() <= report.p999Nanos());
+        assertTrue(report.p999Nanos() <= report.maxNanos());
+        assertTrue(report.maxNanos() > 0);
+        assertTrue(report.toJson().startsWith("{\"players\":" + players + ","));
+    }
+
+    @Test
+    public void testInProcess() throws InterruptedException {
+        Corpus corpus = createCorpus();
+        LoadGenerator.Report report = new LoadGenerator(corpus,
+                LoadGenerator.inProcess(new Suggester(corpus)), config(200)).run();
+        assertSane(report, 200);
+    }
+
+    @Test
+    public void testOverHttp() throws IOException, InterruptedException {
+        Corpus corpus = createCorpus();
+        try (SuggestionServer server = new SuggestionServer(new Suggester(corpus), 0, 2)) {
+            server.start();
+            URI base = URI.create("http://localhost:" + server.port());
+            LoadGenerator.Report report = new LoadGenerator(corpus, LoadGenerator.http(base), config(50)).run();
+            assertSane(report, 50);
+
+            LoadGenerator.Target target = LoadGenerator.http(base);
+            NGram opening = new Suggester(corpus).suggest(GameSimulator.Strategy.AVERAGE_CASE, List.of());
+            assertEquals(opening, target.suggest(GameSimulator.Strategy.AVERAGE_CASE, List.of()));
+            assertNull(target.suggest(GameSimulator.Strategy.WORST_CASE,
+                    List.of(new Suggester.Turn(NGram.from("zzzz"), Feedback.solved(4)))));
+            HttpURLConnection bad = (HttpURLConnection) URI.create(base + "/suggest?strategy=best").toURL().openConnection();
+            assertEquals(400, bad.getResponseCode());
+        }
+    }
+
+    @Test
+    public void testErrorsCounted() throws InterruptedException {
+        Corpus corpus = createCorpus();
+        LoadGenerator.Target failing = (strategy, history) -> {
+            throw new IOException("down");
+        };
+        LoadGenerator.Report report = new LoadGenerator(corpus, failing, config(20)).run();
+        assertEquals(20, report.errors());
+        assertEquals(0, report.requests());
+        assertEquals(0, report.solved());
+    }
+
+    @Test
+    public void testMixAndConfigValidation() {
+        assertEquals(Map.of(GameSimulator.Strategy.WORST_CASE, 3, GameSimulator.Strategy.ENTROPY, 1),
+                     LoadGenerator.parseMix("worst:2, entropy ,worst"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("best:1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("worst:x"));
+        assertThrows(IllegalArgumentException.class, () -> new LoadGenerator.Config(
+                1, 0, 1, Map.of(GameSimulator.Strategy.WORST_CASE, 1), 6, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LoadGenerator.Config(
+                1, 1, 1, Map.of(GameSimulator.Strategy.WORST_CASE, 0), 6, 1, 0));
+    }
+}
@@ -0,0 +1,584 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Differential tests of the fast feedback paths against the reference MATCH:
+ * NGramMatcher.match() for accept/reject and counts, and the exact and
+ * misplaced passes of MatchleExtensionApp for per-position feedback.
+ *
+ * Cases are random and adversarial (key, guess, candidates) triples with heavy
+ * letter repetition, tiny and wide alphabets and every length up to a little
+ * past Feedback.MAX_LENGTH. A failing case is shrunk, by dropping candidates
+ * and positions and by merging and lowering letters, until no smaller case
+ * still fails, and is reported in that form.
+ */
+public class MatcherDifferentialTest {
+
+    private static final int CASES = 1500;
+    private static final int LONGEST = Feedback.MAX_LENGTH + 4;
+    private static final String[] ALPHABETS = {
+        "a", "ab", "abc", "abcde", "abcdefghijklmnopqrstuvwxyz",
+        "e\u00e8\u00e9\u00ea", "\u0430\u0431\u0432\u0433\u0434", "\u4e00\u4e8c\u4e09",
+        "\u0000a\uffff", wideAlphabet(150)
+    };
+
+    private static Set<String> lastWords;  // The words of lastCorpus
+    private static Corpus lastCorpus;
+    private static FeedbackMatrix lastMatrix;  // Computed on first use
+
+    /**
+     * A key, a guess and further candidate words, all of the same length.
+     */
+    private static record Case(String key, String guess, List<String> candidates) {
+
+        int length() {
+            return key.length();
+        }
+
+        /**
+         * Returns the key, guess and candidates without repeats.
+         */
+        List<String> words() {
+            Set<String> words = new LinkedHashSet<>();
+            words.add(key);
+            words.add(guess);
+            words.addAll(candidates);
+            return new ArrayList<>(words);
+        }
+
+        Case map(java.util.function.UnaryOperator<String> f) {
+            return new Case(f.apply(key), f.apply(guess),
+                            candidates.stream().map(f).collect(Collectors.toList()));
+        }
+
+        @Override
+        public String toString() {
+            return "key=" + quote(key) + " guess=" + quote(guess) + " candidates="
+                   + candidates.stream().map(MatcherDifferentialTest::quote).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * A property of a case: returns null if it holds, or what went wrong.
+     */
+    private interface Property {
+        String check(Case c);
+    }
+
+    // =========================================================
+    // Properties
+    // =========================================================
+
+    /**
+     * Every packed feedback code agrees with the reference states.
+     */
+    private static String codes(Case c) {
+        Corpus corpus = corpusOf(c);
+        EncodedWords encoded = corpus.encoded();
+        NGram guess = NGram.from(c.guess());
+        int[] letters = encoded.encode(guess);
+        FeedbackMatrix matrix = matrixOf(corpus);
+        int guessId = corpus.indexOf(guess);
+        char[] padded = (" " + c.guess() + "  ").toCharArray();
+        for (String word : c.words()) {
+            NGram key = NGram.from(word);
+            int expected = Feedback.pack(referenceStates(key, guess));
+            int keyId = corpus.indexOf(key);
+            char[] keyChars = ("   " + word).toCharArray();
+            String result = differ("Feedback.code", expected, Feedback.code(key, guess),
+                                   "Feedback.code(char[])", expected,
+                                   Feedback.code(keyChars, 3, padded, 1, c.length(), new boolean[c.length()]),
+                                   "EncodedWords.code", expected, encoded.code(keyId, letters, encoded.scratch()),
+                                   "FeedbackMatrix.code", expected, matrix.code(keyId, guessId));
+            if (result != null) {
+                return "key " + quote(word) + ": " + result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every compiled or encoded filter accepts exactly the words the reference filter does.
+     */
+    private static String filters(Case c) {
+        Filter reference = NGramMatcher.of(NGram.from(c.key()), NGram.from(c.guess())).match();
+        Filter compiled = FilterCompiler.compile(reference);
+        boolean coded = c.length() <= Feedback.MAX_LENGTH;
+        NGram guess = NGram.from(c.guess());
+        int code = coded ? Feedback.pack(referenceStates(NGram.from(c.key()), guess)) : 0;
+        Filter rebuilt = coded ? Feedback.filter(guess, code) : null;
+        Corpus corpus = corpusOf(c);
+        EncodedWords encoded = corpus.encoded();
+        int[] letters = encoded.encode(guess);
+        int[] states = coded ? Feedback.states(code, c.length()) : null;
+        for (String word : c.words()) {
+            NGram ngram = NGram.from(word);
+            int expected = reference.test(ngram) ? 1 : 0;
+            String result = coded
+                    ? differ("FilterCompiler", expected, compiled.test(ngram) ? 1 : 0,
+                             "Feedback.filter", expected, rebuilt.test(ngram) ? 1 : 0,
+                             "EncodedWords.accepts", expected, encoded.accepts(corpus.indexOf(ngram), letters, states) ? 1 : 0)
+                    : differ("FilterCompiler", expected, compiled.test(ngram) ? 1 : 0);
+            if (result != null) {
+                return "candidate " + quote(word) + " (1 = accepted): " + result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every way of counting or listing the words that pass the reference filter agrees.
+     */
+    private static String counts(Case c) {
+        NGram key = NGram.from(c.key());
+        NGram guess = NGram.from(c.guess());
+        Filter reference = NGramMatcher.of(key, guess).match();
+        Corpus corpus = corpusOf(c);
+        List<NGram> expected = corpus.stream().filter(reference::test).collect(Collectors.toList());
+        DawgCorpus dawg = DawgCorpus.of(corpus);
+        List<NGram> listed = new ArrayList<>();
+        dawg.forEach(reference, listed::add);
+        if (!listed.equals(expected)) {
+            return "DawgCorpus.forEach lists " + listed + ", reference " + expected;
+        }
+        if (!corpus.filter(reference).corpus().equals(Set.copyOf(expected))) {
+            return "Corpus.filter keeps " + corpus.filter(reference).corpus() + ", reference " + expected;
+        }
+        String result = differ("Corpus.size", expected.size(), corpus.size(reference),
+                               "DawgCorpus.count", expected.size(), dawg.count(reference),
+                               "MatchleScorer.score", expected.size(), new MatchleScorer(corpus).score(key, guess));
+        if (result != null || c.length() > Feedback.MAX_LENGTH) {
+            return result;
+        }
+        int code = Feedback.pack(referenceStates(key, guess));
+        Set<NGram> bucket = corpus.stream()
+                                  .filter(k -> Feedback.pack(referenceStates(k, guess)) == code)
+                                  .collect(Collectors.toSet());
+        Set<NGram> narrowed = GameSimulator.narrow(corpus, guess, code).corpus();
+        return narrowed.equals(bucket) ? null : "GameSimulator.narrow keeps " + narrowed + ", reference " + bucket;
+    }
+
+    /**
+     * Every score of the guess over the corpus agrees with one computed from
+     * reference filters (MatchleScorer's counts) or reference feedback buckets
+     * (the bucket-based scorers).
+     */
+    private static String scores(Case c) {
+        Corpus corpus = corpusOf(c);
+        NGram guess = NGram.from(c.guess());
+        long worst = 0;
+        long sum = 0;
+        NGram bestWorst = null;
+        long bestWorstScore = Long.MAX_VALUE;
+        for (NGram g : corpus) {
+            long gWorst = 0;
+            for (NGram key : corpus) {
+                long count = referenceCount(corpus, key, g);
+                gWorst = Math.max(gWorst, count);
+                if (g.equals(guess)) {
+                    worst = gWorst;
+                    sum += count;
+                }
+            }
+            if (gWorst < bestWorstScore) {
+                bestWorstScore = gWorst;
+                bestWorst = g;
+            }
+        }
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        String result = differ("MatchleScorer.scoreWorstCase", worst, scorer.scoreWorstCase(guess),
+                               "best worst-case score", bestWorstScore,
+                               scorer.scoreWorstCase(scorer.bestWorstCaseGuess()));
+        if (result == null && !scorer.bestWorstCaseGuess().equals(bestWorst)) {
+            result = "MatchleScorer.bestWorstCaseGuess is " + scorer.bestWorstCaseGuess() + ", reference " + bestWorst;
+        }
+        if (result == null) {
+            result = differ("MatchleScorer.scoreAverageCase", sum, scorer.scoreAverageCase(guess));
+        }
+        if (result != null || c.length() > Feedback.MAX_LENGTH) {
+            return result;
+        }
+
+        MatchleScorer fromMatrix = new MatchleScorer(corpus, matrixOf(corpus));
+        Map<Integer, Long> buckets = buckets(corpus.corpus(), guess);
+        long largest = buckets.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        long squares = buckets.values().stream().mapToLong(size -> size * size).sum();
+        double entropy = 0;
+        for (long size : buckets.values()) {
+            double p = (double) size / corpus.size();
+            entropy -= p * Math.log(p) / Math.log(2);
+        }
+        IncrementalScorer state = new IncrementalScorer(corpus);
+        MatchleScorer.WeightedScore weighted = scorer.scoreWeighted(guess);
+        result = differ("MatchleScorer.scoreWorstCase with matrix", worst, fromMatrix.scoreWorstCase(guess),
+                        "MatchleScorer.scoreAverageCase with matrix", sum, fromMatrix.scoreAverageCase(guess),
+                        "IncrementalScorer.scoreWorstCase", largest, state.scoreWorstCase(guess),
+                        "IncrementalScorer.scoreAverageCase", squares, state.scoreAverageCase(guess),
+                        "scoreWeighted worst case (x1e6)", largest * 1_000_000,
+                        Math.round(weighted.worstCase() * 1_000_000),
+                        "scoreWeighted expected remaining (x1e6)", Math.round(1e6 * squares / corpus.size()),
+                        Math.round(weighted.expectedRemaining() * 1_000_000),
+                        "scoreWeighted entropy (x1e9)", Math.round(entropy * 1e9), Math.round(weighted.entropy() * 1e9),
+                        "MatchleScorer.scoreEntropy (x1e9)", Math.round(entropy * 1e9),
+                        Math.round(scorer.scoreEntropy(guess) * 1e9));
+        if (result == null && Feedback.patterns(c.length()) <= 1 << 16) {
+            MultiBoardScorer.GuessScore board = new MultiBoardScorer(corpus, List.of(corpus.corpus())).score(guess);
+            result = differ("MultiBoardScorer worst case", largest, board.worstCase(),
+                            "MultiBoardScorer expected remaining (x1e6)", Math.round(1e6 * squares / corpus.size()),
+                            Math.round(board.expectedRemaining() * 1_000_000));
+        }
+        if (result == null) {
+            // Removing keys updates the buckets in place; they must match buckets recounted from scratch.
+            List<NGram> gone = corpus.stream().filter(k -> k.hashCode() % 2 == 0).collect(Collectors.toList());
+            state.removeAll(gone);
+            Set<NGram> left = new TreeSet<>(corpus.corpus());
+            left.removeAll(gone);
+            Map<Integer, Long> after = buckets(left, guess);
+            result = differ("IncrementalScorer.scoreWorstCase after removals",
+                            after.values().stream().mapToLong(Long::longValue).max().orElse(0),
+                            state.scoreWorstCase(guess),
+                            "IncrementalScorer.scoreAverageCase after removals",
+                            after.values().stream().mapToLong(size -> size * size).sum(),
+                            state.scoreAverageCase(guess));
+        }
+        return result;
+    }
+
+    // =========================================================
+    // Tests
+    // =========================================================
+
+    @Test
+    public void testFeedbackCodes() {
+        check("Feedback code", MatcherDifferentialTest::codes, Feedback.MAX_LENGTH, 1);
+    }
+
+    @Test
+    public void testAcceptReject() {
+        check("Filter", MatcherDifferentialTest::filters, LONGEST, 2);
+    }
+
+    @Test
+    public void testCounts() {
+        check("Count", MatcherDifferentialTest::counts, LONGEST, 3);
+    }
+
+    @Test
+    public void testScores() {
+        check("Score", MatcherDifferentialTest::scores, LONGEST, 4);
+    }
+
+    /**
+     * Every key and guess of up to four letters from {a, b} and up to three
+     * from {a, b, c}, with every word as a candidate.
+     */
+    @Test
+    public void testExhaustiveSmallAlphabets() {
+        for (String alphabet : new String[] {"ab", "abc"}) {
+            for (int n = 1; n <= 6 - alphabet.length(); n++) {
+                List<String> all = allWords(alphabet, n);
+                for (String key : all) {
+                    for (String guess : all) {
+                        Case c = new Case(key, guess, all);
+                        for (Property property : List.<Property>of(MatcherDifferentialTest::codes,
+                                                                   MatcherDifferentialTest::filters)) {
+                            if (failure(property, c) != null) {
+                                Case minimal = shrink(property, c);
+                                fail(minimal + ": " + failure(property, minimal));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A matcher that forgets that each key letter is used once shrinks to the
+     * smallest case that shows it: a repeated guess letter in two positions.
+     */
+    @Test
+    public void testShrinksToMinimalCase() {
+        Property naive = c -> {
+            NGram key = NGram.from(c.key());
+            NGram guess = NGram.from(c.guess());
+            int[] states = new int[c.length()];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = key.charAt(i) == guess.charAt(i) ? Feedback.EXACT
+                          : key.contains(guess.charAt(i)) ? Feedback.MISPLACED : Feedback.ABSENT;
+            }
+            return differ("naive", Feedback.pack(referenceStates(key, guess)), Feedback.pack(states));
+        };
+        Case failing = new Case("abracadabra", "aaaaaaabbbb", List.of("cadabraabra", "abracadabrc"));
+        assertNotNull(failure(naive, failing));
+        Case minimal = shrink(naive, failing);
+        assertNotNull(failure(naive, minimal));
+        assertEquals(minimal.toString(), 2, minimal.length());
+        assertTrue(minimal.toString(), minimal.candidates().isEmpty());
+        assertEquals(minimal.toString(), minimal.guess().charAt(0), minimal.guess().charAt(1));
+    }
+
+    // =========================================================
+    // Running, generating and shrinking cases
+    // =========================================================
+
+    private static void check(String name, Property property, int maxLength, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < CASES; i++) {
+            Case c = generate(random, maxLength);
+            if (failure(property, c) != null) {
+                Case minimal = shrink(property, c);
+                fail(name + " differs from the reference on " + minimal + ": " + failure(property, minimal)
+                     + " (shrunk from " + c + ")");
+            }
+        }
+    }
+
+    /**
+     * Runs the property, counting an exception as a failure.
+     */
+    private static String failure(Property property, Case c) {
+        try {
+            return property.check(c);
+        } catch (RuntimeException e) {
+            return e.toString();
+        }
+    }
+
+    private static Case generate(Random random, int maxLength) {
+        String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+        int n = 1 + random.nextInt(random.nextBoolean() ? Math.min(6, maxLength) : maxLength);
+        // A couple of favourite letters make up most of every word, so repeats abound.
+        String favourites = "" + pick(random, alphabet) + pick(random, alphabet);
+        String key = word(random, alphabet, favourites, n);
+        String guess;
+        switch (random.nextInt(4)) {
+            case 0:
+                guess = key;
+                break;
+            case 1:
+                guess = shuffle(random, key);
+                break;
+            case 2:
+                guess = mutate(random, key, alphabet);
+                break;
+            default:
+                guess = word(random, alphabet, favourites, n);
+        }
+        List<String> candidates = new ArrayList<>();
+        for (int i = random.nextInt(7); i > 0; i--) {
+            String base = random.nextBoolean() ? key : guess;
+            switch (random.nextInt(3)) {
+                case 0:
+                    candidates.add(shuffle(random, base));
+                    break;
+                case 1:
+                    candidates.add(mutate(random, base, alphabet));
+                    break;
+                default:
+                    candidates.add(word(random, alphabet, favourites, n));
+            }
+        }
+        return new Case(key, guess, candidates);
+    }
+
+    private static String word(Random random, String alphabet, String favourites, int n) {
+        StringBuilder word = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            word.append(pick(random, random.nextInt(10) < 6 ? favourites : alphabet));
+        }
+        return word.toString();
+    }
+
+    private static String shuffle(Random random, String word) {
+        char[] chars = word.toCharArray();
+        for (int i = chars.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char t = chars[i];
+            chars[i] = chars[j];
+            chars[j] = t;
+        }
+        return new String(chars);
+    }
+
+    private static String mutate(Random random, String word, String alphabet) {
+        char[] chars = word.toCharArray();
+        chars[random.nextInt(chars.length)] = pick(random, alphabet);
+        return new String(chars);
+    }
+
+    private static char pick(Random random, String letters) {
+        return letters.charAt(random.nextInt(letters.length()));
+    }
+
+    /**
+     * Applies the first smaller case that still fails until none does.
+     */
+    private static Case shrink(Property property, Case failing) {
+        Case current = failing;
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Case smaller : reductions(current)) {
+                if (failure(property, smaller) != null) {
+                    current = smaller;
+                    progress = true;
+                    break;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the cases one step smaller than c: one candidate fewer, one
+     * position shorter, one letter merged into a lower one, or one occurrence
+     * of a letter lowered to the lowest letter.
+     */
+    private static List<Case> reductions(Case c) {
+        List<Case> result = new ArrayList<>();
+        for (int i = 0; i < c.candidates().size(); i++) {
+            List<String> fewer = new ArrayList<>(c.candidates());
+            fewer.remove(i);
+            result.add(new Case(c.key(), c.guess(), fewer));
+        }
+        for (int i = 0; c.length() > 1 && i < c.length(); i++) {
+            int at = i;
+            result.add(c.map(word -> word.substring(0, at) + word.substring(at + 1)));
+        }
+        TreeSet<Character> letters = new TreeSet<>();
+        c.words().forEach(word -> word.chars().forEach(ch -> letters.add((char) ch)));
+        for (char high : letters) {
+            for (char low : letters.headSet(high)) {
+                result.add(c.map(word -> word.replace(high, low)));
+            }
+        }
+        char lowest = letters.first();
+        List<String> words = new ArrayList<>();
+        words.add(c.key());
+        words.add(c.guess());
+        words.addAll(c.candidates());
+        for (int w = 0; w < words.size(); w++) {
+            for (int i = 0; i < c.length(); i++) {
+                if (words.get(w).charAt(i) != lowest) {
+                    List<String> lowered = new ArrayList<>(words);
+                    char[] chars = lowered.get(w).toCharArray();
+                    chars[i] = lowest;
+                    lowered.set(w, new String(chars));
+                    result.add(new Case(lowered.get(0), lowered.get(1), lowered.subList(2, lowered.size())));
+                }
+            }
+        }
+        return result;
+    }
+
+    // =========================================================
+    // Reference helpers
+    // =========================================================
+
+    /**
+     * Per-position feedback from the exact and misplaced passes of MatchleExtensionApp.
+     */
+    private static int[] referenceStates(NGram key, NGram guess) {
+        boolean[] exact = MatchleExtensionApp.computeExactMatches(key, guess);
+        boolean[] misplaced = MatchleExtensionApp.computeMisplacedMatches(key, guess, exact);
+        int[] states = new int[key.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = exact[i] ? Feedback.EXACT : misplaced[i] ? Feedback.MISPLACED : Feedback.ABSENT;
+        }
+        return states;
+    }
+
+    private static long referenceCount(Corpus corpus, NGram key, NGram guess) {
+        Filter reference = NGramMatcher.of(key, guess).match();
+        return corpus.stream().filter(reference::test).count();
+    }
+
+    private static Map<Integer, Long> buckets(Iterable<NGram> keys, NGram guess) {
+        Map<Integer, Long> sizes = new HashMap<>();
+        for (NGram key : keys) {
+            sizes.merge(Feedback.pack(referenceStates(key, guess)), 1L, Long::sum);
+        }
+        return sizes;
+    }
+
+    /**
+     * Returns the corpus of the case's words. The last corpus and its matrix
+     * are kept, since the exhaustive cases all share one.
+     */
+    private static synchronized Corpus corpusOf(Case c) {
+        Set<String> words = new TreeSet<>(c.words());
+        if (!words.equals(lastWords)) {
+            lastCorpus = Corpus.Builder.create()
+                                       .addAll(words.stream().map(NGram::from).collect(Collectors.toList()))
+                                       .build();
+            lastMatrix = null;
+            lastWords = words;
+        }
+        return lastCorpus;
+    }
+
+    private static synchronized FeedbackMatrix matrixOf(Corpus corpus) {
+        if (corpus != lastCorpus) {
+            return FeedbackMatrix.compute(corpus);
+        }
+        if (lastMatrix == null) {
+            lastMatrix = FeedbackMatrix.compute(corpus);
+        }
+        return lastMatrix;
+    }
+
+    /**
+     * Takes (name, expected, actual) triples and describes the first mismatch, or returns null.
+     */
+    private static String differ(Object... checks) {
+        for (int i = 0; i < checks.length; i += 3) {
+            long expected = ((Number) checks[i + 1]).longValue();
+            long actual = ((Number) checks[i + 2]).longValue();
+            if (actual != expected) {
+                return checks[i] + " gives " + actual + ", reference " + expected;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> allWords(String alphabet, int n) {
+        List<String> words = new ArrayList<>(List.of(""));
+        for (int i = 0; i < n; i++) {
+            List<String> longer = new ArrayList<>();
+            for (String word : words) {
+                for (char c : alphabet.toCharArray()) {
+                    longer.add(word + c);
+                }
+            }
+            words = longer;
+        }
+        return words;
+    }
+
+    private static String wideAlphabet(int size) {
+        char[] letters = new char[size];
+        for (int i = 0; i < size; i++) {
+            letters[i] = (char) (0x0100 + i);
+        }
+        return new String(letters);
+    }
+
+    private static String quote(String word) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char ch : word.toCharArray()) {
+            quoted.append(ch >= 0x20 && ch < 0x7f ? String.valueOf(ch) : String.format("\\u%04x", (int) ch));
+        }
+        return quoted.append('"').toString();
+    }
+}
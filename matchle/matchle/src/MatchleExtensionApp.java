@@ -1,7 +1,14 @@
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -18,6 +25,12 @@ import java.util.stream.Collectors;
  *      from the remaining candidate words.
  *  - The game ends when the key is guessed or maximum rounds are reached.
  *
+ * Run with the argument "adversarial" to play against a host that never
+ * commits to a key and always keeps the largest set of consistent keys, or
+ * with "batch" to evaluate records of keys and guesses without a game (see
+ * {@link #runBatch(List, String[])}), or with "assist [strategy]" to get
+ * suggestions for a game played elsewhere by typing in its feedback.
+ *
  * All helper methods have been refactored so that no single method has cyclomatic complexity greater than 4.
  */
 public class MatchleExtensionApp {
@@ -28,9 +41,22 @@ public class MatchleExtensionApp {
             System.err.println("No words loaded from file.");
             return;
         }
+        if (args.length > 0 && args[0].equals("batch")) {
+            runBatch(words, args);
+            return;
+        }
         int n = 5; // fixed word length
         Corpus corpus = buildCorpus(words, n, 100);
         System.out.println("Corpus built with " + corpus.size() + " n-grams.");
+        if (args.length > 0 && args[0].equals("adversarial")) {
+            runAdversarialGame(corpus, n, 10);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("assist")) {
+            String strategy = args.length > 1 ? args[1] : "worst";
+            runAssistant(corpus, GameSimulator.Strategy.fromLabel(strategy), 10);
+            return;
+        }
 
         MatchleScorer scorer = new MatchleScorer(corpus);
         NGram key = chooseRandomKey(corpus);
@@ -72,7 +98,8 @@ public class MatchleExtensionApp {
     }
     
     /**
-     * Builds a Corpus from random words of length n.
+     * Builds a Corpus from random words of length n, each weighted by the
+     * number of times it occurs in the sample.
      */
     public static Corpus buildCorpus(List<String> words, int n, int sampleSize) {
         List<String> filtered = words.stream()
@@ -87,22 +114,42 @@ public class MatchleExtensionApp {
             NGram ng = NGram.from(word);
             freqMap.put(ng, freqMap.getOrDefault(ng, 0) + 1);
         }
-        Corpus.Builder builder = Corpus.Builder.EMPTY;
-        for (NGram ng : freqMap.keySet()) {
-            builder.add(ng);
-        }
-        return builder.build();
+        return Corpus.Builder.create().addAll(freqMap.keySet()).build().withWeights(freqMap::get);
     }
     
+    /**
+     * Runs batch mode, "batch [file|-] [strategy|none] [threads]": reads key and
+     * guess records from the file or stdin and writes compact results to stdout.
+     * Suggestions come from every five-letter word. See BatchRunner for the format.
+     */
+    public static void runBatch(List<String> words, String[] args) {
+        String source = args.length > 1 ? args[1] : "-";
+        String strategy = args.length > 2 ? args[2] : "worst";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        BatchRunner runner = strategy.equals("none")
+                ? new BatchRunner(threads)
+                : new BatchRunner(new Suggester(buildCorpus(words, 5, words.size())),
+                                  GameSimulator.Strategy.fromLabel(strategy), threads);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try (Reader in = source.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            runner.run(in, out);
+        } catch (IOException e) {
+            throw new RuntimeException("Error running batch from " + source, e);
+        }
+    }
+
     /**
      * Runs the game loop for a maximum of maxRounds.
      */
     public static void runGame(Corpus corpus, MatchleScorer scorer, NGram key,
                                int n, int maxRounds, char[] correctPositions) {
         Scanner scanner = new Scanner(System.in);
+        IncrementalScorer state = new IncrementalScorer(corpus, IncrementalScorer.Scores.FILTER_COUNTS);
         int round = 1;
         while (round <= maxRounds) {
-            boolean correct = processRound(round, corpus, scorer, key, n, scanner, correctPositions);
+            boolean correct = processRound(round, corpus, scorer, state, key, n, scanner, correctPositions);
             if (correct) {
                 break;
             }
@@ -114,12 +161,148 @@ public class MatchleExtensionApp {
         scanner.close();
     }
     
+    /**
+     * Runs an adversarial game loop for a maximum of maxRounds.
+     */
+    public static void runAdversarialGame(Corpus corpus, int n, int maxRounds) {
+        Scanner scanner = new Scanner(System.in);
+        AdversarialGame game = new AdversarialGame(corpus);
+        System.out.println("The host has not chosen a key and will dodge your guesses.");
+        int round = 1;
+        while (round <= maxRounds && !processAdversarialRound(round, game, n, scanner)) {
+            round++;
+        }
+        if (round > maxRounds) {
+            System.out.println("Game over! " + game.remaining() + " keys were still possible.");
+        }
+        scanner.close();
+    }
+
+    /**
+     * Suggests guesses for a game played elsewhere: the user types each guess
+     * played and the feedback it got. While the feedback is being typed, the
+     * next suggestion is worked out for the likeliest outcomes in the background.
+     */
+    public static void runAssistant(Corpus corpus, GameSimulator.Strategy strategy, int maxRounds) {
+        Scanner scanner = new Scanner(System.in);
+        try (SpeculativeSuggester suggester = new SpeculativeSuggester(
+                corpus, strategy, SpeculativeSuggester.DEFAULT_MAX_BRANCHES, 0.5)) {
+            NGram suggestion = suggester.suggest();
+            int round = 1;
+            while (round <= maxRounds && suggestion != null) {
+                suggestion = processAssistRound(round, suggester, suggestion, scanner);
+                round++;
+            }
+            System.out.println(suggester.hits() + " of " + (suggester.hits() + suggester.misses())
+                               + " suggestions were ready before the feedback.");
+        }
+        scanner.close();
+    }
+
+    /**
+     * Processes one round of the assistant and returns the next suggestion,
+     * or null once the game is over.
+     */
+    public static NGram processAssistRound(int round, SpeculativeSuggester suggester,
+                                           NGram suggestion, Scanner scanner) {
+        System.out.println("---------- Round " + round + " ----------");
+        System.out.println("Suggested guess: " + ngramToString(suggestion) + " ("
+                           + suggester.candidates().size() + " keys possible)");
+        NGram guess = readPlayedGuess(suggestion, scanner);
+        suggester.guessed(guess);
+        NGram next = suggester.feedback(readFeedback(guess, scanner));
+        if (next == null || next.equals(guess)) {
+            System.out.println(next == null ? "No word in the corpus fits that feedback." : "Solved!");
+            return null;
+        }
+        return next;
+    }
+
+    /**
+     * Reads the guess played until it has the suggestion's length, and
+     * returns it; a blank line stands for the suggestion.
+     */
+    public static NGram readPlayedGuess(NGram suggestion, Scanner scanner) {
+        while (true) {
+            System.out.println("Enter the guess you played (blank for the suggestion):");
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                return suggestion;
+            }
+            if (input.length() == suggestion.size()) {
+                return NGram.from(input);
+            }
+            System.out.println("Invalid guess: " + input + " is not " + suggestion.size() + " letters long.");
+        }
+    }
+
+    /**
+     * Reads feedback digits for the guess until they parse, and returns their code.
+     */
+    public static int readFeedback(NGram guess, Scanner scanner) {
+        while (true) {
+            System.out.println("Enter its feedback, one digit per letter (0 absent, 1 misplaced, 2 exact):");
+            String feedback = scanner.nextLine().trim();
+            try {
+                return Suggester.parseHistory(ngramToString(guess) + "." + feedback).get(0).code();
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid feedback: " + feedback);
+            }
+        }
+    }
+
+    /**
+     * Processes one round of an adversarial game.
+     * Returns true once the host has no choice but to accept the guess.
+     */
+    public static boolean processAdversarialRound(int round, AdversarialGame game, int n, Scanner scanner) {
+        System.out.println("---------- Round " + round + " ----------");
+        System.out.println("Enter your guess word of length " + n + ":");
+        String input = scanner.nextLine().trim();
+        NGram guess;
+        if (input.length() != n) {
+            System.out.println("Invalid input. Using a remaining candidate.");
+            guess = game.candidates().get(0);
+        } else {
+            guess = NGram.from(input);
+        }
+        NGram key = game.guess(guess);
+        System.out.println("Feedback: " + getFeedbackMessage(key, guess));
+        if (game.isSolved()) {
+            System.out.println("Congratulations! You cornered the host: " + ngramToString(key));
+            return true;
+        }
+        System.out.println(game.remaining() + " keys are still possible.");
+        return false;
+    }
+
     /**
      * Processes one round of the game.
      * Returns true if the correct guess was made.
      */
-    public static boolean processRound(int round, Corpus corpus, MatchleScorer scorer, 
+    public static boolean processRound(int round, Corpus corpus, MatchleScorer scorer,
                                         NGram key, int n, Scanner scanner, char[] correctPositions) {
+        return processRound(round, corpus, scorer, key, n, scanner, correctPositions,
+                            () -> getBestGuessesUtility(corpus, scorer, correctPositions));
+    }
+
+    /**
+     * Processes one round of the game, as {@link #processRound(int, Corpus,
+     * MatchleScorer, NGram, int, Scanner, char[])} does, carrying the
+     * best-guess scores over from the previous round in state.
+     * Returns true if the correct guess was made.
+     *
+     * @throws IllegalArgumentException if state does not keep filter counts.
+     */
+    public static boolean processRound(int round, Corpus corpus, MatchleScorer scorer, IncrementalScorer state,
+                                        NGram key, int n, Scanner scanner, char[] correctPositions) {
+        return processRound(round, corpus, scorer, key, n, scanner, correctPositions,
+                            () -> getBestGuessesUtility(state, corpus, correctPositions));
+    }
+
+    private static boolean processRound(int round, Corpus corpus, MatchleScorer scorer, NGram key, int n,
+                                        Scanner scanner, char[] correctPositions,
+                                        Supplier<Map<String, NGram>> bestGuesses) {
         System.out.println("---------- Round " + round + " ----------");
         System.out.println("Enter your guess word of length " + n + ":");
         String input = scanner.nextLine().trim();
@@ -142,7 +325,7 @@ public class MatchleExtensionApp {
                 candidates.stream().map(MatchleExtensionApp::ngramToString)
                           .collect(Collectors.joining(", ")));
             // Utility: show best guesses by worst-case and average-case.
-            Map<String, NGram> best = getBestGuessesUtility(corpus, scorer, correctPositions);
+            Map<String, NGram> best = bestGuesses.get();
             if (!best.isEmpty()) {
                 System.out.println("Best worst-case guess: " + ngramToString(best.get("Worst-case")));
                 System.out.println("Best average-case guess: " + ngramToString(best.get("Average-case")));
@@ -313,14 +496,7 @@ public class MatchleExtensionApp {
      * (both worst-case and average-case) from candidates matching known correct positions.
      */
     public static Map<String, NGram> getBestGuessesUtility(Corpus corpus, MatchleScorer scorer, char[] correctPositions) {
-        List<NGram> filtered = corpus.stream()
-            .filter(ng -> matchesCorrectPositions(ng, correctPositions))
-            .collect(Collectors.toList());
-        Corpus.Builder builder = Corpus.Builder.EMPTY;
-        for (NGram ng : filtered) {
-            builder.add(ng);
-        }
-        Corpus filteredCorpus = builder.build();
+        Corpus filteredCorpus = corpus.filter(Filter.from(ng -> matchesCorrectPositions(ng, correctPositions)));
         Map<String, NGram> bestGuesses = new HashMap<>();
         if (filteredCorpus.size() > 0) {
             MatchleScorer filteredScorer = new MatchleScorer(filteredCorpus);
@@ -329,4 +505,26 @@ public class MatchleExtensionApp {
         }
         return bestGuesses;
     }
+
+    /**
+     * Returns the same suggestions as {@link #getBestGuessesUtility(Corpus,
+     * MatchleScorer, char[])}, from a state over corpus kept across rounds.
+     * Keys that no longer match the known correct positions are dropped from
+     * the state, so the filter counts are updated instead of rescored.
+     *
+     * @throws IllegalArgumentException if state does not keep filter counts.
+     */
+    public static Map<String, NGram> getBestGuessesUtility(IncrementalScorer state, Corpus corpus,
+                                                           char[] correctPositions) {
+        if (state.scores() != IncrementalScorer.Scores.FILTER_COUNTS) {
+            throw new IllegalArgumentException("State must keep filter counts.");
+        }
+        state.retainAll(corpus.filter(Filter.from(ng -> matchesCorrectPositions(ng, correctPositions))));
+        Map<String, NGram> bestGuesses = new HashMap<>();
+        if (state.remaining() > 0) {
+            bestGuesses.put("Worst-case", state.bestWorstCaseGuess());
+            bestGuesses.put("Average-case", state.bestAverageCaseGuess());
+        }
+        return bestGuesses;
+    }
 }
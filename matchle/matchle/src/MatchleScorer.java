@@ -1,22 +1,115 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
 import java.util.function.ToLongFunction;
 
 public class MatchleScorer {
+
+    /**
+     * Scheduling priority of an asynchronous scoring call. Queued interactive
+     * calls always start before queued background calls.
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    /**
+     * How guesses are ranked by {@link #bestWeightedGuess(WeightedCriterion)}.
+     */
+    public enum WeightedCriterion {
+        /** Least expected weight of the keys left after the feedback. */
+        EXPECTED_REMAINING(Comparator.comparingDouble(WeightedScore::expectedRemaining)
+                                     .thenComparing(Comparator.comparingDouble(WeightedScore::entropy).reversed())),
+        /** Highest entropy of the weighted feedback distribution. */
+        ENTROPY(Comparator.comparingDouble(WeightedScore::entropy).reversed()
+                          .thenComparingDouble(WeightedScore::expectedRemaining)),
+        /** Least weight in the heaviest feedback bucket. */
+        WORST_CASE(Comparator.comparingDouble(WeightedScore::worstCase)
+                             .thenComparingDouble(WeightedScore::expectedRemaining));
+
+        private final Comparator<WeightedScore> order;
+
+        WeightedCriterion(Comparator<WeightedScore> order) {
+            this.order = order;
+        }
+    }
+
+    /**
+     * The feedback distribution of one guess with every key weighted by its
+     * corpus weight (see {@link Corpus#weight(int)}). With an unweighted
+     * corpus, the weights are key counts.
+     *
+     * @param worstCase         weight of the heaviest feedback bucket
+     * @param expectedRemaining expected weight of the bucket the key falls in:
+     *                          the sum of squared bucket weights over the total
+     * @param entropy           Shannon entropy, in bits, of the bucket weights
+     *                          as probabilities
+     */
+    public static record WeightedScore(NGram guess, double worstCase, double expectedRemaining, double entropy) {
+    }
+
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+    private static final int MAX_DENSE_PATTERNS = 1 << 16;
+    private static final double LOG_2 = Math.log(2);
+
     private final Corpus corpus;
+    private final ScoringExecutor executor;
+    private final FeedbackMatrix matrix;  // Optional precomputed feedback codes
+    private final ThreadLocal<double[]> histograms;  // Weighted histograms, allocated on first use
 
     public MatchleScorer(Corpus corpus) {
+        this(corpus, ScoringExecutor.SHARED, null);
+    }
+
+    /**
+     * Creates a scorer that reads feedback codes from a precomputed matrix
+     * instead of running the matcher for every guess/key pair.
+     *
+     * @throws IllegalArgumentException if the matrix was built for another corpus.
+     */
+    MatchleScorer(Corpus corpus, FeedbackMatrix matrix) {
+        this(corpus, ScoringExecutor.SHARED, Objects.requireNonNull(matrix, "Matrix must not be null"));
+    }
+
+    // Package-private so tests can supply a pool of a known size.
+    MatchleScorer(Corpus corpus, ScoringExecutor executor) {
+        this(corpus, executor, null);
+    }
+
+    private MatchleScorer(Corpus corpus, ScoringExecutor executor, FeedbackMatrix matrix) {
         // Defensive check: ensure corpus is not null and not empty.
         this.corpus = Objects.requireNonNull(corpus, "Corpus must not be null");
         if (this.corpus.size() == 0) {
             throw new IllegalArgumentException("Corpus must not be empty");
         }
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+        if (matrix != null && !matrix.matches(corpus)) {
+            throw new IllegalArgumentException("Feedback matrix was built for a different corpus");
+        }
+        this.matrix = matrix;
+        int n = corpus.wordSize();
+        int patterns = n <= Feedback.MAX_LENGTH ? Feedback.patterns(n) : 0;
+        this.histograms = ThreadLocal.withInitial(() -> new double[patterns <= MAX_DENSE_PATTERNS ? patterns : 0]);
     }
 
     /**
-     * Computes the score for a given key/guess pair using a parallel stream.
-     * The score is defined as the count of NGrams in the corpus that are consistent
-     * with the feedback filter generated by comparing the key and guess.
+     * Computes the score for a given key/guess pair, on the corpus' DAWG for
+     * a full corpus (see {@link Corpus#size(Filter)}) and using a parallel
+     * stream for a view. The score is defined as the count of NGrams in the
+     * corpus that are consistent with the feedback filter generated by
+     * comparing the key and guess.
      *
      * @param key   the target NGram
      * @param guess the guessed NGram
@@ -28,9 +121,13 @@ public class MatchleScorer {
         Objects.requireNonNull(guess, "Guess cannot be null");
         // Generate the feedback Filter from comparing key and guess.
         Filter feedback = NGramMatcher.of(key, guess).match();
-        // Count in parallel how many NGrams in the corpus match the filter.
+        if (!corpus.isView()) {
+            return corpus.size(feedback);
+        }
+        // Count in parallel how many NGrams in the view match the filter.
+        Filter compiled = FilterCompiler.compile(feedback);
         return corpus.corpus().parallelStream()
-                     .filter(feedback::test)
+                     .filter(compiled::test)
                      .count();
     }
 
@@ -44,10 +141,7 @@ public class MatchleScorer {
      */
     public long scoreWorstCase(NGram guess) {
         Objects.requireNonNull(guess, "Guess cannot be null");
-        return corpus.corpus().parallelStream()
-                     .mapToLong(key -> score(key, guess))
-                     .max()
-                     .orElseThrow(() -> new IllegalStateException("Unexpected: corpus is non-empty"));
+        return worstCase(guess, NEVER_CANCELLED);
     }
 
     /**
@@ -60,9 +154,7 @@ public class MatchleScorer {
      */
     public long scoreAverageCase(NGram guess) {
         Objects.requireNonNull(guess, "Guess cannot be null");
-        return corpus.corpus().parallelStream()
-                     .mapToLong(key -> score(key, guess))
-                     .sum();
+        return averageCase(guess, NEVER_CANCELLED);
     }
 
     /**
@@ -74,18 +166,76 @@ public class MatchleScorer {
      */
     public NGram bestGuess(ToLongFunction<NGram> criterion) {
         Objects.requireNonNull(criterion, "Criterion cannot be null");
-        return corpus.corpus().parallelStream()
+        return corpus.stream().parallel()
                      .min(Comparator.comparingLong(criterion))
                      .orElse(null);
     }
 
+    /**
+     * Computes the Shannon entropy, in bits, of the feedback a guess produces
+     * over all keys in the corpus. Higher values split the corpus more evenly.
+     *
+     * @param guess the guessed NGram
+     * @return the entropy of the feedback distribution
+     * @throws NullPointerException if guess is null
+     */
+    public double scoreEntropy(NGram guess) {
+        Objects.requireNonNull(guess, "Guess cannot be null");
+        if (guess.size() != corpus.wordSize()) {
+            return 0;  // Every key gives the same (FALSE) feedback
+        }
+        double total = corpus.size();
+        double entropy = 0;
+        for (double count : bucketWeights(guess, null)) {
+            double p = count / total;
+            entropy -= p * Math.log(p) / LOG_2;
+        }
+        return entropy;
+    }
+
+    /**
+     * Returns the best guess according to entropy scoring.
+     *
+     * @return the best NGram guess maximizing the feedback entropy
+     */
+    public NGram bestEntropyGuess() {
+        return bestEntropyGuess(corpus.corpus());
+    }
+
+    /**
+     * Returns the guess from the given pool with the highest feedback entropy
+     * over the corpus; ties go to the guess that comes first in the pool.
+     *
+     * @param guesses the guesses to choose from, such as a whole dictionary
+     *                while the corpus holds the remaining keys
+     * @return the best guess, or null if the pool is empty
+     * @throws NullPointerException if guesses or any guess is null
+     * @throws IllegalArgumentException if a guess does not have the corpus' word size
+     */
+    public NGram bestEntropyGuess(Collection<NGram> guesses) {
+        return bestAmong(guesses, Comparator.comparingDouble(this::scoreEntropy).reversed());
+    }
+
     /**
      * Returns the best guess according to worst-case scoring.
      *
      * @return the best NGram guess minimizing the worst-case score
      */
     public NGram bestWorstCaseGuess() {
-        return bestGuess(this::scoreWorstCase);
+        return bestWorstCaseGuess(corpus.corpus());
+    }
+
+    /**
+     * Returns the guess from the given pool minimizing the worst-case score;
+     * ties go to the guess that comes first in the pool.
+     *
+     * @param guesses the guesses to choose from
+     * @return the best guess, or null if the pool is empty
+     * @throws NullPointerException if guesses or any guess is null
+     * @throws IllegalArgumentException if a guess does not have the corpus' word size
+     */
+    public NGram bestWorstCaseGuess(Collection<NGram> guesses) {
+        return bestAmong(guesses, Comparator.comparingLong(this::scoreWorstCase));
     }
 
     /**
@@ -94,6 +244,430 @@ public class MatchleScorer {
      * @return the best NGram guess minimizing the average-case score
      */
     public NGram bestAverageCaseGuess() {
-        return bestGuess(this::scoreAverageCase);
+        return bestAverageCaseGuess(corpus.corpus());
+    }
+
+    /**
+     * Returns the guess from the given pool minimizing the average-case score;
+     * ties go to the guess that comes first in the pool.
+     *
+     * @param guesses the guesses to choose from
+     * @return the best guess, or null if the pool is empty
+     * @throws NullPointerException if guesses or any guess is null
+     * @throws IllegalArgumentException if a guess does not have the corpus' word size
+     */
+    public NGram bestAverageCaseGuess(Collection<NGram> guesses) {
+        return bestAmong(guesses, Comparator.comparingLong(this::scoreAverageCase));
+    }
+
+    /**
+     * Scores one representative of every class of interchangeable guesses
+     * (see {@link FeedbackClasses}) and returns the first best one. The first
+     * guess of a class represents it, so the result is the same as scoring
+     * the whole pool.
+     */
+    private NGram bestAmong(Collection<NGram> guesses, Comparator<NGram> order) {
+        return representatives(guesses).parallelStream()
+                                       .min(order)
+                                       .orElse(null);
+    }
+
+    private List<NGram> representatives(Collection<NGram> guesses) {
+        Objects.requireNonNull(guesses, "Guesses cannot be null");
+        List<NGram> pool = new ArrayList<>(guesses.size());
+        for (NGram guess : guesses) {
+            Objects.requireNonNull(guess, "Guess cannot be null");
+            if (guess.size() != corpus.wordSize()) {
+                throw new IllegalArgumentException("Guess " + guess + " does not have length " + corpus.wordSize());
+            }
+            pool.add(guess);
+        }
+        return FeedbackClasses.representatives(corpus, pool);
+    }
+
+    // =========================================================
+    // Weighted scoring
+    // =========================================================
+
+    /**
+     * Scores a guess against the weighted keys. The feedback code of every key
+     * is added to the histogram of bucket weights as it is computed, and the
+     * worst case, expected remaining weight and entropy are all read off the
+     * buckets the keys touched, so the keys are visited once.
+     *
+     * @param guess the guessed NGram
+     * @return the weighted worst case, expected remaining weight and entropy
+     * @throws NullPointerException if guess is null
+     * @throws IllegalArgumentException if the words are longer than feedback codes allow
+     */
+    public WeightedScore scoreWeighted(NGram guess) {
+        Objects.requireNonNull(guess, "Guess cannot be null");
+        int n = corpus.wordSize();
+        if (n > Feedback.MAX_LENGTH) {
+            throw new IllegalArgumentException("Words longer than " + Feedback.MAX_LENGTH + " are not supported.");
+        }
+        double[] weights = corpus.weights();
+        if (guess.size() != n) {
+            // Every key gives the same (FALSE) feedback
+            double total = corpus.totalWeight();
+            return new WeightedScore(guess, total, total, 0);
+        }
+        double[] bucketWeights = bucketWeights(guess, weights);
+        double total = 0;
+        double worst = 0;
+        double squares = 0;
+        for (double w : bucketWeights) {
+            total += w;
+            worst = Math.max(worst, w);
+            squares += w * w;
+        }
+        if (total == 0) {
+            return new WeightedScore(guess, 0, 0, 0);
+        }
+        double entropy = 0;
+        for (double w : bucketWeights) {
+            double p = w / total;
+            entropy -= p * Math.log(p) / LOG_2;
+        }
+        return new WeightedScore(guess, worst, squares / total, entropy);
+    }
+
+    /**
+     * Returns the weight of every non-empty feedback bucket of a guess that has
+     * the corpus' word size, in no particular order. Each key adds its weight,
+     * or 1 when weights is null, to the bucket of its code in this thread's
+     * dense histogram; only the buckets touched are read back and cleared.
+     */
+    private double[] bucketWeights(NGram guess, double[] weights) {
+        int n = corpus.wordSize();
+        EncodedWords encoded = corpus.encoded();
+        int[] letters = encoded.encode(guess);
+        int[] scratch = encoded.scratch();
+        int guessId = matrix == null ? -1 : corpus.indexOf(guess);
+        double[] dense = histograms.get();
+        Map<Integer, Double> sparse = dense.length < Feedback.patterns(n) ? new HashMap<>() : null;
+        int[] touched = new int[sparse == null ? Math.min(dense.length, corpus.size()) : 0];
+        int buckets = 0;
+        for (int k = 0; k < corpus.size(); k++) {
+            double w = weights == null ? 1 : weights[k];
+            if (w == 0) {
+                continue;  // Adds nothing to any bucket
+            }
+            int code = guessId >= 0 ? matrix.code(k, guessId) : encoded.code(k, letters, scratch);
+            if (sparse != null) {
+                sparse.merge(code, w, Double::sum);
+            } else {
+                if (dense[code] == 0) {
+                    touched[buckets++] = code;
+                }
+                dense[code] += w;
+            }
+        }
+        if (sparse != null) {
+            return sparse.values().stream().mapToDouble(Double::doubleValue).toArray();
+        }
+        double[] bucketWeights = new double[buckets];
+        for (int b = 0; b < buckets; b++) {
+            bucketWeights[b] = dense[touched[b]];
+            dense[touched[b]] = 0;
+        }
+        return bucketWeights;
+    }
+
+    /**
+     * Returns the best guess from the corpus under the given weighted criterion.
+     *
+     * @throws NullPointerException if criterion is null
+     */
+    public NGram bestWeightedGuess(WeightedCriterion criterion) {
+        return bestWeightedGuess(corpus.corpus(), criterion);
+    }
+
+    /**
+     * Returns the best guess from the given pool under the given weighted
+     * criterion; ties go to the guess that comes first in the pool.
+     *
+     * @param guesses   the guesses to choose from
+     * @param criterion how to rank the guesses
+     * @return the best guess, or null if the pool is empty
+     * @throws NullPointerException if guesses, any guess or criterion is null
+     * @throws IllegalArgumentException if a guess does not have the corpus' word size
+     */
+    public NGram bestWeightedGuess(Collection<NGram> guesses, WeightedCriterion criterion) {
+        Objects.requireNonNull(criterion, "Criterion cannot be null");
+        return representatives(guesses).parallelStream()
+                                       .map(this::scoreWeighted)
+                                       .min(criterion.order)
+                                       .map(WeightedScore::guess)
+                                       .orElse(null);
+    }
+
+    // =========================================================
+    // Asynchronous, cancellable variants
+    // =========================================================
+
+    /**
+     * Asynchronous version of {@link #scoreWorstCase(NGram)}. Cancelling the
+     * returned future stops the computation before its next pass
+     * over the corpus.
+     *
+     * @param guess    the guessed NGram
+     * @param priority the scheduling priority of this call
+     * @return a future completed with the worst-case score
+     * @throws NullPointerException if guess or priority is null
+     */
+    public CompletableFuture<Long> scoreWorstCaseAsync(NGram guess, Priority priority) {
+        Objects.requireNonNull(guess, "Guess cannot be null");
+        return submit(priority, cancelled -> worstCase(guess, cancelled));
+    }
+
+    /**
+     * Asynchronous version of {@link #scoreAverageCase(NGram)}. Cancelling the
+     * returned future stops the computation before its next pass
+     * over the corpus.
+     *
+     * @param guess    the guessed NGram
+     * @param priority the scheduling priority of this call
+     * @return a future completed with the average-case score
+     * @throws NullPointerException if guess or priority is null
+     */
+    public CompletableFuture<Long> scoreAverageCaseAsync(NGram guess, Priority priority) {
+        Objects.requireNonNull(guess, "Guess cannot be null");
+        return submit(priority, cancelled -> averageCase(guess, cancelled));
+    }
+
+    /**
+     * Asynchronous version of {@link #bestGuess(ToLongFunction)}. The corpus is
+     * split into chunks that are scored on separate workers; cancelling the
+     * returned future stops every chunk before its next guess. Ties are broken
+     * in favour of the guess that comes first in the corpus.
+     *
+     * @param criterion a ToLongFunction that defines the score for a guess
+     * @param priority  the scheduling priority of this call
+     * @return a future completed with the best guess
+     * @throws NullPointerException if criterion or priority is null
+     */
+    public CompletableFuture<NGram> bestGuessAsync(ToLongFunction<NGram> criterion, Priority priority) {
+        Objects.requireNonNull(criterion, "Criterion cannot be null");
+        return bestGuessAsync((guess, cancelled) -> criterion.applyAsLong(guess), priority);
+    }
+
+    /**
+     * Asynchronous version of {@link #bestWorstCaseGuess()}, cancellable inside
+     * the scoring of each guess as well as between guesses.
+     *
+     * @param priority the scheduling priority of this call
+     * @return a future completed with the best worst-case guess
+     * @throws NullPointerException if priority is null
+     */
+    public CompletableFuture<NGram> bestWorstCaseGuessAsync(Priority priority) {
+        return bestGuessAsync(this::worstCase, priority);
+    }
+
+    /**
+     * Asynchronous version of {@link #bestAverageCaseGuess()}, cancellable inside
+     * the scoring of each guess as well as between guesses.
+     *
+     * @param priority the scheduling priority of this call
+     * @return a future completed with the best average-case guess
+     * @throws NullPointerException if priority is null
+     */
+    public CompletableFuture<NGram> bestAverageCaseGuessAsync(Priority priority) {
+        return bestGuessAsync(this::averageCase, priority);
+    }
+
+    /**
+     * Asynchronous version of {@link #bestEntropyGuess()}, cancellable between guesses.
+     *
+     * @param priority the scheduling priority of this call
+     * @return a future completed with the guess of highest feedback entropy
+     * @throws NullPointerException if priority is null
+     */
+    public CompletableFuture<NGram> bestEntropyGuessAsync(Priority priority) {
+        // Entropies are never negative, so their bit patterns sort like their
+        // values; subtracting from MAX_VALUE makes the highest entropy the lowest score.
+        return bestGuessAsync((guess, cancelled) -> Long.MAX_VALUE - Double.doubleToLongBits(scoreEntropy(guess)),
+                              priority);
+    }
+
+    /**
+     * Runs the task on the executor, handing it a check that turns true as soon
+     * as the returned future is cancelled.
+     */
+    private <T> CompletableFuture<T> submit(Priority priority, Function<BooleanSupplier, T> task) {
+        Objects.requireNonNull(priority, "Priority cannot be null");
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(priority, () -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                result.complete(task.apply(result::isDone));
+            } catch (CancellationException e) {
+                // The caller abandoned the future; nothing left to report.
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<NGram> bestGuessAsync(ToLongBiFunction<NGram, BooleanSupplier> criterion,
+                                                    Priority priority) {
+        Objects.requireNonNull(priority, "Priority cannot be null");
+        List<NGram> guesses = new ArrayList<>(corpus.corpus().size());
+        corpus.forEach(guesses::add);
+        int chunks = Math.min(guesses.size(), executor.parallelism() * 4);
+        CompletableFuture<NGram> result = new CompletableFuture<>();
+        BestSoFar best = new BestSoFar();
+        AtomicInteger remaining = new AtomicInteger(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) guesses.size() * c / chunks);
+            int to = (int) ((long) guesses.size() * (c + 1) / chunks);
+            executor.execute(priority, () -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    for (int i = from; i < to; i++) {
+                        checkCancelled(result::isDone);
+                        best.offer(i, criterion.applyAsLong(guesses.get(i), result::isDone));
+                    }
+                } catch (CancellationException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete(guesses.get(best.index()));
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Sequential worst-case score that gives up once cancelled is true.
+     */
+    private long worstCase(NGram guess, BooleanSupplier cancelled) {
+        return Arrays.stream(keyScores(guess, cancelled)).max().orElse(0);
+    }
+
+    /**
+     * Sequential average-case score that gives up once cancelled is true.
+     */
+    private long averageCase(NGram guess, BooleanSupplier cancelled) {
+        return Arrays.stream(keyScores(guess, cancelled)).sum();
+    }
+
+    /**
+     * Returns score(key, guess) for every key, in id order. The feedback filter
+     * depends only on the guess and the feedback code, so keys that share a
+     * code share one count over the corpus.
+     */
+    private long[] keyScores(NGram guess, BooleanSupplier cancelled) {
+        long[] scores = new long[corpus.size()];
+        if (guess.size() != corpus.wordSize()) {
+            return scores;  // The matcher returns Filter.FALSE for every key
+        }
+        if (corpus.wordSize() > Feedback.MAX_LENGTH) {
+            for (int k = 0; k < scores.length; k++) {
+                checkCancelled(cancelled);
+                scores[k] = countConsistent(corpus.get(k), guess);
+            }
+            return scores;
+        }
+        EncodedWords encoded = corpus.encoded();
+        int[] letters = encoded.encode(guess);
+        int[] codes = codes(guess, letters);
+        Map<Integer, Long> counts = new HashMap<>();
+        for (int k = 0; k < scores.length; k++) {
+            Long count = counts.get(codes[k]);
+            if (count == null) {
+                checkCancelled(cancelled);
+                count = countAccepted(encoded, letters, Feedback.states(codes[k], letters.length));
+                counts.put(codes[k], count);
+            }
+            scores[k] = count;
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the feedback code of guess against every key, in id order.
+     */
+    private int[] codes(NGram guess, int[] letters) {
+        int[] codes = new int[corpus.size()];
+        int guessId = matrix == null ? -1 : corpus.indexOf(guess);
+        if (guessId >= 0) {
+            for (int k = 0; k < codes.length; k++) {
+                codes[k] = matrix.code(k, guessId);
+            }
+            return codes;
+        }
+        EncodedWords encoded = corpus.encoded();
+        int[] scratch = encoded.scratch();
+        for (int k = 0; k < codes.length; k++) {
+            codes[k] = encoded.code(k, letters, scratch);
+        }
+        return codes;
+    }
+
+    /**
+     * Counts the words accepted by the feedback filter for the given encoded
+     * guess and states, without building the Filter.
+     */
+    private static long countAccepted(EncodedWords encoded, int[] guess, int[] states) {
+        long count = 0;
+        for (int id = 0; id < encoded.size(); id++) {
+            if (encoded.accepts(id, guess, states)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sequential equivalent of {@link #score(NGram, NGram)} for use on a worker.
+     */
+    private long countConsistent(NGram key, NGram guess) {
+        Filter feedback = NGramMatcher.of(key, guess).match();
+        return corpus.isView() ? countAccepted(FilterCompiler.compile(feedback)) : corpus.size(feedback);
+    }
+
+    private long countAccepted(Filter feedback) {
+        long count = 0;
+        for (NGram ngram : corpus) {
+            if (feedback.test(ngram)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Scoring was cancelled.");
+        }
+    }
+
+    /**
+     * Lowest score seen so far across chunks; ties go to the lowest index.
+     */
+    private static final class BestSoFar {
+        private long score = Long.MAX_VALUE;
+        private int index = Integer.MAX_VALUE;
+
+        synchronized void offer(int candidate, long candidateScore) {
+            if (candidateScore < score || (candidateScore == score && candidate < index)) {
+                score = candidateScore;
+                index = candidate;
+            }
+        }
+
+        synchronized int index() {
+            return index;
+        }
     }
 }
@@ -1,7 +1,14 @@
 import static org.junit.Assert.*;
 import org.junit.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MatchleScorerTest {
 
@@ -12,7 +19,7 @@ public class MatchleScorerTest {
             NGram.from("cot"),
             NGram.from("cut")
         );
-        return Corpus.Builder.EMPTY.addAll(words).build();
+        return Corpus.Builder.create().addAll(words).build();
     }
 
     @Test
@@ -67,6 +74,76 @@ public class MatchleScorerTest {
         assertTrue("Average-case score should be non-negative", score >= 0);
     }
 
+    @Test
+    public void testScoreEntropy() {
+        Corpus corpus = createTestCorpus();
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        // "cot" splits the keys into {cot} and {cat, cut}.
+        double expected = -(1.0 / 3) * Math.log(1.0 / 3) / Math.log(2) - (2.0 / 3) * Math.log(2.0 / 3) / Math.log(2);
+        assertEquals(expected, scorer.scoreEntropy(NGram.from("cot")), 1e-9);
+        assertNotNull(scorer.bestEntropyGuess());
+    }
+
+    @Test
+    public void testScoreWeighted() {
+        Corpus corpus = createTestCorpus();
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        // Unweighted, "cot" splits the keys into buckets of 1 and 2.
+        NGram cot = NGram.from("cot");
+        MatchleScorer.WeightedScore plain = scorer.scoreWeighted(cot);
+        assertEquals(cot, plain.guess());
+        assertEquals(2, plain.worstCase(), 1e-12);
+        assertEquals(5.0 / 3, plain.expectedRemaining(), 1e-12);
+        assertEquals(scorer.scoreEntropy(cot), plain.entropy(), 1e-12);
+
+        // Weighting "cot" 6 makes its bucket hold 6 of a total weight of 8.
+        MatchleScorer weighted = new MatchleScorer(corpus.withWeights(ng -> ng.equals(cot) ? 6 : 1));
+        MatchleScorer.WeightedScore score = weighted.scoreWeighted(cot);
+        assertEquals(6, score.worstCase(), 1e-12);
+        assertEquals((36.0 + 4) / 8, score.expectedRemaining(), 1e-12);
+        double expected = -(0.75 * Math.log(0.75) + 0.25 * Math.log(0.25)) / Math.log(2);
+        assertEquals(expected, score.entropy(), 1e-12);
+        // Zero weights drop keys out of every bucket.
+        MatchleScorer.WeightedScore zero = new MatchleScorer(corpus.withWeights(ng -> ng.equals(cot) ? 0 : 1))
+                .scoreWeighted(cot);
+        assertEquals(2, zero.worstCase(), 1e-12);
+        assertEquals(0, zero.entropy(), 1e-12);
+        assertEquals(0, weighted.scoreWeighted(NGram.from("cats")).entropy(), 0);
+    }
+
+    @Test
+    public void testScoreWeightedWithMatrixAndViews() {
+        List<NGram> words = new ArrayList<>();
+        for (String w : new String[] {"bakes", "cakes", "fakes", "tears", "rates", "stare", "crane", "slate"}) {
+            words.add(NGram.from(w));
+        }
+        Corpus corpus = Corpus.Builder.create().addAll(words).build().withWeights(ng -> ng.charAt(0) % 7);
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        MatchleScorer fromMatrix = new MatchleScorer(corpus, FeedbackMatrix.compute(corpus));
+        Corpus view = corpus.filter(Filter.from(ng -> ng.charAt(4) == 's'));
+        MatchleScorer viewScorer = new MatchleScorer(view);
+        for (NGram guess : words) {
+            assertEquals(scorer.scoreWeighted(guess), fromMatrix.scoreWeighted(guess));
+            // Bucket by bucket, a view's score matches summing the weights by hand.
+            java.util.Map<Integer, Double> buckets = new java.util.HashMap<>();
+            for (int id = 0; id < view.size(); id++) {
+                buckets.merge(Feedback.code(view.get(id), guess), view.weight(id), Double::sum);
+            }
+            double worst = buckets.values().stream().mapToDouble(w -> w).max().orElse(0);
+            assertEquals(worst, viewScorer.scoreWeighted(guess).worstCase(), 1e-12);
+        }
+        MatchleScorer.WeightedScore best = scorer.scoreWeighted(
+                scorer.bestWeightedGuess(MatchleScorer.WeightedCriterion.ENTROPY));
+        for (NGram guess : words) {
+            assertTrue(scorer.scoreWeighted(guess).entropy() <= best.entropy() + 1e-12);
+        }
+        NGram worst = scorer.bestWeightedGuess(words, MatchleScorer.WeightedCriterion.WORST_CASE);
+        for (NGram guess : words) {
+            assertTrue(scorer.scoreWeighted(worst).worstCase() <= scorer.scoreWeighted(guess).worstCase());
+        }
+        assertNull(scorer.bestWeightedGuess(Collections.emptyList(), MatchleScorer.WeightedCriterion.EXPECTED_REMAINING));
+    }
+
     @Test(expected = NullPointerException.class)
     public void testScoreNullKey() {
         Corpus corpus = createTestCorpus();
@@ -82,4 +159,91 @@ public class MatchleScorerTest {
         NGram key = NGram.from("cat");
         scorer.score(key, null);
     }
+
+    @Test
+    public void testAsyncScoresMatchBlockingScores() {
+        Corpus corpus = createTestCorpus();
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        NGram guess = NGram.from("cot");
+        assertEquals(2L, (long) scorer.scoreWorstCaseAsync(guess, MatchleScorer.Priority.INTERACTIVE).join());
+        assertEquals(5L, (long) scorer.scoreAverageCaseAsync(guess, MatchleScorer.Priority.BACKGROUND).join());
+    }
+
+    @Test
+    public void testBestGuessAsyncMatchesBlockingScore() {
+        Corpus corpus = createTestCorpus();
+        MatchleScorer scorer = new MatchleScorer(corpus);
+        NGram worst = scorer.bestWorstCaseGuessAsync(MatchleScorer.Priority.INTERACTIVE).join();
+        NGram average = scorer.bestAverageCaseGuessAsync(MatchleScorer.Priority.INTERACTIVE).join();
+        assertEquals(scorer.scoreWorstCase(scorer.bestWorstCaseGuess()), scorer.scoreWorstCase(worst));
+        assertEquals(scorer.scoreAverageCase(scorer.bestAverageCaseGuess()), scorer.scoreAverageCase(average));
+        NGram entropy = scorer.bestEntropyGuessAsync(MatchleScorer.Priority.BACKGROUND).join();
+        assertEquals(scorer.scoreEntropy(scorer.bestEntropyGuess()), scorer.scoreEntropy(entropy), 0.0);
+    }
+
+    @Test
+    public void testCancelledBestGuessStopsScoring() throws Exception {
+        ScoringExecutor executor = new ScoringExecutor(1);
+        MatchleScorer scorer = new MatchleScorer(createTestCorpus(), executor);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<CompletableFuture<NGram>> future = new AtomicReference<>();
+        CountDownLatch submitted = new CountDownLatch(1);
+        future.set(scorer.bestGuessAsync(guess -> {
+            awaitQuietly(submitted);
+            calls.incrementAndGet();
+            future.get().cancel(true);
+            return 0L;
+        }, MatchleScorer.Priority.BACKGROUND));
+        submitted.countDown();
+
+        // The single worker runs queued tasks in order, so this one runs last.
+        CountDownLatch drained = new CountDownLatch(1);
+        executor.execute(MatchleScorer.Priority.BACKGROUND, drained::countDown);
+        drained.await();
+
+        assertTrue(future.get().isCancelled());
+        assertEquals("No guess should be scored after cancellation", 1, calls.get());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancelledScoreReportsCancellation() {
+        ScoringExecutor executor = new ScoringExecutor(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(MatchleScorer.Priority.INTERACTIVE, () -> awaitQuietly(release));
+        MatchleScorer scorer = new MatchleScorer(createTestCorpus(), executor);
+        CompletableFuture<Long> score = scorer.scoreWorstCaseAsync(NGram.from("cot"), MatchleScorer.Priority.BACKGROUND);
+        score.cancel(true);
+        release.countDown();
+        score.join();
+    }
+
+    @Test
+    public void testInteractiveRunsBeforeBackground() {
+        ScoringExecutor executor = new ScoringExecutor(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(MatchleScorer.Priority.INTERACTIVE, () -> awaitQuietly(release));
+        MatchleScorer scorer = new MatchleScorer(createTestCorpus(), executor);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        NGram guess = NGram.from("cot");
+        CompletableFuture<Void> background = scorer.scoreWorstCaseAsync(guess, MatchleScorer.Priority.BACKGROUND)
+                                                   .thenRun(() -> order.add("background"));
+        CompletableFuture<Void> interactive = scorer.scoreWorstCaseAsync(guess, MatchleScorer.Priority.INTERACTIVE)
+                                                    .thenRun(() -> order.add("interactive"));
+        release.countDown();
+        CompletableFuture.allOf(background, interactive).join();
+        assertEquals(Arrays.asList("interactive", "background"), order);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testAsyncNullPriority() {
+        new MatchleScorer(createTestCorpus()).scoreWorstCaseAsync(NGram.from("cot"), null);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
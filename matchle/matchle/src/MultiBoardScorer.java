@@ -0,0 +1,215 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Scores guesses for Quordle/Octordle-style play, where one guess is applied
+ * to several boards at once and each board has its own candidate keys.
+ *
+ * For each guess, the feedback against every word in the union of the boards'
+ * candidates is computed once, and added to the feedback histogram of every
+ * board holding that word. So a word shared by several boards is matched only
+ * once. Guesses are scored in parallel.
+ *
+ * Histograms count keys per feedback bucket, so the expected number of
+ * remaining keys on a board with candidates B is the sum of squared bucket
+ * sizes divided by |B|.
+ */
+public final class MultiBoardScorer {
+
+    /**
+     * Most boards supported; board membership is kept in one long per word.
+     */
+    public static final int MAX_BOARDS = 64;
+
+    private static final int MAX_DENSE_PATTERNS = 1 << 16;
+
+    /**
+     * How guesses are ranked.
+     */
+    public enum Criterion {
+        /** Fewest expected remaining keys summed over boards. */
+        EXPECTED_REMAINING(Comparator.comparingDouble(GuessScore::expectedRemaining)
+                                     .thenComparing(Comparator.comparingDouble(GuessScore::expectedSolved).reversed())),
+        /** Most boards expected to be solved by this guess. */
+        BOARDS_SOLVED(Comparator.comparingDouble(GuessScore::expectedSolved).reversed()
+                                .thenComparingDouble(GuessScore::expectedRemaining)),
+        /** Fewest remaining keys in the worst case, summed over boards. */
+        WORST_CASE(Comparator.comparingLong(GuessScore::worstCase)
+                             .thenComparingDouble(GuessScore::expectedRemaining));
+
+        private final Comparator<GuessScore> order;
+
+        Criterion(Comparator<GuessScore> order) {
+            this.order = order;
+        }
+    }
+
+    /**
+     * The combined effect of one guess on every board.
+     *
+     * @param expectedRemaining sum over boards of the expected number of remaining keys
+     * @param worstCase         sum over boards of the largest feedback bucket
+     * @param expectedSolved    expected number of boards whose key is the guess itself
+     */
+    public static record GuessScore(NGram guess, double expectedRemaining, long worstCase, double expectedSolved) {
+    }
+
+    private final Corpus corpus;
+    private final EncodedWords encoded;
+    private final int[] union;        // Ids of words that are a candidate on some board
+    private final long[] membership;  // Bit b set if union[i] is a candidate on board b
+    private final int[] boardSizes;
+    private final int patterns;
+    private final ThreadLocal<int[][]> histograms;
+
+    /**
+     * Creates a scorer for the given boards, each a collection of candidate keys from the corpus.
+     *
+     * @throws NullPointerException if any argument is null.
+     * @throws IllegalArgumentException if there are no boards or more than MAX_BOARDS,
+     *         a board is empty, holds an NGram outside the corpus, or words are too long.
+     */
+    public MultiBoardScorer(Corpus corpus, List<? extends Collection<NGram>> boards) {
+        this.corpus = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        Objects.requireNonNull(boards, "Boards cannot be null.");
+        if (boards.isEmpty() || boards.size() > MAX_BOARDS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_BOARDS + " boards are supported.");
+        }
+        this.patterns = Feedback.patterns(corpus.wordSize());
+        if (patterns > MAX_DENSE_PATTERNS) {
+            throw new IllegalArgumentException("Words are too long for dense feedback histograms.");
+        }
+        this.encoded = corpus.encoded();
+        long[] byId = new long[corpus.size()];
+        this.boardSizes = new int[boards.size()];
+        for (int b = 0; b < boards.size(); b++) {
+            Collection<NGram> board = Objects.requireNonNull(boards.get(b), "Board cannot be null.");
+            for (NGram key : board) {
+                int id = corpus.indexOf(key);
+                if (id < 0) {
+                    throw new IllegalArgumentException("Board " + b + " holds " + key + ", which is not in the corpus.");
+                }
+                if ((byId[id] & (1L << b)) == 0) {
+                    byId[id] |= 1L << b;
+                    boardSizes[b]++;
+                }
+            }
+            if (boardSizes[b] == 0) {
+                throw new IllegalArgumentException("Board " + b + " has no candidates.");
+            }
+        }
+        this.union = IntStream.range(0, byId.length).filter(id -> byId[id] != 0).toArray();
+        this.membership = new long[union.length];
+        for (int i = 0; i < union.length; i++) {
+            membership[i] = byId[union[i]];
+        }
+        int boardCount = boards.size();
+        this.histograms = ThreadLocal.withInitial(() -> new int[boardCount][patterns]);
+    }
+
+    /**
+     * Scores one guess against every board in a single pass over the union of candidates.
+     *
+     * @throws NullPointerException if the guess is null.
+     * @throws IllegalArgumentException if the guess has the wrong length.
+     */
+    public GuessScore score(NGram guess) {
+        Objects.requireNonNull(guess, "Guess cannot be null.");
+        if (guess.size() != corpus.wordSize()) {
+            throw new IllegalArgumentException("Guess must have length " + corpus.wordSize() + ".");
+        }
+        int[] letters = encoded.encode(guess);
+        int[] scratch = encoded.scratch();
+        int[][] counts = histograms.get();
+        int[] codes = new int[union.length];
+        for (int i = 0; i < union.length; i++) {
+            int code = encoded.code(union[i], letters, scratch);
+            codes[i] = code;
+            for (long boards = membership[i]; boards != 0; boards &= boards - 1) {
+                counts[Long.numberOfTrailingZeros(boards)][code]++;
+            }
+        }
+
+        double expectedRemaining = 0;
+        long worstCase = 0;
+        long[] squares = new long[boardSizes.length];
+        int[] largest = new int[boardSizes.length];
+        for (int i = 0; i < union.length; i++) {
+            for (long boards = membership[i]; boards != 0; boards &= boards - 1) {
+                int b = Long.numberOfTrailingZeros(boards);
+                int size = counts[b][codes[i]];
+                if (size > 0) {
+                    // First member of this bucket seen: account for the whole bucket once.
+                    squares[b] += (long) size * size;
+                    largest[b] = Math.max(largest[b], size);
+                    counts[b][codes[i]] = 0;
+                }
+            }
+        }
+        for (int b = 0; b < boardSizes.length; b++) {
+            expectedRemaining += (double) squares[b] / boardSizes[b];
+            worstCase += largest[b];
+        }
+
+        double expectedSolved = 0;
+        int id = corpus.indexOf(guess);
+        if (id >= 0) {
+            int at = Arrays.binarySearch(union, id);
+            long boards = at >= 0 ? membership[at] : 0;
+            for (; boards != 0; boards &= boards - 1) {
+                expectedSolved += 1.0 / boardSizes[Long.numberOfTrailingZeros(boards)];
+            }
+        }
+        return new GuessScore(guess, expectedRemaining, worstCase, expectedSolved);
+    }
+
+    /**
+     * Scores every NGram of the corpus in parallel and returns the top results.
+     * Ties are broken by corpus order.
+     *
+     * @throws NullPointerException if the criterion is null.
+     */
+    public List<GuessScore> rank(Criterion criterion, int limit) {
+        return rank(criterion, limit, corpus);
+    }
+
+    /**
+     * Scores the given guesses in parallel and returns the top results.
+     * Ties are broken by the order of the guesses.
+     *
+     * @throws NullPointerException if the criterion or guesses are null.
+     */
+    public List<GuessScore> rank(Criterion criterion, int limit, Iterable<NGram> guesses) {
+        Objects.requireNonNull(criterion, "Criterion cannot be null.");
+        Objects.requireNonNull(guesses, "Guesses cannot be null.");
+        List<NGram> pool = new ArrayList<>();
+        guesses.forEach(pool::add);
+        return pool.parallelStream()
+                   .map(this::score)
+                   .sorted(criterion.order)
+                   .limit(limit)
+                   .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the best guess from the corpus under the given criterion.
+     *
+     * @throws NullPointerException if the criterion is null.
+     */
+    public NGram bestGuess(Criterion criterion) {
+        return rank(criterion, 1).get(0).guess();
+    }
+
+    /**
+     * Returns the number of boards.
+     */
+    public int boards() {
+        return boardSizes.length;
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MultiBoardScorerTest {
+
+    private Corpus createTestCorpus() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+            NGram.from("cat"),
+            NGram.from("cot"),
+            NGram.from("cut"),
+            NGram.from("dog"),
+            NGram.from("dig"),
+            NGram.from("tag"),
+            NGram.from("act"),
+            NGram.from("toe")
+        )).build();
+    }
+
+    private List<List<NGram>> createBoards() {
+        return Arrays.asList(
+            Arrays.asList(NGram.from("cat"), NGram.from("cot"), NGram.from("cut"), NGram.from("act")),
+            Arrays.asList(NGram.from("dog"), NGram.from("dig"), NGram.from("cot")),
+            Arrays.asList(NGram.from("tag"), NGram.from("toe"), NGram.from("cat"), NGram.from("dog"))
+        );
+    }
+
+    private double expectedRemaining(Collection<NGram> board, NGram guess) {
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for (NGram key : board) {
+            sizes.merge(Feedback.code(key, guess), 1, Integer::sum);
+        }
+        return sizes.values().stream().mapToDouble(size -> (double) size * size).sum() / board.size();
+    }
+
+    private long worstCase(Collection<NGram> board, NGram guess) {
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for (NGram key : board) {
+            sizes.merge(Feedback.code(key, guess), 1, Integer::sum);
+        }
+        return sizes.values().stream().mapToInt(Integer::intValue).max().getAsInt();
+    }
+
+    @Test
+    public void testScoreMatchesPerBoardHistograms() {
+        Corpus corpus = createTestCorpus();
+        List<List<NGram>> boards = createBoards();
+        MultiBoardScorer scorer = new MultiBoardScorer(corpus, boards);
+        assertEquals(3, scorer.boards());
+        for (NGram guess : corpus) {
+            double expected = 0;
+            long worst = 0;
+            double solved = 0;
+            for (List<NGram> board : boards) {
+                expected += expectedRemaining(board, guess);
+                worst += worstCase(board, guess);
+                solved += board.contains(guess) ? 1.0 / board.size() : 0;
+            }
+            MultiBoardScorer.GuessScore score = scorer.score(guess);
+            assertEquals(guess, score.guess());
+            assertEquals(expected, score.expectedRemaining(), 1e-9);
+            assertEquals(worst, score.worstCase());
+            assertEquals(solved, score.expectedSolved(), 1e-9);
+        }
+        // Scoring twice gives the same result: histograms are reset between guesses.
+        assertEquals(scorer.score(NGram.from("cot")), scorer.score(NGram.from("cot")));
+    }
+
+    @Test
+    public void testRank() {
+        Corpus corpus = createTestCorpus();
+        MultiBoardScorer scorer = new MultiBoardScorer(corpus, createBoards());
+        for (MultiBoardScorer.Criterion criterion : MultiBoardScorer.Criterion.values()) {
+            List<MultiBoardScorer.GuessScore> ranked = scorer.rank(criterion, corpus.size());
+            assertEquals(corpus.size(), ranked.size());
+            assertEquals(ranked.get(0).guess(), scorer.bestGuess(criterion));
+        }
+        List<MultiBoardScorer.GuessScore> top = scorer.rank(MultiBoardScorer.Criterion.EXPECTED_REMAINING, 3);
+        assertEquals(3, top.size());
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).expectedRemaining() <= top.get(i).expectedRemaining());
+        }
+        // "cot" and "dog" sit on a board of three and a board of four, beating "cat" on two boards of four.
+        MultiBoardScorer.GuessScore solving = scorer.rank(MultiBoardScorer.Criterion.BOARDS_SOLVED, 1).get(0);
+        assertEquals(1.0 / 4 + 1.0 / 3, solving.expectedSolved(), 1e-9);
+    }
+
+    @Test
+    public void testRankGuessPool() {
+        Corpus corpus = createTestCorpus();
+        MultiBoardScorer scorer = new MultiBoardScorer(corpus, createBoards());
+        List<NGram> pool = Arrays.asList(NGram.from("zzz"), NGram.from("dig"));
+        List<MultiBoardScorer.GuessScore> ranked = scorer.rank(MultiBoardScorer.Criterion.WORST_CASE, 5, pool);
+        assertEquals(2, ranked.size());
+        assertEquals(NGram.from("dig"), ranked.get(0).guess());
+        assertEquals(0.0, scorer.score(NGram.from("zzz")).expectedSolved(), 0.0);
+    }
+
+    @Test
+    public void testSingleBoardMatchesHistogram() {
+        Corpus corpus = createTestCorpus();
+        List<NGram> board = Arrays.asList(NGram.from("cat"), NGram.from("dog"), NGram.from("dig"));
+        MultiBoardScorer scorer = new MultiBoardScorer(corpus, List.of(board));
+        NGram guess = NGram.from("dot");
+        assertEquals(expectedRemaining(board, guess), scorer.score(guess).expectedRemaining(), 1e-9);
+    }
+
+    @Test
+    public void testInvalidBoards() {
+        Corpus corpus = createTestCorpus();
+        assertThrows(IllegalArgumentException.class, () -> new MultiBoardScorer(corpus, List.of()));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new MultiBoardScorer(corpus, List.of(List.of())));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new MultiBoardScorer(corpus, List.of(List.of(NGram.from("zzz")))));
+        assertThrows(NullPointerException.class, () -> new MultiBoardScorer(null, createBoards()));
+        MultiBoardScorer scorer = new MultiBoardScorer(corpus, createBoards());
+        assertThrows(IllegalArgumentException.class, () -> scorer.score(NGram.from("cats")));
+    }
+}
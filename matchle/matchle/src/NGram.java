@@ -7,10 +7,11 @@ import java.util.Objects;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-public final class NGram implements Iterable<NGram.IndexedCharacter> {
+public final class NGram implements Iterable<NGram.IndexedCharacter>, Comparable<NGram> {
 
     private final ArrayList<Character> ngram;
-    private final Set<Character> charset;
+    private final Set<Character> charset;  // Null for decoded words, whose letters are scanned instead
+    private int hash;  // Cached hashCode; 0 until first computed
 
     public static record IndexedCharacter(int index, Character character) {}
 
@@ -51,13 +52,32 @@ public final class NGram implements Iterable<NGram.IndexedCharacter> {
         return ngram;
     }
 
-    // Private constructor with defensive null check.
+    // Private constructor with defensive null check. It takes ownership of
+    // the list: both factories pass a fresh copy, so copying again here
+    // would only double the allocation of every NGram.
     private NGram(ArrayList<Character> ngram) {
-        if (ngram == null) {
-            throw new NullPointerException("Input ngram list cannot be null.");
+        this(Objects.requireNonNull(ngram, "Input ngram list cannot be null."), new HashSet<>(ngram));
+    }
+
+    private NGram(ArrayList<Character> ngram, Set<Character> charset) {
+        this.ngram = ngram;
+        this.charset = charset;
+    }
+
+    /**
+     * Package-private factory for letters that are known to be valid, such as
+     * a word decoded from a corpus snapshot. The letters are copied but not
+     * checked or hashed: no String, no validation pass and no charset, so
+     * {@link #contains(char)} scans the word instead.
+     *
+     * @param letters boxed letters of the word, none null.
+     */
+    static NGram decoded(Character[] letters) {
+        ArrayList<Character> list = new ArrayList<>(letters.length);
+        for (Character letter : letters) {
+            list.add(letter);
         }
-        this.ngram = new ArrayList<>(ngram);
-        this.charset = new HashSet<>(this.ngram);
+        return new NGram(list, null);
     }
 
     /**
@@ -82,8 +102,8 @@ public final class NGram implements Iterable<NGram.IndexedCharacter> {
             throw new NullPointerException("Provided string is null.");
         }
         ArrayList<Character> list = new ArrayList<>(str.length());
-        for (char c : str.toCharArray()) {
-            list.add(c);
+        for (int i = 0; i < str.length(); i++) {
+            list.add(str.charAt(i));
         }
         validate(list);
         return new NGram(list);
@@ -113,7 +133,15 @@ public final class NGram implements Iterable<NGram.IndexedCharacter> {
      * @return true if the character is present; false otherwise.
      */
     public boolean contains(char c) {
-        return charset.contains(c);
+        if (charset != null) {
+            return charset.contains(c);
+        }
+        for (int i = 0; i < ngram.size(); i++) {
+            if (ngram.get(i) == c) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -186,6 +214,14 @@ public final class NGram implements Iterable<NGram.IndexedCharacter> {
         return ngram.get(index);
     }
 
+    /**
+     * Returns the character at the given index as a primitive, without the
+     * bounds message of {@link #get(int)}; for compiled filters.
+     */
+    char charAt(int index) {
+        return ngram.get(index);
+    }
+
     /**
      * Returns the size (number of characters) of this n-gram.
      *
@@ -195,6 +231,24 @@ public final class NGram implements Iterable<NGram.IndexedCharacter> {
         return ngram.size();
     }
 
+    /**
+     * Compares NGrams character by character; a proper prefix sorts first.
+     *
+     * @param other the NGram to compare with.
+     * @return a negative, zero or positive value as this NGram sorts before, equal to or after other.
+     */
+    @Override
+    public int compareTo(NGram other) {
+        int n = Math.min(ngram.size(), other.ngram.size());
+        for (int i = 0; i < n; i++) {
+            int c = Character.compare(ngram.get(i), other.ngram.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(ngram.size(), other.ngram.size());
+    }
+
     /**
      * Overriding equals to compare NGrams by their content.
      *
@@ -220,6 +274,11 @@ public final class NGram implements Iterable<NGram.IndexedCharacter> {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(ngram);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(ngram);
+            hash = h;  // Racy but benign, as for String: every thread computes the same value
+        }
+        return h;
     }
 }
@@ -1,7 +1,6 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 /**
  * Package-private final class implementing the MATCH algorithm
@@ -53,11 +52,7 @@ final class NGramMatcher {
         doAbsentCharacters(n, guessMatched, partialFilters);
 
         // Combine all partial filters into a single Filter
-        Filter result = Filter.from(ng -> true);
-        for (Filter f : partialFilters) {
-            result = result.and(Optional.of(f));
-        }
-        return result;
+        return Filter.allOf(partialFilters);
     }
 
     /**
@@ -75,8 +70,7 @@ final class NGramMatcher {
                 keyMatched[i] = true;
                 guessMatched[i] = true;
 
-                NGram.IndexedCharacter ic = new NGram.IndexedCharacter(i, guessChar);
-                Filter exactFilter = Filter.from(ng -> ng.matches(ic));
+                Filter exactFilter = Filter.constraint(Feedback.EXACT, i, guessChar);
                 partialFilters.add(exactFilter);
             }
         }
@@ -114,8 +108,7 @@ final class NGramMatcher {
                 keyMatched[j] = true;
                 guessMatched[i] = true;
 
-                NGram.IndexedCharacter ic = new NGram.IndexedCharacter(i, guessChar);
-                Filter misplacedFilter = Filter.from(ng -> ng.containsElsewhere(ic));
+                Filter misplacedFilter = Filter.constraint(Feedback.MISPLACED, i, guessChar);
                 partialFilters.add(misplacedFilter);
 
                 break; // Stop once we have matched guess[i]
@@ -132,7 +125,7 @@ final class NGramMatcher {
         for (int i = 0; i < n; i++) {
             if (!guessMatched[i]) {
                 char guessChar = guess.get(i);
-                Filter absentFilter = Filter.from(ng -> !ng.contains(guessChar));
+                Filter absentFilter = Filter.constraint(Feedback.ABSENT, i, guessChar);
                 partialFilters.add(absentFilter);
             }
         }
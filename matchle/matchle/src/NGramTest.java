@@ -239,4 +239,17 @@ public class NGramTest {
         invalid.add(null);
         NGram.validate(invalid);
     }
+
+    @Test
+    public void testDecodedMatchesFrom() {
+        NGram decoded = NGram.decoded(new Character[] {'l', 'e', 'v', 'e', 'l'});
+        NGram parsed = NGram.from("level");
+        assertEquals(parsed, decoded);
+        assertEquals(parsed.hashCode(), decoded.hashCode());
+        assertEquals(0, parsed.compareTo(decoded));
+        for (char c = 'a'; c <= 'z'; c++) {
+            assertEquals(String.valueOf(c), parsed.contains(c), decoded.contains(c));
+        }
+        assertTrue(decoded.containsElsewhere(new NGram.IndexedCharacter(1, 'e')));
+    }
 }
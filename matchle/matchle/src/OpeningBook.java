@@ -0,0 +1,243 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Precomputed answers for the first two rounds of a game: for each strategy,
+ * the opening guess and, for every feedback code the opening can receive, the
+ * second guess the strategy picks among the keys left.
+ *
+ * Those rounds score the largest candidate sets, so building the book is an
+ * offline job; at run time a {@link Suggester} answers them by table lookup.
+ * The answers are exactly what the strategy would choose, so a book changes
+ * speed, not play.
+ *
+ * File layout (big-endian): magic, format version, matcher version, word size,
+ * number of words, the 32-byte corpus hash, the number of strategies, then per
+ * strategy its label (length byte and ASCII), the opening's word id, the number
+ * of entries and, in ascending code order, each feedback code with the second
+ * guess's word id; last, a CRC32 of everything before it. A book is only used
+ * with the corpus whose hash it carries.
+ *
+ * Usage: {@code java OpeningBook [file] [corpusSize] [seed]} where a size of 0 means "all words".
+ */
+public final class OpeningBook {
+
+    private static final int MAGIC = 0x4D4C4F42;  // "MLOB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_BYTES = 32;
+
+    /**
+     * One strategy's opening and its replies, by feedback code.
+     */
+    private static record Line(int opening, int[] codes, int[] replies) {}
+
+    private final Corpus corpus;
+    private final Map<GameSimulator.Strategy, Line> lines;
+
+    private OpeningBook(Corpus corpus, Map<GameSimulator.Strategy, Line> lines) {
+        this.corpus = corpus;
+        this.lines = lines;
+    }
+
+    /**
+     * Computes the book for every strategy.
+     *
+     * @throws NullPointerException if corpus is null.
+     * @throws IllegalArgumentException if the corpus is empty or its words are too long for feedback codes.
+     */
+    public static OpeningBook build(Corpus corpus) {
+        return build(corpus, List.of(GameSimulator.Strategy.values()));
+    }
+
+    /**
+     * Computes the book for the given strategies, replies in parallel.
+     *
+     * @throws NullPointerException if corpus or strategies is null.
+     * @throws IllegalArgumentException if the corpus is empty or its words are too long for feedback codes.
+     */
+    public static OpeningBook build(Corpus corpus, List<GameSimulator.Strategy> strategies) {
+        Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        Objects.requireNonNull(strategies, "Strategies cannot be null.");
+        if (corpus.size() == 0 || corpus.wordSize() > Feedback.MAX_LENGTH) {
+            throw new IllegalArgumentException("Corpus must be non-empty with words of at most "
+                                               + Feedback.MAX_LENGTH + " letters.");
+        }
+        Map<GameSimulator.Strategy, Line> lines = new EnumMap<>(GameSimulator.Strategy.class);
+        for (GameSimulator.Strategy strategy : strategies) {
+            NGram opening = strategy.choose(new MatchleScorer(corpus));
+            int[] codes = replyCodes(corpus, opening);
+            int[] replies = IntStream.range(0, codes.length).parallel()
+                    .map(c -> corpus.indexOf(strategy.choose(
+                            new MatchleScorer(GameSimulator.narrow(corpus, opening, codes[c])))))
+                    .toArray();
+            lines.put(strategy, new Line(corpus.indexOf(opening), codes, replies));
+        }
+        return new OpeningBook(corpus, lines);
+    }
+
+    /**
+     * Returns the codes the opening receives from some key, ascending, except
+     * the all-exact code, which ends the game.
+     */
+    private static int[] replyCodes(Corpus corpus, NGram opening) {
+        EncodedWords encoded = corpus.encoded();
+        int[] letters = encoded.encode(opening);
+        int[] scratch = encoded.scratch();
+        int solved = Feedback.solved(corpus.wordSize());
+        return IntStream.range(0, corpus.size())
+                .map(id -> encoded.code(id, letters, scratch))
+                .filter(code -> code != solved)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Returns the corpus the book was built for.
+     */
+    public Corpus corpus() {
+        return corpus;
+    }
+
+    /**
+     * Returns the booked guess for a game with the given history, or null if
+     * the book does not cover it: the strategy is not in the book, the history
+     * is longer than one turn, or its guess is not the booked opening.
+     *
+     * @throws NullPointerException if strategy or history is null.
+     */
+    public NGram suggest(GameSimulator.Strategy strategy, List<Suggester.Turn> history) {
+        Objects.requireNonNull(strategy, "Strategy cannot be null.");
+        Objects.requireNonNull(history, "History cannot be null.");
+        Line line = lines.get(strategy);
+        if (line == null || history.size() > 1) {
+            return null;
+        }
+        if (history.isEmpty()) {
+            return corpus.get(line.opening());
+        }
+        Suggester.Turn turn = history.get(0);
+        if (!turn.guess().equals(corpus.get(line.opening()))) {
+            return null;
+        }
+        int c = Arrays.binarySearch(line.codes(), turn.code());
+        return c < 0 ? null : corpus.get(line.replies()[c]);
+    }
+
+    /**
+     * Writes the book, replacing the file atomically.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        Objects.requireNonNull(file, "Book file cannot be null.");
+        int length = 6 * Integer.BYTES + HASH_BYTES + Long.BYTES;
+        for (Map.Entry<GameSimulator.Strategy, Line> e : lines.entrySet()) {
+            length += 1 + e.getKey().label().length() + 2 * Integer.BYTES + 2 * Integer.BYTES * e.getValue().codes().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC)
+              .putInt(FORMAT_VERSION)
+              .putInt(Feedback.VERSION)
+              .putInt(corpus.wordSize())
+              .putInt(corpus.size())
+              .put(corpus.contentHash())
+              .putInt(lines.size());
+        for (Map.Entry<GameSimulator.Strategy, Line> e : lines.entrySet()) {
+            byte[] label = e.getKey().label().getBytes(StandardCharsets.US_ASCII);
+            Line line = e.getValue();
+            buffer.put((byte) label.length).put(label)
+                  .putInt(line.opening())
+                  .putInt(line.codes().length);
+            for (int c = 0; c < line.codes().length; c++) {
+                buffer.putInt(line.codes()[c]).putInt(line.replies()[c]);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        AtomicFiles.write(file, channel -> AtomicFiles.writeFully(channel, buffer.flip()));
+    }
+
+    /**
+     * Loads a book written for this corpus, or returns null if the file is
+     * missing or stale: built for a different corpus, word size or matcher version.
+     *
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    public static OpeningBook load(Path file, Corpus corpus) throws IOException {
+        Objects.requireNonNull(file, "Book file cannot be null.");
+        Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            int end = buffer.limit() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(end));
+            if (buffer.getLong(end) != crc.getValue()) {
+                throw new IOException("Opening book " + file + " is corrupt.");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException(file + " is not an opening book of version " + FORMAT_VERSION + ".");
+            }
+            byte[] hash = new byte[HASH_BYTES];
+            boolean current = buffer.getInt() == Feedback.VERSION
+                    & buffer.getInt() == corpus.wordSize()
+                    & buffer.getInt() == corpus.size();
+            buffer.get(hash);
+            if (!current || !Arrays.equals(hash, corpus.contentHash())) {
+                return null;
+            }
+            Map<GameSimulator.Strategy, Line> lines = new EnumMap<>(GameSimulator.Strategy.class);
+            int count = buffer.getInt();
+            for (int s = 0; s < count; s++) {
+                byte[] label = new byte[buffer.get() & 0xFF];
+                buffer.get(label);
+                GameSimulator.Strategy strategy =
+                        GameSimulator.Strategy.fromLabel(new String(label, StandardCharsets.US_ASCII));
+                int opening = Objects.checkIndex(buffer.getInt(), corpus.size());
+                int[] codes = new int[buffer.getInt()];
+                int[] replies = new int[codes.length];
+                for (int c = 0; c < codes.length; c++) {
+                    codes[c] = buffer.getInt();
+                    replies[c] = Objects.checkIndex(buffer.getInt(), corpus.size());
+                }
+                lines.put(strategy, new Line(opening, codes, replies));
+            }
+            return new OpeningBook(corpus, lines);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Opening book " + file + " is truncated or malformed.", e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "opening.book");
+        int corpusSize = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        Corpus corpus = GameSimulator.sampleCorpus(corpusSize, seed);
+        long start = System.nanoTime();
+        OpeningBook book = build(corpus);
+        book.write(file);
+        System.out.println("Wrote " + file + " for " + corpus.size() + " words in "
+                           + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+}
@@ -0,0 +1,98 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OpeningBookTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Corpus randomCorpus(long seed, int count) {
+        Random random = new Random(seed);
+        List<NGram> words = new ArrayList<>();
+        for (int w = 0; w < count; w++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                sb.append((char) ('a' + random.nextInt(7)));
+            }
+            words.add(NGram.from(sb.toString()));
+        }
+        return Corpus.Builder.create().addAll(words).build();
+    }
+
+    private static void assertSameAsLive(Corpus corpus, Suggester booked) {
+        Suggester live = new Suggester(corpus);
+        for (GameSimulator.Strategy strategy : GameSimulator.Strategy.values()) {
+            NGram opening = live.suggest(strategy, List.of());
+            assertEquals(opening, booked.suggest(strategy, List.of()));
+            for (NGram key : corpus.corpus()) {
+                List<Suggester.Turn> history = List.of(new Suggester.Turn(opening, Feedback.code(key, opening)));
+                assertEquals(live.suggest(strategy, history), booked.suggest(strategy, history));
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesLiveScoring() {
+        Corpus corpus = randomCorpus(1, 40);
+        OpeningBook book = OpeningBook.build(corpus);
+        assertSameAsLive(corpus, new Suggester(book));
+    }
+
+    @Test
+    public void testCoverage() {
+        Corpus corpus = randomCorpus(2, 30);
+        OpeningBook book = OpeningBook.build(corpus, List.of(GameSimulator.Strategy.ENTROPY));
+        NGram opening = book.suggest(GameSimulator.Strategy.ENTROPY, List.of());
+        assertNotNull(opening);
+        assertNull(book.suggest(GameSimulator.Strategy.WORST_CASE, List.of()));
+        NGram other = corpus.corpus().stream().filter(w -> !w.equals(opening)).findFirst().get();
+        assertNull(book.suggest(GameSimulator.Strategy.ENTROPY, List.of(new Suggester.Turn(other, 0))));
+        List<Suggester.Turn> two = List.of(new Suggester.Turn(opening, 0), new Suggester.Turn(other, 0));
+        assertNull(book.suggest(GameSimulator.Strategy.ENTROPY, two));
+        assertNull(book.suggest(GameSimulator.Strategy.ENTROPY,
+                List.of(new Suggester.Turn(opening, Feedback.solved(4)))));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Corpus corpus = randomCorpus(3, 40);
+        Path file = folder.getRoot().toPath().resolve("opening.book");
+        OpeningBook.build(corpus).write(file);
+        OpeningBook loaded = OpeningBook.load(file, Corpus.Builder.create().addAll(corpus.corpus()).build());
+        assertNotNull(loaded);
+        assertSameAsLive(corpus, new Suggester(loaded));
+    }
+
+    @Test
+    public void testStaleBookRejected() throws IOException {
+        Corpus corpus = randomCorpus(4, 30);
+        Path file = folder.getRoot().toPath().resolve("opening.book");
+        OpeningBook.build(corpus).write(file);
+        List<NGram> words = new ArrayList<>(corpus.corpus());
+        words.set(0, NGram.from("zzzz"));
+        assertNull(OpeningBook.load(file, Corpus.Builder.create().addAll(words).build()));
+        assertNull(OpeningBook.load(file, randomCorpus(5, 30)));
+        assertNull(OpeningBook.load(folder.getRoot().toPath().resolve("missing.book"), corpus));
+    }
+
+    @Test
+    public void testCorruptBookFails() throws IOException {
+        Corpus corpus = randomCorpus(6, 30);
+        Path file = folder.getRoot().toPath().resolve("opening.book");
+        OpeningBook.build(corpus).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> OpeningBook.load(file, corpus));
+        Files.write(file, new byte[3]);
+        assertThrows(IOException.class, () -> OpeningBook.load(file, corpus));
+    }
+}
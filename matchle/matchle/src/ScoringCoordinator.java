@@ -0,0 +1,362 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads the guesses of a scoring job over {@link ScoringWorker} processes,
+ * on this host or others, and merges their answers.
+ *
+ * Every worker must hold the same corpus as the coordinator, which the
+ * handshake checks by content hash, so word ids mean the same words on both
+ * ends (load the workers from a snapshot of this corpus, see
+ * {@link Corpus#writeSnapshot}). A job sends the candidate keys once per
+ * worker, then hands out ranges of guess ids to whichever worker is free; each
+ * answers with the best guesses of its range and the coordinator keeps the
+ * best of those. A worker whose connection fails or that does not answer
+ * within the timeout is dropped, and its range goes to the others.
+ *
+ * Scores are MatchleScorer's: worst-case and average-case filter counts, lower
+ * is better, and feedback entropy, higher is better. Ties go to the guess that
+ * comes first in the corpus, so results do not depend on how the work was split.
+ *
+ * Usage: {@code java ScoringCoordinator snapshot strategy limit worker...}
+ * where each worker is a loopback port, host:port or Unix socket path.
+ */
+public final class ScoringCoordinator implements AutoCloseable {
+
+    /**
+     * How long a worker may take over one range unless told otherwise.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    private static final int RANGES_PER_WORKER = 4;
+
+    /**
+     * A guess and its score under the job's strategy.
+     */
+    public static record Scored(NGram guess, double score) {
+    }
+
+    private final Corpus corpus;
+    private final long timeoutMillis;
+    private final List<Connection> live = new CopyOnWriteArrayList<>();
+    private final ExecutorService exchanges;
+    private final ScheduledExecutorService watchdog;
+    private int queries;
+
+    /**
+     * Connects to the workers with the default timeout.
+     *
+     * @throws IOException if a worker cannot be reached or holds another corpus.
+     * @see #ScoringCoordinator(Corpus, List, long)
+     */
+    public ScoringCoordinator(Corpus corpus, List<? extends SocketAddress> workers) throws IOException {
+        this(corpus, workers, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Connects to the workers, TCP or Unix domain socket addresses, and checks
+     * that each holds this corpus.
+     *
+     * @param timeoutMillis how long a worker may take over one range before it is dropped
+     * @throws NullPointerException if any argument or worker address is null.
+     * @throws IllegalArgumentException if the corpus is a view, there are no workers
+     *                                  or the timeout is not positive.
+     * @throws IOException if a worker cannot be reached or holds another corpus.
+     */
+    public ScoringCoordinator(Corpus corpus, List<? extends SocketAddress> workers, long timeoutMillis)
+            throws IOException {
+        this.corpus = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        Objects.requireNonNull(workers, "Workers cannot be null.");
+        if (corpus.isView()) {
+            throw new IllegalArgumentException("Coordinate the full corpus and pass views as candidates.");
+        }
+        if (workers.isEmpty() || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Need at least one worker and a positive timeout.");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.exchanges = Executors.newCachedThreadPool(r -> daemon(r, "scoring-coordinator"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "scoring-watchdog"));
+        try {
+            for (SocketAddress worker : workers) {
+                live.add(connect(Objects.requireNonNull(worker, "Worker address cannot be null.")));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private Connection connect(SocketAddress worker) throws IOException {
+        SocketChannel channel = worker instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        Connection connection = new Connection(worker, channel);
+        try {
+            guarded(connection, () -> {
+                channel.connect(worker);
+                connection.open();
+                ScoringProtocol.writeHello(connection.out, corpus);
+                connection.out.flush();
+                ScoringProtocol.readHello(connection.in, corpus);
+                return null;
+            });
+        } catch (IOException e) {
+            connection.close();
+            throw new IOException("Worker " + ScoringProtocol.format(worker) + ": " + e.getMessage(), e);
+        }
+        return connection;
+    }
+
+    /**
+     * Returns the number of workers still connected.
+     */
+    public int liveWorkers() {
+        return live.size();
+    }
+
+    /**
+     * Returns the best guesses among all words of the corpus, best first,
+     * against the given candidate keys.
+     *
+     * @param candidates the remaining keys: the corpus or a view of it
+     * @param strategy   how guesses are scored
+     * @param limit      the most results to return
+     * @throws NullPointerException if candidates or strategy is null.
+     * @throws IllegalArgumentException if candidates is empty or not drawn from
+     *                                  the corpus, or limit is not positive.
+     * @throws IOException if no worker is left or every worker failed before the job was done.
+     */
+    public synchronized List<Scored> rank(Corpus candidates, GameSimulator.Strategy strategy, int limit)
+            throws IOException {
+        Objects.requireNonNull(candidates, "Candidates cannot be null.");
+        Objects.requireNonNull(strategy, "Strategy cannot be null.");
+        if (candidates.root() != corpus || candidates.size() == 0 || limit <= 0) {
+            throw new IllegalArgumentException("Candidates must be a non-empty view of the corpus and the limit positive.");
+        }
+        if (live.isEmpty()) {
+            throw new IOException("No worker is connected.");
+        }
+        Job job = new Job(++queries, candidates.candidates(), strategy, limit);
+        Queue<int[]> pending = new ConcurrentLinkedQueue<>();
+        int size = corpus.size();
+        int step = Math.max(1, (size + RANGES_PER_WORKER * live.size() - 1) / (RANGES_PER_WORKER * live.size()));
+        for (int from = 0; from < size; from += step) {
+            pending.add(new int[] {from, Math.min(size, from + step)});
+        }
+
+        // Every live worker drains the queue; a failed range goes back on it, and
+        // another round runs while ranges are left and workers remain.
+        List<Scored> merged = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            if (live.isEmpty()) {
+                throw new IOException("Every worker failed; " + pending.size() + " ranges were not scored.");
+            }
+            List<Future<List<Scored>>> rounds = new ArrayList<>();
+            for (Connection connection : live) {
+                rounds.add(exchanges.submit(() -> drain(connection, job, pending)));
+            }
+            for (Future<List<Scored>> round : rounds) {
+                try {
+                    merged.addAll(round.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for workers.", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Scoring round failed.", e.getCause());
+                }
+            }
+        }
+        merged.sort(order(strategy));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Returns the best guess among all words of the corpus against the given candidate keys.
+     *
+     * @throws IOException if every worker failed before the job was done.
+     * @see #rank(Corpus, GameSimulator.Strategy, int)
+     */
+    public NGram bestGuess(Corpus candidates, GameSimulator.Strategy strategy) throws IOException {
+        return rank(candidates, strategy, 1).get(0).guess();
+    }
+
+    /**
+     * Sends ranges to one worker until none are left or the worker fails, in
+     * which case the range it held goes back on the queue and it is dropped.
+     */
+    private List<Scored> drain(Connection connection, Job job, Queue<int[]> pending) {
+        List<Scored> best = new ArrayList<>();
+        for (int[] range; (range = pending.poll()) != null; ) {
+            int[] current = range;
+            try {
+                best.addAll(guarded(connection, () -> connection.score(job, current[0], current[1])));
+            } catch (IOException e) {
+                pending.add(current);
+                live.remove(connection);
+                connection.close();
+                break;
+            }
+        }
+        return best;
+    }
+
+    private interface Exchange<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Runs an exchange with a worker, closing its connection if the exchange
+     * takes longer than the timeout so the blocked call fails.
+     */
+    private <T> T guarded(Connection connection, Exchange<T> exchange) throws IOException {
+        ScheduledFuture<?> alarm = watchdog.schedule(connection::close, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            return exchange.run();
+        } finally {
+            alarm.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the order of results under a strategy: best score first, then corpus order.
+     */
+    static Comparator<Scored> order(GameSimulator.Strategy strategy) {
+        Comparator<Scored> byScore = Comparator.comparingDouble(Scored::score);
+        return (strategy == GameSimulator.Strategy.ENTROPY ? byScore.reversed() : byScore)
+                .thenComparing(Scored::guess);
+    }
+
+    /**
+     * Disconnects from every worker; the workers keep running.
+     */
+    @Override
+    public void close() {
+        for (Connection connection : live) {
+            connection.close();
+        }
+        live.clear();
+        exchanges.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    private static record Job(int query, CandidateSet candidates, GameSimulator.Strategy strategy, int limit) {
+    }
+
+    /**
+     * One worker's connection; used by one exchange at a time.
+     */
+    private final class Connection {
+        private final SocketAddress address;
+        private final SocketChannel channel;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private int query;  // The last query whose candidates the worker has
+
+        Connection(SocketAddress address, SocketChannel channel) {
+            this.address = address;
+            this.channel = channel;
+        }
+
+        void open() {
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        }
+
+        List<Scored> score(Job job, int from, int to) throws IOException {
+            if (query != job.query()) {
+                out.writeByte(ScoringProtocol.CANDIDATES);
+                out.writeInt(job.query());
+                ScoringProtocol.writeCandidates(out, job.candidates());
+                query = job.query();
+            }
+            out.writeByte(ScoringProtocol.RANGE);
+            out.writeInt(job.query());
+            out.writeByte(job.strategy().ordinal());
+            out.writeInt(job.limit());
+            out.writeInt(from);
+            out.writeInt(to);
+            out.flush();
+
+            byte reply = in.readByte();
+            if (reply == ScoringProtocol.ERROR) {
+                throw new IOException("Worker " + ScoringProtocol.format(address) + " failed: " + in.readUTF());
+            }
+            if (reply != ScoringProtocol.RESULT) {
+                throw new IOException("Worker " + ScoringProtocol.format(address) + " sent message " + reply + ".");
+            }
+            int count = in.readInt();
+            if (count < 0 || count > Math.min(job.limit(), to - from)) {
+                throw new IOException("Worker " + ScoringProtocol.format(address) + " sent " + count + " results.");
+            }
+            List<Scored> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                double score = in.readDouble();
+                if (id < from || id >= to) {
+                    throw new IOException("Worker " + ScoringProtocol.format(address) + " scored a guess outside its range.");
+                }
+                results.add(new Scored(corpus.get(id), score));
+            }
+            return results;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing more to release.
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: java ScoringCoordinator snapshot strategy limit worker...");
+            System.exit(2);
+        }
+        Corpus corpus = Corpus.readSnapshot(Paths.get(args[0]));
+        GameSimulator.Strategy strategy = GameSimulator.Strategy.fromLabel(args[1]);
+        int limit = Integer.parseInt(args[2]);
+        List<SocketAddress> workers = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            workers.add(ScoringProtocol.address(args[i]));
+        }
+        try (ScoringCoordinator coordinator = new ScoringCoordinator(corpus, workers)) {
+            long start = System.nanoTime();
+            for (Scored scored : coordinator.rank(corpus, strategy, limit)) {
+                System.out.println(MatchleExtensionApp.ngramToString(scored.guess()) + " " + scored.score());
+            }
+            System.err.println("Scored " + corpus.size() + " guesses on " + coordinator.liveWorkers()
+                               + " workers in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
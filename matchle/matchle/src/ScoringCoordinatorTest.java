@@ -0,0 +1,216 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class ScoringCoordinatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+        for (Process process : processes) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static Corpus randomCorpus(long seed, int count) {
+        Random random = new Random(seed);
+        List<NGram> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            char[] chars = new char[5];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) ('a' + random.nextInt(10));
+            }
+            words.add(NGram.from(new String(chars)));
+        }
+        return Corpus.Builder.create().addAll(words).build();
+    }
+
+    /**
+     * Scores every word of the corpus against the candidates in this JVM.
+     */
+    private static List<ScoringCoordinator.Scored> localRanking(Corpus corpus, Corpus candidates,
+                                                                GameSimulator.Strategy strategy, int limit) {
+        MatchleScorer scorer = new MatchleScorer(candidates);
+        return corpus.stream()
+                     .map(guess -> new ScoringCoordinator.Scored(guess,
+                             strategy == GameSimulator.Strategy.WORST_CASE ? scorer.scoreWorstCase(guess)
+                           : strategy == GameSimulator.Strategy.AVERAGE_CASE ? scorer.scoreAverageCase(guess)
+                           : scorer.scoreEntropy(guess)))
+                     .sorted(ScoringCoordinator.order(strategy))
+                     .limit(limit)
+                     .collect(Collectors.toList());
+    }
+
+    private ScoringWorker startWorker(Corpus corpus, SocketAddress address) throws IOException {
+        ScoringWorker worker = new ScoringWorker(corpus, address);
+        resources.add(worker);
+        worker.start();
+        return worker;
+    }
+
+    private static SocketAddress loopback() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    /**
+     * Starts a worker process on the snapshot and returns the address it prints.
+     */
+    private SocketAddress startWorkerProcess(Path snapshot) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                             "ScoringWorker", snapshot.toString(), "0")
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        processes.add(process);
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        assertNotNull("Worker process exited before listening", line);
+        return ScoringProtocol.address(line);
+    }
+
+    @Test
+    public void testWorkersMatchLocalRanking() throws IOException {
+        Corpus corpus = randomCorpus(1, 300);
+        List<SocketAddress> workers = List.of(startWorker(corpus, loopback()).address(),
+                                              startWorker(corpus, loopback()).address());
+        Corpus candidates = corpus.filter(Filter.from(ng -> ng.charAt(0) < 'f'));
+        try (ScoringCoordinator coordinator = new ScoringCoordinator(corpus, workers)) {
+            for (GameSimulator.Strategy strategy : GameSimulator.Strategy.values()) {
+                assertEquals(strategy.label(), localRanking(corpus, candidates, strategy, 5),
+                             coordinator.rank(candidates, strategy, 5));
+            }
+            // A second job sends its own candidates.
+            assertEquals(localRanking(corpus, corpus, GameSimulator.Strategy.WORST_CASE, 1).get(0).guess(),
+                         coordinator.bestGuess(corpus, GameSimulator.Strategy.WORST_CASE));
+            assertEquals(corpus.size(), coordinator.rank(corpus, GameSimulator.Strategy.ENTROPY, 1000).size());
+            assertEquals(2, coordinator.liveWorkers());
+        }
+    }
+
+    @Test
+    public void testUnixSocketWorker() throws IOException {
+        Corpus corpus = randomCorpus(2, 120);
+        Path socket = folder.getRoot().toPath().resolve("worker.sock");
+        ScoringWorker worker = startWorker(corpus, UnixDomainSocketAddress.of(socket));
+        Corpus candidates = corpus.filter(Filter.from(ng -> ng.charAt(4) != 'a'));
+        try (ScoringCoordinator coordinator = new ScoringCoordinator(corpus, List.of(worker.address()))) {
+            assertEquals(localRanking(corpus, candidates, GameSimulator.Strategy.ENTROPY, 3),
+                         coordinator.rank(candidates, GameSimulator.Strategy.ENTROPY, 3));
+        }
+        worker.close();
+        assertFalse(socket.toFile().exists());
+    }
+
+    /**
+     * Worker processes load a snapshot; when one dies, its ranges go to the
+     * other, and once every worker is gone the job fails.
+     */
+    @Test
+    public void testWorkerProcessesAndReassignment() throws Exception {
+        Corpus corpus = randomCorpus(3, 200);
+        Path snapshot = folder.getRoot().toPath().resolve("corpus.snapshot");
+        corpus.writeSnapshot(snapshot);
+        List<SocketAddress> workers = List.of(startWorkerProcess(snapshot), startWorkerProcess(snapshot));
+        Corpus candidates = corpus.filter(Filter.from(ng -> ng.charAt(2) >= 'c'));
+        try (ScoringCoordinator coordinator = new ScoringCoordinator(corpus, workers)) {
+            assertEquals(localRanking(corpus, candidates, GameSimulator.Strategy.AVERAGE_CASE, 4),
+                         coordinator.rank(candidates, GameSimulator.Strategy.AVERAGE_CASE, 4));
+
+            processes.get(0).destroyForcibly().waitFor();
+            assertEquals(localRanking(corpus, corpus, GameSimulator.Strategy.WORST_CASE, 4),
+                         coordinator.rank(corpus, GameSimulator.Strategy.WORST_CASE, 4));
+            assertEquals(1, coordinator.liveWorkers());
+
+            processes.get(1).destroyForcibly().waitFor();
+            assertThrows(IOException.class, () -> coordinator.rank(corpus, GameSimulator.Strategy.WORST_CASE, 4));
+            assertEquals(0, coordinator.liveWorkers());
+        }
+    }
+
+    @Test
+    public void testRejectsWorkerWithAnotherCorpus() throws IOException {
+        Corpus corpus = randomCorpus(4, 50);
+        ScoringWorker same = startWorker(corpus, loopback());
+        ScoringWorker other = startWorker(randomCorpus(5, 50), loopback());
+        IOException e = assertThrows(IOException.class,
+                () -> new ScoringCoordinator(corpus, List.of(same.address(), other.address())));
+        assertTrue(e.getMessage(), e.getMessage().contains("different corpus"));
+    }
+
+    @Test
+    public void testRejectsBadArguments() throws IOException {
+        Corpus corpus = randomCorpus(6, 40);
+        ScoringWorker worker = startWorker(corpus, loopback());
+        Corpus view = corpus.filter(Filter.from(ng -> true));
+        assertThrows(IllegalArgumentException.class, () -> new ScoringCoordinator(view, List.of(worker.address())));
+        assertThrows(IllegalArgumentException.class, () -> new ScoringCoordinator(corpus, List.of()));
+        try (ScoringCoordinator coordinator = new ScoringCoordinator(corpus, List.of(worker.address()))) {
+            Corpus none = corpus.filter(Filter.FALSE);
+            Corpus foreign = randomCorpus(7, 40);
+            assertThrows(IllegalArgumentException.class,
+                         () -> coordinator.rank(none, GameSimulator.Strategy.WORST_CASE, 1));
+            assertThrows(IllegalArgumentException.class,
+                         () -> coordinator.rank(foreign, GameSimulator.Strategy.WORST_CASE, 1));
+            assertThrows(IllegalArgumentException.class,
+                         () -> coordinator.rank(corpus, GameSimulator.Strategy.WORST_CASE, 0));
+        }
+    }
+
+    /**
+     * Candidate sets travel as runs: a whole corpus in a few bytes, scattered ids in about two each.
+     */
+    @Test
+    public void testCandidateSetEncoding() throws IOException {
+        Random random = new Random(8);
+        CandidateSet.Builder scattered = new CandidateSet.Builder(100_000);
+        for (int id = random.nextInt(50); id < 100_000; id += 1 + random.nextInt(100)) {
+            scattered.add(id);
+        }
+        for (CandidateSet set : List.of(CandidateSet.all(100_000), CandidateSet.of(100_000),
+                                        CandidateSet.of(100_000, 0, 1, 2, 99_999), scattered.build())) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ScoringProtocol.writeCandidates(new DataOutputStream(bytes), set);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            assertEquals(set, ScoringProtocol.readCandidates(in, 100_000));
+            assertTrue(set + " took " + bytes.size() + " bytes", bytes.size() <= 8 + 2 * set.size() + 2);
+            DataInputStream wrongUniverse = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            assertThrows(IOException.class, () -> ScoringProtocol.readCandidates(wrongUniverse, 99_999));
+        }
+        for (int value : new int[] {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ScoringProtocol.writeVarint(new DataOutputStream(bytes), value);
+            assertEquals(value, ScoringProtocol.readVarint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        }
+        assertEquals(new InetSocketAddress(InetAddress.getLoopbackAddress(), 7000), ScoringProtocol.address("7000"));
+        assertEquals("localhost:7000", ScoringProtocol.format(ScoringProtocol.address("localhost:7000")));
+        assertEquals(UnixDomainSocketAddress.of("/tmp/w.sock"), ScoringProtocol.address("/tmp/w.sock"));
+    }
+}
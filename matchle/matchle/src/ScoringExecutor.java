@@ -0,0 +1,102 @@
+import java.util.Objects;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Package-private worker pool shared by the asynchronous scoring methods.
+ * Queued tasks are ordered by priority first and submission order second,
+ * so interactive work always overtakes background precomputation.
+ */
+final class ScoringExecutor {
+
+    /**
+     * The pool used by every MatchleScorer unless told otherwise.
+     */
+    static final ScoringExecutor SHARED =
+        new ScoringExecutor(Runtime.getRuntime().availableProcessors());
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int parallelism;
+
+    ScoringExecutor(int parallelism) {
+        this(parallelism, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * Creates a pool whose workers run at the given thread priority, so that
+     * speculative work yields the CPU to everything else.
+     */
+    ScoringExecutor(int parallelism, int threadPriority) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        this.parallelism = parallelism;
+        this.pool = new ThreadPoolExecutor(parallelism, parallelism,
+                                           30, TimeUnit.SECONDS,
+                                           new PriorityBlockingQueue<>(),
+                                           daemonThreads(threadPriority));
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the number of worker threads.
+     */
+    int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Queues the task behind every task of the same or a more urgent priority.
+     *
+     * @throws NullPointerException if priority or task is null.
+     */
+    void execute(MatchleScorer.Priority priority, Runnable task) {
+        Objects.requireNonNull(priority, "Priority cannot be null.");
+        Objects.requireNonNull(task, "Task cannot be null.");
+        pool.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), task));
+    }
+
+    /**
+     * Returns the number of tasks waiting for a worker.
+     */
+    int queued() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Stops the workers once the tasks already queued have run.
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private static ThreadFactory daemonThreads(int threadPriority) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, "matchle-scorer-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(threadPriority);
+            return t;
+        };
+    }
+
+    private record PrioritizedTask(MatchleScorer.Priority priority, long sequence, Runnable task)
+            implements Runnable, Comparable<PrioritizedTask> {
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+
+/**
+ * Package-private wire format between a {@link ScoringCoordinator} and its
+ * {@link ScoringWorker}s, one blocking stream per connection (big-endian).
+ *
+ * Both ends open with a hello: magic, protocol version and the content hash
+ * of their corpus (see {@link Corpus#contentHash()}), so ids mean the same
+ * words on both ends. The coordinator then sends requests and the worker
+ * answers each range with one reply:
+ * <ul>
+ * <li>{@link #CANDIDATES}: query number, then the candidate keys as a
+ *     {@link CandidateSet} of word ids, written as runs (see {@link #writeCandidates}).</li>
+ * <li>{@link #RANGE}: query number, strategy ordinal, result limit and a range
+ *     [from, to) of guess ids, to be scored against the query's candidates.</li>
+ * <li>{@link #RESULT}: number of results, then each as guess id and score, best first.</li>
+ * <li>{@link #ERROR}: a message; the request could not be served.</li>
+ * </ul>
+ */
+final class ScoringProtocol {
+
+    static final int MAGIC = 0x4D4C5350;  // "MLSP"
+    static final int VERSION = 1;
+
+    static final byte CANDIDATES = 1;
+    static final byte RANGE = 2;
+    static final byte RESULT = 3;
+    static final byte ERROR = 4;
+
+    private static final int MAX_HASH_LENGTH = 64;
+
+    private ScoringProtocol() {
+    }
+
+    /**
+     * Writes the hello for the given corpus.
+     */
+    static void writeHello(DataOutput out, Corpus corpus) throws IOException {
+        byte[] hash = corpus.contentHash();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(hash.length);
+        out.write(hash);
+    }
+
+    /**
+     * Reads the other end's hello and checks it against the given corpus.
+     *
+     * @throws IOException if the other end speaks another protocol or holds another corpus.
+     */
+    static void readHello(DataInput in, Corpus corpus) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Peer does not speak the scoring protocol.");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Peer speaks scoring protocol version " + version + ", not " + VERSION + ".");
+        }
+        int length = in.readUnsignedByte();
+        if (length > MAX_HASH_LENGTH) {
+            throw new IOException("Peer sent a " + length + "-byte corpus hash.");
+        }
+        byte[] hash = new byte[length];
+        in.readFully(hash);
+        if (!MessageDigest.isEqual(hash, corpus.contentHash())) {
+            throw new IOException("Peer holds a different corpus.");
+        }
+    }
+
+    /**
+     * Writes a candidate set as its universe, its number of runs of
+     * consecutive ids, and each run as the gap since the previous run's end
+     * and its length less one, both as varints. A whole corpus takes a few
+     * bytes and a scattered set about two bytes per id.
+     */
+    static void writeCandidates(DataOutput out, CandidateSet candidates) throws IOException {
+        Objects.requireNonNull(candidates, "Candidate set cannot be null.");
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int runs = 0;
+        PrimitiveIterator.OfInt ids = candidates.iterator();
+        while (ids.hasNext()) {
+            int id = ids.nextInt();
+            if (runs > 0 && ends[runs - 1] == id) {
+                ends[runs - 1] = id + 1;
+                continue;
+            }
+            if (runs == starts.length) {
+                starts = Arrays.copyOf(starts, runs * 2);
+                ends = Arrays.copyOf(ends, runs * 2);
+            }
+            starts[runs] = id;
+            ends[runs++] = id + 1;
+        }
+        out.writeInt(candidates.universe());
+        writeVarint(out, runs);
+        int previous = 0;
+        for (int r = 0; r < runs; r++) {
+            writeVarint(out, starts[r] - previous);
+            writeVarint(out, ends[r] - starts[r] - 1);
+            previous = ends[r];
+        }
+    }
+
+    /**
+     * Reads a candidate set written by {@link #writeCandidates}.
+     *
+     * @throws IOException if the set is malformed or not over the given universe.
+     */
+    static CandidateSet readCandidates(DataInput in, int universe) throws IOException {
+        int sent = in.readInt();
+        if (sent != universe) {
+            throw new IOException("Candidate set is over " + sent + " ids, not " + universe + ".");
+        }
+        CandidateSet.Builder builder = new CandidateSet.Builder(universe);
+        int runs = readVarint(in);
+        long end = 0;
+        for (int r = 0; r < runs; r++) {
+            long start = end + readVarint(in);
+            end = start + readVarint(in) + 1L;
+            if (end > universe) {
+                throw new IOException("Candidate set runs past its universe.");
+            }
+            builder.addRange((int) start, (int) end);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes a non-negative int in 7-bit groups, low group first.
+     */
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an int written by {@link #writeVarint}.
+     *
+     * @throws IOException if it is longer than five bytes or negative.
+     */
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Varint " + Integer.toUnsignedString(value) + " is out of range.");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Varint is too long.");
+    }
+
+    /**
+     * Parses a worker address as written on the command line: a port on the
+     * loopback interface, host:port, or the path of a Unix domain socket.
+     *
+     * @throws IllegalArgumentException if a port is out of range.
+     */
+    static SocketAddress address(String text) {
+        Objects.requireNonNull(text, "Address cannot be null.");
+        int colon = text.lastIndexOf(':');
+        String port = text.substring(colon + 1);
+        if (!port.isEmpty() && port.chars().allMatch(Character::isDigit)) {
+            return colon < 0 ? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port))
+                             : new InetSocketAddress(text.substring(0, colon), Integer.parseInt(port));
+        }
+        return UnixDomainSocketAddress.of(text);
+    }
+
+    /**
+     * Formats an address the way {@link #address(String)} parses it.
+     */
+    static String format(SocketAddress address) {
+        if (address instanceof InetSocketAddress) {
+            InetSocketAddress inet = (InetSocketAddress) address;
+            return inet.getHostString() + ":" + inet.getPort();
+        }
+        return ((UnixDomainSocketAddress) address).getPath().toString();
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Scores ranges of guesses for a {@link ScoringCoordinator}, usually in a
+ * process of its own.
+ *
+ * A worker holds a corpus, normally loaded from the snapshot the coordinator
+ * was given, and listens on a TCP port or a Unix domain socket. Each
+ * connection gets its own thread and is served in order: candidate sets are
+ * kept until the next one arrives, and every range of guess ids is scored
+ * against them in parallel and answered with its best results (see
+ * {@link ScoringProtocol}).
+ *
+ * Usage: {@code java ScoringWorker snapshot [address]} where address is a
+ * loopback port (0, the default, picks a free one), host:port or a Unix socket
+ * path. The address the worker listens on is printed as the first line of
+ * standard output, so a parent process can connect to it.
+ */
+public final class ScoringWorker implements AutoCloseable {
+
+    private final Corpus corpus;
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Binds a worker for the corpus to the given TCP or Unix domain socket
+     * address. A TCP port of 0 picks a free one. Call {@link #start()} to
+     * begin accepting coordinators.
+     *
+     * @throws NullPointerException if corpus or address is null.
+     * @throws IllegalArgumentException if the corpus is a view or empty.
+     * @throws IOException if the address cannot be bound.
+     */
+    public ScoringWorker(Corpus corpus, SocketAddress address) throws IOException {
+        this.corpus = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        Objects.requireNonNull(address, "Address cannot be null.");
+        if (corpus.isView() || corpus.size() == 0) {
+            throw new IllegalArgumentException("A worker needs a full, non-empty corpus.");
+        }
+        this.server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            this.address = server.getLocalAddress();
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        this.acceptor = new Thread(this::accept, "scoring-worker-accept");
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * Starts accepting coordinators.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Returns the address the worker is bound to.
+     */
+    public SocketAddress address() {
+        return address;
+    }
+
+    /**
+     * Stops listening and drops every connection. A Unix socket file is removed.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Nothing more to release.
+        }
+        for (SocketChannel channel : connections) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing more to release.
+            }
+        }
+        if (address instanceof UnixDomainSocketAddress) {
+            try {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            } catch (IOException e) {
+                // Left for the next bind to fail on.
+            }
+        }
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                return;  // Closed
+            }
+            connections.add(channel);
+            Thread handler = new Thread(() -> serve(channel), "scoring-worker");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    /**
+     * Serves one coordinator until it disconnects or breaks the protocol.
+     */
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            ScoringProtocol.writeHello(out, corpus);
+            out.flush();
+            ScoringProtocol.readHello(in, corpus);
+            int query = -1;
+            MatchleScorer scorer = null;
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    return;  // The coordinator is done
+                }
+                if (type == ScoringProtocol.CANDIDATES) {
+                    query = in.readInt();
+                    CandidateSet candidates = ScoringProtocol.readCandidates(in, corpus.size());
+                    scorer = candidates.size() == 0 ? null : new MatchleScorer(corpus.retain(candidates));
+                } else if (type == ScoringProtocol.RANGE) {
+                    int rangeQuery = in.readInt();
+                    int strategy = in.readUnsignedByte();
+                    int limit = in.readInt();
+                    int from = in.readInt();
+                    int to = in.readInt();
+                    String problem = rangeQuery != query || scorer == null ? "No candidates for query " + rangeQuery + "."
+                                   : strategy >= GameSimulator.Strategy.values().length ? "Unknown strategy " + strategy + "."
+                                   : limit <= 0 || from < 0 || from > to || to > corpus.size() ? "Bad range."
+                                   : null;
+                    if (problem != null) {
+                        out.writeByte(ScoringProtocol.ERROR);
+                        out.writeUTF(problem);
+                    } else {
+                        List<ScoringCoordinator.Scored> best = score(scorer, GameSimulator.Strategy.values()[strategy],
+                                                                      limit, from, to);
+                        out.writeByte(ScoringProtocol.RESULT);
+                        out.writeInt(best.size());
+                        for (ScoringCoordinator.Scored scored : best) {
+                            out.writeInt(corpus.indexOf(scored.guess()));
+                            out.writeDouble(scored.score());
+                        }
+                    }
+                    out.flush();
+                } else {
+                    throw new IOException("Unknown message " + type + ".");
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // The worker is shutting down.
+        } catch (IOException e) {
+            System.err.println("Dropping coordinator: " + e.getMessage());
+        } finally {
+            connections.remove(channel);
+        }
+    }
+
+    /**
+     * Scores the guesses with ids in [from, to) in parallel and returns the best, best first.
+     */
+    private List<ScoringCoordinator.Scored> score(MatchleScorer scorer, GameSimulator.Strategy strategy,
+                                                  int limit, int from, int to) {
+        return IntStream.range(from, to).parallel()
+                        .mapToObj(id -> {
+                            NGram guess = corpus.get(id);
+                            double score;
+                            switch (strategy) {
+                                case WORST_CASE:
+                                    score = scorer.scoreWorstCase(guess);
+                                    break;
+                                case AVERAGE_CASE:
+                                    score = scorer.scoreAverageCase(guess);
+                                    break;
+                                default:
+                                    score = scorer.scoreEntropy(guess);
+                            }
+                            return new ScoringCoordinator.Scored(guess, score);
+                        })
+                        .sorted(ScoringCoordinator.order(strategy))
+                        .limit(limit)
+                        .collect(Collectors.toList());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ScoringWorker snapshot [address]");
+            System.exit(2);
+        }
+        Corpus corpus = Corpus.readSnapshot(Paths.get(args[0]));
+        SocketAddress address = ScoringProtocol.address(args.length > 1 ? args[1] : "0");
+        ScoringWorker worker = new ScoringWorker(corpus, address);
+        worker.start();
+        System.out.println(ScoringProtocol.format(worker.address()));
+        System.out.flush();
+        System.err.println("Scoring " + corpus.size() + " words on " + ScoringProtocol.format(worker.address()));
+        new CountDownLatch(1).await();  // Serve until killed
+    }
+}
@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Suggests guesses for one game and uses the time between a guess and its
+ * feedback to work out the next suggestion ahead of time.
+ *
+ * Once the guess is known ({@link #guessed(NGram)}), the remaining keys are
+ * split into feedback buckets, and the follow-up for the largest buckets (the
+ * most likely feedback) is scored in the background. When the feedback
+ * arrives ({@link #feedback(int)}), a branch that was started is served from
+ * its result and every other branch is cancelled at once; a branch that was
+ * not started is scored on the caller's thread, as without speculation.
+ *
+ * Speculative work is held to a CPU budget: it runs on its own pool of
+ * minimum-priority threads, sized to the given share of the processors, and
+ * at most maxBranches branches are started per guess. Instances are meant for
+ * one game and one thread at a time.
+ */
+public final class SpeculativeSuggester implements AutoCloseable {
+
+    /**
+     * Branches started per guess unless told otherwise.
+     */
+    public static final int DEFAULT_MAX_BRANCHES = 8;
+
+    private static record Branch(Corpus candidates, CompletableFuture<NGram> suggestion) {}
+
+    private final GameSimulator.Strategy strategy;
+    private final int maxBranches;
+    private final ScoringExecutor executor;
+    private Corpus candidates;
+    private NGram pending;  // The guess awaiting feedback, or null
+    private Map<Integer, Branch> branches = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a suggester for a game over the corpus.
+     *
+     * @param cpuShare share of the processors speculative work may use, in (0, 1];
+     *                 at least one thread is always used.
+     * @throws NullPointerException if corpus or strategy is null.
+     * @throws IllegalArgumentException if the corpus is empty, maxBranches is
+     *                                  negative or cpuShare is out of range.
+     */
+    public SpeculativeSuggester(Corpus corpus, GameSimulator.Strategy strategy, int maxBranches, double cpuShare) {
+        this(corpus, strategy, maxBranches, executor(cpuShare));
+    }
+
+    /**
+     * Creates a suggester that speculates on the given executor, which it
+     * shuts down when closed.
+     */
+    SpeculativeSuggester(Corpus corpus, GameSimulator.Strategy strategy, int maxBranches, ScoringExecutor executor) {
+        this.candidates = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        this.strategy = Objects.requireNonNull(strategy, "Strategy cannot be null.");
+        if (corpus.size() == 0) {
+            throw new IllegalArgumentException("Corpus cannot be empty.");
+        }
+        if (maxBranches < 0) {
+            throw new IllegalArgumentException("Branches must be non-negative and the CPU share in (0, 1].");
+        }
+        this.maxBranches = maxBranches;
+        this.executor = executor;
+    }
+
+    private static ScoringExecutor executor(double cpuShare) {
+        if (!(cpuShare > 0 && cpuShare <= 1)) {
+            throw new IllegalArgumentException("Branches must be non-negative and the CPU share in (0, 1].");
+        }
+        int threads = Math.max(1, (int) (cpuShare * Runtime.getRuntime().availableProcessors()));
+        return new ScoringExecutor(threads, Thread.MIN_PRIORITY);
+    }
+
+    /**
+     * Returns the keys still consistent with the feedback so far.
+     */
+    public Corpus candidates() {
+        return candidates;
+    }
+
+    /**
+     * Returns the strategy's choice among the remaining keys, scored now.
+     */
+    public NGram suggest() {
+        return strategy.choose(new MatchleScorer(candidates));
+    }
+
+    /**
+     * Records the guess just played and starts speculating on its feedback.
+     * Any speculation on an earlier guess whose feedback never came is cancelled.
+     *
+     * @throws NullPointerException if guess is null.
+     * @throws IllegalArgumentException if the guess has the wrong length.
+     */
+    public void guessed(NGram guess) {
+        Objects.requireNonNull(guess, "Guess cannot be null.");
+        if (guess.size() != candidates.wordSize()) {
+            throw new IllegalArgumentException("Guess has the wrong length.");
+        }
+        cancel(branches.values());
+        branches = new HashMap<>();
+        pending = guess;
+        for (int code : likelyCodes(guess)) {
+            Corpus branch = GameSimulator.narrow(candidates, guess, code);
+            branches.put(code, new Branch(branch, strategy.chooseAsync(
+                    new MatchleScorer(branch, executor), MatchleScorer.Priority.BACKGROUND)));
+        }
+    }
+
+    /**
+     * Returns the codes of the largest feedback buckets of the guess, largest
+     * first (lower code on ties), leaving out the code that ends the game.
+     */
+    private int[] likelyCodes(NGram guess) {
+        EncodedWords encoded = candidates.encoded();
+        int[] letters = encoded.encode(guess);
+        int[] scratch = encoded.scratch();
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for (int id = 0; id < candidates.size(); id++) {
+            sizes.merge(encoded.code(id, letters, scratch), 1, Integer::sum);
+        }
+        sizes.remove(Feedback.solved(guess.size()));
+        List<Map.Entry<Integer, Integer>> buckets = new ArrayList<>(sizes.entrySet());
+        buckets.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                             .thenComparing(Map.Entry.comparingByKey()));
+        return buckets.stream().limit(maxBranches).mapToInt(Map.Entry::getKey).toArray();
+    }
+
+    /**
+     * Records the feedback code for the pending guess, cancels every other
+     * branch and returns the next suggestion, or null if no key is consistent.
+     * When the code says the guess was the key, the guess is returned.
+     *
+     * @throws IllegalStateException if no guess is pending.
+     */
+    public NGram feedback(int code) {
+        if (pending == null) {
+            throw new IllegalStateException("No guess is waiting for feedback.");
+        }
+        NGram guess = pending;
+        Branch branch = branches.remove(code);
+        cancel(branches.values());
+        branches = new HashMap<>();
+        pending = null;
+        if (branch == null) {
+            candidates = GameSimulator.narrow(candidates, guess, code);
+            if (code == Feedback.solved(guess.size()) || candidates.size() == 0) {
+                return candidates.size() == 0 ? null : guess;
+            }
+            misses++;
+            return suggest();
+        }
+        hits++;
+        candidates = branch.candidates();
+        try {
+            return branch.suggestion().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of feedbacks served from a speculative branch.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of feedbacks, other than a solve, that had to be scored on arrival.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the speculative suggestions for the pending guess, by feedback code.
+     */
+    Map<Integer, CompletableFuture<NGram>> branches() {
+        Map<Integer, CompletableFuture<NGram>> result = new HashMap<>();
+        branches.forEach((code, branch) -> result.put(code, branch.suggestion()));
+        return result;
+    }
+
+    /**
+     * Cancels any speculation and releases the speculative threads.
+     */
+    @Override
+    public void close() {
+        cancel(branches.values());
+        branches = new HashMap<>();
+        pending = null;
+        executor.shutdown();
+    }
+
+    private static void cancel(Iterable<Branch> branches) {
+        for (Branch branch : branches) {
+            branch.suggestion().cancel(true);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SpeculativeSuggesterTest {
+
+    private static Corpus createCorpus() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+                NGram.from("cat"), NGram.from("cot"), NGram.from("dog"), NGram.from("dig"),
+                NGram.from("cut"), NGram.from("bat"), NGram.from("bog"))).build();
+    }
+
+    @Test
+    public void testSuggestionsMatchGamePlay() {
+        Corpus corpus = createCorpus();
+        for (int maxBranches : new int[] {0, 1, SpeculativeSuggester.DEFAULT_MAX_BRANCHES}) {
+            for (GameSimulator.Strategy strategy : GameSimulator.Strategy.values()) {
+                for (NGram key : corpus.corpus()) {
+                    try (SpeculativeSuggester suggester = new SpeculativeSuggester(corpus, strategy, maxBranches, 1.0)) {
+                        Corpus candidates = corpus;
+                        NGram guess = suggester.suggest();
+                        for (int round = 0; round < 6 && !guess.equals(key); round++) {
+                            assertEquals(strategy.choose(new MatchleScorer(candidates)), guess);
+                            int code = Feedback.code(key, guess);
+                            candidates = GameSimulator.narrow(candidates, guess, code);
+                            suggester.guessed(guess);
+                            guess = suggester.feedback(code);
+                            assertEquals(candidates.corpus(), suggester.candidates().corpus());
+                        }
+                        assertEquals(key, guess);
+                        if (maxBranches == 0) {
+                            assertEquals(0, suggester.hits());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The only speculative worker is held on a latch, so no branch can finish
+     * before the feedback arrives; every branch but the one served must then
+     * be cancelled.
+     */
+    @Test
+    public void testLargestBucketIsAHitAndOthersAreCancelled() throws Exception {
+        Corpus corpus = createCorpus();
+        ScoringExecutor executor = new ScoringExecutor(1, Thread.MIN_PRIORITY);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(MatchleScorer.Priority.INTERACTIVE, () -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        try (SpeculativeSuggester suggester =
+                     new SpeculativeSuggester(corpus, GameSimulator.Strategy.WORST_CASE, 2, executor)) {
+            NGram guess = NGram.from("cat");
+            suggester.guessed(guess);
+            Map<Integer, CompletableFuture<NGram>> branches = suggester.branches();
+            assertEquals(2, branches.size());
+            int absent = Feedback.pack(new int[] {0, 0, 0});  // dog, dig, bog
+            assertTrue(branches.containsKey(absent));
+            branches.values().forEach(branch -> assertFalse(branch.isDone()));
+
+            CompletableFuture<NGram> next = CompletableFuture.supplyAsync(() -> suggester.feedback(absent));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            for (Map.Entry<Integer, CompletableFuture<NGram>> branch : branches.entrySet()) {
+                if (branch.getKey() != absent) {
+                    while (!branch.getValue().isDone() && System.nanoTime() < deadline) {
+                        Thread.sleep(5);
+                    }
+                    assertTrue(branch.getValue().isCancelled());
+                }
+            }
+            assertFalse(branches.get(absent).isDone());
+            release.countDown();
+
+            assertNotNull(next.get(10, TimeUnit.SECONDS));
+            assertFalse(branches.get(absent).isCancelled());
+            assertEquals(1, suggester.hits());
+            assertEquals(0, suggester.misses());
+            assertEquals(3, suggester.candidates().size());
+            assertTrue(suggester.branches().isEmpty());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testAssistRoundRepromptsOnWrongLength() {
+        Corpus corpus = createCorpus();
+        try (SpeculativeSuggester suggester =
+                     new SpeculativeSuggester(corpus, GameSimulator.Strategy.WORST_CASE, 2, 1.0)) {
+            NGram suggestion = suggester.suggest();
+            NGram key = NGram.from("dog");
+            int code = Feedback.code(key, suggestion);
+            String feedback = Suggester.formatHistory(List.of(new Suggester.Turn(suggestion, code)))
+                                       .substring(suggestion.size() + 1);
+            // A wrong-length guess is asked for again; only a blank line means the suggestion.
+            Scanner scanner = new Scanner("ca\ncats\n\n" + feedback + "\n");
+            MatchleExtensionApp.processAssistRound(1, suggester, suggestion, scanner);
+            assertEquals(GameSimulator.narrow(corpus, suggestion, code).corpus(),
+                         suggester.candidates().corpus());
+
+            scanner = new Scanner("dogs\nbog\n020\n");
+            try (SpeculativeSuggester other =
+                         new SpeculativeSuggester(corpus, GameSimulator.Strategy.WORST_CASE, 2, 1.0)) {
+                MatchleExtensionApp.processAssistRound(1, other, other.suggest(), scanner);
+                assertEquals(GameSimulator.narrow(corpus, NGram.from("bog"), Feedback.pack(new int[] {0, 2, 0})).corpus(),
+                             other.candidates().corpus());
+            }
+        }
+    }
+
+    @Test
+    public void testUnexpectedFeedbackIsAMiss() {
+        try (SpeculativeSuggester suggester =
+                     new SpeculativeSuggester(createCorpus(), GameSimulator.Strategy.AVERAGE_CASE, 0, 0.5)) {
+            NGram guess = NGram.from("cat");
+            suggester.guessed(guess);
+            assertTrue(suggester.branches().isEmpty());
+            int code = Feedback.pack(new int[] {2, 0, 2});  // cot, cut
+            Corpus expected = GameSimulator.narrow(createCorpus(), guess, code);
+            assertEquals(GameSimulator.Strategy.AVERAGE_CASE.choose(new MatchleScorer(expected)),
+                         suggester.feedback(code));
+            assertEquals(0, suggester.hits());
+            assertEquals(1, suggester.misses());
+        }
+    }
+
+    @Test
+    public void testSolvedAndImpossibleFeedback() {
+        try (SpeculativeSuggester suggester =
+                     new SpeculativeSuggester(createCorpus(), GameSimulator.Strategy.ENTROPY, 4, 1.0)) {
+            NGram guess = NGram.from("cat");
+            suggester.guessed(guess);
+            assertEquals(guess, suggester.feedback(Feedback.solved(3)));
+            assertEquals(0, suggester.misses());
+            suggester.guessed(NGram.from("dog"));
+            assertNull(suggester.feedback(Feedback.solved(3)));
+            assertEquals(0, suggester.candidates().size());
+        }
+    }
+
+    @Test
+    public void testInvalidUse() {
+        Corpus corpus = createCorpus();
+        GameSimulator.Strategy strategy = GameSimulator.Strategy.WORST_CASE;
+        assertThrows(NullPointerException.class, () -> new SpeculativeSuggester(null, strategy, 1, 1.0));
+        assertThrows(NullPointerException.class, () -> new SpeculativeSuggester(corpus, null, 1, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new SpeculativeSuggester(corpus, strategy, -1, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new SpeculativeSuggester(corpus, strategy, 1, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new SpeculativeSuggester(corpus, strategy, 1, 1.5));
+        try (SpeculativeSuggester suggester = new SpeculativeSuggester(corpus, strategy, 1, 1.0)) {
+            assertThrows(IllegalStateException.class, () -> suggester.feedback(0));
+            assertThrows(IllegalArgumentException.class, () -> suggester.guessed(NGram.from("cats")));
+            assertThrows(NullPointerException.class, () -> suggester.guessed(null));
+        }
+    }
+}
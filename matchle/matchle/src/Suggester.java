@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "what should I guess next?" for a game in progress, from nothing but
+ * the game's history, so any number of players can share one instance.
+ *
+ * The remaining candidates are narrowed as a chain of Corpus views, one per
+ * turn, and the strategy picks the next guess among them. The opening guess
+ * depends only on the strategy, so it is computed once and cached. With an
+ * {@link OpeningBook}, the first two rounds are answered from the book.
+ */
+public final class Suggester {
+
+    /**
+     * One guess and the feedback code it received.
+     */
+    public static record Turn(NGram guess, int code) {
+        public Turn {
+            Objects.requireNonNull(guess, "Guess cannot be null.");
+        }
+    }
+
+    private final Corpus corpus;
+    private final OpeningBook book;  // Null without a book
+    private final Map<GameSimulator.Strategy, NGram> openings = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a suggester whose keys and guesses come from the given corpus.
+     *
+     * @throws NullPointerException if the corpus is null.
+     */
+    public Suggester(Corpus corpus) {
+        this.corpus = Objects.requireNonNull(corpus, "Corpus cannot be null.");
+        this.book = null;
+    }
+
+    /**
+     * Creates a suggester that answers the first two rounds from the book and
+     * draws everything else from the book's corpus.
+     *
+     * @throws NullPointerException if the book is null.
+     */
+    public Suggester(OpeningBook book) {
+        this.book = Objects.requireNonNull(book, "Book cannot be null.");
+        this.corpus = book.corpus();
+    }
+
+    /**
+     * Returns the corpus suggestions are drawn from.
+     */
+    public Corpus corpus() {
+        return corpus;
+    }
+
+    /**
+     * Returns the next guess for a game with the given history, or null if no
+     * key is consistent with it.
+     *
+     * @throws NullPointerException if strategy or history is null.
+     * @throws IllegalArgumentException if a guess has the wrong length.
+     */
+    public NGram suggest(GameSimulator.Strategy strategy, List<Turn> history) {
+        Objects.requireNonNull(strategy, "Strategy cannot be null.");
+        Objects.requireNonNull(history, "History cannot be null.");
+        NGram booked = book == null ? null : book.suggest(strategy, history);
+        if (booked != null) {
+            return booked;
+        }
+        if (history.isEmpty()) {
+            return openings.computeIfAbsent(strategy, s -> s.choose(new MatchleScorer(corpus)));
+        }
+        Corpus candidates = corpus;
+        for (Turn turn : history) {
+            if (turn.guess().size() != corpus.wordSize()) {
+                throw new IllegalArgumentException("Guess " + MatchleExtensionApp.ngramToString(turn.guess()) + " has the wrong length.");
+            }
+            candidates = GameSimulator.narrow(candidates, turn.guess(), turn.code());
+        }
+        return candidates.size() == 0 ? null : strategy.choose(new MatchleScorer(candidates));
+    }
+
+    /**
+     * Renders a history as comma-separated guess.feedback pairs, where the
+     * feedback has one digit per position (0 absent, 1 misplaced, 2 exact),
+     * position 0 first: for example raise.02100,clout.00022.
+     */
+    public static String formatHistory(List<Turn> history) {
+        StringBuilder sb = new StringBuilder();
+        for (Turn turn : history) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(MatchleExtensionApp.ngramToString(turn.guess())).append('.');
+            for (int state : Feedback.states(turn.code(), turn.guess().size())) {
+                sb.append((char) ('0' + state));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses the format of {@link #formatHistory(List)}; an empty string is an empty history.
+     *
+     * @throws IllegalArgumentException if the text is malformed.
+     */
+    public static List<Turn> parseHistory(String text) {
+        Objects.requireNonNull(text, "History cannot be null.");
+        List<Turn> history = new ArrayList<>();
+        if (text.isEmpty()) {
+            return history;
+        }
+        for (String pair : text.split(",", -1)) {
+            int dot = pair.lastIndexOf('.');
+            if (dot <= 0 || pair.length() - dot - 1 != dot || dot > Feedback.MAX_LENGTH) {
+                throw new IllegalArgumentException("Malformed turn: " + pair);
+            }
+            int[] states = new int[dot];
+            for (int i = 0; i < dot; i++) {
+                int state = pair.charAt(dot + 1 + i) - '0';
+                if (state < Feedback.ABSENT || state > Feedback.EXACT) {
+                    throw new IllegalArgumentException("Malformed feedback: " + pair);
+                }
+                states[i] = state;
+            }
+            history.add(new Turn(NGram.from(pair.substring(0, dot)), Feedback.pack(states)));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SuggesterTest {
+
+    private static Corpus createCorpus() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+                NGram.from("cat"), NGram.from("cot"), NGram.from("dog"), NGram.from("dig"),
+                NGram.from("cut"), NGram.from("bat"), NGram.from("bog"))).build();
+    }
+
+    @Test
+    public void testHistoryRoundTrip() {
+        List<Suggester.Turn> history = List.of(
+                new Suggester.Turn(NGram.from("raise"), Feedback.pack(new int[] {0, 2, 1, 0, 0})),
+                new Suggester.Turn(NGram.from("clout"), Feedback.pack(new int[] {0, 0, 0, 2, 2})));
+        String text = Suggester.formatHistory(history);
+        assertEquals("raise.02100,clout.00022", text);
+        assertEquals(history, Suggester.parseHistory(text));
+        assertEquals(List.of(), Suggester.parseHistory(""));
+    }
+
+    @Test
+    public void testMalformedHistory() {
+        assertThrows(IllegalArgumentException.class, () -> Suggester.parseHistory("cat"));
+        assertThrows(IllegalArgumentException.class, () -> Suggester.parseHistory("cat.01"));
+        assertThrows(IllegalArgumentException.class, () -> Suggester.parseHistory("cat.013"));
+        assertThrows(IllegalArgumentException.class, () -> Suggester.parseHistory("cat.012,"));
+        assertThrows(NullPointerException.class, () -> Suggester.parseHistory(null));
+    }
+
+    @Test
+    public void testSuggestionsMatchGamePlay() {
+        Corpus corpus = createCorpus();
+        Suggester suggester = new Suggester(corpus);
+        for (GameSimulator.Strategy strategy : GameSimulator.Strategy.values()) {
+            for (NGram key : corpus.corpus()) {
+                Corpus candidates = corpus;
+                List<Suggester.Turn> history = new ArrayList<>();
+                for (int round = 0; round < 6; round++) {
+                    NGram guess = suggester.suggest(strategy, history);
+                    assertEquals(strategy.choose(new MatchleScorer(candidates)), guess);
+                    if (guess.equals(key)) {
+                        break;
+                    }
+                    int code = Feedback.code(key, guess);
+                    history.add(new Suggester.Turn(guess, code));
+                    candidates = GameSimulator.narrow(candidates, guess, code);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInconsistentHistory() {
+        Suggester suggester = new Suggester(createCorpus());
+        int allExact = Feedback.solved(3);
+        List<Suggester.Turn> history = List.of(new Suggester.Turn(NGram.from("xyz"), allExact));
+        assertNull(suggester.suggest(GameSimulator.Strategy.WORST_CASE, history));
+        assertThrows(IllegalArgumentException.class, () -> suggester.suggest(GameSimulator.Strategy.ENTROPY,
+                List.of(new Suggester.Turn(NGram.from("cats"), 0))));
+    }
+}
@@ -0,0 +1,199 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * A small HTTP endpoint in front of a {@link Suggester}, bound to the loopback
+ * interface.
+ *
+ * {@code GET /suggest?strategy=worst&history=raise.02100,clout.00022} answers
+ * 200 with the suggested word as plain text, 404 when no key is consistent with
+ * the history and 400 for a malformed request. The server keeps no per-game
+ * state; each request carries its whole history. A server in front of a
+ * {@link DictionaryReloader} reads the reloader's current generation once per
+ * request, so a reloaded dictionary is served from the next request on.
+ *
+ * Usage: {@code java SuggestionServer [port] [corpusSize] [seed] [book]} where a size of 0 means
+ * "all words" and book is an {@link OpeningBook} file for that corpus, ignored when stale; or
+ * {@code java SuggestionServer port --watch wordLength wordFile...} to serve the words of that
+ * length from the files, reloaded whenever they change.
+ */
+public final class SuggestionServer implements AutoCloseable {
+
+    private final Supplier<Suggester> suggesters;  // Read once per request
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server on the given loopback port (0 picks a free one) that
+     * handles requests on the given number of threads. Call {@link #start()} to
+     * begin serving.
+     *
+     * @throws NullPointerException if suggester is null.
+     * @throws IllegalArgumentException if threads is not positive.
+     * @throws IOException if the port cannot be bound.
+     */
+    public SuggestionServer(Suggester suggester, int port, int threads) throws IOException {
+        this(constant(Objects.requireNonNull(suggester, "Suggester cannot be null.")), port, threads);
+    }
+
+    /**
+     * Creates a server like {@link #SuggestionServer(Suggester, int, int)}
+     * that answers each request from the reloader's current generation.
+     *
+     * @throws NullPointerException if reloader is null.
+     * @throws IllegalArgumentException if threads is not positive.
+     * @throws IOException if the port cannot be bound.
+     */
+    public SuggestionServer(DictionaryReloader reloader, int port, int threads) throws IOException {
+        this(current(Objects.requireNonNull(reloader, "Reloader cannot be null.")), port, threads);
+    }
+
+    private static Supplier<Suggester> constant(Suggester suggester) {
+        return () -> suggester;
+    }
+
+    private static Supplier<Suggester> current(DictionaryReloader reloader) {
+        return () -> reloader.current().suggester();
+    }
+
+    private SuggestionServer(Supplier<Suggester> suggesters, int port, int threads) throws IOException {
+        this.suggesters = suggesters;
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "suggestion-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/suggest", this::handle);
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server without waiting for exchanges in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Only GET is supported.");
+                return;
+            }
+            GameSimulator.Strategy strategy = GameSimulator.Strategy.WORST_CASE;
+            String history = "";
+            String query = exchange.getRequestURI().getRawQuery();
+            NGram guess;
+            try {
+                if (query != null) {
+                    for (String param : query.split("&")) {
+                        int eq = param.indexOf('=');
+                        String name = eq < 0 ? param : param.substring(0, eq);
+                        String value = eq < 0 ? "" : URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8);
+                        if (name.equals("strategy")) {
+                            strategy = GameSimulator.Strategy.fromLabel(value);
+                        } else if (name.equals("history")) {
+                            history = value;
+                        }
+                    }
+                }
+                guess = suggesters.get().suggest(strategy, Suggester.parseHistory(history));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage());
+                return;
+            }
+            if (guess == null) {
+                respond(exchange, 404, "No key is consistent with the history.");
+            } else {
+                respond(exchange, 200, MatchleExtensionApp.ngramToString(guess));
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 1 && args[1].equals("--watch")) {
+            serveWatched(args);
+            return;
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int corpusSize = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        Path bookFile = args.length > 3 ? Paths.get(args[3]) : null;
+
+        Corpus corpus = GameSimulator.sampleCorpus(corpusSize, seed);
+
+        OpeningBook book = bookFile == null ? null : OpeningBook.load(bookFile, corpus);
+        if (bookFile != null && book == null) {
+            System.err.println("Opening book " + bookFile + " is missing or stale; scoring openings live.");
+        }
+        Suggester suggester = book == null ? new Suggester(corpus) : new Suggester(book);
+        SuggestionServer server = new SuggestionServer(suggester, port, Runtime.getRuntime().availableProcessors());
+        server.start();
+        System.out.println("Serving " + corpus.size() + " words on http://localhost:" + server.port() + "/suggest");
+        new CountDownLatch(1).await();  // Serve until killed
+    }
+
+    private static void serveWatched(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            System.err.println("Usage: java SuggestionServer port --watch wordLength wordFile...");
+            System.exit(1);
+        }
+        int port = Integer.parseInt(args[0]);
+        int wordLength = Integer.parseInt(args[2]);
+        List<Path> files = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+        DictionaryReloader reloader = DictionaryReloader.forWordLength(wordLength, files);
+        reloader.start();
+        SuggestionServer server = new SuggestionServer(reloader, port, Runtime.getRuntime().availableProcessors());
+        server.start();
+        System.out.println("Serving " + reloader.current().corpus().size() + " words from " + files
+                           + " on http://localhost:" + server.port() + "/suggest");
+        new CountDownLatch(1).await();  // Serve until killed
+    }
+}
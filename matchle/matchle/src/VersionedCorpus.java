@@ -0,0 +1,95 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A dictionary that changes at runtime, published as a series of immutable
+ * Corpus snapshots.
+ *
+ * Every change builds the next snapshot from the current one by a single
+ * merge (see {@link Corpus#edit}), carrying the alphabet, encoded words and
+ * feedback matrix over and computing only what the added words bring, then
+ * publishes it with one atomic
+ * compare-and-set. Readers take {@link #snapshot()} once and keep using it
+ * for as long as they like, without locking; later changes never touch it.
+ */
+public final class VersionedCorpus {
+
+    /**
+     * One published version of the dictionary.
+     */
+    public static record Snapshot(long version, Corpus corpus) {
+    }
+
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * Starts at version 0 with the given corpus.
+     *
+     * @throws NullPointerException if the corpus is null.
+     */
+    public VersionedCorpus(Corpus initial) {
+        Objects.requireNonNull(initial, "Corpus cannot be null.");
+        this.current = new AtomicReference<>(new Snapshot(0, initial));
+    }
+
+    /**
+     * Returns the latest snapshot.
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Returns the corpus of the latest snapshot.
+     */
+    public Corpus corpus() {
+        return current.get().corpus();
+    }
+
+    /**
+     * Adds an NGram and returns the snapshot that includes it. Adding an NGram
+     * that is already present publishes nothing.
+     *
+     * @throws NullPointerException if the NGram is null.
+     * @throws IllegalArgumentException if the NGram has the wrong length.
+     */
+    public Snapshot add(NGram ngram) {
+        return update(List.of(Objects.requireNonNull(ngram, "NGram cannot be null.")), List.of());
+    }
+
+    /**
+     * Removes an NGram and returns the snapshot without it. Removing an absent
+     * NGram publishes nothing.
+     *
+     * @throws NullPointerException if the NGram is null.
+     */
+    public Snapshot remove(NGram ngram) {
+        return update(List.of(), List.of(Objects.requireNonNull(ngram, "NGram cannot be null.")));
+    }
+
+    /**
+     * Applies several additions and removals as one new snapshot; an NGram in
+     * both collections ends up removed. Concurrent updates are applied one
+     * after the other, each to the snapshot the previous one published.
+     *
+     * @throws NullPointerException if either collection or any NGram is null.
+     * @throws IllegalArgumentException if an added NGram has the wrong length.
+     */
+    public Snapshot update(Collection<NGram> added, Collection<NGram> removed) {
+        Objects.requireNonNull(added, "Added NGrams cannot be null.");
+        Objects.requireNonNull(removed, "Removed NGrams cannot be null.");
+        while (true) {
+            Snapshot before = current.get();
+            Corpus edited = before.corpus().edit(added, removed);
+            if (edited == before.corpus()) {
+                return before;
+            }
+            Snapshot after = new Snapshot(before.version() + 1, edited);
+            if (current.compareAndSet(before, after)) {
+                return after;
+            }
+        }
+    }
+}
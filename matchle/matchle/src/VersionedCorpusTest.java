@@ -0,0 +1,153 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class VersionedCorpusTest {
+
+    private Corpus createTestCorpus() {
+        return Corpus.Builder.create().addAll(Arrays.asList(
+            NGram.from("cat"),
+            NGram.from("dog"),
+            NGram.from("emu")
+        )).build();
+    }
+
+    @Test
+    public void testAddAndRemovePublishSnapshots() {
+        VersionedCorpus versioned = new VersionedCorpus(createTestCorpus());
+        VersionedCorpus.Snapshot first = versioned.snapshot();
+        assertEquals(0, first.version());
+
+        VersionedCorpus.Snapshot second = versioned.add(NGram.from("cow"));
+        assertEquals(1, second.version());
+        assertEquals(Arrays.asList(NGram.from("cat"), NGram.from("cow"), NGram.from("dog"), NGram.from("emu")),
+                     new ArrayList<>(second.corpus().corpus()));
+        VersionedCorpus.Snapshot third = versioned.remove(NGram.from("dog"));
+        assertEquals(2, third.version());
+        assertFalse(third.corpus().contains(NGram.from("dog")));
+
+        // Older snapshots are untouched.
+        assertEquals(3, first.corpus().size());
+        assertTrue(second.corpus().contains(NGram.from("dog")));
+        assertSame(third, versioned.snapshot());
+    }
+
+    @Test
+    public void testNoOpChangesPublishNothing() {
+        VersionedCorpus versioned = new VersionedCorpus(createTestCorpus());
+        VersionedCorpus.Snapshot first = versioned.snapshot();
+        assertSame(first, versioned.add(NGram.from("cat")));
+        assertSame(first, versioned.remove(NGram.from("yak")));
+        assertSame(first, versioned.update(List.of(NGram.from("yak")), List.of(NGram.from("yak"))));
+    }
+
+    @Test
+    public void testDerivedStructuresCarriedOver() {
+        VersionedCorpus versioned = new VersionedCorpus(createTestCorpus());
+        Corpus before = versioned.corpus();
+        EncodedWords encodedBefore = before.encoded();
+        Corpus after = versioned.update(List.of(NGram.from("toe"), NGram.from("god")), List.of(NGram.from("dog"))).corpus();
+        // No new letters and every letter of "dog" still occurs.
+        assertSame(before.alphabet(), after.alphabet());
+        EncodedWords encoded = after.encoded();
+        assertNotSame(encodedBefore, encoded);
+        NGram guess = NGram.from("oat");
+        int[] letters = encoded.encode(guess);
+        int[] scratch = encoded.scratch();
+        for (int id = 0; id < after.size(); id++) {
+            assertEquals(Feedback.code(after.get(id), guess), encoded.code(id, letters, scratch));
+        }
+
+        Corpus rebuilt = Corpus.Builder.of(after).build();
+        assertArrayEquals(rebuilt.contentHash(), after.contentHash());
+        MatchleScorer scorer = new MatchleScorer(after);
+        MatchleScorer reference = new MatchleScorer(rebuilt);
+        for (NGram g : rebuilt) {
+            assertEquals(reference.scoreWorstCase(g), scorer.scoreWorstCase(g));
+        }
+    }
+
+    /**
+     * Once computed, the feedback matrix follows every edit, kept codes copied
+     * and added words' rows and columns computed, even when the alphabet changes.
+     */
+    @Test
+    public void testFeedbackMatrixCarriedOver() {
+        VersionedCorpus versioned = new VersionedCorpus(createTestCorpus());
+        Corpus unmatrixed = versioned.add(NGram.from("eel")).corpus();
+        assertFalse(unmatrixed.hasFeedbackMatrix());
+        unmatrixed.feedbackMatrix();
+
+        List<Corpus> snapshots = List.of(
+            versioned.update(List.of(NGram.from("ant"), NGram.from("god"), NGram.from("zoo")), List.of(NGram.from("dog"))).corpus(),
+            versioned.remove(NGram.from("cat")).corpus(),
+            versioned.add(NGram.from("aaa")).corpus());
+        for (Corpus corpus : snapshots) {
+            assertTrue(corpus.hasFeedbackMatrix());
+            FeedbackMatrix matrix = corpus.feedbackMatrix();
+            assertTrue(matrix.matches(corpus));
+            for (int guess = 0; guess < corpus.size(); guess++) {
+                for (int key = 0; key < corpus.size(); key++) {
+                    assertEquals(corpus.get(key) + "/" + corpus.get(guess),
+                                 Feedback.code(corpus.get(key), corpus.get(guess)), matrix.code(key, guess));
+                }
+            }
+        }
+        MatchleScorer scorer = new MatchleScorer(snapshots.get(2), snapshots.get(2).feedbackMatrix());
+        MatchleScorer reference = new MatchleScorer(snapshots.get(2));
+        for (NGram g : snapshots.get(2)) {
+            assertEquals(reference.scoreEntropy(g), scorer.scoreEntropy(g), 1e-12);
+        }
+    }
+
+    @Test
+    public void testAlphabetRebuiltWhenLettersChange() {
+        VersionedCorpus versioned = new VersionedCorpus(createTestCorpus());
+        Alphabet before = versioned.corpus().alphabet();
+        Corpus added = versioned.add(NGram.from("yak")).corpus();
+        assertTrue(added.alphabet().contains('y'));
+        Corpus removed = versioned.remove(NGram.from("emu")).corpus();
+        assertFalse(removed.alphabet().contains('m'));
+        assertEquals(before.size() + 2 - 3, removed.alphabet().size());
+    }
+
+    @Test
+    public void testStartsEmpty() {
+        VersionedCorpus versioned = new VersionedCorpus(Corpus.Builder.EMPTY.build());
+        versioned.corpus().encoded();
+        Corpus corpus = versioned.add(NGram.from("cat")).corpus();
+        assertEquals(3, corpus.wordSize());
+        assertEquals(1, corpus.encoded().size());
+        assertThrows(IllegalArgumentException.class, () -> versioned.add(NGram.from("cats")));
+        assertEquals(0, versioned.remove(NGram.from("cat")).corpus().size());
+    }
+
+    @Test
+    public void testConcurrentUpdatesAllApplied() throws Exception {
+        VersionedCorpus versioned = new VersionedCorpus(createTestCorpus());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            Set<NGram> expected = new HashSet<>(versioned.corpus().corpus());
+            for (char c = 'a'; c <= 'z'; c++) {
+                NGram ngram = NGram.from("x" + c + c);
+                expected.add(ngram);
+                futures.add(pool.submit(() -> versioned.add(ngram)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(expected, new HashSet<>(versioned.corpus().corpus()));
+            assertEquals(26, versioned.snapshot().version());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}